@@ -0,0 +1,24 @@
+#!/bin/sh
+# Aggregate read throughput against 1..N shards of db/clinics-compose.yml.
+# Runs the patient-appointments keyset query with the same total client count,
+# spread evenly over the shards given, and prints queries/s per run:
+#   db/clinics-bench.sh 3306            # one shard
+#   db/clinics-bench.sh 3306 3307 3308  # three shards
+CLIENTS=${CLIENTS:-48}
+QUERY="SELECT a.id, a.appointment_date, a.status FROM appointments a
+       WHERE a.patient_id = (SELECT id FROM users WHERE role = 'PATIENT' ORDER BY RAND() LIMIT 1)
+       ORDER BY a.id LIMIT 50"
+
+per_shard=$((CLIENTS / $#))
+out=$(mktemp -d)
+for port in "$@"; do
+  mariadb-slap --host=127.0.0.1 --port="$port" --user=root --password=root \
+      --create-schema=medsys_db --concurrency="$per_shard" \
+      --number-of-queries=$((per_shard * 1000)) --query="$QUERY" > "$out/$port" &
+done
+start=$(date +%s)
+wait
+elapsed=$(( $(date +%s) - start ))
+total=$((per_shard * 1000 * $#))
+echo "$# shard(s), $CLIENTS clients: $total queries in ${elapsed}s = $((total / (elapsed > 0 ? elapsed : 1))) q/s"
+rm -rf "$out"
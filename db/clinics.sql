@@ -0,0 +1,21 @@
+-- Clinic directory (medsys.clinics.enabled=true, see ClinicDirectory).
+-- Lives on the default shard (spring.datasource) only.
+CREATE TABLE IF NOT EXISTS clinics (
+    id    VARCHAR(40) NOT NULL,
+    shard VARCHAR(40) NOT NULL,
+    state VARCHAR(10) NOT NULL DEFAULT 'ACTIVE',   -- ACTIVE | FROZEN (being migrated)
+    PRIMARY KEY (id)
+);
+
+-- one row per user; the primary key keeps usernames unique across shards
+CREATE TABLE IF NOT EXISTS user_clinics (
+    username  VARCHAR(50) NOT NULL,
+    clinic_id VARCHAR(40) NOT NULL,
+    PRIMARY KEY (username),
+    KEY ix_user_clinics_clinic (clinic_id),
+    CONSTRAINT fk_user_clinics_clinic FOREIGN KEY (clinic_id) REFERENCES clinics (id)
+);
+
+-- every existing user starts in clinic 'main' on the default shard
+INSERT IGNORE INTO clinics (id, shard) VALUES ('main', 'default');
+INSERT IGNORE INTO user_clinics (username, clinic_id) SELECT username, 'main' FROM users;
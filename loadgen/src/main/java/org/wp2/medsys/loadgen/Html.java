@@ -0,0 +1,55 @@
+package org.wp2.medsys.loadgen;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** Just enough HTML scraping for the MedSys forms: hidden inputs and select options. */
+final class Html {
+
+    private static final Pattern INPUT  = Pattern.compile("<input\\b[^>]*>", Pattern.CASE_INSENSITIVE);
+    private static final Pattern SELECT =
+            Pattern.compile("<select\\b[^>]*\\bname=\"([^\"]+)\"[^>]*>(.*?)</select>",
+                    Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+    private static final Pattern OPTION = Pattern.compile("<option\\b[^>]*\\bvalue=\"([^\"]+)\"", Pattern.CASE_INSENSITIVE);
+
+    private Html() {
+    }
+
+    /** value of the first {@code <input name="...">}, or {@code null} */
+    static String input(String html, String name) {
+        Matcher m = INPUT.matcher(html);
+        while (m.find()) {
+            String tag = m.group();
+            if (name.equals(attribute(tag, "name"))) {
+                return attribute(tag, "value");
+            }
+        }
+        return null;
+    }
+
+    /** non-empty option values of the first {@code <select name="...">} */
+    static List<String> options(String html, String name) {
+        List<String> values = new ArrayList<>();
+        Matcher select = SELECT.matcher(html);
+        while (select.find()) {
+            if (!select.group(1).equals(name)) {
+                continue;
+            }
+            Matcher option = OPTION.matcher(select.group(2));
+            while (option.find()) {
+                if (!option.group(1).isBlank()) {
+                    values.add(option.group(1));
+                }
+            }
+            break;
+        }
+        return values;
+    }
+
+    private static String attribute(String tag, String attribute) {
+        Matcher m = Pattern.compile("\\b" + attribute + "=\"([^\"]*)\"").matcher(tag);
+        return m.find() ? m.group(1).replace("&amp;", "&") : null;
+    }
+}
@@ -0,0 +1,107 @@
+package org.wp2.medsys.loadgen;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The user journeys replayed against the app, with their relative weights.
+ * Each journey is one user intent: open a page, or open a form and submit it,
+ * exactly as the browser would (same fields, tokens and redirects).
+ */
+final class Journeys {
+
+    @FunctionalInterface
+    interface Journey {
+        void run(VirtualUser user) throws IOException, InterruptedException;
+    }
+
+    record Weighted(String name, int weight, Journey journey) {}
+
+    static final List<Weighted> PATIENT = List.of(
+            new Weighted("dashboard",     40, u -> u.get("/patient/dashboard")),
+            new Weighted("records",       25, u -> u.get("/patient/records")),
+            new Weighted("prescriptions", 20, u -> u.get("/patient/prescriptions")),
+            new Weighted("schedule",      15, Journeys::schedule));
+
+    static final List<Weighted> DOCTOR = List.of(
+            new Weighted("dashboard",        30, u -> u.get("/doctor/dashboard")),
+            new Weighted("add record",       35, Journeys::addRecord),
+            new Weighted("add prescription", 35, Journeys::addPrescription));
+
+    private static final DateTimeFormatter DATE_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm");
+
+    private static final List<String[]> MEDICATIONS = List.of(
+            new String[]{"Amoxicillin", "500 mg three times daily"},
+            new String[]{"Ibuprofen", "400 mg as needed"},
+            new String[]{"Metformin", "850 mg twice daily"},
+            new String[]{"Lisinopril", "10 mg once daily"});
+
+    private Journeys() {
+    }
+
+    static Weighted pick(List<Weighted> journeys) {
+        int total = journeys.stream().mapToInt(Weighted::weight).sum();
+        int r = ThreadLocalRandom.current().nextInt(total);
+        for (Weighted w : journeys) {
+            r -= w.weight();
+            if (r < 0) {
+                return w;
+            }
+        }
+        return journeys.get(journeys.size() - 1);
+    }
+
+    /* ---------- patient ---------- */
+
+    /** half by named doctor, half "any doctor with this specialty", one to four weeks out */
+    private static void schedule(VirtualUser u) throws IOException, InterruptedException {
+        String form = u.get("/appointments").body();
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        String date = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS)
+                .plusDays(rnd.nextInt(7, 29)).withHour(rnd.nextInt(8, 17)).format(DATE_TIME);
+
+        String doctor = VirtualUser.pick(Html.options(form, "doctorId"));
+        String spec   = VirtualUser.pick(Html.options(form, "specialty"));
+        if (doctor == null && spec == null) {
+            return;   // no doctors seeded
+        }
+        boolean byDoctor = doctor != null && (spec == null || rnd.nextBoolean());
+        u.submit("/appointments/schedule", form, Map.of(
+                "appointmentDate", date,
+                byDoctor ? "doctorId" : "specialty", byDoctor ? doctor : spec,
+                "scheduleReason", "Load test check-up"));
+    }
+
+    /* ---------- doctor ---------- */
+
+    private static void addRecord(VirtualUser u) throws IOException, InterruptedException {
+        String form = u.get("/doctor/records").body();
+        String patient = VirtualUser.pick(Html.options(form, "patientId"));
+        if (patient == null) {
+            return;
+        }
+        u.submit("/doctor/records/batch", form, Map.of(
+                "patientId", patient,
+                "title", "Follow-up visit",
+                "notes", "Recorded by the load generator as " + u.username()));
+    }
+
+    private static void addPrescription(VirtualUser u) throws IOException, InterruptedException {
+        String form = u.get("/doctor/prescriptions").body();
+        String patient = VirtualUser.pick(Html.options(form, "patientId"));
+        if (patient == null) {
+            return;
+        }
+        String[] medication = MEDICATIONS.get(ThreadLocalRandom.current().nextInt(MEDICATIONS.size()));
+        u.submit("/doctor/prescriptions/batch", form, Map.of(
+                "patientId", patient,
+                "medication", medication[0],
+                "dosage", medication[1],
+                "notes", "Load test"));
+    }
+}
@@ -0,0 +1,179 @@
+package org.wp2.medsys.loadgen;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Closed-model load generator: {@code users} virtual users, each on its own
+ * virtual thread, log in and loop over weighted {@link Journeys} with an
+ * exponential think time in between. Users start evenly over {@code ramp-up};
+ * only requests made after the ramp-up are reported.
+ * <p>
+ * Accounts are the ones the {@code datagen} profile creates (all with
+ * password {@code pass}): doctors {@code house}, {@code wattson},
+ * {@code doctor1..}; patients {@code john.doe}, {@code jane.roe},
+ * {@code patient1..}.
+ * <pre>
+ * java -jar medsys-loadgen.jar --base-url=http://localhost:8080 --users=200 --duration=5m
+ * </pre>
+ */
+public final class LoadGenerator {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("base-url", "http://localhost:8080"),
+            Map.entry("users", "100"),
+            Map.entry("doctor-share", "0.1"),
+            Map.entry("duration", "2m"),
+            Map.entry("ramp-up", "30s"),
+            Map.entry("think-time", "1s"),
+            Map.entry("timeout", "30s"),
+            Map.entry("report-every", "10s"),
+            Map.entry("patient-accounts", "98"),
+            Map.entry("doctor-accounts", "8"),
+            Map.entry("password", "pass"));
+
+    private LoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> opts = parse(args);
+        URI base            = URI.create(opts.get("base-url"));
+        int users           = Integer.parseInt(opts.get("users"));
+        double doctorShare  = Double.parseDouble(opts.get("doctor-share"));
+        Duration duration   = duration(opts.get("duration"));
+        Duration rampUp     = duration(opts.get("ramp-up"));
+        Duration think      = duration(opts.get("think-time"));
+        Duration timeout    = duration(opts.get("timeout"));
+        Duration every      = duration(opts.get("report-every"));
+        int patientAccounts = Integer.parseInt(opts.get("patient-accounts"));
+        int doctorAccounts  = Integer.parseInt(opts.get("doctor-accounts"));
+
+        Stats warmup   = new Stats();
+        Stats measured = new Stats();
+        long start     = System.nanoTime();
+        long measureAt = start + rampUp.toNanos();
+        long stopAt    = measureAt + duration.toNanos();
+
+        System.out.printf("%d users (%.0f%% doctors) against %s: %s ramp-up, %s measured, %s think time%n",
+                users, doctorShare * 100, base, opts.get("ramp-up"), opts.get("duration"), opts.get("think-time"));
+
+        try (ExecutorService threads = Executors.newVirtualThreadPerTaskExecutor();
+             HttpClient client = HttpClient.newBuilder()
+                     .version(HttpClient.Version.HTTP_1_1)
+                     .followRedirects(HttpClient.Redirect.NEVER)
+                     .connectTimeout(timeout)
+                     .executor(threads)
+                     .build()) {
+
+            int doctors = (int) Math.round(users * doctorShare);
+            for (int i = 0; i < users; i++) {
+                boolean doctor = i < doctors;
+                String username = doctor ? doctorAccount(i, doctorAccounts) : patientAccount(i - doctors, patientAccounts);
+                long startAt = start + rampUp.toNanos() * i / Math.max(1, users);
+                VirtualUser user = new VirtualUser(client, base, warmup, username, opts.get("password"), timeout);
+                threads.submit(() -> {
+                    run(user, doctor ? Journeys.DOCTOR : Journeys.PATIENT, think, startAt, measureAt, stopAt, measured);
+                    return null;
+                });
+            }
+
+            long lastTotal = 0;
+            long lastAt    = start;
+            while (System.nanoTime() < stopAt) {
+                TimeUnit.NANOSECONDS.sleep(Math.min(every.toNanos(), stopAt - System.nanoTime()));
+                long now = System.nanoTime();
+                long total = warmup.total() + measured.total();
+                System.out.printf("[%4ds] %-7s %d requests, %.1f req/s, %d errors%n",
+                        TimeUnit.NANOSECONDS.toSeconds(now - start), now >= measureAt ? "measure" : "ramp-up",
+                        total, (total - lastTotal) * 1e9 / (now - lastAt), warmup.errors() + measured.errors());
+                lastTotal = total;
+                lastAt    = now;
+            }
+            threads.shutdownNow();
+        }
+
+        System.out.println();
+        measured.print(System.out, duration.toMillis() / 1000.0);
+    }
+
+    private static void run(VirtualUser user, List<Journeys.Weighted> journeys, Duration think,
+                            long startAt, long measureAt, long stopAt, Stats measured) throws InterruptedException {
+        TimeUnit.NANOSECONDS.sleep(Math.max(0, startAt - System.nanoTime()));
+        while (System.nanoTime() < stopAt) {
+            if (System.nanoTime() >= measureAt) {
+                user.reportTo(measured);
+            }
+            try {
+                user.ensureLoggedIn();
+                Journeys.pick(journeys).journey().run(user);
+            } catch (IOException e) {
+                // already counted; back off so a dead server is not hammered in a tight loop
+                TimeUnit.MILLISECONDS.sleep(think.toMillis());
+            }
+            long pause = (long) (-Math.log(1 - ThreadLocalRandom.current().nextDouble()) * think.toMillis());
+            TimeUnit.MILLISECONDS.sleep(Math.min(pause, Math.max(0, (stopAt - System.nanoTime()) / 1_000_000)));
+        }
+    }
+
+    /* ---------- accounts ---------- */
+
+    private static String doctorAccount(int i, int count) {
+        int n = i % (count + 2);
+        return n == 0 ? "house" : n == 1 ? "wattson" : "doctor" + (n - 1);
+    }
+
+    private static String patientAccount(int i, int count) {
+        int n = i % (count + 2);
+        return n == 0 ? "john.doe" : n == 1 ? "jane.roe" : "patient" + (n - 1);
+    }
+
+    /* ---------- options ---------- */
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> opts = new HashMap<>(DEFAULTS);
+        List<String> unknown = new ArrayList<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                unknown.add(arg);
+                continue;
+            }
+            String key = arg.substring(2, eq);
+            if (!DEFAULTS.containsKey(key)) {
+                unknown.add(arg);
+                continue;
+            }
+            opts.put(key, arg.substring(eq + 1));
+        }
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown arguments " + unknown + ", expected --key=value with keys "
+                    + DEFAULTS.keySet());
+        }
+        return opts;
+    }
+
+    /** 500ms, 30s, 5m, 1h */
+    static Duration duration(String value) {
+        String v = value.trim().toLowerCase();
+        if (v.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(v.substring(0, v.length() - 2)));
+        }
+        long n = Long.parseLong(v.substring(0, v.length() - 1));
+        return switch (v.charAt(v.length() - 1)) {
+            case 's' -> Duration.ofSeconds(n);
+            case 'm' -> Duration.ofMinutes(n);
+            case 'h' -> Duration.ofHours(n);
+            default  -> throw new IllegalArgumentException("Bad duration " + value + ", use e.g. 500ms, 30s, 5m");
+        };
+    }
+}
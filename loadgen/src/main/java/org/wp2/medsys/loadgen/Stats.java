@@ -0,0 +1,68 @@
+package org.wp2.medsys.loadgen;
+
+import java.io.PrintStream;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/** Per-endpoint counters and latency histograms, keyed by "METHOD /path". */
+final class Stats {
+
+    static final class Endpoint {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder        errors  = new LongAdder();
+        final LongAdder        shed    = new LongAdder();
+    }
+
+    private final ConcurrentHashMap<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+    private final LongAdder total = new LongAdder();
+
+    /**
+     * @param status HTTP status, or -1 when the request failed without a response
+     */
+    void record(String endpoint, long micros, int status, boolean ok) {
+        Endpoint e = endpoints.computeIfAbsent(endpoint, k -> new Endpoint());
+        e.latency.record(micros);
+        total.increment();
+        if (status == 503) {
+            e.shed.increment();
+        }
+        if (!ok) {
+            e.errors.increment();
+        }
+    }
+
+    long total() {
+        return total.sum();
+    }
+
+    long errors() {
+        return endpoints.values().stream().mapToLong(e -> e.errors.sum()).sum();
+    }
+
+    void print(PrintStream out, double seconds) {
+        out.printf("%-36s %9s %8s %7s %6s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "req/s", "err%", "shed", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        LatencyHistogram all = new LatencyHistogram();
+        long requests = 0, errors = 0, shed = 0;
+        for (Map.Entry<String, Endpoint> entry : new TreeMap<>(endpoints).entrySet()) {
+            Endpoint e = entry.getValue();
+            long n = e.latency.count();
+            row(out, entry.getKey(), n, e.errors.sum(), e.shed.sum(), e.latency, seconds);
+            requests += n;
+            errors   += e.errors.sum();
+            shed     += e.shed.sum();
+            all.merge(e.latency);
+        }
+        row(out, "TOTAL", requests, errors, shed, all, seconds);
+    }
+
+    private static void row(PrintStream out, String name, long n, long errors, long shed,
+                            LatencyHistogram latency, double seconds) {
+        out.printf("%-36s %9d %8.1f %6.2f%% %6d %8.1f %8.1f %8.1f %8.1f%n",
+                name, n, n / seconds, n == 0 ? 0.0 : 100.0 * errors / n, shed,
+                latency.percentile(50) / 1000.0, latency.percentile(90) / 1000.0,
+                latency.percentile(99) / 1000.0, latency.max() / 1000.0);
+    }
+}
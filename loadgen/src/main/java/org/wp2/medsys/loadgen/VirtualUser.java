@@ -0,0 +1,166 @@
+package org.wp2.medsys.loadgen;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * One simulated user: its own session cookie, logged in through the real
+ * {@code /login} form. Requests are timed and recorded in {@link Stats};
+ * a redirect to {@code /login} means the session was lost and triggers a
+ * fresh login on the next request.
+ */
+final class VirtualUser {
+
+    record Response(int status, String body, String location) {
+        boolean redirectedTo(String path) {
+            return location != null && URI.create(location).getPath().equals(path);
+        }
+    }
+
+    private final HttpClient client;
+    private final URI        base;
+    private final String     username;
+    private final String     password;
+    private final Duration   timeout;
+
+    /** cookie name to value; only the session cookie matters, but keep whatever the app sets */
+    private final Map<String, String> cookies = new LinkedHashMap<>();
+    private boolean loggedIn;
+    private Stats   stats;
+
+    VirtualUser(HttpClient client, URI base, Stats stats, String username, String password, Duration timeout) {
+        this.client   = client;
+        this.base     = base;
+        this.stats    = stats;
+        this.username = username;
+        this.password = password;
+        this.timeout  = timeout;
+    }
+
+    String username() {
+        return username;
+    }
+
+    /** switches where requests are recorded, e.g. from ramp-up to the measured run */
+    void reportTo(Stats stats) {
+        this.stats = stats;
+    }
+
+    /* ---------- session ---------- */
+
+    void ensureLoggedIn() throws IOException, InterruptedException {
+        if (loggedIn) {
+            return;
+        }
+        cookies.clear();
+        Response form = get("/login");
+        String csrf = Html.input(form.body(), "_csrf");
+        Response r = send("POST /login", post("/login", Map.of(
+                "username", username,
+                "password", password,
+                "_csrf", csrf == null ? "" : csrf)));
+        // success lands on /portal, a bad password on /login?error
+        loggedIn = r.status() == 302 && r.redirectedTo("/portal");
+        if (!loggedIn) {
+            throw new IOException("Login failed for " + username + " (" + r.status() + " " + r.location() + ")");
+        }
+    }
+
+    /* ---------- requests ---------- */
+
+    Response get(String path) throws IOException, InterruptedException {
+        return send("GET " + path, request(path).GET().build());
+    }
+
+    /**
+     * Posts {@code fields} plus the {@code _csrf} and {@code _idempotency}
+     * tokens of the form page {@code formPage} was rendered from. A redirect
+     * carrying {@code error=} counts as a failed request.
+     */
+    Response submit(String path, String formPage, Map<String, String> fields) throws IOException, InterruptedException {
+        Map<String, String> form = new LinkedHashMap<>(fields);
+        putIfPresent(form, "_csrf", Html.input(formPage, "_csrf"));
+        putIfPresent(form, "_idempotency", Html.input(formPage, "_idempotency"));
+        return send("POST " + path, post(path, form));
+    }
+
+    private HttpRequest post(String path, Map<String, String> form) {
+        StringJoiner body = new StringJoiner("&");
+        form.forEach((k, v) -> body.add(encode(k) + "=" + encode(v)));
+        return request(path)
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        HttpRequest.Builder b = HttpRequest.newBuilder(base.resolve(path)).timeout(timeout);
+        if (!cookies.isEmpty()) {
+            StringJoiner header = new StringJoiner("; ");
+            cookies.forEach((k, v) -> header.add(k + "=" + v));
+            b.header("Cookie", header.toString());
+        }
+        return b;
+    }
+
+    private Response send(String endpoint, HttpRequest request) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        HttpResponse<String> response;
+        try {
+            response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        } catch (IOException e) {
+            stats.record(endpoint, (System.nanoTime() - started) / 1000, -1, false);
+            throw e;
+        }
+        long micros = (System.nanoTime() - started) / 1000;
+        storeCookies(response.headers().allValues("Set-Cookie"));
+
+        Response r = new Response(response.statusCode(), response.body(),
+                response.headers().firstValue("Location").orElse(null));
+        boolean sessionLost = r.status() == 302 && r.redirectedTo("/login") && !endpoint.equals("POST /login");
+        if (sessionLost) {
+            loggedIn = false;
+        }
+        boolean ok = r.status() < 400 && !sessionLost
+                && (r.location() == null || !r.location().contains("error"));
+        stats.record(endpoint, micros, r.status(), ok);
+        return r;
+    }
+
+    private void storeCookies(List<String> headers) {
+        for (String header : headers) {
+            String pair = header.split(";", 2)[0];
+            int eq = pair.indexOf('=');
+            if (eq > 0) {
+                cookies.put(pair.substring(0, eq).trim(), pair.substring(eq + 1).trim());
+            }
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    static String pick(List<String> values) {
+        return values.isEmpty() ? null : values.get(ThreadLocalRandom.current().nextInt(values.size()));
+    }
+
+    private static void putIfPresent(Map<String, String> form, String name, String value) {
+        if (value != null) {
+            form.put(name, value);
+        }
+    }
+
+    private static String encode(String s) {
+        return URLEncoder.encode(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,38 @@
+package org.wp2.medsys.loadgen;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTests {
+
+    @Test
+    void bucketsAreContiguousAndRoundTripWithinPrecision() {
+        int last = -1;
+        for (long v = 0; v < 10_000_000; v += 1 + v / 500) {
+            int i = LatencyHistogram.index(v);
+            assertTrue(i == last || i == last + 1 || last == -1, "gap before " + v);
+            last = i;
+            long back = LatencyHistogram.valueOf(i);
+            assertTrue(Math.abs(back - v) <= Math.max(1, v / 64), v + " came back as " + back);
+        }
+        assertTrue(LatencyHistogram.index(Long.MAX_VALUE) >= 0);
+    }
+
+    @Test
+    void percentilesOfAUniformSpread() {
+        LatencyHistogram h = new LatencyHistogram();
+        for (int ms = 1; ms <= 1000; ms++) {
+            h.record(ms * 1000L);
+        }
+        assertEquals(1000, h.count());
+        assertClose(500_000, h.percentile(50));
+        assertClose(990_000, h.percentile(99));
+        assertClose(1_000_000, h.max());
+        assertEquals(0, new LatencyHistogram().percentile(99));
+    }
+
+    private static void assertClose(long expected, long actual) {
+        assertTrue(Math.abs(expected - actual) <= expected / 64, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,15 @@
+package org.wp2.medsys.DTO;
+
+import org.wp2.medsys.domain.Status;
+
+import java.time.LocalDateTime;
+
+/** An appointment as the change feed sends it: ids instead of names, plus when it last changed. */
+public record AppointmentChange(Long          id,
+                                LocalDateTime changedAt,
+                                LocalDateTime appointmentDate,
+                                Status        status,
+                                String        scheduleReason,
+                                Long          patientId,
+                                Long          doctorId,
+                                Long          seriesId) {}
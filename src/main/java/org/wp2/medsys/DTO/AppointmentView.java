@@ -0,0 +1,16 @@
+package org.wp2.medsys.DTO;
+
+import org.wp2.medsys.domain.Status;
+
+import java.time.LocalDateTime;
+
+/** Flat, read-only row of an appointment. */
+public record AppointmentView(Long          id,
+                              LocalDateTime appointmentDate,
+                              Status        status,
+                              String        scheduleReason,
+                              Long          patientId,
+                              String        patientUsername,
+                              Long          doctorId,
+                              String        doctorUsername,
+                              String        doctorSpec) {}
@@ -0,0 +1,16 @@
+package org.wp2.medsys.DTO;
+
+/**
+ * Outcome of one item of a batch write.
+ * <p>
+ * Batches are all-or-nothing: when any item fails validation, every result
+ * has a {@code null} id and only the offending items carry an {@code error}.
+ *
+ * @param index position of the item in the submitted list, 0-based
+ */
+public record BatchItemResult(int index, Long id, String error) {
+
+    public boolean ok() {
+        return error == null && id != null;
+    }
+}
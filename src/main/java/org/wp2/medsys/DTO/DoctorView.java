@@ -0,0 +1,4 @@
+package org.wp2.medsys.DTO;
+
+/** Public directory entry of a doctor. */
+public record DoctorView(Long id, String username, String spec) {}
@@ -0,0 +1,12 @@
+package org.wp2.medsys.DTO;
+
+import java.time.LocalDateTime;
+
+/** A medical record as the change feed sends it. */
+public record MedicalRecordChange(Long          id,
+                                  LocalDateTime changedAt,
+                                  LocalDateTime createdAt,
+                                  String        title,
+                                  String        notes,
+                                  Long          patientId,
+                                  Long          doctorId) {}
@@ -0,0 +1,5 @@
+package org.wp2.medsys.DTO;
+
+/** One entry of a multi-record form. */
+public record MedicalRecordItemDTO(String title,
+                                   String notes) {}
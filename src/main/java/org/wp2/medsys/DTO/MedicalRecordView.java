@@ -0,0 +1,14 @@
+package org.wp2.medsys.DTO;
+
+import java.time.LocalDateTime;
+
+/** Flat, read-only row of a medical record – what list views and the API need, no entity graph. */
+public record MedicalRecordView(Long          id,
+                                LocalDateTime createdAt,
+                                String        title,
+                                String        notes,
+                                Long          patientId,
+                                String        patientUsername,
+                                Long          doctorId,
+                                String        doctorUsername,
+                                String        doctorSpec) {}
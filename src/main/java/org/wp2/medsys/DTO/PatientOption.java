@@ -0,0 +1,4 @@
+package org.wp2.medsys.DTO;
+
+/** Just enough of a patient to fill a {@code <select>}. */
+public record PatientOption(Long id, String username) {}
@@ -0,0 +1,14 @@
+package org.wp2.medsys.DTO;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/** A prescription as the change feed sends it. */
+public record PrescriptionChange(Long          id,
+                                 LocalDateTime changedAt,
+                                 LocalDate     issueDate,
+                                 String        medication,
+                                 String        dosage,
+                                 String        notes,
+                                 Long          patientId,
+                                 Long          doctorId) {}
@@ -0,0 +1,6 @@
+package org.wp2.medsys.DTO;
+
+/** One line of a multi-drug prescription form. */
+public record PrescriptionItemDTO(String medication,
+                                  String dosage,
+                                  String notes) {}
@@ -0,0 +1,15 @@
+package org.wp2.medsys.DTO;
+
+import java.time.LocalDate;
+
+/** Flat, read-only row of a prescription – what list views and the API need, no entity graph. */
+public record PrescriptionView(Long      id,
+                               LocalDate issueDate,
+                               String    medication,
+                               String    dosage,
+                               String    notes,
+                               Long      patientId,
+                               String    patientUsername,
+                               Long      doctorId,
+                               String    doctorUsername,
+                               String    doctorSpec) {}
@@ -0,0 +1,12 @@
+package org.wp2.medsys.DTO;
+
+import org.wp2.medsys.domain.Role;
+
+import java.time.LocalDateTime;
+
+/** An account as the change feed sends it – no password hash, no contact details. */
+public record UserChange(Long          id,
+                         LocalDateTime changedAt,
+                         Role          role,
+                         String        username,
+                         LocalDateTime createdAt) {}
@@ -3,28 +3,61 @@ package org.wp2.medsys;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.AuthorizationFilter;
+import org.springframework.security.web.authentication.AnonymousAuthenticationFilter;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.wp2.medsys.admission.AdmissionController;
+import org.wp2.medsys.admission.AdmissionFilter;
+import org.wp2.medsys.clinics.ClinicDirectory;
+import org.wp2.medsys.clinics.ClinicFilter;
+import org.wp2.medsys.idempotency.IdempotencyFilter;
+import org.wp2.medsys.idempotency.IdempotencyKeys;
+import org.wp2.medsys.idempotency.IdempotencyProperties;
+import org.wp2.medsys.logging.CorrelationFilter;
+import org.wp2.medsys.ratelimit.RateLimitFilter;
+import org.wp2.medsys.ratelimit.RateLimitProperties;
+import org.wp2.medsys.ratelimit.RateLimiter;
 
 @Configuration
 @EnableMethodSecurity                 // lets you use @PreAuthorize later
 public class SecurityConfig {
 
     @Bean
-    public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+    public SecurityFilterChain filterChain(HttpSecurity http,
+                                           RateLimiter rateLimiter,
+                                           RateLimitProperties rateLimits,
+                                           ClinicDirectory clinics,
+                                           AdmissionController admission,
+                                           IdempotencyKeys idempotencyKeys,
+                                           IdempotencyProperties idempotency) throws Exception {
         http
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/login", "/register",
-                                "/css/**", "/js/**", "/logo.png").permitAll()
+                        .requestMatchers("/login", "/register", "/register/availability",
+                                "/css/**", "/js/**", "/logo.png", "/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
+                        .requestMatchers("/api/v1/changes/**").hasRole("ADMIN")
                         .anyRequest().authenticated())
                 .formLogin(form -> form
                         .loginPage("/login")           // our own view
                         .defaultSuccessUrl("/portal", true)
                         .permitAll())
+                .httpBasic(Customizer.withDefaults())  // API clients (/api/v1) send credentials per request
                 .logout(log -> log.logoutSuccessUrl("/login?logout"));
+        http.addFilterAfter(new CorrelationFilter(), AnonymousAuthenticationFilter.class);
+        // same anchor, added second: runs after the correlation filter so shed requests are logged with their id
+        http.addFilterAfter(new AdmissionFilter(admission), AnonymousAuthenticationFilter.class);
+        if (clinics.isEnabled()) {
+            // before rate limiting so a frozen clinic's writes are refused without spending tokens
+            http.addFilterAfter(new ClinicFilter(clinics), AuthorizationFilter.class);
+        }
+        // a replayed submission spends no rate-limit tokens
+        http.addFilterAfter(new IdempotencyFilter(idempotencyKeys, idempotency), AuthorizationFilter.class);
+        http.addFilterAfter(new RateLimitFilter(rateLimiter, rateLimits), AuthorizationFilter.class);
         return http.build();
     }
 
@@ -0,0 +1,75 @@
+package org.wp2.medsys;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.servlet.resource.CssLinkResourceTransformer;
+import org.springframework.web.servlet.resource.EncodedResourceResolver;
+import org.springframework.web.servlet.resource.VersionResourceResolver;
+
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    private static final String[] STATIC = {"/css/**", "/js/**", "/logo.png"};
+
+    /**
+     * Static assets get a content-hash in their URL ({@code /css/base-<md5>.css}),
+     * so they can be cached for a year and never revalidated.
+     * <ul>
+     *   <li>{@code @{/css/...}} links in templates are rewritten by Boot's
+     *       {@code ResourceUrlEncodingFilter} ({@code spring.web.resources.chain.enabled}).</li>
+     *   <li>{@code url(...)} references inside CSS (the logo) are rewritten too.</li>
+     *   <li>{@code .br}/{@code .gz} siblings produced at build time are served
+     *       when the browser accepts them.</li>
+     *   <li>Versioned responses carry the hash as their ETag.</li>
+     * </ul>
+     * The same files stay reachable under their plain names, so the handler
+     * sets no {@code Cache-Control} itself – {@link AssetCacheControl} does,
+     * depending on which of the two URLs was asked for.
+     */
+    @Override
+    public void addResourceHandlers(ResourceHandlerRegistry registry) {
+        registry.addResourceHandler(STATIC)
+                .addResourceLocations("classpath:/static/")
+                .resourceChain(true)
+                .addResolver(new EncodedResourceResolver())
+                .addResolver(new VersionResourceResolver().addContentVersionStrategy("/**"))
+                .addTransformer(new CssLinkResourceTransformer());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new AssetCacheControl()).addPathPatterns(STATIC);
+    }
+
+    /**
+     * A year and {@code immutable} for a fingerprinted URL, whose content
+     * never changes; {@code no-cache} for a plain one, which is revalidated
+     * against its {@code Last-Modified} and so picks up the next deploy.
+     */
+    static final class AssetCacheControl implements HandlerInterceptor {
+
+        /** the hex MD5 that {@code ContentVersionStrategy} puts before the extension */
+        private static final Pattern FINGERPRINTED = Pattern.compile("-[0-9a-f]{32}\\.[^/.]+$");
+
+        private static final String IMMUTABLE =
+                CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable().getHeaderValue();
+        private static final String REVALIDATE = CacheControl.noCache().cachePublic().getHeaderValue();
+
+        @Override
+        public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+            boolean fingerprinted = FINGERPRINTED.matcher(request.getRequestURI()).find();
+            response.setHeader(HttpHeaders.CACHE_CONTROL, fingerprinted ? IMMUTABLE : REVALIDATE);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.wp2.medsys.admission;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that follows observed latency (the "gradient" scheme).
+ * <p>
+ * A long-term average of the response times of requests that did not queue
+ * stands in for the latency the server has when it is not overloaded. After each request
+ * <pre>
+ *   gradient = clamp(tolerance * longRtt / rtt, 0.5, 1)
+ *   target   = limit * gradient + sqrt(limit)
+ * </pre>
+ * and the limit moves a {@code smoothing} step towards the target. While
+ * requests take about as long as usual the limit grows by about
+ * √limit per request; once queueing makes them slower than
+ * {@code tolerance} times usual it shrinks. Growth is skipped while fewer
+ * than half of the slots are in use, as such samples say nothing about capacity.
+ * <p>
+ * Admission itself is lock-free; only the limit update is synchronized.
+ */
+final class AdaptiveLimit {
+
+    private final int    minLimit;
+    private final int    maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final double longAlpha;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private volatile double limit;
+    private double          longRtt;
+
+    AdaptiveLimit(int initialLimit, int minLimit, int maxLimit,
+                  double tolerance, double smoothing, int longWindow) {
+        if (minLimit < 1 || maxLimit < minLimit || initialLimit < minLimit || initialLimit > maxLimit) {
+            throw new IllegalArgumentException("Need 1 <= min-limit <= initial-limit <= max-limit");
+        }
+        if (tolerance < 1) {
+            throw new IllegalArgumentException("tolerance must be at least 1");
+        }
+        this.minLimit  = minLimit;
+        this.maxLimit  = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.longAlpha = 2.0 / (longWindow + 1);
+        this.limit     = initialLimit;
+    }
+
+    /** takes a slot if fewer than {@code share} of the limit are in use */
+    boolean tryAcquire(double share) {
+        int allowed = Math.max(1, (int) (limit * share));
+        while (true) {
+            int current = inFlight.get();
+            if (current >= allowed) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /** gives the slot back, feeding the request's response time into the limit */
+    void release(long rttNanos) {
+        int before = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            update(rttNanos, before);
+        }
+    }
+
+    /** gives the slot back without a sample, e.g. when the request failed early */
+    void release() {
+        inFlight.decrementAndGet();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightAtEnd) {
+        double rtt = rttNanos;
+        if (longRtt == 0) {
+            longRtt = rtt;
+        } else if (rtt <= tolerance * longRtt || inFlightAtEnd <= 1) {
+            // only samples that did not queue (or ran alone) teach what "usual" is –
+            // otherwise sustained overload would slowly become the new normal
+            longRtt += (rtt - longRtt) * longAlpha;
+        }
+        if (longRtt > 2 * rtt) {
+            // load dropped off: let the average recover faster than the window would
+            longRtt *= 0.95;
+        }
+
+        double current  = limit;
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * longRtt / rtt));
+        double target   = current * gradient + Math.sqrt(current);
+        if (target > current && inFlightAtEnd < current / 2) {
+            return;
+        }
+        double next = current * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    int limit() {
+        return (int) limit;
+    }
+
+    int inFlight() {
+        return inFlight.get();
+    }
+}
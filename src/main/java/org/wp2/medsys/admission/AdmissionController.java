@@ -0,0 +1,72 @@
+package org.wp2.medsys.admission;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link AdaptiveLimit} for the node, shared by all {@link Priority}
+ * classes: a class is admitted while the requests in flight stay below its
+ * share of the limit.
+ * <p>
+ * Metrics: {@code medsys.admission.limit}, {@code medsys.admission.in-flight}
+ * and {@code medsys.admission.rejected} per priority.
+ */
+@Component
+public class AdmissionController {
+
+    private final AdmissionProperties     props;
+    private final AdaptiveLimit           limit;
+    private final Map<Priority, Counter>  rejected = new EnumMap<>(Priority.class);
+
+    public AdmissionController(AdmissionProperties props, MeterRegistry registry) {
+        for (Priority p : Priority.values()) {
+            Double share = props.getShares().get(p);
+            if (share == null || share <= 0 || share > 1) {
+                throw new IllegalStateException("medsys.admission.shares." + p.name().toLowerCase()
+                        + " must be in (0, 1], got " + share);
+            }
+        }
+        this.props = props;
+        this.limit = new AdaptiveLimit(props.getInitialLimit(), props.getMinLimit(), props.getMaxLimit(),
+                props.getTolerance(), props.getSmoothing(), props.getLongWindow());
+
+        Gauge.builder("medsys.admission.limit", limit, AdaptiveLimit::limit)
+                .description("Current adaptive concurrency limit")
+                .register(registry);
+        Gauge.builder("medsys.admission.in-flight", limit, AdaptiveLimit::inFlight)
+                .description("Admitted requests still running")
+                .register(registry);
+        for (Priority p : Priority.values()) {
+            rejected.put(p, Counter.builder("medsys.admission.rejected")
+                    .tag("priority", p.name().toLowerCase())
+                    .description("Requests shed with 503")
+                    .register(registry));
+        }
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    /** @return whether the request may run; if so, {@link #release} must follow */
+    public boolean tryAcquire(Priority priority) {
+        if (limit.tryAcquire(props.getShares().get(priority))) {
+            return true;
+        }
+        rejected.get(priority).increment();
+        return false;
+    }
+
+    public void release(long rttNanos) {
+        limit.release(rttNanos);
+    }
+
+    public void releaseWithoutSample() {
+        limit.release();
+    }
+}
@@ -0,0 +1,98 @@
+package org.wp2.medsys.admission;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Classifies each request into a {@link Priority} by role and endpoint and
+ * answers {@code 503 Service Unavailable} with {@code Retry-After} when its
+ * class has no room under the {@link AdmissionController} limit.
+ * <p>
+ * Sits in the security chain after anonymous authentication so the role is
+ * known; static assets and the health check are never counted. The form
+ * login POST is handled earlier in the chain and is not limited here. Not a
+ * bean, like the other filters in {@code SecurityConfig}.
+ */
+@Slf4j
+public class AdmissionFilter extends OncePerRequestFilter {
+
+    private final AdmissionController admission;
+
+    public AdmissionFilter(AdmissionController admission) {
+        this.admission = admission;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!admission.isEnabled()) {
+            return true;
+        }
+        String path = request.getServletPath();
+        return path.startsWith("/css/") || path.startsWith("/js/")
+                || path.equals("/logo.png") || path.equals("/actuator/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Priority priority = classify(request);
+        if (!admission.tryAcquire(priority)) {
+            log.debug("Shedding {} request {} {}", priority, request.getMethod(), request.getServletPath());
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "1");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("The service is busy – please try again in a moment.");
+            return;
+        }
+        long started = System.nanoTime();
+        boolean completed = false;
+        try {
+            chain.doFilter(request, response);
+            completed = true;
+        } finally {
+            if (completed) {
+                admission.release(System.nanoTime() - started);
+            } else {
+                // a failure says nothing reliable about how loaded we are
+                admission.releaseWithoutSample();
+            }
+        }
+    }
+
+    static Priority classify(HttpServletRequest request) {
+        String role = role();
+        boolean write = !"GET".equals(request.getMethod()) && !"HEAD".equals(request.getMethod());
+        if ("ROLE_DOCTOR".equals(role)) {
+            return write && request.getServletPath().startsWith("/doctor/") ? Priority.CRITICAL : Priority.HIGH;
+        }
+        if ("ROLE_ADMIN".equals(role)) {
+            // a partner catching up on the change feed can wait; people at a screen cannot
+            return request.getServletPath().startsWith("/api/v1/changes/") ? Priority.LOW : Priority.HIGH;
+        }
+        return write ? Priority.NORMAL : Priority.LOW;
+    }
+
+    private static String role() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null) {
+            return null;
+        }
+        for (GrantedAuthority a : auth.getAuthorities()) {
+            if (a.getAuthority().startsWith("ROLE_")) {
+                return a.getAuthority();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,46 @@
+package org.wp2.medsys.admission;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Admission control settings, bound from {@code medsys.admission.*}.
+ * <pre>
+ * medsys.admission.shares.low=0.5
+ * medsys.admission.shares.critical=1.0
+ * </pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.admission")
+public class AdmissionProperties {
+
+    private boolean enabled = true;
+
+    /** concurrent requests admitted at startup, before any latency was seen */
+    private int initialLimit = 50;
+
+    /** the limit never drops below this, however slow requests get */
+    private int minLimit = 10;
+
+    /** nor grows past this; keep it at or below the servlet thread pool */
+    private int maxLimit = 200;
+
+    /** how much slower than usual requests may get before the limit shrinks */
+    private double tolerance = 1.5;
+
+    /** fraction of the way the limit moves towards its new target per request */
+    private double smoothing = 0.2;
+
+    /** requests averaged into the "usual" response time */
+    private int longWindow = 600;
+
+    /** fraction of the limit each class may fill; the rest stays free for higher classes */
+    private Map<Priority, Double> shares = new EnumMap<>(Map.of(
+            Priority.LOW,      0.5,
+            Priority.NORMAL,   0.7,
+            Priority.HIGH,     0.9,
+            Priority.CRITICAL, 1.0));
+}
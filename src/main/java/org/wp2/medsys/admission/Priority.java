@@ -0,0 +1,17 @@
+package org.wp2.medsys.admission;
+
+/**
+ * Admission classes, most important last. Each class may use up to its
+ * {@code medsys.admission.shares} fraction of the current concurrency limit,
+ * so lower classes are shed first and the gap above them stays reserved.
+ */
+public enum Priority {
+    /** patient browsing, API reads, the change feed, anything unclassified */
+    LOW,
+    /** patient writes (booking) */
+    NORMAL,
+    /** doctor and admin pages */
+    HIGH,
+    /** doctor writes: records and prescriptions */
+    CRITICAL
+}
@@ -0,0 +1,216 @@
+package org.wp2.medsys.api;
+
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.wp2.medsys.archive.ArchiveQueries;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditEntry;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.services.AppointmentService;
+import org.wp2.medsys.services.DoctorService;
+import org.wp2.medsys.services.MedicalRecordService;
+import org.wp2.medsys.services.PrescriptionService;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Read-only JSON API for the mobile app and partner integrations.
+ * <p>
+ * Every list endpoint takes
+ * <ul>
+ *   <li>{@code cursor} – the {@code nextCursor} of the previous page (omit for the first),</li>
+ *   <li>{@code limit}  – page size, capped at {@code medsys.api.max-limit},</li>
+ *   <li>{@code fields} – comma-separated subset of the fields to return,</li>
+ *   <li>{@code archived} – {@code true} to page through rows moved to the archive tier
+ *       (appointments, records and prescriptions only).</li>
+ * </ul>
+ * Patients see their own data, doctors the data they are attached to;
+ * anyone else gets {@code 403}.
+ * Rows come from constructor-expression queries into the {@code *View}
+ * records, never from entities.
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/v1")
+public class ApiController {
+
+    private final UserRepository       userRepository;
+    private final AppointmentService   appointmentService;
+    private final MedicalRecordService medicalRecordService;
+    private final PrescriptionService  prescriptionService;
+    private final DoctorService        doctorService;
+    private final ArchiveQueries       archiveQueries;
+    private final AuditLog             auditLog;
+    private final JsonPageWriter       writer;
+    private final int                  defaultLimit;
+    private final int                  maxLimit;
+
+    public ApiController(UserRepository userRepository,
+                         AppointmentService appointmentService,
+                         MedicalRecordService medicalRecordService,
+                         PrescriptionService prescriptionService,
+                         DoctorService doctorService,
+                         ArchiveQueries archiveQueries,
+                         AuditLog auditLog,
+                         JsonPageWriter writer,
+                         @Value("${medsys.api.default-limit:50}") int defaultLimit,
+                         @Value("${medsys.api.max-limit:500}") int maxLimit) {
+        this.userRepository       = userRepository;
+        this.appointmentService   = appointmentService;
+        this.medicalRecordService = medicalRecordService;
+        this.prescriptionService  = prescriptionService;
+        this.doctorService        = doctorService;
+        this.archiveQueries       = archiveQueries;
+        this.auditLog             = auditLog;
+        this.writer               = writer;
+        this.defaultLimit         = defaultLimit;
+        this.maxLimit             = maxLimit;
+    }
+
+    /* ---------- endpoints ---------- */
+
+    @GetMapping("/appointments")
+    public void appointments(@RequestParam(required = false) String cursor,
+                             @RequestParam(required = false) Integer limit,
+                             @RequestParam(required = false) String fields,
+                             @RequestParam(defaultValue = "false") boolean archived,
+                             Authentication authentication,
+                             HttpServletResponse response) throws IOException {
+        var selected = FieldSet.APPOINTMENTS.select(fields);
+        long after = JsonPageWriter.decodeCursor(cursor);
+        int  n     = limit(limit);
+        User user  = currentUser(authentication);
+
+        var rows = archived
+                ? archiveQueries.appointments(owner(user), user.getId(), after, n + 1)
+                : user instanceof Doctor
+                ? appointmentService.findPageByDoctor(user.getId(), after, n + 1)
+                : appointmentService.findPageByPatient(patientId(user), after, n + 1);
+        writer.write(response, rows, n, selected, r -> r.id());
+    }
+
+    @GetMapping("/records")
+    public void records(@RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) Integer limit,
+                        @RequestParam(required = false) String fields,
+                        @RequestParam(defaultValue = "false") boolean archived,
+                        Authentication authentication,
+                        HttpServletResponse response) throws IOException {
+        var selected = FieldSet.RECORDS.select(fields);
+        long after = JsonPageWriter.decodeCursor(cursor);
+        int  n     = limit(limit);
+        User user  = currentUser(authentication);
+
+        var rows = archived
+                ? archiveQueries.records(owner(user), user.getId(), after, n + 1)
+                : user instanceof Doctor
+                ? medicalRecordService.findPageByDoctor(user.getId(), after, n + 1)
+                : medicalRecordService.findPageByPatient(patientId(user), after, n + 1);
+        audit(user, AuditAction.DOCTOR_RECORDS, AuditAction.PATIENT_RECORDS, rows, n, MedicalRecordView::patientId);
+        writer.write(response, rows, n, selected, r -> r.id());
+    }
+
+    @GetMapping("/prescriptions")
+    public void prescriptions(@RequestParam(required = false) String cursor,
+                              @RequestParam(required = false) Integer limit,
+                              @RequestParam(required = false) String fields,
+                              @RequestParam(defaultValue = "false") boolean archived,
+                              Authentication authentication,
+                              HttpServletResponse response) throws IOException {
+        var selected = FieldSet.PRESCRIPTIONS.select(fields);
+        long after = JsonPageWriter.decodeCursor(cursor);
+        int  n     = limit(limit);
+        User user  = currentUser(authentication);
+
+        var rows = archived
+                ? archiveQueries.prescriptions(owner(user), user.getId(), after, n + 1)
+                : user instanceof Doctor
+                ? prescriptionService.findPageByDoctor(user.getId(), after, n + 1)
+                : prescriptionService.findPageByPatient(patientId(user), after, n + 1);
+        audit(user, AuditAction.DOCTOR_PRESCRIPTIONS, AuditAction.PATIENT_PRESCRIPTIONS, rows, n, PrescriptionView::patientId);
+        writer.write(response, rows, n, selected, r -> r.id());
+    }
+
+    @GetMapping("/doctors")
+    public void doctors(@RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) Integer limit,
+                        @RequestParam(required = false) String fields,
+                        HttpServletResponse response) throws IOException {
+        var selected = FieldSet.DOCTORS.select(fields);
+        long after = JsonPageWriter.decodeCursor(cursor);
+        int  n     = limit(limit);
+
+        writer.write(response, doctorService.findDirectoryPage(after, n + 1), n, selected, d -> d.id());
+    }
+
+    /* ---------- errors ---------- */
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /** only refusals raised here; anything else is a server error and goes to the normal handling */
+    @ExceptionHandler(AccessDeniedException.class)
+    public ResponseEntity<Map<String, String>> forbidden(AccessDeniedException e) {
+        log.debug("API access refused: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.FORBIDDEN).body(Map.of("error", "Access denied"));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private int limit(Integer requested) {
+        if (requested == null) {
+            return defaultLimit;
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    private User currentUser(Authentication authentication) {
+        return userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new AccessDeniedException("No account for " + authentication.getName()));
+    }
+
+    /** one entry per patient on the page: the first {@code n} of {@code rows} (the extra one only tells if there is more) */
+    private <T> void audit(User user, AuditAction asDoctor, AuditAction asPatient,
+                           List<T> rows, int n, Function<T, Long> patientId) {
+        auditLog.recordPatients(user instanceof Doctor ? asDoctor : asPatient, user.getId(),
+                rows.stream().limit(n).map(patientId).toList(), AuditEntry.Channel.API);
+    }
+
+    private ArchiveQueries.Owner owner(User user) {
+        if (!archiveQueries.isAvailable()) {
+            throw new IllegalArgumentException("No archive on this installation");
+        }
+        if (user instanceof Doctor) {
+            return ArchiveQueries.Owner.DOCTOR;
+        }
+        patientId(user);
+        return ArchiveQueries.Owner.PATIENT;
+    }
+
+    private static Long patientId(User user) {
+        if (!(user instanceof Patient)) {
+            throw new AccessDeniedException("Only patients and doctors have clinical data");
+        }
+        return user.getId();
+    }
+}
@@ -0,0 +1,88 @@
+package org.wp2.medsys.api;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+/**
+ * Position in a change feed: per shard, the last row a consumer has seen, by
+ * {@code (changedAt, id)}. Shards the cursor does not know yet start at
+ * {@code fallback}. Opaque to clients, like the page cursors of
+ * {@link JsonPageWriter}.
+ */
+record ChangeCursor(Map<String, Position> positions, Position fallback) {
+
+    record Position(LocalDateTime changedAt, long id) {}
+
+    private static final String PREFIX = "c2:";
+
+    /** before every row */
+    static final Position START = new Position(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+
+    ChangeCursor {
+        positions = Map.copyOf(positions);
+    }
+
+    /** no position yet: every shard starts just before the rows changed at {@code since}, or at the start */
+    static ChangeCursor since(LocalDateTime since) {
+        return new ChangeCursor(Map.of(), since == null ? START : new Position(since, 0L));
+    }
+
+    /** the key of {@code shard}; {@code null} is the single datasource of an unsharded setup */
+    static String key(String shard) {
+        return Objects.requireNonNullElse(shard, "");
+    }
+
+    Position at(String key) {
+        return positions.getOrDefault(key, fallback);
+    }
+
+    ChangeCursor with(Map<String, Position> moved) {
+        Map<String, Position> next = new LinkedHashMap<>(positions);
+        next.putAll(moved);
+        return new ChangeCursor(next, fallback);
+    }
+
+    /** only the positions travel; a decoded cursor has {@link #START} for shards added since */
+    String encode() {
+        StringJoiner raw = new StringJoiner(";", PREFIX, "");
+        positions.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .forEach(e -> raw.add(URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8)
+                        + "=" + e.getValue().changedAt() + "/" + e.getValue().id()));
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** @throws IllegalArgumentException if {@code cursor} was not made by {@link #encode} */
+    static ChangeCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (!raw.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            Map<String, Position> positions = new LinkedHashMap<>();
+            String body = raw.substring(PREFIX.length());
+            for (String entry : body.isEmpty() ? new String[0] : body.split(";")) {
+                int eq    = entry.indexOf('=');
+                int slash = entry.lastIndexOf('/');
+                if (eq < 0 || slash < eq) {
+                    throw new IllegalArgumentException("Invalid cursor");
+                }
+                positions.put(URLDecoder.decode(entry.substring(0, eq), StandardCharsets.UTF_8),
+                        new Position(LocalDateTime.parse(entry.substring(eq + 1, slash)),
+                                Long.parseLong(entry.substring(slash + 1))));
+            }
+            return new ChangeCursor(positions, START);
+        } catch (IllegalArgumentException | DateTimeParseException e) {   // also covers NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
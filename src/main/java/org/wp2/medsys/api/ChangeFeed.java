@@ -0,0 +1,66 @@
+package org.wp2.medsys.api;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reads one page of a change feed across shards: each shard from its own
+ * position in the cursor, in turn, until the page is full.
+ */
+final class ChangeFeed {
+
+    /** rows of the current shard after {@code after} by {@code (changedAt, id)}, in that order, at most {@code limit} */
+    @FunctionalInterface
+    interface Query<T> {
+        List<T> find(ChangeCursor.Position after, int limit);
+    }
+
+    /** @param more whether to ask again right away; may lead to an empty page */
+    record Page<T>(List<T> items, ChangeCursor next, boolean more) {}
+
+    private ChangeFeed() {
+    }
+
+    /**
+     * @param forEachShard runs its argument once per shard, with that shard current
+     *                     (see {@code ClinicShards.forEach})
+     */
+    static <T> Page<T> read(Consumer<Consumer<String>> forEachShard,
+                            ChangeCursor from,
+                            int limit,
+                            Query<T> query,
+                            Function<T, LocalDateTime> changedAt,
+                            ToLongFunction<T> id) {
+        List<T> items = new ArrayList<>();
+        Map<String, ChangeCursor.Position> moved = new LinkedHashMap<>();
+        boolean[] more = {false};
+        forEachShard.accept(shard -> {
+            String key = ChangeCursor.key(shard);
+            ChangeCursor.Position at = from.at(key);
+            // recorded even when nothing is read, so a `since` start is kept for every shard
+            moved.put(key, at);
+            int room = limit - items.size();
+            if (room == 0) {
+                more[0] = true;
+                return;
+            }
+            List<T> rows = query.find(at, room + 1);
+            if (rows.size() > room) {
+                more[0] = true;
+                rows = rows.subList(0, room);
+            }
+            if (!rows.isEmpty()) {
+                T last = rows.get(rows.size() - 1);
+                moved.put(key, new ChangeCursor.Position(changedAt.apply(last), id.applyAsLong(last)));
+            }
+            items.addAll(rows);
+        });
+        return new Page<>(items, from.with(moved), more[0]);
+    }
+}
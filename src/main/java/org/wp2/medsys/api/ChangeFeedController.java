@@ -0,0 +1,187 @@
+package org.wp2.medsys.api;
+
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditEntry;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.DTO.AppointmentChange;
+import org.wp2.medsys.DTO.MedicalRecordChange;
+import org.wp2.medsys.DTO.PrescriptionChange;
+import org.wp2.medsys.DTO.UserChange;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.repositories.AppointmentRepository;
+import org.wp2.medsys.repositories.MedicalRecordRepository;
+import org.wp2.medsys.repositories.PrescriptionRepository;
+import org.wp2.medsys.repositories.UserRepository;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Incremental change feed for systems that mirror our data (admins only).
+ * <p>
+ * One feed per table, each ordered by {@code (changed_at, id)} – a column the
+ * database sets on every insert and update – and read as a range of its
+ * index, so a page costs the same however large the table is. A consumer
+ * pages from the start once, keeps the last {@code nextCursor} and polls from
+ * it; then it only reads what changed since. Updated rows come again, so
+ * consumers upsert by id.
+ * <ul>
+ *   <li>{@code cursor} – where the previous response left off,</li>
+ *   <li>{@code since}  – without a cursor, an ISO date-time to start from
+ *       (omit both for everything),</li>
+ *   <li>{@code limit}  – page size, capped at {@code medsys.changes.max-limit},</li>
+ *   <li>{@code fields} – comma-separated subset of the fields to return.</li>
+ * </ul>
+ * With clinics enabled, every shard is read in turn and the cursor holds a
+ * position per shard; ids are unique across shards (see the README). Deletes
+ * and rows moved to the archive tier are not in the feed.
+ */
+@RestController
+@RequestMapping("/api/v1/changes")
+public class ChangeFeedController {
+
+    private final AppointmentRepository   appointments;
+    private final MedicalRecordRepository records;
+    private final PrescriptionRepository  prescriptions;
+    private final UserRepository          users;
+    private final JdbcTemplate            jdbc;
+    private final AuditLog                auditLog;
+    private final JsonPageWriter          writer;
+    private final ChangeFeedProperties    props;
+    private final ClinicShards            shards;
+
+    public ChangeFeedController(AppointmentRepository appointments,
+                                MedicalRecordRepository records,
+                                PrescriptionRepository prescriptions,
+                                UserRepository users,
+                                JdbcTemplate jdbc,
+                                AuditLog auditLog,
+                                JsonPageWriter writer,
+                                ChangeFeedProperties props,
+                                ClinicShards shards) {
+        this.appointments  = appointments;
+        this.records       = records;
+        this.prescriptions = prescriptions;
+        this.users         = users;
+        this.jdbc          = jdbc;
+        this.auditLog      = auditLog;
+        this.writer        = writer;
+        this.props         = props;
+        this.shards        = shards;
+    }
+
+    /* ---------- endpoints ---------- */
+
+    @GetMapping("/appointments")
+    public void appointments(@RequestParam(required = false) String cursor,
+                             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                             @RequestParam(required = false) Integer limit,
+                             @RequestParam(required = false) String fields,
+                             HttpServletResponse response) throws IOException {
+        var selected = FieldSet.APPOINTMENT_CHANGES.select(fields);
+        var page = read(cursor, since, limit, (at, n) ->
+                appointments.findChanges(at.changedAt(), at.id(), until(), PageRequest.ofSize(n)),
+                AppointmentChange::changedAt, AppointmentChange::id);
+        writer.writeFeed(response, page.items(), selected, page.next().encode(), page.more());
+    }
+
+    @GetMapping("/records")
+    public void records(@RequestParam(required = false) String cursor,
+                        @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                        @RequestParam(required = false) Integer limit,
+                        @RequestParam(required = false) String fields,
+                        Authentication authentication,
+                        HttpServletResponse response) throws IOException {
+        var selected = FieldSet.RECORD_CHANGES.select(fields);
+        var page = read(cursor, since, limit, (at, n) ->
+                records.findChanges(at.changedAt(), at.id(), until(), PageRequest.ofSize(n)),
+                MedicalRecordChange::changedAt, MedicalRecordChange::id);
+        audit(authentication, AuditAction.FEED_RECORDS, page.items(), MedicalRecordChange::patientId);
+        writer.writeFeed(response, page.items(), selected, page.next().encode(), page.more());
+    }
+
+    @GetMapping("/prescriptions")
+    public void prescriptions(@RequestParam(required = false) String cursor,
+                              @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                              @RequestParam(required = false) Integer limit,
+                              @RequestParam(required = false) String fields,
+                              Authentication authentication,
+                              HttpServletResponse response) throws IOException {
+        var selected = FieldSet.PRESCRIPTION_CHANGES.select(fields);
+        var page = read(cursor, since, limit, (at, n) ->
+                prescriptions.findChanges(at.changedAt(), at.id(), until(), PageRequest.ofSize(n)),
+                PrescriptionChange::changedAt, PrescriptionChange::id);
+        audit(authentication, AuditAction.FEED_PRESCRIPTIONS, page.items(), PrescriptionChange::patientId);
+        writer.writeFeed(response, page.items(), selected, page.next().encode(), page.more());
+    }
+
+    @GetMapping("/users")
+    public void users(@RequestParam(required = false) String cursor,
+                      @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+                      @RequestParam(required = false) Integer limit,
+                      @RequestParam(required = false) String fields,
+                      HttpServletResponse response) throws IOException {
+        var selected = FieldSet.USER_CHANGES.select(fields);
+        var page = read(cursor, since, limit, (at, n) ->
+                users.findChanges(at.changedAt(), at.id(), until(), PageRequest.ofSize(n)),
+                UserChange::changedAt, UserChange::id);
+        writer.writeFeed(response, page.items(), selected, page.next().encode(), page.more());
+    }
+
+    /* ---------- errors ---------- */
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<Map<String, String>> badRequest(IllegalArgumentException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private <T> ChangeFeed.Page<T> read(String cursor, LocalDateTime since, Integer limit,
+                                        ChangeFeed.Query<T> query,
+                                        Function<T, LocalDateTime> changedAt,
+                                        ToLongFunction<T> id) {
+        ChangeCursor from = cursor != null && !cursor.isBlank() ? ChangeCursor.decode(cursor) : ChangeCursor.since(since);
+        return ChangeFeed.read(shards::forEach, from, limit(limit), query, changedAt, id);
+    }
+
+    /**
+     * the feed stops {@code settle} before the current shard's clock – its
+     * clock, because it stamps {@code changed_at} – so nothing still in flight
+     * is skipped
+     */
+    private LocalDateTime until() {
+        LocalDateTime now = jdbc.queryForObject("SELECT CURRENT_TIMESTAMP(6)", LocalDateTime.class);
+        return now.minus(props.getSettle());
+    }
+
+    private int limit(Integer requested) {
+        if (requested == null) {
+            return props.getDefaultLimit();
+        }
+        if (requested < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        return Math.min(requested, props.getMaxLimit());
+    }
+
+    /** one entry per patient on the page, with the integration account as the actor */
+    private <T> void audit(Authentication authentication, AuditAction action, List<T> page, Function<T, Long> patientId) {
+        long actorId = users.findByUsername(authentication.getName())
+                .map(User::getId)
+                .orElseThrow(() -> new IllegalStateException("User not found"));
+        auditLog.recordPatients(action, actorId, page.stream().map(patientId).toList(), AuditEntry.Channel.API);
+    }
+}
@@ -0,0 +1,25 @@
+package org.wp2.medsys.api;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Change feed settings, bound from {@code medsys.changes.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.changes")
+public class ChangeFeedProperties {
+
+    /**
+     * rows changed more recently than this are held back. {@code changed_at}
+     * is taken when a statement runs, not when its transaction commits; a
+     * transaction open longer than this could slip behind a consumer's cursor.
+     */
+    private Duration settle = Duration.ofSeconds(5);
+
+    private int defaultLimit = 1000;
+
+    private int maxLimit = 5000;
+}
@@ -0,0 +1,131 @@
+package org.wp2.medsys.api;
+
+import org.wp2.medsys.DTO.AppointmentChange;
+import org.wp2.medsys.DTO.AppointmentView;
+import org.wp2.medsys.DTO.DoctorView;
+import org.wp2.medsys.DTO.MedicalRecordChange;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionChange;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.DTO.UserChange;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The JSON fields a resource exposes, in output order, each with the accessor
+ * on its view record. {@link #select} narrows it to what a {@code ?fields=}
+ * parameter asks for.
+ */
+final class FieldSet<T> {
+
+    record Field<T>(String name, Function<T, Object> value) {}
+
+    static final FieldSet<AppointmentView> APPOINTMENTS = new FieldSet<AppointmentView>()
+            .add("id",              AppointmentView::id)
+            .add("appointmentDate", AppointmentView::appointmentDate)
+            .add("status",          AppointmentView::status)
+            .add("scheduleReason",  AppointmentView::scheduleReason)
+            .add("patientId",       AppointmentView::patientId)
+            .add("patientUsername", AppointmentView::patientUsername)
+            .add("doctorId",        AppointmentView::doctorId)
+            .add("doctorUsername",  AppointmentView::doctorUsername)
+            .add("doctorSpec",      AppointmentView::doctorSpec);
+
+    static final FieldSet<MedicalRecordView> RECORDS = new FieldSet<MedicalRecordView>()
+            .add("id",              MedicalRecordView::id)
+            .add("createdAt",       MedicalRecordView::createdAt)
+            .add("title",           MedicalRecordView::title)
+            .add("notes",           MedicalRecordView::notes)
+            .add("patientId",       MedicalRecordView::patientId)
+            .add("patientUsername", MedicalRecordView::patientUsername)
+            .add("doctorId",        MedicalRecordView::doctorId)
+            .add("doctorUsername",  MedicalRecordView::doctorUsername)
+            .add("doctorSpec",      MedicalRecordView::doctorSpec);
+
+    static final FieldSet<PrescriptionView> PRESCRIPTIONS = new FieldSet<PrescriptionView>()
+            .add("id",              PrescriptionView::id)
+            .add("issueDate",       PrescriptionView::issueDate)
+            .add("medication",      PrescriptionView::medication)
+            .add("dosage",          PrescriptionView::dosage)
+            .add("notes",           PrescriptionView::notes)
+            .add("patientId",       PrescriptionView::patientId)
+            .add("patientUsername", PrescriptionView::patientUsername)
+            .add("doctorId",        PrescriptionView::doctorId)
+            .add("doctorUsername",  PrescriptionView::doctorUsername)
+            .add("doctorSpec",      PrescriptionView::doctorSpec);
+
+    static final FieldSet<DoctorView> DOCTORS = new FieldSet<DoctorView>()
+            .add("id",       DoctorView::id)
+            .add("username", DoctorView::username)
+            .add("spec",     DoctorView::spec);
+
+    /* ---------- change feed ---------- */
+
+    static final FieldSet<AppointmentChange> APPOINTMENT_CHANGES = new FieldSet<AppointmentChange>()
+            .add("id",              AppointmentChange::id)
+            .add("changedAt",       AppointmentChange::changedAt)
+            .add("appointmentDate", AppointmentChange::appointmentDate)
+            .add("status",          AppointmentChange::status)
+            .add("scheduleReason",  AppointmentChange::scheduleReason)
+            .add("patientId",       AppointmentChange::patientId)
+            .add("doctorId",        AppointmentChange::doctorId)
+            .add("seriesId",        AppointmentChange::seriesId);
+
+    static final FieldSet<MedicalRecordChange> RECORD_CHANGES = new FieldSet<MedicalRecordChange>()
+            .add("id",        MedicalRecordChange::id)
+            .add("changedAt", MedicalRecordChange::changedAt)
+            .add("createdAt", MedicalRecordChange::createdAt)
+            .add("title",     MedicalRecordChange::title)
+            .add("notes",     MedicalRecordChange::notes)
+            .add("patientId", MedicalRecordChange::patientId)
+            .add("doctorId",  MedicalRecordChange::doctorId);
+
+    static final FieldSet<PrescriptionChange> PRESCRIPTION_CHANGES = new FieldSet<PrescriptionChange>()
+            .add("id",         PrescriptionChange::id)
+            .add("changedAt",  PrescriptionChange::changedAt)
+            .add("issueDate",  PrescriptionChange::issueDate)
+            .add("medication", PrescriptionChange::medication)
+            .add("dosage",     PrescriptionChange::dosage)
+            .add("notes",      PrescriptionChange::notes)
+            .add("patientId",  PrescriptionChange::patientId)
+            .add("doctorId",   PrescriptionChange::doctorId);
+
+    static final FieldSet<UserChange> USER_CHANGES = new FieldSet<UserChange>()
+            .add("id",        UserChange::id)
+            .add("changedAt", UserChange::changedAt)
+            .add("role",      UserChange::role)
+            .add("username",  UserChange::username)
+            .add("createdAt", UserChange::createdAt);
+
+    private final Map<String, Field<T>> fields = new LinkedHashMap<>();
+
+    private FieldSet<T> add(String name, Function<T, Object> value) {
+        fields.put(name, new Field<>(name, value));
+        return this;
+    }
+
+    /**
+     * @param csv comma-separated field names, or {@code null}/blank for all of them
+     * @throws IllegalArgumentException on an unknown name
+     */
+    List<Field<T>> select(String csv) {
+        if (csv == null || csv.isBlank()) {
+            return List.copyOf(fields.values());
+        }
+        List<Field<T>> selected = new ArrayList<>();
+        for (String name : csv.split(",")) {
+            Field<T> f = fields.get(name.trim());
+            if (f == null) {
+                throw new IllegalArgumentException("Unknown field '" + name.trim() + "', expected one of " + fields.keySet());
+            }
+            if (!selected.contains(f)) {
+                selected.add(f);
+            }
+        }
+        return selected;
+    }
+}
@@ -0,0 +1,137 @@
+package org.wp2.medsys.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.temporal.TemporalAccessor;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Writes one page of view records straight to the response with Jackson's
+ * streaming generator – no entity graph, no intermediate tree:
+ * <pre>
+ * {"items":[{...},{...}],"nextCursor":"djE6NDI"}
+ * </pre>
+ * {@code nextCursor} is {@code null} on the last page. Cursors are opaque to
+ * clients; today they carry the last id of the page.
+ */
+@Component
+public class JsonPageWriter {
+
+    private static final String CURSOR_PREFIX = "v1:";
+
+    private final ObjectMapper objectMapper;
+
+    public JsonPageWriter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * @param rows  up to {@code limit + 1} rows; the extra one only signals that there is a next page
+     */
+    <T> void write(HttpServletResponse response,
+                   List<T> rows,
+                   int limit,
+                   List<FieldSet.Field<T>> fields,
+                   ToLongFunction<T> id) throws IOException {
+        boolean more = rows.size() > limit;
+        List<T> page = more ? rows.subList(0, limit) : rows;
+        String next = more ? encodeCursor(id.applyAsLong(page.get(page.size() - 1))) : null;
+        writePage(response, page, fields, next, null);
+    }
+
+    /**
+     * A page of a change feed. Unlike {@link #write}, {@code nextCursor} is
+     * always set – after the last page it is where to poll from next time –
+     * and {@code "more"} says whether to go on right away.
+     */
+    <T> void writeFeed(HttpServletResponse response,
+                       List<T> page,
+                       List<FieldSet.Field<T>> fields,
+                       String nextCursor,
+                       boolean more) throws IOException {
+        writePage(response, page, fields, nextCursor, more);
+    }
+
+    private <T> void writePage(HttpServletResponse response,
+                               List<T> page,
+                               List<FieldSet.Field<T>> fields,
+                               String nextCursor,
+                               Boolean more) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+
+        try (JsonGenerator gen = objectMapper.getFactory()
+                .createGenerator(response.getOutputStream(), JsonEncoding.UTF8)) {
+            gen.writeStartObject();
+            gen.writeArrayFieldStart("items");
+            for (T row : page) {
+                gen.writeStartObject();
+                for (FieldSet.Field<T> f : fields) {
+                    gen.writeFieldName(f.name());
+                    writeValue(gen, f.value().apply(row));
+                }
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+            if (nextCursor != null) {
+                gen.writeStringField("nextCursor", nextCursor);
+            } else {
+                gen.writeNullField("nextCursor");
+            }
+            if (more != null) {
+                gen.writeBooleanField("more", more);
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static void writeValue(JsonGenerator gen, Object value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else if (value instanceof String s) {
+            gen.writeString(s);
+        } else if (value instanceof Long l) {
+            gen.writeNumber(l);
+        } else if (value instanceof Integer i) {
+            gen.writeNumber(i);
+        } else if (value instanceof Enum<?> e) {
+            gen.writeString(e.name());
+        } else if (value instanceof TemporalAccessor t) {
+            gen.writeString(t.toString());          // ISO-8601
+        } else {
+            gen.writeString(value.toString());
+        }
+    }
+
+    /* ---------- cursors ---------- */
+
+    static String encodeCursor(long lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((CURSOR_PREFIX + lastId).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /** @return the id to continue after, 0 for the first page */
+    static long decodeCursor(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return 0L;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+            if (!raw.startsWith(CURSOR_PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return Long.parseLong(raw.substring(CURSOR_PREFIX.length()));
+        } catch (IllegalArgumentException e) {       // also covers NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
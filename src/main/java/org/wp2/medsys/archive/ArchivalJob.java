@@ -0,0 +1,121 @@
+package org.wp2.medsys.archive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves rows older than {@code medsys.archive.horizon} from the hot tables to
+ * their {@code *_archive} twins.
+ * <p>
+ * Each batch is one transaction: copy the oldest {@code batch-size} ids with
+ * {@code INSERT ... SELECT}, then delete the hot rows that now have an
+ * identical archived copy. A crash loses at most the batch in flight, which is
+ * simply rolled back, so the job is resumable without bookkeeping – the next
+ * run picks up whatever is still past the horizon.
+ * <p>
+ * An id already taken in the archive by a different row is not overwritten
+ * and its hot row is not deleted: it stays where it is, is logged, and the run
+ * moves on past it.
+ * Batches are separated by {@code pause} and a run stops at
+ * {@code max-rows-per-run} per table, so a large backlog drains over several nights.
+ * With clinics enabled every shard is archived in turn.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "medsys.archive", name = "enabled", havingValue = "true")
+public class ArchivalJob {
+
+    private final JdbcTemplate        jdbc;
+    private final TransactionTemplate tx;
+    private final ArchiveProperties   props;
+    private final ClinicShards        shards;
+    private final AtomicBoolean       running = new AtomicBoolean();
+
+    public ArchivalJob(JdbcTemplate jdbc,
+                       PlatformTransactionManager transactionManager,
+                       ArchiveProperties props,
+                       ClinicShards shards) {
+        this.jdbc   = jdbc;
+        this.tx     = new TransactionTemplate(transactionManager);
+        this.props  = props;
+        this.shards = shards;
+    }
+
+    @Scheduled(cron = "${medsys.archive.cron:0 30 2 * * *}")
+    public void run() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("Archival already running – skipping this trigger");
+            return;
+        }
+        try {
+            Timestamp cutoff = Timestamp.valueOf(LocalDateTime.now().minus(props.getHorizon()));
+            shards.forEach(shard -> {
+                try {
+                    for (ArchivedTable t : ArchivedTable.values()) {
+                        if (!Thread.currentThread().isInterrupted()) {
+                            archive(t, cutoff);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /** @return rows moved */
+    long archive(ArchivedTable t, Timestamp cutoff) throws InterruptedException {
+        String pick = "SELECT id FROM " + t.table + " WHERE " + t.dateColumn + " < ? AND id > ? ORDER BY id LIMIT ?";
+
+        long moved = 0;
+        long kept = 0;
+        long afterId = 0;
+        long started = System.nanoTime();
+        while (moved < props.getMaxRowsPerRun()) {
+            List<Long> ids = jdbc.queryForList(pick, Long.class, cutoff, afterId, props.getBatchSize());
+            if (ids.isEmpty()) {
+                break;
+            }
+            afterId = ids.get(ids.size() - 1);
+            String in = String.join(",", Collections.nCopies(ids.size(), "?"));
+            Object[] args = ids.toArray();
+
+            Integer n = tx.execute(s -> {
+                // IGNORE: a row already archived (e.g. restored by hand and aged again) is not an error,
+                // the delete below only removes rows whose archived copy is identical
+                jdbc.update("INSERT IGNORE INTO " + t.archive + " (" + t.columns + ", archived_at)"
+                        + " SELECT " + t.columns + ", CURRENT_TIMESTAMP FROM " + t.table
+                        + " WHERE id IN (" + in + ")", args);
+                return jdbc.update("DELETE h FROM " + t.table + " h JOIN " + t.archive + " a ON " + t.sameRow
+                        + " WHERE h.id IN (" + in + ")", args);
+            });
+            int deleted = n == null ? 0 : n;
+            moved += deleted;
+            kept  += ids.size() - deleted;
+            TimeUnit.MILLISECONDS.sleep(props.getPause().toMillis());
+        }
+        if (kept > 0) {
+            log.warn("{} rows of {} kept in place: their ids hold different rows in {}", kept, t.table, t.archive);
+        }
+        if (moved > 0) {
+            log.info("Archived {} rows of {} older than {} in {} s",
+                    moved, t.table, cutoff, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+        }
+        return moved;
+    }
+}
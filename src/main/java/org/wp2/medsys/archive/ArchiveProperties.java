@@ -0,0 +1,32 @@
+package org.wp2.medsys.archive;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Archival of old clinical rows, bound from {@code medsys.archive.*}.
+ * The archive tables come from migration {@code V5__archive_tables}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.archive")
+public class ArchiveProperties {
+
+    private boolean enabled = false;
+
+    /** rows whose date is older than this move to the archive tables */
+    private Duration horizon = Duration.ofDays(2 * 365);
+
+    /** rows moved per transaction */
+    private int batchSize = 1_000;
+
+    /** pause between batches so the hot tables are never locked for long */
+    private Duration pause = Duration.ofMillis(500);
+
+    /** stop a run after this many rows per table; the next run carries on */
+    private int maxRowsPerRun = 200_000;
+
+    /** cron of the archival run – nights by default */
+    private String cron = "0 30 2 * * *";
+}
@@ -0,0 +1,98 @@
+package org.wp2.medsys.archive;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.wp2.medsys.DTO.AppointmentView;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.storage.NotesCodec;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keyset reads over the archive tables, returning the same view records as
+ * the hot-table queries so history pages and the API can show both.
+ * <p>
+ * The archive tables exist only after migration {@code V5__archive_tables}; callers go
+ * through {@link #isAvailable()} first. That looks at the schema rather than at
+ * {@code medsys.archive.enabled}: rows archived before the job was switched off
+ * are still history.
+ */
+@Component
+public class ArchiveQueries {
+
+    /** whose rows: a patient's history or a doctor's */
+    public enum Owner {
+        PATIENT("patient_id"), DOCTOR("doctor_id");
+
+        private final String column;
+
+        Owner(String column) {
+            this.column = column;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final NotesCodec   notesCodec;
+
+    /** per shard; migrations run before the application starts, so the answer does not change */
+    private final Map<String, Boolean> available = new ConcurrentHashMap<>();
+
+    public ArchiveQueries(JdbcTemplate jdbc, NotesCodec notesCodec) {
+        this.jdbc       = jdbc;
+        this.notesCodec = notesCodec;
+    }
+
+    /** whether all three archive tables exist in the current shard */
+    public boolean isAvailable() {
+        String shard = Objects.requireNonNullElse(ClinicContext.current(), ClinicContext.DEFAULT_SHARD);
+        return available.computeIfAbsent(shard, s -> jdbc.queryForObject(
+                "SELECT COUNT(*) FROM information_schema.tables WHERE table_schema = DATABASE()"
+                        + " AND table_name IN ('appointments_archive', 'medical_records_archive', 'prescriptions_archive')",
+                Integer.class) == 3);
+    }
+
+    public List<AppointmentView> appointments(Owner owner, Long ownerId, long afterId, int limit) {
+        return jdbc.query("SELECT a.id, a.appointment_date, a.status, a.schedule_reason,"
+                        + " p.id, p.username, d.id, d.username, d.spec"
+                        + " FROM appointments_archive a"
+                        + " JOIN users p ON p.id = a.patient_id JOIN users d ON d.id = a.doctor_id"
+                        + " WHERE a." + owner.column + " = ? AND a.id > ? ORDER BY a.id LIMIT ?",
+                (rs, n) -> new AppointmentView(
+                        rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), Status.valueOf(rs.getString(3)),
+                        rs.getString(4), rs.getLong(5), rs.getString(6), rs.getLong(7), rs.getString(8),
+                        rs.getString(9)),
+                ownerId, afterId, limit);
+    }
+
+    public List<MedicalRecordView> records(Owner owner, Long ownerId, long afterId, int limit) {
+        return jdbc.query("SELECT r.id, r.created_at, r.title, r.notes,"
+                        + " p.id, p.username, d.id, d.username, d.spec"
+                        + " FROM medical_records_archive r"
+                        + " JOIN users p ON p.id = r.patient_id JOIN users d ON d.id = r.doctor_id"
+                        + " WHERE r." + owner.column + " = ? AND r.id > ? ORDER BY r.id LIMIT ?",
+                (rs, n) -> new MedicalRecordView(
+                        rs.getLong(1), rs.getTimestamp(2).toLocalDateTime(), rs.getString(3),
+                        notesCodec.decode(rs.getBytes(4)),
+                        rs.getLong(5), rs.getString(6), rs.getLong(7), rs.getString(8), rs.getString(9)),
+                ownerId, afterId, limit);
+    }
+
+    public List<PrescriptionView> prescriptions(Owner owner, Long ownerId, long afterId, int limit) {
+        return jdbc.query("SELECT x.id, x.issue_date, x.medication, x.dosage, x.notes,"
+                        + " p.id, p.username, d.id, d.username, d.spec"
+                        + " FROM prescriptions_archive x"
+                        + " JOIN users p ON p.id = x.patient_id JOIN users d ON d.id = x.doctor_id"
+                        + " WHERE x." + owner.column + " = ? AND x.id > ? ORDER BY x.id LIMIT ?",
+                (rs, n) -> new PrescriptionView(
+                        rs.getLong(1), rs.getDate(2).toLocalDate(), rs.getString(3), rs.getString(4),
+                        notesCodec.decode(rs.getBytes(5)),
+                        rs.getLong(6), rs.getString(7), rs.getLong(8), rs.getString(9), rs.getString(10)),
+                ownerId, afterId, limit);
+    }
+}
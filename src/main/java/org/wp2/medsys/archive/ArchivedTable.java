@@ -0,0 +1,35 @@
+package org.wp2.medsys.archive;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * A hot table, its archive twin and the date column that ages its rows.
+ * The archive table has the same columns plus {@code archived_at}.
+ */
+enum ArchivedTable {
+
+    APPOINTMENTS("appointments", "appointment_date",
+            "id, appointment_date, schedule_reason, status, patient_id, doctor_id, series_id, occurrence_date"),
+    MEDICAL_RECORDS("medical_records", "created_at",
+            "id, created_at, title, notes, patient_id, doctor_id"),
+    PRESCRIPTIONS("prescriptions", "issue_date",
+            "id, issue_date, medication, dosage, notes, patient_id, doctor_id");
+
+    final String table;
+    final String archive;
+    final String dateColumn;
+    final String columns;
+    /** join condition of a hot row ({@code h}) and an identical archived row ({@code a}) */
+    final String sameRow;
+
+    ArchivedTable(String table, String dateColumn, String columns) {
+        this.table      = table;
+        this.archive    = table + "_archive";
+        this.dateColumn = dateColumn;
+        this.columns    = columns;
+        this.sameRow    = Arrays.stream(columns.split(",\\s*"))
+                .map(c -> "a." + c + " <=> h." + c)
+                .collect(Collectors.joining(" AND "));
+    }
+}
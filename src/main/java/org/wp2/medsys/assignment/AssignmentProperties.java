@@ -0,0 +1,26 @@
+package org.wp2.medsys.assignment;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * "Any doctor with specialty X" booking, bound from {@code medsys.assignment.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.assignment")
+public class AssignmentProperties {
+
+    /** accepted appointments this far ahead count as booked hours */
+    private Duration window = Duration.ofDays(14);
+
+    /** appointments have no end time; each booked one counts as this long */
+    private Duration appointmentLength = Duration.ofMinutes(30);
+
+    /** load of one pending request, in booked hours */
+    private double pendingWeight = 1.0;
+
+    /** how often the index is rebuilt from the database, which also rolls the window */
+    private Duration rebuildInterval = Duration.ofMinutes(5);
+}
@@ -0,0 +1,195 @@
+package org.wp2.medsys.assignment;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-doctor load for "any doctor with specialty X" booking: future pending
+ * requests plus accepted appointments inside {@code medsys.assignment.window},
+ * weighted as hours.
+ * <p>
+ * Built from two queries at startup and every {@code rebuild-interval} (which
+ * also rolls the window forward), and kept current in between from
+ * {@link AppointmentChangedEvent}s – booking never runs an aggregate query.
+ * A rebuild fills a new table while events go to both, then swaps it in; a
+ * scanned row never overwrites an event the new table already has.
+ */
+@Slf4j
+@Component
+public class DoctorLoadIndex {
+
+    /** a pending slot held on a doctor until the appointment is saved; close it either way */
+    public static final class Reservation implements AutoCloseable {
+        private final LoadTable            table;
+        private final LoadTable.DoctorLoad doctor;
+        private boolean                    closed;
+
+        private Reservation(LoadTable table, LoadTable.DoctorLoad doctor) {
+            this.table  = table;
+            this.doctor = doctor;
+        }
+
+        public long doctorId() {
+            return doctor.doctorId;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                table.release(doctor);
+            }
+        }
+    }
+
+    private static final String DOCTORS =
+            "SELECT id, spec FROM users WHERE role = 'DOCTOR' AND spec IS NOT NULL AND spec <> ''";
+    private static final String APPOINTMENTS =
+            "SELECT id, doctor_id, status, appointment_date FROM appointments"
+            + " WHERE id > ? AND appointment_date >= ?"
+            + " AND (status = 'PENDING' OR (status = 'ACCEPTED' AND appointment_date < ?))"
+            + " ORDER BY id LIMIT 5000";
+
+    /** shard key for {@code null}, which ConcurrentHashMap cannot hold */
+    private static final String SINGLE = "";
+
+    private final JdbcTemplate         jdbc;
+    private final AssignmentProperties props;
+    private final ClinicShards         shards;
+
+    private final ConcurrentHashMap<String, LoadTable> tables   = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LoadTable> building = new ConcurrentHashMap<>();
+
+    public DoctorLoadIndex(JdbcTemplate jdbc, AssignmentProperties props, ClinicShards shards) {
+        this.jdbc   = jdbc;
+        this.props  = props;
+        this.shards = shards;
+    }
+
+    /**
+     * Reserves the least-loaded doctor with {@code spec} in the current shard.
+     *
+     * @throws IllegalArgumentException if no doctor has that specialty
+     * @throws IllegalStateException    before the index is first built
+     */
+    public Reservation reserve(String spec) {
+        LoadTable table = tables.get(shardKey());
+        if (table == null) {
+            throw new IllegalStateException("Doctor assignment is starting up – please pick a doctor or retry");
+        }
+        LoadTable.DoctorLoad doctor = table.reserve(spec);
+        if (doctor == null) {
+            throw new IllegalArgumentException("No doctor with specialty " + spec);
+        }
+        return new Reservation(table, doctor);
+    }
+
+    /* ---------- incremental updates ---------- */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        LoadTable.Kind kind = kindOf(event.status(), event.appointmentDate(), LocalDateTime.now());
+        String shard = shardKey();
+        apply(tables.get(shard), event, kind);
+        apply(building.get(shard), event, kind);
+    }
+
+    private static void apply(LoadTable table, AppointmentChangedEvent event, LoadTable.Kind kind) {
+        if (table != null) {
+            table.apply(event.appointmentId(), event.doctorId(), kind);
+        }
+    }
+
+    private LoadTable.Kind kindOf(Status status, LocalDateTime date, LocalDateTime now) {
+        if (status == null || date == null || date.isBefore(now)) {
+            return LoadTable.Kind.NONE;
+        }
+        if (status == Status.PENDING) {
+            return LoadTable.Kind.PENDING;
+        }
+        if (status == Status.ACCEPTED && date.isBefore(now.plus(props.getWindow()))) {
+            return LoadTable.Kind.BOOKED;
+        }
+        return LoadTable.Kind.NONE;
+    }
+
+    /* ---------- rebuild ---------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${medsys.assignment.rebuild-interval:5m}",
+               fixedDelayString   = "${medsys.assignment.rebuild-interval:5m}")
+    public synchronized void rebuild() {
+        shards.forEach(shard -> {
+            try {
+                rebuild(Objects.requireNonNullElse(shard, SINGLE));
+            } catch (RuntimeException e) {
+                // keep serving the previous table; drift is bounded by the next rebuild
+                log.warn("Doctor load index for shard {} not rebuilt: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    private void rebuild(String shard) {
+        long started = System.nanoTime();
+        Map<Long, String> specs = new HashMap<>();
+        jdbc.query(DOCTORS, rs -> {
+            specs.put(rs.getLong(1), rs.getString(2));
+        });
+        double hoursPerBooking = props.getAppointmentLength().toMinutes() / 60.0;
+        LoadTable next = new LoadTable(specs, props.getPendingWeight(), hoursPerBooking);
+        next.beginScan();
+        building.put(shard, next);
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            Timestamp from  = Timestamp.valueOf(now);
+            Timestamp until = Timestamp.valueOf(now.plus(props.getWindow()));
+            long afterId = 0;
+            int rows = 0;
+            while (true) {
+                List<Object[]> page = jdbc.query(APPOINTMENTS, (rs, n) -> new Object[]{
+                        rs.getLong(1), rs.getLong(2), rs.getString(3), rs.getTimestamp(4).toLocalDateTime()
+                }, afterId, from, until);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (Object[] r : page) {
+                    next.applyScanned((Long) r[0], (Long) r[1],
+                            kindOf(Status.valueOf((String) r[2]), (LocalDateTime) r[3], now));
+                }
+                afterId = (Long) page.get(page.size() - 1)[0];
+                rows += page.size();
+            }
+            tables.put(shard, next);
+            log.debug("Doctor load index rebuilt: {} doctors, {} appointments in {} ms",
+                    specs.size(), rows, (System.nanoTime() - started) / 1_000_000);
+        } finally {
+            building.remove(shard);
+            next.endScan();
+        }
+    }
+
+    private static String shardKey() {
+        return Objects.requireNonNullElse(ClinicContext.current(), SINGLE);
+    }
+}
@@ -0,0 +1,159 @@
+package org.wp2.medsys.assignment;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Load of every doctor of one shard, updated in place.
+ * <p>
+ * Each appointment that counts is remembered as a {@link Kind} against its
+ * doctor, so a change only needs the appointment's new state: the old
+ * contribution is taken back and the new one added, atomically per
+ * appointment. Reservations cover the gap between picking a doctor and the
+ * appointment being saved, so a burst of bookings spreads out instead of all
+ * landing on whoever was least loaded a moment ago.
+ * <p>
+ * While a table is being filled from a scan, events reach it too. A scanned
+ * row may be older than an event for the same appointment, so between
+ * {@link #beginScan} and {@link #endScan} the table remembers which
+ * appointments had an event and {@link #applyScanned} leaves those alone.
+ */
+final class LoadTable {
+
+    enum Kind { NONE, PENDING, BOOKED }
+
+    static final class DoctorLoad {
+        final long          doctorId;
+        final AtomicInteger pending  = new AtomicInteger();
+        final AtomicInteger booked   = new AtomicInteger();
+        final AtomicInteger reserved = new AtomicInteger();
+
+        DoctorLoad(long doctorId) {
+            this.doctorId = doctorId;
+        }
+    }
+
+    private record Contribution(DoctorLoad doctor, Kind kind) {}
+
+    private final Map<Long, DoctorLoad>   doctors;
+    private final Map<String, DoctorLoad[]> bySpec;
+    private final ConcurrentHashMap<Long, Contribution> contributions = new ConcurrentHashMap<>();
+    private final double pendingWeight;
+    private final double hoursPerBooking;
+
+    /** appointments that had an event since {@link #beginScan}; {@code null} outside a scan */
+    private volatile Set<Long> evented;
+
+    /** @param specs doctor id -> specialty */
+    LoadTable(Map<Long, String> specs, double pendingWeight, double hoursPerBooking) {
+        Map<Long, DoctorLoad> doctors = new HashMap<>();
+        Map<String, List<DoctorLoad>> bySpec = new HashMap<>();
+        specs.forEach((id, spec) -> {
+            DoctorLoad d = new DoctorLoad(id);
+            doctors.put(id, d);
+            bySpec.computeIfAbsent(normalize(spec), s -> new ArrayList<>()).add(d);
+        });
+        Map<String, DoctorLoad[]> frozen = new HashMap<>();
+        bySpec.forEach((spec, list) -> frozen.put(spec, list.toArray(new DoctorLoad[0])));
+        this.doctors         = Map.copyOf(doctors);
+        this.bySpec          = Map.copyOf(frozen);
+        this.pendingWeight   = pendingWeight;
+        this.hoursPerBooking = hoursPerBooking;
+    }
+
+    /** records what appointment {@code appointmentId} now contributes; {@code doctorId} may be null for NONE */
+    void apply(long appointmentId, Long doctorId, Kind kind) {
+        apply(appointmentId, doctorId, kind, false);
+    }
+
+    /** like {@link #apply}, for a row read by the scan: an event since {@link #beginScan} wins */
+    void applyScanned(long appointmentId, Long doctorId, Kind kind) {
+        apply(appointmentId, doctorId, kind, true);
+    }
+
+    void beginScan() {
+        evented = ConcurrentHashMap.newKeySet();
+    }
+
+    void endScan() {
+        evented = null;
+    }
+
+    private void apply(long appointmentId, Long doctorId, Kind kind, boolean scanned) {
+        DoctorLoad doctor = doctorId == null ? null : doctors.get(doctorId);
+        // the set is read and written inside compute, i.e. under the appointment's lock
+        contributions.compute(appointmentId, (id, old) -> {
+            Set<Long> seen = evented;
+            if (seen != null) {
+                if (scanned && seen.contains(id)) {
+                    return old;
+                }
+                if (!scanned) {
+                    seen.add(id);
+                }
+            }
+            if (old != null) {
+                counter(old).decrementAndGet();
+            }
+            if (kind == Kind.NONE || (doctor == null && old == null)) {
+                return null;
+            }
+            // a change that does not say which doctor keeps the old one
+            Contribution next = new Contribution(doctor != null ? doctor : old.doctor(), kind);
+            counter(next).incrementAndGet();
+            return next;
+        });
+    }
+
+    /**
+     * Picks the least-loaded doctor of {@code spec} and reserves a pending
+     * slot on it; ties go to a random one of the tied doctors.
+     *
+     * @return {@code null} if no doctor has that specialty
+     */
+    DoctorLoad reserve(String spec) {
+        DoctorLoad[] candidates = bySpec.get(normalize(spec));
+        if (candidates == null) {
+            return null;
+        }
+        int start = ThreadLocalRandom.current().nextInt(candidates.length);
+        DoctorLoad best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (int i = 0; i < candidates.length; i++) {
+            DoctorLoad d = candidates[(start + i) % candidates.length];
+            double score = score(d);
+            if (score < bestScore) {
+                best = d;
+                bestScore = score;
+            }
+        }
+        best.reserved.incrementAndGet();
+        return best;
+    }
+
+    void release(DoctorLoad doctor) {
+        doctor.reserved.decrementAndGet();
+    }
+
+    double score(DoctorLoad d) {
+        return (d.pending.get() + d.reserved.get()) * pendingWeight + d.booked.get() * hoursPerBooking;
+    }
+
+    DoctorLoad doctor(long doctorId) {
+        return doctors.get(doctorId);
+    }
+
+    Set<String> specialties() {
+        return bySpec.keySet();
+    }
+
+    private static AtomicInteger counter(Contribution c) {
+        return c.kind() == Kind.PENDING ? c.doctor().pending : c.doctor().booked;
+    }
+
+    static String normalize(String spec) {
+        return spec == null ? "" : spec.trim().toLowerCase(Locale.ROOT);
+    }
+}
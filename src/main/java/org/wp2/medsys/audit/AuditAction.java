@@ -0,0 +1,31 @@
+package org.wp2.medsys.audit;
+
+/**
+ * What was looked at, and through which view. The subject id of an entry is
+ * always the patient whose data was shown and the actor is who saw it; a list
+ * with rows of several patients ({@code DOCTOR_*}, {@code FEED_*}) records one
+ * entry per patient on it.
+ */
+public enum AuditAction {
+    PATIENT_RECORDS(1),
+    PATIENT_PRESCRIPTIONS(2),
+    DOCTOR_RECORDS(3),
+    DOCTOR_PRESCRIPTIONS(4),
+    FEED_RECORDS(5),
+    FEED_PRESCRIPTIONS(6);
+
+    final short code;
+
+    AuditAction(int code) {
+        this.code = (short) code;
+    }
+
+    static AuditAction ofCode(int code) {
+        for (AuditAction a : values()) {
+            if (a.code == code) {
+                return a;
+            }
+        }
+        throw new IllegalArgumentException("Unknown audit action " + code);
+    }
+}
@@ -0,0 +1,20 @@
+package org.wp2.medsys.audit;
+
+import java.time.Instant;
+
+/** One decoded audit log entry. */
+public record AuditEntry(long        sequence,
+                         Instant     time,
+                         long        actorId,
+                         long        subjectId,
+                         AuditAction action,
+                         Channel     channel) {
+
+    /** how the data was reached */
+    public enum Channel { WEB, API }
+
+    @Override
+    public String toString() {
+        return sequence + " " + time + " actor=" + actorId + " " + action + " subject=" + subjectId + " via " + channel;
+    }
+}
@@ -0,0 +1,154 @@
+package org.wp2.medsys.audit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Records who looked at which clinical data, without a database write per view.
+ * <p>
+ * {@link #record} is a few field stores and one CAS into {@link AuditRing}; a
+ * single daemon thread drains the ring into memory-mapped segment files
+ * ({@link AuditSegmentWriter}) and forces them to disk every
+ * {@code medsys.audit.sync-interval}. If the ring is ever full the entry is
+ * dropped and counted rather than slowing the request down; drops are logged.
+ * An entry the writer fails on is retried on the next pass, after the ones
+ * before it were written exactly once.
+ * <p>
+ * Read the log with {@link AuditLogReader}.
+ */
+@Slf4j
+@Component
+public class AuditLog implements AutoCloseable {
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK  = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final boolean            enabled;
+    private final AuditRing          ring;
+    private final AuditSegmentWriter writer;
+    private final long               syncIntervalNanos;
+    private final Thread             thread;
+    private final AtomicLong         dropped = new AtomicLong();
+
+    private volatile boolean running = true;
+
+    public AuditLog(AuditProperties props) {
+        this.enabled = props.isEnabled();
+        if (!enabled) {
+            this.ring = null;
+            this.writer = null;
+            this.thread = null;
+            this.syncIntervalNanos = 0;
+            log.info("Access audit log is disabled");
+            return;
+        }
+        try {
+            this.writer = new AuditSegmentWriter(Path.of(props.getDirectory()), props.getSegmentSize());
+        } catch (IOException e) {
+            // an unaudited system must not serve patient data
+            throw new UncheckedIOException("Cannot open audit log in " + props.getDirectory(), e);
+        }
+        this.ring = new AuditRing(props.getRingSize());
+        this.syncIntervalNanos = props.getSyncInterval().toNanos();
+        this.thread = Thread.ofPlatform().name("audit-writer").daemon().start(this::writeLoop);
+    }
+
+    public void record(AuditAction action, long actorId, long subjectId, AuditEntry.Channel channel) {
+        if (enabled && !ring.offer(System.currentTimeMillis(), actorId, subjectId,
+                AuditSegments.code(action, channel))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    public void record(AuditAction action, long actorId, long subjectId) {
+        record(action, actorId, subjectId, AuditEntry.Channel.WEB);
+    }
+
+    /** one entry per distinct patient, for a list that shows rows of several patients to {@code actorId} */
+    public void recordPatients(AuditAction action, long actorId, Collection<Long> patientIds, AuditEntry.Channel channel) {
+        new LinkedHashSet<>(patientIds).stream()
+                .filter(Objects::nonNull)
+                .forEach(patientId -> record(action, actorId, patientId, channel));
+    }
+
+    public void recordPatients(AuditAction action, long actorId, Collection<Long> patientIds) {
+        recordPatients(action, actorId, patientIds, AuditEntry.Channel.WEB);
+    }
+
+    public long droppedCount() {
+        return dropped.get();
+    }
+
+    /** drains what is left and forces it to disk; called on context shutdown */
+    @Override
+    public void close() {
+        if (!enabled) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /* ---------- writer thread ---------- */
+
+    private void writeLoop() {
+        long lastSync = System.nanoTime();
+        long reportedDrops = 0;
+        while (true) {
+            boolean stopping = !running;
+            int n;
+            try {
+                n = ring.drain(this::append, DRAIN_BATCH);
+                long now = System.nanoTime();
+                if (now - lastSync >= syncIntervalNanos || (n == 0 && stopping)) {
+                    writer.sync();
+                    lastSync = now;
+                    long drops = dropped.get();
+                    if (drops != reportedDrops) {
+                        log.warn("Audit ring full: {} entries dropped so far", drops);
+                        reportedDrops = drops;
+                    }
+                }
+            } catch (RuntimeException e) {
+                // the entry it failed on stays in the ring and is tried again
+                log.error("Audit writer failed", e);
+                n = 0;
+                LockSupport.parkNanos(syncIntervalNanos);
+            }
+            if (n == 0) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(IDLE_PARK);
+            }
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.error("Could not close audit log", e);
+        }
+    }
+
+    private void append(long time, long actor, long subject, int code) {
+        try {
+            writer.append(time, actor, subject, code);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package org.wp2.medsys.audit;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads the audit log for investigations. Safe to run next to a live
+ * application – it only maps the segments read-only.
+ * <pre>
+ * java -cp medsys.jar -Dloader.main=org.wp2.medsys.audit.AuditLogReader \
+ *      org.springframework.boot.loader.launch.PropertiesLauncher \
+ *      --dir=audit --subject=42 --since=2026-01-01
+ * </pre>
+ * Filters: {@code --actor=<user id>}, {@code --subject=<user id>},
+ * {@code --action=PATIENT_RECORDS|...}, {@code --since=<date>}, {@code --until=<date>}
+ * (dates are local, {@code until} exclusive). Without filters every entry is printed.
+ */
+public final class AuditLogReader {
+
+    private AuditLogReader() {}
+
+    /** feeds every valid entry of the log in {@code dir} that matches {@code filter} to {@code sink} */
+    public static void scan(Path dir, Predicate<AuditEntry> filter, Consumer<AuditEntry> sink) throws IOException {
+        for (Path segment : AuditSegments.list(dir)) {
+            try (FileChannel ch = FileChannel.open(segment, READ)) {
+                MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                long expected = AuditSegments.firstSequence(segment);
+                for (int off = 0; ; off += AuditSegments.ENTRY_SIZE, expected++) {
+                    AuditEntry e = AuditSegments.read(buf, off, expected);
+                    if (e == null) {
+                        break;
+                    }
+                    if (filter.test(e)) {
+                        sink.accept(e);
+                    }
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Path.of("audit");
+        Predicate<AuditEntry> filter = e -> true;
+        ZoneId zone = ZoneId.systemDefault();
+
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                System.err.println("Unrecognised argument: " + arg);
+                System.exit(2);
+            }
+            String key = arg.substring(2, eq);
+            String value = arg.substring(eq + 1);
+            switch (key) {
+                case "dir" -> dir = Path.of(value);
+                case "actor" -> {
+                    long id = Long.parseLong(value);
+                    filter = filter.and(e -> e.actorId() == id);
+                }
+                case "subject" -> {
+                    long id = Long.parseLong(value);
+                    filter = filter.and(e -> e.subjectId() == id);
+                }
+                case "action" -> {
+                    AuditAction action = AuditAction.valueOf(value);
+                    filter = filter.and(e -> e.action() == action);
+                }
+                case "since" -> {
+                    Instant since = LocalDate.parse(value).atStartOfDay(zone).toInstant();
+                    filter = filter.and(e -> !e.time().isBefore(since));
+                }
+                case "until" -> {
+                    Instant until = LocalDate.parse(value).atStartOfDay(zone).toInstant();
+                    filter = filter.and(e -> e.time().isBefore(until));
+                }
+                default -> {
+                    System.err.println("Unknown option --" + key);
+                    System.exit(2);
+                }
+            }
+        }
+
+        long[] count = {0};
+        scan(dir, filter, e -> {
+            System.out.println(e);
+            count[0]++;
+        });
+        System.err.println(count[0] + " entries");
+    }
+}
@@ -0,0 +1,31 @@
+package org.wp2.medsys.audit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Access audit log settings, bound from {@code medsys.audit.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.audit")
+public class AuditProperties {
+
+    private boolean enabled = true;
+
+    /** where the {@code audit-*.seg} files go */
+    private String directory = "audit";
+
+    /** size of one segment file before the writer rotates to the next */
+    private long segmentSize = 64L * 1024 * 1024;
+
+    /** slots in the in-memory ring; rounded up to a power of two */
+    private int ringSize = 65_536;
+
+    /**
+     * how often written entries are forced to disk – the most an OS crash or
+     * power loss can lose (a JVM crash loses only what is still in the ring)
+     */
+    private Duration syncInterval = Duration.ofMillis(200);
+}
@@ -0,0 +1,90 @@
+package org.wp2.medsys.audit;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded, lock-free multi-producer / single-consumer ring of audit entries.
+ * <p>
+ * Producers claim a sequence number with a CAS, fill the slot's columns and
+ * then publish the slot by storing the sequence in {@code published}. The
+ * consumer reads slots strictly in sequence order and stops at the first one
+ * not yet published, so entries come out in claim order even when producers
+ * finish out of order. A full ring never blocks a request thread: {@link #offer}
+ * returns {@code false} and the caller counts the drop.
+ * <p>
+ * Sequences start at 1 so a zero in {@code published} means "never written".
+ */
+final class AuditRing {
+
+    @FunctionalInterface
+    interface Sink {
+        void accept(long time, long actorId, long subjectId, int code);
+    }
+
+    private final int    capacity;
+    private final int    mask;
+    private final long[] time;
+    private final long[] actor;
+    private final long[] subject;
+    private final int[]  code;
+
+    private final AtomicLongArray published;
+    private final AtomicLong      claimed = new AtomicLong();
+    /** last sequence handed to the sink; written by the consumer only */
+    private volatile long         consumed;
+
+    AuditRing(int requestedSize) {
+        this.capacity  = Integer.highestOneBit(Math.max(2, requestedSize - 1)) << 1;
+        this.mask      = capacity - 1;
+        this.time      = new long[capacity];
+        this.actor     = new long[capacity];
+        this.subject   = new long[capacity];
+        this.code      = new int[capacity];
+        this.published = new AtomicLongArray(capacity);
+    }
+
+    /** @return {@code false} if the ring is full */
+    boolean offer(long timeMillis, long actorId, long subjectId, int entryCode) {
+        long seq;
+        do {
+            long last = claimed.get();
+            seq = last + 1;
+            if (seq - consumed > capacity) {
+                return false;
+            }
+        } while (!claimed.compareAndSet(seq - 1, seq));
+
+        int i = (int) (seq & mask);
+        time[i]    = timeMillis;
+        actor[i]   = actorId;
+        subject[i] = subjectId;
+        code[i]    = entryCode;
+        published.set(i, seq);          // volatile store publishes the plain writes above
+        return true;
+    }
+
+    /**
+     * Hands up to {@code max} entries to {@code sink}, in order; single consumer only.
+     * Each entry is consumed once the sink returns, so if the sink throws, the next
+     * drain starts again at the entry it threw on and not at the start of the batch.
+     */
+    int drain(Sink sink, int max) {
+        int n = 0;
+        while (n < max) {
+            long next = consumed + 1;
+            int i = (int) (next & mask);
+            if (published.get(i) != next) {
+                break;
+            }
+            sink.accept(time[i], actor[i], subject[i], code[i]);
+            consumed = next;            // frees the slot for producers
+            n++;
+        }
+        return n;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,107 @@
+package org.wp2.medsys.audit;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Appends entries to memory-mapped segment files. Single-threaded: only the
+ * audit writer thread touches it.
+ * <p>
+ * On open it scans the newest segment for the last valid entry and continues
+ * right after it, so a torn write at the tail is simply overwritten.
+ */
+@Slf4j
+final class AuditSegmentWriter implements Closeable {
+
+    private final Path dir;
+    private final int  segmentBytes;
+
+    private FileChannel      channel;
+    private MappedByteBuffer buffer;
+    private int              position;
+    private long             lastSeq;
+    private boolean          dirty;
+
+    AuditSegmentWriter(Path dir, long segmentSize) throws IOException {
+        this.dir          = dir;
+        long capped       = Math.min(segmentSize, Integer.MAX_VALUE);
+        this.segmentBytes = (int) (capped - capped % AuditSegments.ENTRY_SIZE);
+        if (segmentBytes < AuditSegments.ENTRY_SIZE) {
+            throw new IllegalArgumentException("Audit segment size too small: " + segmentSize);
+        }
+        Files.createDirectories(dir);
+        recover();
+    }
+
+    void append(long time, long actor, long subject, int code) throws IOException {
+        if (position + AuditSegments.ENTRY_SIZE > buffer.capacity()) {
+            rotate();
+        }
+        AuditSegments.write(buffer, position, ++lastSeq, time, actor, subject, code);
+        position += AuditSegments.ENTRY_SIZE;
+        dirty = true;
+    }
+
+    /** group commit: one msync for everything appended since the last call */
+    void sync() {
+        if (dirty) {
+            buffer.force();
+            dirty = false;
+        }
+    }
+
+    long lastSequence() {
+        return lastSeq;
+    }
+
+    @Override
+    public void close() throws IOException {
+        sync();
+        channel.close();
+    }
+
+    /* ---------- segments ---------- */
+
+    private void recover() throws IOException {
+        List<Path> segments = AuditSegments.list(dir);
+        if (segments.isEmpty()) {
+            open(AuditSegments.segmentPath(dir, 1), 1);
+            return;
+        }
+        Path newest = segments.get(segments.size() - 1);
+        long first = AuditSegments.firstSequence(newest);
+        open(newest, first);
+
+        long expected = first;
+        while (AuditSegments.read(buffer, position, expected) != null) {
+            position += AuditSegments.ENTRY_SIZE;
+            expected++;
+        }
+        lastSeq = expected - 1;
+        log.info("Audit log resumed at sequence {} in {}", lastSeq, newest.getFileName());
+    }
+
+    private void rotate() throws IOException {
+        sync();
+        channel.close();
+        // the old mapping stays valid until garbage-collected; nothing writes to it any more
+        open(AuditSegments.segmentPath(dir, lastSeq + 1), lastSeq + 1);
+    }
+
+    private void open(Path file, long firstSeq) throws IOException {
+        channel = FileChannel.open(file, CREATE, READ, WRITE);
+        long size = Math.max(channel.size(), segmentBytes);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size - size % AuditSegments.ENTRY_SIZE);
+        position = 0;
+        lastSeq = firstSeq - 1;
+    }
+}
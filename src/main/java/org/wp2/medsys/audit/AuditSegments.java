@@ -0,0 +1,97 @@
+package org.wp2.medsys.audit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * On-disk layout of the audit log, shared by the writer and the reader.
+ * <p>
+ * The log is a directory of pre-sized segment files named
+ * {@code audit-<first sequence, 20 digits>.seg}, each a run of fixed 40-byte
+ * entries (big-endian):
+ * <pre>
+ *  0  sequence   long   1, 2, 3 ... across all segments
+ *  8  time       long   epoch millis
+ * 16  actor      long   user id of the viewer
+ * 24  subject    long   see {@link AuditAction}
+ * 32  action     short
+ * 34  channel    byte   {@link AuditEntry.Channel} ordinal
+ * 35  reserved   byte
+ * 36  crc32c     int    over bytes 0..35
+ * </pre>
+ * The unwritten rest of a segment is zeros. A segment ends at the first entry
+ * that is zero, fails its CRC or breaks the sequence – that is also where the
+ * writer resumes after a crash.
+ */
+final class AuditSegments {
+
+    static final int ENTRY_SIZE = 40;
+    private static final int CRC_OFFSET = 36;
+
+    private AuditSegments() {}
+
+    static int code(AuditAction action, AuditEntry.Channel channel) {
+        return action.code << 8 | channel.ordinal();
+    }
+
+    static void write(ByteBuffer buf, int offset, long seq, long time, long actor, long subject, int code) {
+        buf.putLong(offset, seq);
+        buf.putLong(offset + 8, time);
+        buf.putLong(offset + 16, actor);
+        buf.putLong(offset + 24, subject);
+        buf.putShort(offset + 32, (short) (code >>> 8));
+        buf.put(offset + 34, (byte) code);
+        buf.put(offset + 35, (byte) 0);
+        buf.putInt(offset + CRC_OFFSET, crc(buf, offset));
+    }
+
+    /** @return the entry at {@code offset}, or {@code null} if there is no valid one */
+    static AuditEntry read(ByteBuffer buf, int offset, long expectedSeq) {
+        if (offset + ENTRY_SIZE > buf.limit()) {
+            return null;
+        }
+        long seq = buf.getLong(offset);
+        if (seq == 0 || (expectedSeq > 0 && seq != expectedSeq) || buf.getInt(offset + CRC_OFFSET) != crc(buf, offset)) {
+            return null;
+        }
+        return new AuditEntry(seq,
+                Instant.ofEpochMilli(buf.getLong(offset + 8)),
+                buf.getLong(offset + 16),
+                buf.getLong(offset + 24),
+                AuditAction.ofCode(buf.getShort(offset + 32)),
+                AuditEntry.Channel.values()[buf.get(offset + 34)]);
+    }
+
+    static Path segmentPath(Path dir, long firstSeq) {
+        return dir.resolve(String.format("audit-%020d.seg", firstSeq));
+    }
+
+    /** segment files of {@code dir}, oldest first */
+    static List<Path> list(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().matches("audit-\\d{20}\\.seg"))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring("audit-".length(), name.length() - ".seg".length()));
+    }
+
+    private static int crc(ByteBuffer buf, int offset) {
+        CRC32C crc = new CRC32C();
+        crc.update(buf.slice(offset, CRC_OFFSET));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,41 @@
+package org.wp2.medsys.bootstrap;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Knobs for {@link SyntheticDataGenerator}, bound from {@code medsys.datagen.*}.
+ * <p>
+ * The same seed and sizes always produce the same rows, so the numbers here
+ * double as the "fingerprint" of a generated database.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.datagen")
+public class DataGeneratorProperties {
+
+    /** seed for every random stream – same seed, same data */
+    private long seed = 42L;
+
+    /** synthetic doctors on top of the fixture accounts */
+    private int doctors = 10;
+
+    /** synthetic patients on top of the fixture accounts */
+    private int patients = 100;
+
+    /* ---------- rows per patient (exact, so counts are predictable) ---------- */
+    private int appointmentsPerPatient  = 3;
+    private int recordsPerPatient       = 2;
+    private int prescriptionsPerPatient = 2;
+
+    /** rows per JDBC batch / transaction */
+    private int batchSize = 1_000;
+
+    /** worker threads; each one holds a pooled connection while it inserts */
+    private int threads = Math.min(Runtime.getRuntime().availableProcessors(), 8);
+
+    /** clear-text password shared by every generated account */
+    private String password = "pass";
+
+    /** truncate and regenerate even if the database already matches */
+    private boolean force = false;
+}
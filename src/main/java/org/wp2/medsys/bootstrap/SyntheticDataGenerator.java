@@ -0,0 +1,416 @@
+package org.wp2.medsys.bootstrap;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.env.Profiles;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.storage.NotesCodec;
+
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Fills the database with a deterministic, realistic-looking data set.
+ * <p>
+ * Only active under the {@code datagen} profile and refuses to run next to
+ * {@code prod}. Re-running with the same seed and sizes is a no-op; changing
+ * them truncates the tables (set-based, not row-by-row) and regenerates.
+ * <p>
+ * Ids are assigned explicitly – doctors first, then patients, then every
+ * child row derived from its patient's ordinal – so each patient's rows can
+ * be generated on any thread from its own random stream and still come out
+ * identical between runs.
+ */
+@Slf4j
+@Component
+@Profile("datagen")
+public class SyntheticDataGenerator implements CommandLineRunner {
+
+    /*
+     * children → parents, the order TRUNCATE would need without FK checks off.
+     * Everything that refers to users or their rows goes: regenerated rows
+     * reuse the same ids, so leftovers would end up attached to other people.
+     */
+    private static final String[] TABLES = {
+            "waitlist_entries", "appointment_series_exceptions",
+            "appointment_reminders_sent", "idempotency_keys",
+            "prescriptions_archive", "medical_records_archive", "appointments_archive",
+            "prescriptions", "medical_records", "appointments", "appointment_series", "users"};
+
+    private static final String INSERT_USER =
+            "INSERT INTO users (id, username, email, pass_hash, role, created_at, date_of_birth,"
+            + " gender, phone_number, address, spec, license_number)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_APPOINTMENT =
+            "INSERT INTO appointments (id, appointment_date, schedule_reason, status, patient_id, doctor_id)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_RECORD =
+            "INSERT INTO medical_records (id, created_at, title, notes, patient_id, doctor_id)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_PRESCRIPTION =
+            "INSERT INTO prescriptions (id, issue_date, medication, dosage, notes, patient_id, doctor_id)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    /* ---------- fixture accounts the team logs in with ---------- */
+    private static final String[][] FIXTURE_DOCTORS = {
+            {"house",   "Diagnostics", "DOC-1001"},
+            {"wattson", "Diagnostics", "DOC-1002"}};
+    private static final String[] FIXTURE_PATIENTS = {"john.doe", "jane.roe"};
+
+    /* ---------- vocabulary ---------- */
+    private static final String[] LAST = {"popescu", "ionescu", "stan", "dumitru", "gheorghe", "marin",
+            "tudor", "florea", "matei", "constantin", "barbu", "nistor"};
+    private static final String[] SPECS = {"Cardiology", "Dermatology", "Diagnostics", "Family Medicine",
+            "Neurology", "Oncology", "Orthopedics", "Pediatrics", "Psychiatry", "Radiology"};
+    private static final String[] REASONS = {"Annual physical exam", "Flu-like symptoms", "Follow-up visit",
+            "Persistent headache", "Back pain", "Skin rash", "Blood pressure check", "Chest discomfort",
+            "Vaccination", "Lab results review"};
+    private static final String[] TITLES = {"Blood work", "Consultation", "X-ray", "ECG", "MRI scan",
+            "Allergy test", "Physical examination", "Ultrasound", "Follow-up", "Discharge summary"};
+    private static final String[] SENTENCES = {
+            "Patient reports feeling well overall.",
+            "All values within normal ranges.",
+            "Mild elevation in blood pressure observed, recheck in two weeks.",
+            "No signs of acute distress.",
+            "Advised to increase fluid intake and rest.",
+            "Family history of cardiovascular disease noted.",
+            "Symptoms improved since the previous visit.",
+            "Recommended follow-up imaging if symptoms persist.",
+            "Lungs clear on auscultation, heart sounds regular.",
+            "Patient counselled on diet and regular exercise."};
+    private static final String[][] MEDICATIONS = {
+            {"Ibuprofen", "200 mg twice a day after meals"},
+            {"Paracetamol", "500 mg every 6 hours as needed"},
+            {"Amoxicillin", "500 mg three times a day for 7 days"},
+            {"Metformin", "850 mg twice a day"},
+            {"Lisinopril", "10 mg once a day"},
+            {"Atorvastatin", "20 mg once a day in the evening"},
+            {"Omeprazole", "20 mg once a day before breakfast"},
+            {"Salbutamol", "2 puffs as needed"},
+            {"Sertraline", "50 mg once a day"},
+            {"Warfarin", "5 mg once a day"}};
+    // fixed, not Status.values(): the same seed must keep producing the same rows
+    private static final Status[] STATUSES = {Status.ACCEPTED, Status.DENIED, Status.PENDING};
+
+    private final JdbcTemplate            jdbc;
+    private final TransactionTemplate     tx;
+    private final PasswordEncoder         passwordEncoder;
+    private final DataGeneratorProperties props;
+    private final Environment             environment;
+    private final NotesCodec              notesCodec;
+
+    public SyntheticDataGenerator(JdbcTemplate               jdbc,
+                                  PlatformTransactionManager transactionManager,
+                                  PasswordEncoder            passwordEncoder,
+                                  DataGeneratorProperties    props,
+                                  Environment                environment,
+                                  NotesCodec                 notesCodec) {
+        this.jdbc            = jdbc;
+        this.tx              = new TransactionTemplate(transactionManager);
+        this.passwordEncoder = passwordEncoder;
+        this.props           = props;
+        this.environment     = environment;
+        this.notesCodec      = notesCodec;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        if (environment.acceptsProfiles(Profiles.of("prod", "production"))) {
+            throw new IllegalStateException("Synthetic data generation is disabled in production");
+        }
+
+        if (!props.isForce() && alreadyGenerated()) {
+            log.info("Synthetic data already present (seed={}, doctors={}, patients={}) – skipping",
+                    props.getSeed(), props.getDoctors(), props.getPatients());
+            return;
+        }
+
+        long started = System.nanoTime();
+        truncateAll();
+
+        /* one BCrypt hash for everybody – hashing per user would dominate the run */
+        String passHash = passwordEncoder.encode(props.getPassword());
+
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, props.getThreads()));
+        try {
+            /* parents first, FK checks stay on */
+            await(submitChunks(pool, doctorCount(), (from, to) -> insertDoctors(from, to, passHash)));
+            await(submitChunks(pool, patientCount(), (from, to) -> insertPatients(from, to, passHash)));
+
+            /* the three child tables only depend on users, so they go in parallel */
+            List<Future<?>> children = new ArrayList<>();
+            children.addAll(submitChunks(pool, patientCount(), this::insertAppointments));
+            children.addAll(submitChunks(pool, patientCount(), this::insertRecords));
+            children.addAll(submitChunks(pool, patientCount(), this::insertPrescriptions));
+            await(children);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        log.info("Synthetic data generated in {} ms: users={}, appointments={}, records={}, prescriptions={}",
+                (System.nanoTime() - started) / 1_000_000,
+                doctorCount() + patientCount(),
+                expectedRows(props.getAppointmentsPerPatient()),
+                expectedRows(props.getRecordsPerPatient()),
+                expectedRows(props.getPrescriptionsPerPatient()));
+    }
+
+    /* ====================================================================== */
+    /*  idempotency + truncation                                              */
+    /* ====================================================================== */
+
+    private boolean alreadyGenerated() {
+        return count("users")           == doctorCount() + patientCount()
+            && count("appointments")    == expectedRows(props.getAppointmentsPerPatient())
+            && count("medical_records") == expectedRows(props.getRecordsPerPatient())
+            && count("prescriptions")   == expectedRows(props.getPrescriptionsPerPatient())
+            && lastPatientMatches();
+    }
+
+    /**
+     * cheap check that the rows came from this seed/size and not from someone's
+     * manual inserts: the username follows from the size, birth date and phone
+     * number from the seed
+     */
+    private boolean lastPatientMatches() {
+        int ordinal = patientCount() - 1;
+        Patient expected = patient(ordinal);
+        List<Boolean> matches = jdbc.query(
+                "SELECT username, date_of_birth, phone_number FROM users WHERE id = ?",
+                (rs, n) -> patientUsername(ordinal).equals(rs.getString(1))
+                        && expected.dateOfBirth().equals(rs.getObject(2, LocalDate.class))
+                        && expected.phone().equals(rs.getString(3)),
+                patientId(ordinal));
+        return matches.equals(List.of(true));
+    }
+
+    private long count(String table) {
+        Long n = jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return n == null ? 0 : n;
+    }
+
+    private void truncateAll() {
+        jdbc.execute((ConnectionCallback<Void>) con -> {
+            try (Statement st = con.createStatement()) {
+                st.execute("SET FOREIGN_KEY_CHECKS = 0");
+                try {
+                    for (String table : TABLES) {
+                        st.execute("TRUNCATE TABLE " + table);
+                    }
+                } finally {
+                    st.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            }
+            return null;
+        });
+    }
+
+    /* ====================================================================== */
+    /*  row producers – each works on the ordinal range [from, to)            */
+    /* ====================================================================== */
+
+    private void insertDoctors(int from, int to, String passHash) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            SplittableRandom rnd = random(1, i);
+            String username;
+            String spec;
+            String license;
+            if (i < FIXTURE_DOCTORS.length) {
+                username = FIXTURE_DOCTORS[i][0];
+                spec     = FIXTURE_DOCTORS[i][1];
+                license  = FIXTURE_DOCTORS[i][2];
+            } else {
+                username = "doctor" + (i - FIXTURE_DOCTORS.length + 1);
+                spec     = pick(rnd, SPECS);
+                license  = "DOC-" + (2000 + i);
+            }
+            rows.add(new Object[]{
+                    doctorId(i), username, username + "@example.com", passHash, "DOCTOR",
+                    Timestamp.valueOf(LocalDateTime.now()),
+                    LocalDate.of(1950 + rnd.nextInt(40), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28)),
+                    null, null, null, spec, license});
+        }
+        batchInsert(INSERT_USER, rows);
+    }
+
+    private void insertPatients(int from, int to, String passHash) {
+        List<Object[]> rows = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            String username = patientUsername(i);
+            Patient p = patient(i);
+            rows.add(new Object[]{
+                    patientId(i), username, username + "@example.com", passHash, "PATIENT",
+                    Timestamp.valueOf(LocalDateTime.now()),
+                    p.dateOfBirth(), p.gender(), p.phone(), p.address(),
+                    null, null});
+        }
+        batchInsert(INSERT_USER, rows);
+    }
+
+    /** the seed-derived columns of a patient */
+    private record Patient(LocalDate dateOfBirth, String gender, String phone, String address) {}
+
+    private Patient patient(int ordinal) {
+        SplittableRandom rnd = random(2, ordinal);
+        return new Patient(
+                LocalDate.of(1940 + rnd.nextInt(70), 1 + rnd.nextInt(12), 1 + rnd.nextInt(28)),
+                rnd.nextBoolean() ? "M" : "F",
+                String.format("07%02d-%03d-%03d", rnd.nextInt(100), rnd.nextInt(1000), rnd.nextInt(1000)),
+                (1 + rnd.nextInt(300)) + " " + capitalize(pick(rnd, LAST)) + " St, Springfield");
+    }
+
+    private void insertAppointments(int from, int to) {
+        int per = props.getAppointmentsPerPatient();
+        LocalDateTime now = LocalDateTime.now().withSecond(0).withNano(0);
+        List<Object[]> rows = new ArrayList<>((to - from) * per);
+        for (int i = from; i < to; i++) {
+            SplittableRandom rnd = random(3, i);
+            for (int k = 0; k < per; k++) {
+                /* two years back, six months ahead, on a half-hour grid */
+                LocalDateTime when = now.withMinute(0)
+                        .plusDays(rnd.nextInt(-730, 180))
+                        .withHour(8 + rnd.nextInt(9))
+                        .plusMinutes(30L * rnd.nextInt(2));
+                Status status = when.isBefore(now)
+                        ? (rnd.nextInt(10) == 0 ? Status.DENIED : Status.ACCEPTED)
+                        : STATUSES[rnd.nextInt(STATUSES.length)];
+                rows.add(new Object[]{
+                        childId(i, per, k), Timestamp.valueOf(when), pick(rnd, REASONS),
+                        status.name(), patientId(i), randomDoctorId(rnd)});
+            }
+        }
+        batchInsert(INSERT_APPOINTMENT, rows);
+    }
+
+    private void insertRecords(int from, int to) {
+        int per = props.getRecordsPerPatient();
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+        List<Object[]> rows = new ArrayList<>((to - from) * per);
+        for (int i = from; i < to; i++) {
+            SplittableRandom rnd = random(4, i);
+            for (int k = 0; k < per; k++) {
+                rows.add(new Object[]{
+                        childId(i, per, k),
+                        Timestamp.valueOf(now.minusMinutes(rnd.nextLong(5L * 365 * 24 * 60))),
+                        pick(rnd, TITLES), notesCodec.encode(notes(rnd, 2 + rnd.nextInt(12))),
+                        patientId(i), randomDoctorId(rnd)});
+            }
+        }
+        batchInsert(INSERT_RECORD, rows);
+    }
+
+    private void insertPrescriptions(int from, int to) {
+        int per = props.getPrescriptionsPerPatient();
+        LocalDate today = LocalDate.now();
+        List<Object[]> rows = new ArrayList<>((to - from) * per);
+        for (int i = from; i < to; i++) {
+            SplittableRandom rnd = random(5, i);
+            for (int k = 0; k < per; k++) {
+                String[] med = MEDICATIONS[rnd.nextInt(MEDICATIONS.length)];
+                rows.add(new Object[]{
+                        childId(i, per, k), today.minusDays(rnd.nextInt(3 * 365)),
+                        med[0], med[1], rnd.nextInt(3) == 0 ? null : notesCodec.encode(notes(rnd, 1 + rnd.nextInt(4))),
+                        patientId(i), randomDoctorId(rnd)});
+            }
+        }
+        batchInsert(INSERT_PRESCRIPTION, rows);
+    }
+
+    /* ====================================================================== */
+    /*  plumbing                                                              */
+    /* ====================================================================== */
+
+    @FunctionalInterface
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /** splits [0, total) into chunks sized so every worker gets a few of them */
+    private List<Future<?>> submitChunks(ExecutorService pool, int total, RangeTask task) {
+        int chunk = Math.max(props.getBatchSize(), total / (Math.max(1, props.getThreads()) * 4) + 1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int from = 0; from < total; from += chunk) {
+            int start = from;
+            int end   = Math.min(total, from + chunk);
+            futures.add(pool.submit(() -> task.run(start, end)));
+        }
+        return futures;
+    }
+
+    private static void await(List<Future<?>> futures) throws InterruptedException, ExecutionException {
+        for (Future<?> f : futures) {
+            f.get();
+        }
+    }
+
+    /** commits every {@code batchSize} rows so no transaction grows unbounded */
+    private void batchInsert(String sql, List<Object[]> rows) {
+        int size = Math.max(1, props.getBatchSize());
+        for (int from = 0; from < rows.size(); from += size) {
+            List<Object[]> slice = rows.subList(from, Math.min(rows.size(), from + size));
+            tx.executeWithoutResult(status -> jdbc.batchUpdate(sql, slice));
+        }
+    }
+
+    /** independent, reproducible stream per (table, ordinal) */
+    private SplittableRandom random(int stream, int ordinal) {
+        return new SplittableRandom(props.getSeed() * 0x9E3779B97F4A7C15L + stream * 0xBF58476D1CE4E5B9L + ordinal);
+    }
+
+    private int doctorCount()  { return FIXTURE_DOCTORS.length + props.getDoctors(); }
+    private int patientCount() { return FIXTURE_PATIENTS.length + props.getPatients(); }
+
+    private long expectedRows(int perPatient) { return (long) patientCount() * perPatient; }
+
+    private long doctorId(int ordinal)  { return ordinal + 1L; }
+    private long patientId(int ordinal) { return doctorCount() + ordinal + 1L; }
+
+    private static long childId(int patientOrdinal, int perPatient, int k) {
+        return (long) patientOrdinal * perPatient + k + 1;
+    }
+
+    private long randomDoctorId(SplittableRandom rnd) {
+        return doctorId(rnd.nextInt(doctorCount()));
+    }
+
+    private String patientUsername(int ordinal) {
+        return ordinal < FIXTURE_PATIENTS.length
+                ? FIXTURE_PATIENTS[ordinal]
+                : "patient" + (ordinal - FIXTURE_PATIENTS.length + 1);
+    }
+
+    private static String notes(SplittableRandom rnd, int sentences) {
+        StringBuilder sb = new StringBuilder();
+        for (int s = 0; s < sentences; s++) {
+            if (s > 0) sb.append(' ');
+            sb.append(pick(rnd, SENTENCES));
+        }
+        return sb.toString();
+    }
+
+    private static String pick(SplittableRandom rnd, String[] values) {
+        return values[rnd.nextInt(values.length)];
+    }
+
+    private static String capitalize(String s) {
+        return Character.toUpperCase(s.charAt(0)) + s.substring(1);
+    }
+}
@@ -0,0 +1,65 @@
+package org.wp2.medsys.clinics;
+
+import java.util.function.Supplier;
+
+/**
+ * The shard the current thread's database work goes to.
+ * <p>
+ * Set per request by {@link ClinicFilter} and read by
+ * {@link ClinicRoutingDataSource} whenever a connection is taken. {@code null}
+ * means the default shard. Work handed to other threads must carry the
+ * value along with {@link #wrap}.
+ */
+public final class ClinicContext {
+
+    public static final String DEFAULT_SHARD = "default";
+
+    private static final ThreadLocal<String> SHARD = new ThreadLocal<>();
+
+    private ClinicContext() {}
+
+    public static String current() {
+        return SHARD.get();
+    }
+
+    static void set(String shard) {
+        SHARD.set(shard);
+    }
+
+    static void clear() {
+        SHARD.remove();
+    }
+
+    /** runs {@code work} against {@code shard}, restoring the previous shard afterwards */
+    public static <T> T callIn(String shard, Supplier<T> work) {
+        String previous = SHARD.get();
+        SHARD.set(shard);
+        try {
+            return work.get();
+        } finally {
+            if (previous == null) {
+                SHARD.remove();
+            } else {
+                SHARD.set(previous);
+            }
+        }
+    }
+
+    public static void runIn(String shard, Runnable work) {
+        callIn(shard, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /** captures the caller's shard for a task that runs on another thread */
+    public static Runnable wrap(Runnable task) {
+        String shard = SHARD.get();
+        return () -> runIn(shard, task);
+    }
+
+    public static <T> Supplier<T> wrap(Supplier<T> task) {
+        String shard = SHARD.get();
+        return () -> callIn(shard, task);
+    }
+}
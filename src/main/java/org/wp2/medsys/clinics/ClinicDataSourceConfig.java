@@ -0,0 +1,71 @@
+package org.wp2.medsys.clinics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Replaces Boot's single {@code DataSource} with {@link ClinicRoutingDataSource}
+ * when {@code medsys.clinics.enabled=true}. Every repository, JdbcTemplate and
+ * transaction then follows {@link ClinicContext}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "medsys.clinics", name = "enabled", havingValue = "true")
+public class ClinicDataSourceConfig {
+
+    /** the default shard, from {@code spring.datasource}; also home of the directory and sessions */
+    @Bean(name = "directoryDataSource")
+    public HikariDataSource directoryDataSource(DataSourceProperties properties) {
+        HikariDataSource ds = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        ds.setPoolName("shard-" + ClinicContext.DEFAULT_SHARD);
+        return ds;
+    }
+
+    @Bean
+    @Primary
+    public ClinicRoutingDataSource dataSource(@Qualifier("directoryDataSource") HikariDataSource directory,
+                                              DataSourceProperties properties,
+                                              ClinicProperties clinics) {
+        Map<String, HikariDataSource> pools = new LinkedHashMap<>();
+        clinics.getShards().forEach((name, shard) -> {
+            if (ClinicContext.DEFAULT_SHARD.equals(name)) {
+                throw new IllegalStateException("Shard name '" + name + "' is reserved for spring.datasource");
+            }
+            HikariDataSource ds = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .driverClassName(properties.determineDriverClassName())
+                    .url(shard.getUrl())
+                    .username(shard.getUsername())
+                    .password(shard.getPassword())
+                    .build();
+            ds.setPoolName("shard-" + name);
+            ds.setMaximumPoolSize(shard.getMaximumPoolSize());
+            pools.put(name, ds);
+        });
+        return new ClinicRoutingDataSource(directory, pools);
+    }
+
+    /** runs the same migrations on every shard, the default one first */
+    @Bean
+    public FlywayMigrationStrategy clinicMigrationStrategy(ClinicProperties clinics) {
+        return flyway -> {
+            flyway.migrate();
+            ClinicRoutingDataSource routing = (ClinicRoutingDataSource) flyway.getConfiguration().getDataSource();
+            clinics.getShards().keySet().forEach(name -> Flyway.configure()
+                    .configuration(flyway.getConfiguration())
+                    .dataSource(routing.shard(name))
+                    .load()
+                    .migrate());
+        };
+    }
+}
@@ -0,0 +1,136 @@
+package org.wp2.medsys.clinics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which clinic a user belongs to and which shard a clinic lives on.
+ * <p>
+ * Backed by {@code clinics} and {@code user_clinics} on the default shard
+ * ({@code db/clinics.sql}), cached per node for {@code directory-cache-ttl}.
+ * With clinics disabled every lookup answers "default shard" without
+ * touching the database.
+ */
+@Slf4j
+@Component
+public class ClinicDirectory {
+
+    /** where a user's requests go, and whether writes are frozen by a migration */
+    public record Route(String clinic, String shard, boolean frozen) {}
+
+    private record Cached<T>(T value, long loadedAt) {}
+
+    private static final int MAX_CACHED_USERS = 100_000;
+
+    private final ClinicProperties props;
+    private final JdbcTemplate     jdbc;
+    private final long             ttlMillis;
+
+    private final ConcurrentHashMap<String, Cached<String>> clinicOfUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Cached<Route>>  routeOfClinic = new ConcurrentHashMap<>();
+
+    public ClinicDirectory(ClinicProperties props,
+                           DataSource dataSource,
+                           @Qualifier("directoryDataSource") ObjectProvider<DataSource> directoryDataSource) {
+        this.props     = props;
+        this.jdbc      = new JdbcTemplate(directoryDataSource.getIfAvailable(() -> dataSource));
+        this.ttlMillis = props.getDirectoryCacheTtl().toMillis();
+    }
+
+    public boolean isEnabled() {
+        return props.isEnabled();
+    }
+
+    /** route of an authenticated user; users not (yet) in the directory use the default clinic */
+    public Route routeFor(String username) {
+        if (!isEnabled()) {
+            return new Route(props.getDefaultClinic(), null, false);
+        }
+        long now = System.currentTimeMillis();
+        Cached<String> c = clinicOfUser.get(username);
+        String clinic;
+        if (c != null && now - c.loadedAt() < ttlMillis) {
+            clinic = c.value();
+        } else {
+            List<String> rows = jdbc.queryForList(
+                    "SELECT clinic_id FROM user_clinics WHERE username = ?", String.class, username);
+            clinic = rows.isEmpty() ? props.getDefaultClinic() : rows.get(0);
+            if (clinicOfUser.size() >= MAX_CACHED_USERS) {
+                clinicOfUser.clear();
+            }
+            clinicOfUser.put(username, new Cached<>(clinic, now));
+        }
+        return routeOfClinic(clinic);
+    }
+
+    /** route of anonymous requests (registration) */
+    public Route defaultRoute() {
+        if (!isEnabled()) {
+            return new Route(props.getDefaultClinic(), null, false);
+        }
+        return routeOfClinic(props.getDefaultClinic());
+    }
+
+    public String shardFor(String username) {
+        return routeFor(username).shard();
+    }
+
+    public Route routeOfClinic(String clinic) {
+        long now = System.currentTimeMillis();
+        Cached<Route> c = routeOfClinic.get(clinic);
+        if (c != null && now - c.loadedAt() < ttlMillis) {
+            return c.value();
+        }
+        List<Route> rows = jdbc.query("SELECT id, shard, state FROM clinics WHERE id = ?",
+                (rs, n) -> new Route(rs.getString(1), rs.getString(2), "FROZEN".equals(rs.getString(3))),
+                clinic);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("Clinic '" + clinic + "' is not in the directory");
+        }
+        routeOfClinic.put(clinic, new Cached<>(rows.get(0), now));
+        return rows.get(0);
+    }
+
+    /**
+     * Puts a new user into the default clinic. The directory's primary key is
+     * what makes usernames unique across shards.
+     *
+     * @throws DuplicateKeyException if the username exists on any shard
+     */
+    public void assignToDefaultClinic(String username) {
+        if (isEnabled()) {
+            jdbc.update("INSERT INTO user_clinics (username, clinic_id) VALUES (?, ?)",
+                    username, props.getDefaultClinic());
+        }
+    }
+
+    public void unassign(String username) {
+        if (isEnabled()) {
+            jdbc.update("DELETE FROM user_clinics WHERE username = ?", username);
+            clinicOfUser.remove(username);
+        }
+    }
+
+    /* ---------- used by the migration tool ---------- */
+
+    List<String> usernamesOf(String clinic) {
+        return jdbc.queryForList("SELECT username FROM user_clinics WHERE clinic_id = ?", String.class, clinic);
+    }
+
+    void setState(String clinic, String shard, String state) {
+        int n = jdbc.update("UPDATE clinics SET shard = ?, state = ? WHERE id = ?", shard, state, clinic);
+        if (n != 1) {
+            throw new IllegalStateException("Clinic '" + clinic + "' is not in the directory");
+        }
+        routeOfClinic.remove(clinic);
+        log.info("Clinic {} -> shard {} ({})", clinic, shard, state);
+    }
+}
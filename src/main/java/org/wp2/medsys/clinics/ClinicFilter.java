@@ -0,0 +1,63 @@
+package org.wp2.medsys.clinics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Points {@link ClinicContext} at the shard of the signed-in user's clinic for
+ * the rest of the request; anonymous requests use the default clinic.
+ * <p>
+ * While a clinic is frozen for migration its users can still read, but
+ * writes get {@code 503} with {@code Retry-After}. Sits in the security chain
+ * right after the security context is loaded. Not a bean, like
+ * {@code RateLimitFilter}.
+ */
+public class ClinicFilter extends OncePerRequestFilter {
+
+    private final ClinicDirectory directory;
+
+    public ClinicFilter(ClinicDirectory directory) {
+        this.directory = directory;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        boolean signedIn = auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken);
+        ClinicDirectory.Route route = signedIn ? directory.routeFor(auth.getName()) : directory.defaultRoute();
+
+        if (route.frozen() && !isRead(request)) {
+            response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+            response.setHeader("Retry-After", "30");
+            response.setContentType("text/plain;charset=UTF-8");
+            response.getWriter().write("Your clinic is being moved to new servers – please try again in a minute.");
+            return;
+        }
+
+        ClinicContext.set(route.shard());
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            ClinicContext.clear();
+        }
+    }
+
+    /** reads, plus signing in and out – those only touch the directory database */
+    private static boolean isRead(HttpServletRequest request) {
+        String m = request.getMethod();
+        String path = request.getServletPath();
+        return "GET".equals(m) || "HEAD".equals(m) || "OPTIONS".equals(m)
+                || "/login".equals(path) || "/logout".equals(path);
+    }
+}
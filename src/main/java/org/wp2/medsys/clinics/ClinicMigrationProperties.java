@@ -0,0 +1,29 @@
+package org.wp2.medsys.clinics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * One clinic move, bound from {@code medsys.clinics.migration.*}; used by
+ * {@link ClinicMigrationRunner} under the {@code clinic-migration} profile.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.clinics.migration")
+public class ClinicMigrationProperties {
+
+    private String clinic;
+
+    /** shard name to move to */
+    private String target;
+
+    /** rows per copy / delete statement */
+    private int batchSize = 500;
+
+    /** pause between batches of the bulk copy and the cleanup */
+    private Duration pause = Duration.ofMillis(50);
+
+    /** keep the source rows (e.g. for a dry run that is flipped back by hand) */
+    private boolean keepSource = false;
+}
@@ -0,0 +1,281 @@
+package org.wp2.medsys.clinics;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSetMetaData;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves one clinic to another shard while the application keeps running.
+ * <pre>
+ * java -jar medsys.jar --spring.profiles.active=clinic-migration \
+ *      --medsys.clinics.migration.clinic=north --medsys.clinics.migration.target=east
+ * </pre>
+ * <ol>
+ *   <li><b>Bulk copy</b> – users, appointment series (with their exceptions),
+ *       appointments, records, prescriptions and waitlist entries of the clinic
+ *       are upserted into the target in batches while the clinic stays live.</li>
+ *   <li><b>Freeze</b> – the clinic is marked {@code FROZEN}; after the directory
+ *       cache TTL every node refuses its writes (reads keep working).</li>
+ *   <li><b>Catch-up</b> – users, series, appointments and waitlist entries (the
+ *       rows the app updates) are copied again in full; records and
+ *       prescriptions (insert-only) from the highest id of the bulk copy on.</li>
+ *   <li><b>Flip</b> – the directory points the clinic at the target and unfreezes it.</li>
+ *   <li><b>Cleanup</b> – the clinic's rows are deleted from the source, children
+ *       before the rows they reference.</li>
+ * </ol>
+ * Ids must be unique across shards – give each shard its own
+ * {@code auto_increment_offset} (see {@code db/clinics-compose.yml}). Rows
+ * reference users of the same clinic only; archive tables are not moved.
+ */
+@Slf4j
+@Component
+@Profile("clinic-migration")
+public class ClinicMigrationRunner implements CommandLineRunner {
+
+    /**
+     * parent tables first (appointments reference their series); each child is
+     * selected by the clinic's patient ids
+     */
+    private static final String[] CHILDREN = {
+            "appointment_series", "appointments", "medical_records", "prescriptions", "waitlist_entries"};
+    /** skipped or materialized occurrences, selected by the clinic's series ids */
+    private static final String SERIES_EXCEPTIONS = "appointment_series_exceptions";
+    private static final Set<String> INSERT_ONLY = Set.of("medical_records", "prescriptions");
+
+    private final ClinicDirectory           directory;
+    private final ClinicRoutingDataSource   shards;
+    private final ClinicProperties          clinics;
+    private final ClinicMigrationProperties props;
+
+    public ClinicMigrationRunner(ClinicDirectory directory,
+                                 ClinicRoutingDataSource shards,
+                                 ClinicProperties clinics,
+                                 ClinicMigrationProperties props) {
+        this.directory = directory;
+        this.shards    = shards;
+        this.clinics   = clinics;
+        this.props     = props;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        String clinic = Objects.requireNonNull(props.getClinic(), "medsys.clinics.migration.clinic");
+        String target = Objects.requireNonNull(props.getTarget(), "medsys.clinics.migration.target");
+        ClinicDirectory.Route route = directory.routeOfClinic(clinic);
+        if (route.shard().equals(target)) {
+            log.info("Clinic {} already lives on {}", clinic, target);
+            return;
+        }
+        JdbcTemplate from = new JdbcTemplate(shards.shard(route.shard()));
+        JdbcTemplate to   = new JdbcTemplate(shards.shard(target));
+        long started = System.nanoTime();
+
+        // 1. bulk copy, clinic live
+        List<Long> userIds = userIds(from, clinic);
+        Map<String, Long> copiedUpTo = new HashMap<>();
+        copyUsers(from, to, userIds);
+        for (String table : CHILDREN) {
+            copiedUpTo.put(table, copyChildren(from, to, table, userIds, 0L));
+            if (table.equals("appointment_series")) {
+                copySeriesExceptions(from, to, seriesIds(from, userIds));
+            }
+        }
+        log.info("Bulk copy of clinic {} ({} users) done in {} s", clinic, userIds.size(), seconds(started));
+
+        // 2. freeze – wait until every node has seen it
+        directory.setState(clinic, route.shard(), "FROZEN");
+        long frozen = System.nanoTime();
+        List<Long> seriesIds;
+        try {
+            TimeUnit.MILLISECONDS.sleep(clinics.getDirectoryCacheTtl().toMillis() + 1_000);
+
+            // 3. catch-up
+            userIds = userIds(from, clinic);
+            copyUsers(from, to, userIds);
+            seriesIds = seriesIds(from, userIds);
+            for (String table : CHILDREN) {
+                copyChildren(from, to, table, userIds, INSERT_ONLY.contains(table) ? copiedUpTo.get(table) : 0L);
+                if (table.equals("appointment_series")) {
+                    copySeriesExceptions(from, to, seriesIds);
+                }
+            }
+            verifyCounts(from, to, userIds, seriesIds);
+
+            // 4. flip
+            directory.setState(clinic, target, "ACTIVE");
+        } catch (Exception e) {
+            directory.setState(clinic, route.shard(), "ACTIVE");
+            log.error("Migration of clinic {} aborted – still on {}", clinic, route.shard());
+            throw e;
+        }
+        log.info("Clinic {} now on {}; writes were frozen for {} s", clinic, target, seconds(frozen));
+
+        // 5. cleanup
+        if (!props.isKeepSource()) {
+            for (int i = CHILDREN.length - 1; i >= 0; i--) {
+                if (CHILDREN[i].equals("appointment_series")) {
+                    deleteByOwner(from, SERIES_EXCEPTIONS, "series_id", seriesIds);
+                }
+                deleteByOwner(from, CHILDREN[i], "patient_id", userIds);
+            }
+            deleteByOwner(from, "users", "id", userIds);
+        }
+        log.info("Migration of clinic {} finished in {} s", clinic, seconds(started));
+    }
+
+    /* ---------- steps ---------- */
+
+    private List<Long> userIds(JdbcTemplate from, String clinic) {
+        List<Long> ids = new ArrayList<>();
+        for (List<String> chunk : chunks(directory.usernamesOf(clinic))) {
+            ids.addAll(from.queryForList("SELECT id FROM users WHERE username IN (" + marks(chunk.size()) + ")",
+                    Long.class, chunk.toArray()));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private void copyUsers(JdbcTemplate from, JdbcTemplate to, List<Long> userIds) throws InterruptedException {
+        for (List<Long> chunk : chunks(userIds)) {
+            copy(from, to, "users", "SELECT * FROM users WHERE id IN (" + marks(chunk.size()) + ")", chunk.toArray());
+            pause();
+        }
+    }
+
+    private List<Long> seriesIds(JdbcTemplate from, List<Long> userIds) {
+        List<Long> ids = new ArrayList<>();
+        for (List<Long> chunk : chunks(userIds)) {
+            ids.addAll(from.queryForList("SELECT id FROM appointment_series WHERE patient_id IN ("
+                    + marks(chunk.size()) + ")", Long.class, chunk.toArray()));
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    /** exceptions change with their series, so they are always copied in full */
+    private void copySeriesExceptions(JdbcTemplate from, JdbcTemplate to, List<Long> seriesIds)
+            throws InterruptedException {
+        for (List<Long> chunk : chunks(seriesIds)) {
+            copy(from, to, SERIES_EXCEPTIONS, "SELECT * FROM " + SERIES_EXCEPTIONS
+                    + " WHERE series_id IN (" + marks(chunk.size()) + ")", chunk.toArray());
+            pause();
+        }
+    }
+
+    /** @return the highest id copied */
+    private long copyChildren(JdbcTemplate from, JdbcTemplate to, String table,
+                              List<Long> userIds, long afterId) throws InterruptedException {
+        long max = afterId;
+        for (List<Long> owners : chunks(userIds)) {
+            long after = afterId;
+            while (true) {
+                Object[] args = new Object[owners.size() + 2];
+                for (int i = 0; i < owners.size(); i++) {
+                    args[i] = owners.get(i);
+                }
+                args[owners.size()]     = after;
+                args[owners.size() + 1] = props.getBatchSize();
+                long last = copy(from, to, table, "SELECT * FROM " + table
+                        + " WHERE patient_id IN (" + marks(owners.size()) + ") AND id > ? ORDER BY id LIMIT ?", args);
+                if (last < 0) {
+                    break;
+                }
+                after = last;
+                max = Math.max(max, last);
+                pause();
+            }
+        }
+        return max;
+    }
+
+    /**
+     * upserts the rows of {@code select} into the target
+     *
+     * @return last id (0 for a table without one), or -1 if there were no rows
+     */
+    private long copy(JdbcTemplate from, JdbcTemplate to, String table, String select, Object... args) {
+        List<Object[]> rows = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        from.query(select, rs -> {
+            if (columns.isEmpty()) {
+                ResultSetMetaData md = rs.getMetaData();
+                for (int i = 1; i <= md.getColumnCount(); i++) {
+                    columns.add(md.getColumnLabel(i));
+                }
+            }
+            Object[] row = new Object[columns.size()];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = rs.getObject(i + 1);
+            }
+            rows.add(row);
+        }, args);
+        if (rows.isEmpty()) {
+            return -1;
+        }
+        StringJoiner updates = new StringJoiner(", ");
+        columns.forEach(c -> updates.add(c + " = VALUES(" + c + ")"));
+        to.batchUpdate("INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES ("
+                + marks(columns.size()) + ") ON DUPLICATE KEY UPDATE " + updates, rows);
+        int id = columns.indexOf("id");
+        return id < 0 ? 0 : ((Number) rows.get(rows.size() - 1)[id]).longValue();
+    }
+
+    private void verifyCounts(JdbcTemplate from, JdbcTemplate to, List<Long> userIds, List<Long> seriesIds) {
+        for (String table : CHILDREN) {
+            verifyCount(from, to, table, "patient_id", userIds);
+        }
+        verifyCount(from, to, SERIES_EXCEPTIONS, "series_id", seriesIds);
+    }
+
+    private void verifyCount(JdbcTemplate from, JdbcTemplate to, String table, String column, List<Long> owners) {
+        long source = 0, copied = 0;
+        for (List<Long> chunk : chunks(owners)) {
+            String sql = "SELECT COUNT(*) FROM " + table + " WHERE " + column + " IN (" + marks(chunk.size()) + ")";
+            source += from.queryForObject(sql, Long.class, chunk.toArray());
+            copied += to.queryForObject(sql, Long.class, chunk.toArray());
+        }
+        if (source != copied) {
+            throw new IllegalStateException(table + ": " + source + " rows on source, " + copied + " on target");
+        }
+    }
+
+    private void deleteByOwner(JdbcTemplate from, String table, String column, List<Long> userIds)
+            throws InterruptedException {
+        for (List<Long> chunk : chunks(userIds)) {
+            Object[] args = Arrays.copyOf(chunk.toArray(), chunk.size() + 1);
+            args[chunk.size()] = props.getBatchSize();
+            while (from.update("DELETE FROM " + table + " WHERE " + column
+                    + " IN (" + marks(chunk.size()) + ") LIMIT ?", args) > 0) {
+                pause();
+            }
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private <T> List<List<T>> chunks(List<T> all) {
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += props.getBatchSize()) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + props.getBatchSize())));
+        }
+        return chunks;
+    }
+
+    private static String marks(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    private void pause() throws InterruptedException {
+        TimeUnit.MILLISECONDS.sleep(props.getPause().toMillis());
+    }
+
+    private static long seconds(long since) {
+        return TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - since);
+    }
+}
@@ -0,0 +1,46 @@
+package org.wp2.medsys.clinics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Multi-clinic routing, bound from {@code medsys.clinics.*}.
+ * <pre>
+ * medsys.clinics.enabled=true
+ * medsys.clinics.shards.east.url=jdbc:mariadb://localhost:3307/medsys_db
+ * medsys.clinics.shards.east.username=root
+ * medsys.clinics.shards.east.password=root
+ * </pre>
+ * {@code spring.datasource} is always the {@value ClinicContext#DEFAULT_SHARD}
+ * shard and also holds the clinic directory and the session table.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.clinics")
+public class ClinicProperties {
+
+    private boolean enabled = false;
+
+    /** clinic of new registrations and of users missing from the directory */
+    private String defaultClinic = "main";
+
+    /**
+     * how long a node trusts its cached clinic → shard mapping; a migration
+     * waits at least this long after freezing a clinic
+     */
+    private Duration directoryCacheTtl = Duration.ofSeconds(5);
+
+    /** additional shards by name, each with its own connection pool */
+    private Map<String, Shard> shards = new LinkedHashMap<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private int    maximumPoolSize = 10;
+    }
+}
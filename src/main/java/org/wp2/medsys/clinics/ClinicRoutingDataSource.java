@@ -0,0 +1,46 @@
+package org.wp2.medsys.clinics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Hands out connections from the pool of the shard in {@link ClinicContext}.
+ * Owns (and closes) the extra shard pools; the default pool is its own bean.
+ */
+public class ClinicRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private final Map<String, HikariDataSource> shardPools;
+
+    ClinicRoutingDataSource(DataSource defaultShard, Map<String, HikariDataSource> shardPools) {
+        this.shardPools = shardPools;
+        Map<Object, Object> targets = new LinkedHashMap<>(shardPools);
+        targets.put(ClinicContext.DEFAULT_SHARD, defaultShard);
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(defaultShard);
+        setLenientFallback(false);      // a typo in a shard name must fail, not silently hit the default
+        afterPropertiesSet();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ClinicContext.current();
+    }
+
+    /** the pool of one shard, for tools that talk to two shards at once */
+    public DataSource shard(String name) {
+        DataSource ds = getResolvedDataSources().get(name);
+        if (ds == null) {
+            throw new IllegalArgumentException("Unknown shard '" + name + "'");
+        }
+        return ds;
+    }
+
+    @Override
+    public void close() {
+        shardPools.values().forEach(HikariDataSource::close);
+    }
+}
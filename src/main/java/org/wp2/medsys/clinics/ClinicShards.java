@@ -0,0 +1,46 @@
+package org.wp2.medsys.clinics;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Runs work on every shard, for jobs and lookups that are not tied to one
+ * user's request (archival, recompression, availability checks). With clinics
+ * disabled there is exactly one "shard": the single datasource.
+ */
+@Component
+public class ClinicShards {
+
+    private final List<String> keys;
+
+    public ClinicShards(ClinicProperties props) {
+        if (props.isEnabled()) {
+            List<String> all = new ArrayList<>();
+            all.add(ClinicContext.DEFAULT_SHARD);
+            all.addAll(props.getShards().keySet());
+            this.keys = List.copyOf(all);
+        } else {
+            this.keys = Collections.singletonList(null);
+        }
+    }
+
+    public void forEach(Consumer<String> work) {
+        for (String key : keys) {
+            ClinicContext.runIn(key, () -> work.accept(key));
+        }
+    }
+
+    public boolean anyMatch(BooleanSupplier test) {
+        for (String key : keys) {
+            if (ClinicContext.callIn(key, test::getAsBoolean)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,13 +1,22 @@
 package org.wp2.medsys.controllers;
 
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.wp2.medsys.assignment.DoctorLoadIndex;
 import org.wp2.medsys.domain.*;
+import org.wp2.medsys.recurrence.AppointmentSeriesService;
+import org.wp2.medsys.recurrence.RecurrenceRule;
 import org.wp2.medsys.services.*;
 import org.wp2.medsys.repositories.UserRepository;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Objects;
 
 @Controller
 @RequestMapping("/appointments")
@@ -16,29 +25,50 @@ public class AppointmentViewController {
     private final AppointmentService appointmentService;
     private final DoctorService doctorService;
     private final UserRepository userRepository;
+    private final DoctorLoadIndex doctorLoad;
+    private final AppointmentSeriesService seriesService;
 
     public AppointmentViewController(
             AppointmentService appointmentService,
             DoctorService doctorService,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            DoctorLoadIndex doctorLoad,
+            AppointmentSeriesService seriesService) {
         this.appointmentService = appointmentService;
         this.doctorService = doctorService;
         this.userRepository = userRepository;
+        this.doctorLoad = doctorLoad;
+        this.seriesService = seriesService;
     }
 
     @GetMapping
     public String showAppointmentForm(Model model) {
-        model.addAttribute("doctors", doctorService.findAll());
+        List<Doctor> doctors = doctorService.findAll();
+        model.addAttribute("doctors", doctors);
+        model.addAttribute("specialties", doctors.stream()
+                .map(Doctor::getSpec)
+                .filter(Objects::nonNull)
+                .map(String::trim)
+                .filter(s -> !s.isEmpty())
+                .distinct()
+                .sorted(String.CASE_INSENSITIVE_ORDER)
+                .toList());
         return "appointments/appointmentform";
     }
 
     @PostMapping("/schedule")
     public String scheduleAppointment(
             @RequestParam LocalDateTime appointmentDate,
-            @RequestParam Long doctorId,
+            @RequestParam(required = false) Long doctorId,
+            @RequestParam(required = false) String specialty,
             @RequestParam String scheduleReason,
-            Authentication authentication) {
-        
+            @RequestParam(required = false) Frequency repeat,
+            @RequestParam(defaultValue = "1") int repeatInterval,
+            @RequestParam(required = false) Integer repeatCount,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate repeatUntil,
+            Authentication authentication,
+            RedirectAttributes redirect) {
+
         // Get the current logged-in patient
         String username = authentication.getName();
         User user = userRepository.findByUsername(username)
@@ -49,8 +79,46 @@ public class AppointmentViewController {
         }
         
         Patient patient = (Patient) user;
-        Doctor doctor = doctorService.findById(doctorId);
-        
+        RecurrenceRule rule;
+        try {
+            rule = repeat == null ? null : new RecurrenceRule(appointmentDate, repeat, repeatInterval, repeatCount,
+                    repeatUntil == null ? null : repeatUntil.atTime(LocalTime.MAX));
+        } catch (IllegalArgumentException e) {
+            redirect.addAttribute("error", e.getMessage());
+            return "redirect:/appointments";
+        }
+
+        if (doctorId != null) {
+            try {
+                book(appointmentDate, patient, doctorService.findById(doctorId), scheduleReason, rule);
+            } catch (IllegalArgumentException e) {
+                redirect.addAttribute("error", e.getMessage());
+                return "redirect:/appointments";
+            }
+            return "redirect:/portal/patientportal?scheduled=true";
+        }
+        if (specialty == null || specialty.isBlank()) {
+            redirect.addAttribute("error", "Choose a doctor or a specialty");
+            return "redirect:/appointments";
+        }
+
+        // "any doctor with this specialty": the least-loaded one, held until the request is saved
+        try (DoctorLoadIndex.Reservation reservation = doctorLoad.reserve(specialty)) {
+            book(appointmentDate, patient, doctorService.findById(reservation.doctorId()), scheduleReason, rule);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            redirect.addAttribute("error", e.getMessage());
+            return "redirect:/appointments";
+        }
+        return "redirect:/portal/patientportal?scheduled=true";
+    }
+
+    private void book(LocalDateTime appointmentDate, Patient patient, Doctor doctor, String scheduleReason,
+                      RecurrenceRule rule) {
+        if (rule != null) {
+            // recurring: one series row, occurrences are expanded when looked at
+            seriesService.create(patient, doctor, rule, scheduleReason);
+            return;
+        }
         // Create and save the appointment
         Appointment appointment = new Appointment(
                 appointmentDate,
@@ -59,9 +127,7 @@ public class AppointmentViewController {
                 scheduleReason,
                 Status.PENDING
         );
-        
+
         appointmentService.create(appointment);
-        
-        return "redirect:/portal/patientportal?scheduled=true";
     }
 } 
\ No newline at end of file
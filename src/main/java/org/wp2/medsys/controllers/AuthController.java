@@ -2,6 +2,8 @@
 package org.wp2.medsys.controllers;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -11,6 +13,12 @@ import org.springframework.web.bind.annotation.*;
 import org.wp2.medsys.domain.*;
 import org.wp2.medsys.DTO.RegisterDTO;          // use the package name you created
 import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.registration.UserAvailability;
+import org.wp2.medsys.clinics.ClinicDirectory;
+import org.wp2.medsys.portal.PortalSummaryService;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 @Controller
 @RequiredArgsConstructor
@@ -18,6 +26,9 @@ public class AuthController {
 
     private final UserRepository  repo;
     private final PasswordEncoder encoder;
+    private final UserAvailability availability;
+    private final ClinicDirectory  clinics;
+    private final PortalSummaryService summaries;
 
     /* ---------- views ---------- */
 
@@ -52,22 +63,50 @@ public class AuthController {
     }
 
     @GetMapping("/portal/doctorportal")
-    public String doctorPortal() {
+    public String doctorPortal(Authentication authentication, Model model) {
+        repo.findByUsername(authentication.getName())
+                .ifPresent(u -> model.addAttribute("summary", summaries.forDoctor(u.getId())));
         return "portal/doctorportal";  // make sure this file exists: templates/portal/doctorportal.html
     }
 
     @GetMapping("/portal/patientportal")
-    public String patientPortal() {
+    public String patientPortal(Authentication authentication, Model model) {
+        repo.findByUsername(authentication.getName())
+                .ifPresent(u -> model.addAttribute("summary", summaries.forPatient(u.getId())));
         return "portal/patientportal";  // make sure this file exists: templates/portal/patientportal.html
     }
 
 
 
+    /* ---------- live availability check used by register.html ---------- */
+
+    @GetMapping("/register/availability")
+    @ResponseBody
+    public Map<String, Boolean> availability(@RequestParam(required = false) String username,
+                                             @RequestParam(required = false) String email) {
+        Map<String, Boolean> result = new LinkedHashMap<>();
+        if (username != null) {
+            result.put("username", availability.isUsernameAvailable(username));
+        }
+        if (email != null) {
+            result.put("email", availability.isEmailAvailable(email));
+        }
+        return result;
+    }
+
     /* ---------- form POST ---------- */
 
     @PostMapping("/register")
     public String register(@ModelAttribute RegisterDTO dto) {
 
+        // checked before the (deliberately slow) password hash
+        if (!availability.isUsernameAvailable(dto.username())) {
+            return "redirect:/register?taken=username";
+        }
+        if (!availability.isEmailAvailable(dto.email())) {
+            return "redirect:/register?taken=email";
+        }
+
         User user = switch (dto.role()) {
 
             case PATIENT -> new Patient(
@@ -91,7 +130,23 @@ public class AuthController {
                     "Admin signup is disabled — seed admin users manually");
         };
 
-        repo.save(user);
+        try {
+            // with clinics enabled the directory is what keeps usernames unique across shards
+            clinics.assignToDefaultClinic(user.getUsername());
+        } catch (DuplicateKeyException e) {
+            return "redirect:/register?taken=username";
+        }
+        try {
+            repo.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // lost a race with another registration, or the name was taken on another node
+            clinics.unassign(user.getUsername());
+            return "redirect:/register?taken";
+        } catch (RuntimeException e) {
+            // nothing was saved, so the name must not stay reserved in the directory
+            clinics.unassign(user.getUsername());
+            throw e;
+        }
         return "redirect:/login?registered";
     }
 }
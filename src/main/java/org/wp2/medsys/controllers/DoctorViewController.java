@@ -1,17 +1,37 @@
 package org.wp2.medsys.controllers;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
+import org.springframework.util.MultiValueMap;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.wp2.medsys.domain.*;
 import org.wp2.medsys.services.*;
 import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.views.KeysetCursor;
+import org.wp2.medsys.recurrence.AppointmentSeriesService;
+import org.wp2.medsys.recurrence.SeriesProperties;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.interactions.InteractionChecker;
+import org.wp2.medsys.interactions.InteractionWarning;
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.MedicalRecordItemDTO;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PatientOption;
+import org.wp2.medsys.DTO.PrescriptionItemDTO;
+import org.wp2.medsys.DTO.PrescriptionView;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.LocalDateTime;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Slf4j
 @Controller
@@ -23,18 +43,33 @@ public class DoctorViewController {
     private final MedicalRecordService medicalRecordService;
     private final PrescriptionService prescriptionService;
     private final PatientService patientService;
+    private final AuditLog auditLog;
+    private final InteractionChecker interactions;
+    private final AppointmentSeriesService seriesService;
+    private final SeriesProperties seriesProps;
+    private final int pageSize;
 
     public DoctorViewController(
             UserRepository userRepository,
             AppointmentService appointmentService,
             MedicalRecordService medicalRecordService,
             PrescriptionService prescriptionService,
-            PatientService patientService) {
+            PatientService patientService,
+            AuditLog auditLog,
+            InteractionChecker interactions,
+            AppointmentSeriesService seriesService,
+            SeriesProperties seriesProps,
+            @Value("${medsys.views.page-size:200}") int pageSize) {
         this.userRepository = userRepository;
         this.appointmentService = appointmentService;
         this.medicalRecordService = medicalRecordService;
         this.prescriptionService = prescriptionService;
         this.patientService = patientService;
+        this.auditLog = auditLog;
+        this.interactions = interactions;
+        this.seriesService = seriesService;
+        this.seriesProps = seriesProps;
+        this.pageSize = pageSize;
     }
 
     private Doctor getCurrentDoctor(Authentication authentication) {
@@ -55,6 +90,8 @@ public class DoctorViewController {
             Doctor doctor = getCurrentDoctor(authentication);
             model.addAttribute("username", doctor.getUsername());
             model.addAttribute("appointments", doctor.getAppointments());
+            LocalDateTime now = LocalDateTime.now();
+            model.addAttribute("occurrences", seriesService.forDoctor(doctor.getId(), now, now.plus(seriesProps.getWindow())));
             return "doctor/doctordashboard";
         } catch (Exception e) {
             log.error("Error in showDashboard: ", e);
@@ -63,20 +100,46 @@ public class DoctorViewController {
         }
     }
 
+    /** frees the slot; the waitlist may hand it to someone else right away */
+    @PostMapping("/appointments/deny")
+    public String denyAppointment(@RequestParam Long appointmentId,
+                                  Authentication authentication,
+                                  RedirectAttributes redirect) {
+        try {
+            Doctor doctor = getCurrentDoctor(authentication);
+            Appointment appointment = appointmentService.findById(appointmentId);
+            if (!appointment.getDoctor().getId().equals(doctor.getId())) {
+                throw new IllegalArgumentException("No such appointment: " + appointmentId);
+            }
+            if (appointment.getStatus() != Status.PENDING && appointment.getStatus() != Status.ACCEPTED) {
+                throw new IllegalArgumentException("This appointment was already " + appointment.getStatus().name().toLowerCase());
+            }
+            appointment.setStatus(Status.DENIED);
+            appointmentService.update(appointment);
+        } catch (Exception e) {
+            log.error("Error denying appointment: ", e);
+            redirect.addAttribute("error", e.getMessage());
+        }
+        return "redirect:/doctor/dashboard";
+    }
+
     @GetMapping("/records")
     public String showRecords(Model model, Authentication authentication) {
         try {
             Doctor doctor = getCurrentDoctor(authentication);
-            List<MedicalRecord> records = doctor.getMedicalRecords();
-            List<Patient> patients = patientService.findAll();
-            
-            log.info("Found {} medical records for doctor {}", 
-                    records != null ? records.size() : 0, 
-                    doctor.getUsername());
-            
+            Long doctorId = doctor.getId();
+
+            // rows are pulled page by page while the template renders (see KeysetCursor),
+            // so each page is audited as it is fetched, once per patient on it
+            log.debug("Streaming medical records for doctor {}", doctor.getUsername());
+
+            Set<Long> audited = new HashSet<>();
             model.addAttribute("username", doctor.getUsername());
-            model.addAttribute("records", records != null ? records : Collections.emptyList());
-            model.addAttribute("patients", patients);
+            model.addAttribute("records", new KeysetCursor<>(pageSize,
+                    after -> audited(medicalRecordService.findPageByDoctor(doctorId, after, pageSize),
+                            MedicalRecordView::patientId, AuditAction.DOCTOR_RECORDS, doctorId, audited),
+                    MedicalRecordView::id));
+            model.addAttribute("patients", patientOptions());
             return "doctor/doctorrecords";
         } catch (Exception e) {
             log.error("Error in showRecords: ", e);
@@ -89,16 +152,17 @@ public class DoctorViewController {
     public String showPrescriptions(Model model, Authentication authentication) {
         try {
             Doctor doctor = getCurrentDoctor(authentication);
-            List<Prescription> prescriptions = doctor.getPrescriptions();
-            List<Patient> patients = patientService.findAll();
-            
-            log.info("Found {} prescriptions for doctor {}", 
-                    prescriptions != null ? prescriptions.size() : 0, 
-                    doctor.getUsername());
-            
+            Long doctorId = doctor.getId();
+
+            log.debug("Streaming prescriptions for doctor {}", doctor.getUsername());
+
+            Set<Long> audited = new HashSet<>();
             model.addAttribute("username", doctor.getUsername());
-            model.addAttribute("prescriptions", prescriptions != null ? prescriptions : Collections.emptyList());
-            model.addAttribute("patients", patients);
+            model.addAttribute("prescriptions", new KeysetCursor<>(pageSize,
+                    after -> audited(prescriptionService.findPageByDoctor(doctorId, after, pageSize),
+                            PrescriptionView::patientId, AuditAction.DOCTOR_PRESCRIPTIONS, doctorId, audited),
+                    PrescriptionView::id));
+            model.addAttribute("patients", patientOptions());
             return "doctor/doctorprescriptions";
         } catch (Exception e) {
             log.error("Error in showPrescriptions: ", e);
@@ -107,6 +171,19 @@ public class DoctorViewController {
         }
     }
 
+    /** records the patients of {@code page} not in {@code audited} yet, and returns the page */
+    private <T> List<T> audited(List<T> page, Function<T, Long> patientId, AuditAction action,
+                                Long doctorId, Set<Long> audited) {
+        auditLog.recordPatients(action, doctorId, page.stream().map(patientId).filter(audited::add).toList());
+        return page;
+    }
+
+    private KeysetCursor<PatientOption> patientOptions() {
+        return new KeysetCursor<>(pageSize,
+                after -> patientService.findOptionsPage(after, pageSize),
+                PatientOption::id);
+    }
+
     @PostMapping("/records/add")
     public String addRecord(@RequestParam Long patientId,
                           @RequestParam String title,
@@ -137,10 +214,12 @@ public class DoctorViewController {
                                 @RequestParam String medication,
                                 @RequestParam String dosage,
                                 @RequestParam(required = false) String notes,
-                                Authentication authentication) {
+                                Authentication authentication,
+                                RedirectAttributes redirect) {
         try {
             Doctor doctor = getCurrentDoctor(authentication);
             Patient patient = patientService.findById(patientId);
+            List<String> current = prescriptionService.findCurrentMedications(patientId, interactions.currentSince());
             
             Prescription prescription = new Prescription(
                 LocalDateTime.now().toLocalDate(),
@@ -152,10 +231,103 @@ public class DoctorViewController {
             );
             
             prescriptionService.create(prescription);
+            warnAboutInteractions(interactions.check(medication, current), redirect);
             return "redirect:/doctor/prescriptions?success=true";
         } catch (Exception e) {
             log.error("Error adding prescription: ", e);
             return "redirect:/doctor/prescriptions?error=" + e.getMessage();
         }
     }
-} 
\ No newline at end of file
+
+    /* ---------- batch entry: several items for one patient, one transaction ---------- */
+
+    // form fields arrive as a MultiValueMap: a List<String> parameter would split a lone value on commas
+    @PostMapping("/records/batch")
+    public String addRecords(@RequestParam Long patientId,
+                             @RequestParam MultiValueMap<String, String> form,
+                             Authentication authentication,
+                             RedirectAttributes redirect) {
+        try {
+            List<String> title = field(form, "title");
+            List<String> notes = field(form, "notes");
+            requireSameSize(title, notes);
+            List<MedicalRecordItemDTO> items = new ArrayList<>(title.size());
+            for (int i = 0; i < title.size(); i++) {
+                items.add(new MedicalRecordItemDTO(title.get(i), notes.get(i)));
+            }
+            Doctor doctor = getCurrentDoctor(authentication);
+            return batchOutcome(medicalRecordService.createAll(doctor, patientId, items),
+                    "/doctor/records", redirect);
+        } catch (Exception e) {
+            log.error("Error adding medical records: ", e);
+            redirect.addAttribute("error", e.getMessage());
+            return "redirect:/doctor/records";
+        }
+    }
+
+    @PostMapping("/prescriptions/batch")
+    public String addPrescriptions(@RequestParam Long patientId,
+                                   @RequestParam MultiValueMap<String, String> form,
+                                   Authentication authentication,
+                                   RedirectAttributes redirect) {
+        try {
+            List<String> medication = field(form, "medication");
+            List<String> dosage     = field(form, "dosage");
+            List<String> notes      = form.get("notes");
+            requireSameSize(medication, dosage);
+            if (notes != null) {
+                requireSameSize(medication, notes);
+            }
+            List<PrescriptionItemDTO> items = new ArrayList<>(medication.size());
+            for (int i = 0; i < medication.size(); i++) {
+                items.add(new PrescriptionItemDTO(medication.get(i), dosage.get(i),
+                        notes != null ? notes.get(i) : null));
+            }
+            Doctor doctor = getCurrentDoctor(authentication);
+            List<String> current = prescriptionService.findCurrentMedications(patientId, interactions.currentSince());
+            List<BatchItemResult> results = prescriptionService.createAll(doctor, patientId, items);
+            if (results.stream().allMatch(r -> r.error() == null)) {
+                warnAboutInteractions(interactions.checkAll(medication, current), redirect);
+            }
+            return batchOutcome(results, "/doctor/prescriptions", redirect);
+        } catch (Exception e) {
+            log.error("Error adding prescriptions: ", e);
+            redirect.addAttribute("error", e.getMessage());
+            return "redirect:/doctor/prescriptions";
+        }
+    }
+
+    /** shown once on the page the redirect lands on, most severe first */
+    private static void warnAboutInteractions(List<InteractionWarning> warnings, RedirectAttributes redirect) {
+        if (!warnings.isEmpty()) {
+            redirect.addFlashAttribute("interactionWarnings", warnings);
+        }
+    }
+
+    private static List<String> field(MultiValueMap<String, String> form, String name) {
+        List<String> values = form.get(name);
+        if (values == null) {
+            throw new IllegalArgumentException("Missing field: " + name);
+        }
+        return values;
+    }
+
+    private static void requireSameSize(List<String> a, List<String> b) {
+        if (a.size() != b.size()) {
+            throw new IllegalArgumentException("Incomplete form: every item needs all of its fields");
+        }
+    }
+
+    private static String batchOutcome(List<BatchItemResult> results, String page, RedirectAttributes redirect) {
+        String errors = results.stream()
+                .filter(r -> r.error() != null)
+                .map(r -> "#" + (r.index() + 1) + ": " + r.error())
+                .collect(Collectors.joining("; "));
+        if (errors.isEmpty()) {
+            redirect.addAttribute("success", results.size());
+        } else {
+            redirect.addAttribute("error", "Nothing saved. " + errors);
+        }
+        return "redirect:" + page;
+    }
+}
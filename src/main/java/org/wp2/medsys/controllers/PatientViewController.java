@@ -1,16 +1,30 @@
 package org.wp2.medsys.controllers;
 
+import jakarta.servlet.http.HttpSession;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import org.wp2.medsys.domain.*;
 import org.wp2.medsys.services.*;
 import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.archive.ArchiveQueries;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.views.KeysetCursor;
+import org.wp2.medsys.recurrence.AppointmentSeriesService;
+import org.wp2.medsys.recurrence.SeriesProperties;
+import org.wp2.medsys.views.PatientHistoryCache;
+import org.wp2.medsys.waitlist.Waitlist;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.Collections;
-import java.util.List;
+import java.time.LocalDateTime;
 
 @Slf4j
 @Controller
@@ -21,16 +35,40 @@ public class PatientViewController {
     private final AppointmentService appointmentService;
     private final MedicalRecordService medicalRecordService;
     private final PrescriptionService prescriptionService;
+    private final ArchiveQueries archiveQueries;
+    private final AuditLog auditLog;
+    private final PatientHistoryCache historyCache;
+    private final AppointmentSeriesService seriesService;
+    private final SeriesProperties seriesProps;
+    private final Waitlist waitlist;
+    private final int pageSize;
+
+    /** part of every ETag: a redeploy may change the templates without changing the data */
+    private static final String STARTED = Long.toString(System.currentTimeMillis(), 36);
 
     public PatientViewController(
             UserRepository userRepository,
             AppointmentService appointmentService,
             MedicalRecordService medicalRecordService,
-            PrescriptionService prescriptionService) {
+            PrescriptionService prescriptionService,
+            ArchiveQueries archiveQueries,
+            AuditLog auditLog,
+            PatientHistoryCache historyCache,
+            AppointmentSeriesService seriesService,
+            SeriesProperties seriesProps,
+            Waitlist waitlist,
+            @Value("${medsys.views.page-size:200}") int pageSize) {
         this.userRepository = userRepository;
         this.appointmentService = appointmentService;
         this.medicalRecordService = medicalRecordService;
         this.prescriptionService = prescriptionService;
+        this.archiveQueries = archiveQueries;
+        this.auditLog = auditLog;
+        this.historyCache = historyCache;
+        this.seriesService = seriesService;
+        this.seriesProps = seriesProps;
+        this.waitlist = waitlist;
+        this.pageSize = pageSize;
     }
 
     private Patient getCurrentPatient(Authentication authentication) {
@@ -51,6 +89,9 @@ public class PatientViewController {
             Patient patient = getCurrentPatient(authentication);
             model.addAttribute("username", patient.getUsername());
             model.addAttribute("appointments", patient.getAppointments());
+            LocalDateTime now = LocalDateTime.now();
+            model.addAttribute("occurrences", seriesService.forPatient(patient.getId(), now, now.plus(seriesProps.getWindow())));
+            model.addAttribute("waitlist", waitlist.forPatient(patient.getId()));
             return "patient/patientdashboard";
         } catch (Exception e) {
             log.error("Error in showDashboard: ", e);
@@ -59,18 +100,46 @@ public class PatientViewController {
         }
     }
 
+    /** frees the slot; the waitlist may hand it to someone else right away */
+    @PostMapping("/appointments/cancel")
+    public String cancelAppointment(@RequestParam Long appointmentId,
+                                    Authentication authentication,
+                                    RedirectAttributes redirect) {
+        try {
+            Patient patient = getCurrentPatient(authentication);
+            Appointment appointment = appointmentService.findById(appointmentId);
+            if (!appointment.getPatient().getId().equals(patient.getId())) {
+                throw new IllegalArgumentException("No such appointment: " + appointmentId);
+            }
+            if (appointment.getStatus() != Status.PENDING && appointment.getStatus() != Status.ACCEPTED) {
+                throw new IllegalArgumentException("This appointment was already " + appointment.getStatus().name().toLowerCase());
+            }
+            appointment.setStatus(Status.CANCELLED);
+            appointmentService.update(appointment);
+        } catch (Exception e) {
+            log.error("Error cancelling appointment: ", e);
+            redirect.addAttribute("error", e.getMessage());
+        }
+        return "redirect:/patient/dashboard";
+    }
+
     @GetMapping("/records")
-    public String showRecords(Model model, Authentication authentication) {
+    public String showRecords(Model model, Authentication authentication, ServletWebRequest request) {
         try {
             Patient patient = getCurrentPatient(authentication);
-            List<MedicalRecord> records = patient.getMedicalRecords();
-            
-            log.info("Found {} medical records for patient {}", 
-                    records != null ? records.size() : 0, 
+            auditLog.record(AuditAction.PATIENT_RECORDS, patient.getId(), patient.getId());
+            PatientHistoryCache.Snapshot<MedicalRecordView> records = historyCache.records(patient.getId());
+            if (notModified(request, "records", records.version())) {
+                return null;
+            }
+
+            log.debug("Found {} medical records for patient {}",
+                    records.rows().size(),
                     patient.getUsername());
-            
+
             model.addAttribute("username", patient.getUsername());
-            model.addAttribute("records", records != null ? records : Collections.emptyList());
+            model.addAttribute("records", records.rows());
+            model.addAttribute("archivedRecords", archivedRecords(patient.getId()));
             return "patient/patientrecords";
         } catch (Exception e) {
             log.error("Error in showRecords: ", e);
@@ -80,17 +149,22 @@ public class PatientViewController {
     }
 
     @GetMapping("/prescriptions")
-    public String showPrescriptions(Model model, Authentication authentication) {
+    public String showPrescriptions(Model model, Authentication authentication, ServletWebRequest request) {
         try {
             Patient patient = getCurrentPatient(authentication);
-            List<Prescription> prescriptions = patient.getPrescriptions();
-            
-            log.info("Found {} prescriptions for patient {}", 
-                    prescriptions != null ? prescriptions.size() : 0, 
+            auditLog.record(AuditAction.PATIENT_PRESCRIPTIONS, patient.getId(), patient.getId());
+            PatientHistoryCache.Snapshot<PrescriptionView> prescriptions = historyCache.prescriptions(patient.getId());
+            if (notModified(request, "prescriptions", prescriptions.version())) {
+                return null;
+            }
+
+            log.debug("Found {} prescriptions for patient {}",
+                    prescriptions.rows().size(),
                     patient.getUsername());
-            
+
             model.addAttribute("username", patient.getUsername());
-            model.addAttribute("prescriptions", prescriptions != null ? prescriptions : Collections.emptyList());
+            model.addAttribute("prescriptions", prescriptions.rows());
+            model.addAttribute("archivedPrescriptions", archivedPrescriptions(patient.getId()));
             return "patient/patientprescriptions";
         } catch (Exception e) {
             log.error("Error in showPrescriptions: ", e);
@@ -98,4 +172,42 @@ public class PatientViewController {
             return "error";
         }
     }
-} 
\ No newline at end of file
+
+    /**
+     * Answers 304 when the browser already has this version of the page.
+     * The ETag also covers the session: the page carries its CSRF token.
+     *
+     * @return true if the response is complete
+     */
+    private boolean notModified(ServletWebRequest request, String page, String version) {
+        if (!historyCache.isEtagEnabled()) {
+            return false;
+        }
+        HttpSession session = request.getRequest().getSession(false);
+        String salt = (session == null ? "" : session.getId()) + STARTED;
+        String etag = "W/\"" + page + '-' + version + '-' + Integer.toHexString(salt.hashCode()) + '"';
+        // Spring Security's no-store default would keep browsers from ever asking
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        return request.checkNotModified(etag);
+    }
+
+    /* ---------- archived history (older than medsys.archive.horizon) ---------- */
+
+    private KeysetCursor<MedicalRecordView> archivedRecords(Long patientId) {
+        if (!archiveQueries.isAvailable()) {
+            return null;
+        }
+        return new KeysetCursor<>(pageSize,
+                after -> archiveQueries.records(ArchiveQueries.Owner.PATIENT, patientId, after, pageSize),
+                MedicalRecordView::id);
+    }
+
+    private KeysetCursor<PrescriptionView> archivedPrescriptions(Long patientId) {
+        if (!archiveQueries.isAvailable()) {
+            return null;
+        }
+        return new KeysetCursor<>(pageSize,
+                after -> archiveQueries.prescriptions(ArchiveQueries.Owner.PATIENT, patientId, after, pageSize),
+                PrescriptionView::id);
+    }
+}
@@ -0,0 +1,107 @@
+package org.wp2.medsys.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.recurrence.AppointmentSeriesService;
+import org.wp2.medsys.repositories.UserRepository;
+
+import java.time.LocalDateTime;
+
+/**
+ * Actions on single occurrences of recurring appointments, posted from the
+ * dashboards. Doctors accept, deny or move an occurrence (which makes it an
+ * appointment); patients skip one or end the whole series.
+ */
+@Slf4j
+@Controller
+public class SeriesViewController {
+
+    private final AppointmentSeriesService seriesService;
+    private final UserRepository userRepository;
+
+    public SeriesViewController(AppointmentSeriesService seriesService, UserRepository userRepository) {
+        this.seriesService = seriesService;
+        this.userRepository = userRepository;
+    }
+
+    /* ---------- doctor ---------- */
+
+    @PostMapping("/doctor/series/accept")
+    public String accept(@RequestParam Long seriesId,
+                         @RequestParam LocalDateTime occurrence,
+                         Authentication authentication,
+                         RedirectAttributes redirect) {
+        return outcome(() -> seriesService.accept(seriesId, occurrence, current(authentication, Doctor.class)),
+                "/doctor/dashboard", redirect);
+    }
+
+    @PostMapping("/doctor/series/deny")
+    public String deny(@RequestParam Long seriesId,
+                       @RequestParam LocalDateTime occurrence,
+                       Authentication authentication,
+                       RedirectAttributes redirect) {
+        return outcome(() -> seriesService.deny(seriesId, occurrence, current(authentication, Doctor.class)),
+                "/doctor/dashboard", redirect);
+    }
+
+    @PostMapping("/doctor/series/move")
+    public String move(@RequestParam Long seriesId,
+                       @RequestParam LocalDateTime occurrence,
+                       @RequestParam LocalDateTime newDate,
+                       Authentication authentication,
+                       RedirectAttributes redirect) {
+        return outcome(() -> seriesService.move(seriesId, occurrence, newDate, current(authentication, Doctor.class)),
+                "/doctor/dashboard", redirect);
+    }
+
+    /* ---------- patient ---------- */
+
+    @PostMapping("/patient/series/skip")
+    public String skip(@RequestParam Long seriesId,
+                       @RequestParam LocalDateTime occurrence,
+                       Authentication authentication,
+                       RedirectAttributes redirect) {
+        return outcome(() -> seriesService.skip(seriesId, occurrence, current(authentication, Patient.class)),
+                "/patient/dashboard", redirect);
+    }
+
+    @PostMapping("/patient/series/end")
+    public String end(@RequestParam Long seriesId,
+                      Authentication authentication,
+                      RedirectAttributes redirect) {
+        return outcome(() -> seriesService.end(seriesId, current(authentication, Patient.class)),
+                "/patient/dashboard", redirect);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private String outcome(Runnable action, String page, RedirectAttributes redirect) {
+        try {
+            action.run();
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            redirect.addAttribute("error", e.getMessage());
+        } catch (DataIntegrityViolationException e) {
+            // the unique (series_id, occurrence_date) key: someone handled it at the same time
+            log.debug("Concurrent series action: {}", e.getMessage());
+            redirect.addAttribute("error", "This appointment was already handled");
+        }
+        return "redirect:" + page;
+    }
+
+    private <T extends User> T current(Authentication authentication, Class<T> role) {
+        User user = userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new IllegalStateException("User not found"));
+        if (!role.isInstance(user)) {
+            throw new IllegalStateException("User is not a " + role.getSimpleName().toLowerCase());
+        }
+        return role.cast(user);
+    }
+}
@@ -0,0 +1,81 @@
+package org.wp2.medsys.controllers;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.core.Authentication;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.services.DoctorService;
+import org.wp2.medsys.waitlist.Urgency;
+import org.wp2.medsys.waitlist.Waitlist;
+
+import java.time.LocalDate;
+
+/**
+ * Patients joining and leaving doctors' waitlists. A date range is whole
+ * days: {@code latest} includes that day.
+ */
+@Slf4j
+@Controller
+@RequestMapping("/waitlist")
+public class WaitlistViewController {
+
+    private final Waitlist waitlist;
+    private final DoctorService doctorService;
+    private final UserRepository userRepository;
+
+    public WaitlistViewController(Waitlist waitlist, DoctorService doctorService, UserRepository userRepository) {
+        this.waitlist = waitlist;
+        this.doctorService = doctorService;
+        this.userRepository = userRepository;
+    }
+
+    @PostMapping("/join")
+    public String join(@RequestParam Long doctorId,
+                       @RequestParam(defaultValue = "ROUTINE") Urgency urgency,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate earliest,
+                       @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate latest,
+                       @RequestParam String scheduleReason,
+                       Authentication authentication,
+                       RedirectAttributes redirect) {
+        try {
+            waitlist.join(currentPatient(authentication), doctorService.findById(doctorId), urgency,
+                    earliest == null ? null : earliest.atStartOfDay(),
+                    latest == null ? null : latest.plusDays(1).atStartOfDay().minusNanos(1),
+                    scheduleReason);
+            return "redirect:/patient/dashboard";
+        } catch (Exception e) {
+            log.error("Error joining waitlist: ", e);
+            redirect.addAttribute("error", e.getMessage());
+            return "redirect:/appointments";
+        }
+    }
+
+    @PostMapping("/leave")
+    public String leave(@RequestParam Long entryId,
+                        Authentication authentication,
+                        RedirectAttributes redirect) {
+        try {
+            waitlist.leave(entryId, currentPatient(authentication));
+        } catch (Exception e) {
+            log.error("Error leaving waitlist: ", e);
+            redirect.addAttribute("error", e.getMessage());
+        }
+        return "redirect:/patient/dashboard";
+    }
+
+    private Patient currentPatient(Authentication authentication) {
+        User user = userRepository.findByUsername(authentication.getName())
+                .orElseThrow(() -> new IllegalStateException("User not found"));
+        if (!(user instanceof Patient patient)) {
+            throw new IllegalStateException("User is not a patient");
+        }
+        return patient;
+    }
+}
@@ -35,6 +35,19 @@ public class Appointment {
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "doctor_id")
     private Doctor doctor;
+
+    /** set when this row materializes an occurrence of a recurring series */
+    @Column(name = "series_id")
+    private Long seriesId;
+
+    /** the occurrence's original slot; {@code appointmentDate} differs once it is moved */
+    @Column(name = "occurrence_date")
+    private LocalDateTime occurrenceDate;
+
+    /** kept by the database on insert and update (V10); the change feed pages by it */
+    @Column(name = "changed_at", insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+
     // Proper constructors for Appointment
     public Appointment(LocalDateTime appointmentDate,
                        Patient       patient,
@@ -0,0 +1,88 @@
+package org.wp2.medsys.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.wp2.medsys.recurrence.RecurrenceRule;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * A recurring appointment, stored as its rule. Occurrences are not rows:
+ * they are expanded for the window being looked at, and an occurrence only
+ * becomes an {@link Appointment} once it is accepted, denied or moved.
+ */
+@Entity
+@Table(name = "appointment_series")
+@Data
+@NoArgsConstructor
+@EqualsAndHashCode(callSuper = false, exclude = {"patient", "doctor", "exceptions"})
+@ToString(exclude = {"patient", "doctor", "exceptions"})
+public class AppointmentSeries {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "patient_id")
+    private Patient patient;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "doctor_id")
+    private Doctor doctor;
+
+    @Column(name = "first_date", nullable = false)
+    private LocalDateTime firstDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 10)
+    private Frequency frequency;
+
+    @Column(name = "repeat_interval", nullable = false)
+    private int interval = 1;
+
+    @Column(name = "occurrence_count")
+    private Integer count;
+
+    @Column(name = "until_date")
+    private LocalDateTime until;
+
+    /** the last occurrence, kept in step with the rule by {@link #setRule} */
+    @Column(name = "last_date", nullable = false)
+    private LocalDateTime lastDate;
+
+    @Column(name = "schedule_reason", length = 255)
+    private String scheduleReason;
+
+    /** original slots that are no longer virtual: skipped, or materialized as appointments */
+    @ElementCollection
+    @CollectionTable(name = "appointment_series_exceptions", joinColumns = @JoinColumn(name = "series_id"))
+    @Column(name = "occurrence_date", nullable = false)
+    private Set<LocalDateTime> exceptions = new HashSet<>();
+
+    public AppointmentSeries(Patient patient, Doctor doctor, RecurrenceRule rule, String scheduleReason) {
+        this.patient        = patient;
+        this.doctor         = doctor;
+        this.scheduleReason = scheduleReason;
+        setRule(rule);
+    }
+
+    public RecurrenceRule rule() {
+        return new RecurrenceRule(firstDate, frequency, interval, count, until);
+    }
+
+    /** @throws IllegalArgumentException for a series without end */
+    public void setRule(RecurrenceRule rule) {
+        if (!rule.isBounded()) {
+            throw new IllegalArgumentException("A series needs an end date or a number of appointments");
+        }
+        this.firstDate = rule.start();
+        this.frequency = rule.frequency();
+        this.interval  = rule.interval();
+        this.count     = rule.count();
+        this.until     = rule.until();
+        this.lastDate  = rule.last();
+    }
+}
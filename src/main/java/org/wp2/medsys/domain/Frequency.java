@@ -0,0 +1,3 @@
+package org.wp2.medsys.domain;
+
+public enum Frequency { WEEKLY, MONTHLY }
@@ -2,6 +2,7 @@ package org.wp2.medsys.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.wp2.medsys.storage.CompressedNotesConverter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -30,7 +31,9 @@ public class MedicalRecord {
     @Column(length = 255, nullable = false)
     private String title;
 
-    @Column(columnDefinition = "TEXT")
+    /** stored through {@link CompressedNotesConverter}, plain or deflated */
+    @Column(columnDefinition = "MEDIUMBLOB")
+    @Convert(converter = CompressedNotesConverter.class)
     private String notes;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -40,6 +43,10 @@ public class MedicalRecord {
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "doctor_id")
     private Doctor doctor;
+
+    /** kept by the database on insert and update (V10); the change feed pages by it */
+    @Column(name = "changed_at", insertable = false, updatable = false)
+    private LocalDateTime changedAt;
     public MedicalRecord(String title,
                          String notes,
                          Patient patient,
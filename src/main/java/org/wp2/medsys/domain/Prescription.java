@@ -2,8 +2,10 @@ package org.wp2.medsys.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.wp2.medsys.storage.CompressedNotesConverter;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 @Entity
 @Table(name = "prescriptions")
@@ -27,7 +29,9 @@ public class Prescription {
     @Column(length = 100, nullable = false)
     private String dosage;
 
-    @Column(columnDefinition = "TEXT")
+    /** stored through {@link CompressedNotesConverter}, plain or deflated */
+    @Column(columnDefinition = "MEDIUMBLOB")
+    @Convert(converter = CompressedNotesConverter.class)
     private String notes;
 
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
@@ -38,6 +42,10 @@ public class Prescription {
     @JoinColumn(name = "doctor_id")
     private Doctor doctor;
 
+    /** kept by the database on insert and update (V10); the change feed pages by it */
+    @Column(name = "changed_at", insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+
     public Prescription(LocalDate issueDate,
                         String medication,
                         String dosage,
@@ -1,3 +1,3 @@
 package org.wp2.medsys.domain;
 
-public enum Status { ACCEPTED, DENIED, PENDING }
\ No newline at end of file
+public enum Status { ACCEPTED, DENIED, PENDING, CANCELLED }
\ No newline at end of file
@@ -2,6 +2,7 @@ package org.wp2.medsys.domain;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.wp2.medsys.registration.UserInsertListener;
 
 import java.time.LocalDateTime;
 
@@ -9,6 +10,7 @@ import java.time.LocalDateTime;
 @Table(name = "users")
 @Inheritance(strategy = InheritanceType.SINGLE_TABLE)
 @DiscriminatorColumn(name = "role", discriminatorType = DiscriminatorType.STRING)
+@EntityListeners(UserInsertListener.class)
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -34,6 +36,10 @@ public class User {
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
+    /** kept by the database on insert and update (V10); the change feed pages by it */
+    @Column(name = "changed_at", insertable = false, updatable = false)
+    private LocalDateTime changedAt;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
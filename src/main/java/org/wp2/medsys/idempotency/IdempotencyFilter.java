@@ -0,0 +1,107 @@
+package org.wp2.medsys.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * Deduplicates form POSTs that carry an {@code _idempotency} key (see
+ * {@link IdempotencyKeys}): the first one runs, copies get the same redirect
+ * without reaching the controller. POSTs without a key pass through as before.
+ * <p>
+ * Sits in the security chain after authorization – keys are scoped to the
+ * user – and before rate limiting, so a replay costs the caller no tokens.
+ * Not a bean, like the other filters in {@code SecurityConfig}.
+ */
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String PARAMETER = "_idempotency";
+
+    private static final Pattern SANE_KEY = Pattern.compile("[A-Za-z0-9_-]{16,43}");
+
+    /** remembers where the controller redirected to */
+    private static final class RedirectCapture extends HttpServletResponseWrapper {
+        private String location;
+
+        RedirectCapture(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            this.location = location;
+            super.sendRedirect(location);
+        }
+    }
+
+    private final IdempotencyKeys       keys;
+    private final IdempotencyProperties props;
+
+    public IdempotencyFilter(IdempotencyKeys keys, IdempotencyProperties props) {
+        this.keys  = keys;
+        this.props = props;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !props.isEnabled()
+                || !"POST".equals(request.getMethod())
+                || !props.getPaths().contains(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String token = request.getParameter(PARAMETER);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (token == null || !SANE_KEY.matcher(token).matches() || auth == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        IdempotencyKeys.Claim claim = keys.claim(auth.getName(), token);
+        switch (claim.kind()) {
+            case REPLAY -> {
+                log.debug("Replaying {} for a repeated submission", request.getServletPath());
+                response.sendRedirect(claim.location());
+            }
+            case BUSY -> {
+                response.setStatus(HttpStatus.CONFLICT.value());
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getWriter().write("This form is still being processed – please reload the page in a moment.");
+            }
+            case RUN -> run(claim, request, response, chain);
+        }
+    }
+
+    private void run(IdempotencyKeys.Claim claim,
+                     HttpServletRequest request,
+                     HttpServletResponse response,
+                     FilterChain chain) throws ServletException, IOException {
+        RedirectCapture capture = new RedirectCapture(response);
+        boolean completed = false;
+        try {
+            chain.doFilter(request, capture);
+            if (capture.location != null) {
+                keys.complete(claim, capture.location);
+                completed = true;
+            }
+        } finally {
+            if (!completed) {
+                keys.abandon(claim);
+            }
+        }
+    }
+}
@@ -0,0 +1,263 @@
+package org.wp2.medsys.idempotency;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Issues idempotency keys for forms and decides, per (user, key), which
+ * submission runs and which ones replay its result.
+ * <p>
+ * Templates embed a key with
+ * {@code <input type="hidden" name="_idempotency" th:value="${@idempotencyKeys.issue()}">}.
+ * <ul>
+ *   <li>The first submission of a key runs; when it ends in a redirect, the
+ *       target is remembered for {@code ttl}.</li>
+ *   <li>Copies arriving meanwhile (double-clicks) wait for it, later ones
+ *       (browser retries, back + resubmit) are answered from memory – the
+ *       write path is never touched again.</li>
+ *   <li>{@code idempotency_keys} holds the claim across nodes and restarts;
+ *       the in-memory map is only the fast path and may forget finished keys.</li>
+ * </ul>
+ * A submission that fails, or answers with anything but a redirect, gives its
+ * key back so the form can be sent again.
+ */
+@Slf4j
+@Component("idempotencyKeys")
+public class IdempotencyKeys {
+
+    /** what the filter should do with a submission */
+    public static final class Claim {
+        public enum Kind {
+            /** run the request, then {@link #complete} or {@link #abandon} */
+            RUN,
+            /** answer with a redirect to {@link #location()} */
+            REPLAY,
+            /** the original is still running past {@code replay-wait} */
+            BUSY
+        }
+
+        private final Kind   kind;
+        private final String location;
+        private final String user;
+        private final String token;
+        private final Entry  entry;
+
+        private Claim(Kind kind, String location, String user, String token, Entry entry) {
+            this.kind     = kind;
+            this.location = location;
+            this.user     = user;
+            this.token    = token;
+            this.entry    = entry;
+        }
+
+        public Kind kind() {
+            return kind;
+        }
+
+        public String location() {
+            return location;
+        }
+    }
+
+    /** one key on this node; {@code result} completes with the redirect target, or null if given back */
+    private static final class Entry {
+        final long                      createdAt = System.currentTimeMillis();
+        final CompletableFuture<String> result    = new CompletableFuture<>();
+
+        /** @return the redirect target, or null if given back or still running at the deadline */
+        String await(long deadlineNanos) {
+            try {
+                return result.get(Math.max(0, deadlineNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (TimeoutException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+
+        boolean isFinished() {
+            return result.isDone();
+        }
+    }
+
+    private static final String CLAIM =
+            "INSERT IGNORE INTO idempotency_keys (username, token) VALUES (?, ?)";
+    private static final String RESULT =
+            "SELECT result FROM idempotency_keys WHERE username = ? AND token = ?";
+    private static final String COMPLETE =
+            "UPDATE idempotency_keys SET result = ? WHERE username = ? AND token = ?";
+    private static final String RELEASE =
+            "DELETE FROM idempotency_keys WHERE username = ? AND token = ?";
+    private static final String PURGE =
+            "DELETE FROM idempotency_keys WHERE created_at < ? LIMIT 10000";
+
+    private static final long REMOTE_POLL_MILLIS = 100;
+
+    private final JdbcTemplate          jdbc;
+    private final IdempotencyProperties props;
+    private final ClinicShards          shards;
+
+    private final ConcurrentHashMap<String, Entry> local    = new ConcurrentHashMap<>();
+    private final AtomicBoolean                    sweeping = new AtomicBoolean();
+
+    public IdempotencyKeys(JdbcTemplate jdbc, IdempotencyProperties props, ClinicShards shards) {
+        this.jdbc   = jdbc;
+        this.props  = props;
+        this.shards = shards;
+    }
+
+    /** a fresh key for one rendering of a form */
+    public String issue() {
+        // unguessability is not needed – keys only ever match within one user's submissions
+        ThreadLocalRandom rnd = ThreadLocalRandom.current();
+        byte[] bytes = new byte[16];
+        rnd.nextBytes(bytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    public Claim claim(String user, String token) {
+        String key = user + '\n' + token;
+        long deadline = System.nanoTime() + props.getReplayWait().toNanos();
+        while (true) {
+            Entry fresh = new Entry();
+            Entry existing = local.putIfAbsent(key, fresh);
+            if (existing != null) {
+                String location = existing.await(deadline);
+                if (location != null) {
+                    return new Claim(Claim.Kind.REPLAY, location, user, token, null);
+                }
+                if (!existing.isFinished()) {
+                    return new Claim(Claim.Kind.BUSY, null, user, token, null);
+                }
+                continue;   // the original gave its key back: this copy may run
+            }
+            if (local.size() > props.getMaxEntries()) {
+                sweep();
+            }
+
+            int inserted;
+            try {
+                inserted = jdbc.update(CLAIM, user, token);
+            } catch (DataAccessException e) {
+                // without the table only this node deduplicates – better than refusing the form
+                log.warn("Idempotency key not claimed in the database: {}", e.getMessage());
+                inserted = 1;
+            }
+            if (inserted == 1) {
+                return new Claim(Claim.Kind.RUN, null, user, token, fresh);
+            }
+
+            // claimed on another node, or here before a restart
+            Claim remote = awaitRemote(key, user, token, fresh, deadline);
+            if (remote != null) {
+                return remote;
+            }
+        }
+    }
+
+    /** @return the claim, or null if the remote owner gave the key back */
+    private Claim awaitRemote(String key, String user, String token, Entry fresh, long deadline) {
+        while (true) {
+            List<String> rows = jdbc.queryForList(RESULT, String.class, user, token);
+            if (rows.isEmpty() || rows.get(0) != null) {
+                String location = rows.isEmpty() ? null : rows.get(0);
+                if (location == null) {
+                    local.remove(key, fresh);
+                }
+                fresh.result.complete(location);
+                return location == null ? null : new Claim(Claim.Kind.REPLAY, location, user, token, null);
+            }
+            if (System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(REMOTE_POLL_MILLIS) > deadline) {
+                local.remove(key, fresh);
+                fresh.result.complete(null);
+                return new Claim(Claim.Kind.BUSY, null, user, token, null);
+            }
+            try {
+                Thread.sleep(REMOTE_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                local.remove(key, fresh);
+                fresh.result.complete(null);
+                return new Claim(Claim.Kind.BUSY, null, user, token, null);
+            }
+        }
+    }
+
+    /** the submission redirected to {@code location}; copies of it will too */
+    public void complete(Claim claim, String location) {
+        try {
+            jdbc.update(COMPLETE, location, claim.user, claim.token);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency result not stored: {}", e.getMessage());
+        }
+        claim.entry.result.complete(location);
+    }
+
+    /** the submission failed; the key may be used again */
+    public void abandon(Claim claim) {
+        local.remove(claim.user + '\n' + claim.token, claim.entry);
+        try {
+            jdbc.update(RELEASE, claim.user, claim.token);
+        } catch (DataAccessException e) {
+            log.warn("Idempotency key not released: {}", e.getMessage());
+        }
+        claim.entry.result.complete(null);
+    }
+
+    /* ---------- housekeeping ---------- */
+
+    @Scheduled(fixedDelay = 60_000)
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long cutoff = System.currentTimeMillis() - props.getTtl().toMillis();
+            local.values().removeIf(e -> e.isFinished() && e.createdAt < cutoff);
+            if (local.size() > props.getMaxEntries()) {
+                // finished keys are still guarded by the table; running ones must stay
+                local.entrySet().stream()
+                        .filter(e -> e.getValue().isFinished())
+                        .sorted((a, b) -> Long.compare(a.getValue().createdAt, b.getValue().createdAt))
+                        .limit(Math.max(1, local.size() / 10))
+                        .map(Map.Entry::getKey)
+                        .toList()
+                        .forEach(local::remove);
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${medsys.idempotency.ttl:10m}",
+               fixedDelayString   = "${medsys.idempotency.ttl:10m}")
+    public void purge() {
+        Timestamp cutoff = new Timestamp(System.currentTimeMillis() - props.getTtl().toMillis());
+        shards.forEach(shard -> {
+            try {
+                jdbc.update(PURGE, cutoff);
+            } catch (DataAccessException e) {
+                log.warn("Could not purge idempotency keys: {}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package org.wp2.medsys.idempotency;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Idempotency key settings, bound from {@code medsys.idempotency.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.idempotency")
+public class IdempotencyProperties {
+
+    private boolean enabled = true;
+
+    /** servlet paths whose POSTs are deduplicated when they carry a key */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/appointments/schedule",
+            "/doctor/records/add",
+            "/doctor/prescriptions/add",
+            "/doctor/records/batch",
+            "/doctor/prescriptions/batch",
+            "/doctor/series/accept",
+            "/doctor/series/deny",
+            "/doctor/series/move",
+            "/patient/series/skip",
+            "/patient/series/end",
+            "/patient/appointments/cancel",
+            "/doctor/appointments/deny",
+            "/waitlist/join",
+            "/waitlist/leave"));
+
+    /** how long a used key is remembered, locally and in {@code idempotency_keys} */
+    private Duration ttl = Duration.ofMinutes(10);
+
+    /** soft cap on keys kept in memory; older finished ones fall back to the table */
+    private int maxEntries = 50_000;
+
+    /** how long a duplicate waits for the original submission to finish */
+    private Duration replayWait = Duration.ofSeconds(10);
+}
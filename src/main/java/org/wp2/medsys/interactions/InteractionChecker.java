@@ -0,0 +1,102 @@
+package org.wp2.medsys.interactions;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Checks new prescriptions against the patient's current medication using
+ * the {@link InteractionTable} loaded from {@code medsys.interactions.dataset}.
+ * <p>
+ * The dataset is re-read when its modification time changes. A new table is
+ * built beside the one in use and swapped in atomically, so checks never
+ * wait for a reload; a dataset that fails to parse leaves the old table in place.
+ */
+@Slf4j
+@Component
+public class InteractionChecker {
+
+    private final Resource dataset;
+    private final Duration activeWindow;
+    private final AtomicReference<InteractionTable> table = new AtomicReference<>(InteractionTable.EMPTY);
+    private volatile long loadedModified = -1;
+
+    public InteractionChecker(InteractionProperties props, ResourceLoader resources) {
+        this.dataset      = resources.getResource(props.getDataset());
+        this.activeWindow = props.getActiveWindow();
+        reloadIfChanged();
+    }
+
+    /** prescriptions issued on or after this day are the patient's current medication */
+    public LocalDate currentSince() {
+        return LocalDate.now().minusDays(activeWindow.toDays());
+    }
+
+    /** warnings for {@code medication} against {@code current}, most severe first */
+    public List<InteractionWarning> check(String medication, Collection<String> current) {
+        return table.get().check(medication, current);
+    }
+
+    /** warnings for several new medications: against {@code current} and against each other */
+    public List<InteractionWarning> checkAll(List<String> medications, Collection<String> current) {
+        InteractionTable t = table.get();
+        List<InteractionWarning> warnings = new ArrayList<>();
+        for (int i = 0; i < medications.size(); i++) {
+            warnings.addAll(t.check(medications.get(i), current));
+            warnings.addAll(t.check(medications.get(i), medications.subList(i + 1, medications.size())));
+        }
+        warnings.sort(Comparator.comparing(InteractionWarning::severity).reversed());
+        return warnings;
+    }
+
+    @Scheduled(initialDelayString = "${medsys.interactions.reload-interval:1m}",
+               fixedDelayString   = "${medsys.interactions.reload-interval:1m}")
+    public void reloadIfChanged() {
+        if (!dataset.exists()) {
+            if (loadedModified != 0) {
+                log.warn("Interaction dataset {} not found – prescriptions are not checked", dataset);
+                loadedModified = 0;
+            }
+            return;
+        }
+        try {
+            long modified = lastModified();
+            if (modified == loadedModified) {
+                return;
+            }
+            long started = System.nanoTime();
+            InteractionTable next;
+            try (Reader in = new InputStreamReader(dataset.getInputStream(), StandardCharsets.UTF_8)) {
+                next = InteractionTable.parse(in);
+            }
+            table.set(next);
+            loadedModified = modified;
+            log.info("Interaction dataset loaded: {} medications, {} pairs in {} ms",
+                    next.medicationCount(), next.pairCount(), (System.nanoTime() - started) / 1_000_000);
+        } catch (IOException | IllegalArgumentException e) {
+            log.error("Interaction dataset {} not (re)loaded, keeping the previous one: {}", dataset, e.getMessage());
+        }
+    }
+
+    private long lastModified() {
+        try {
+            return dataset.lastModified();
+        } catch (IOException e) {
+            return 1;       // e.g. inside a jar: load once, never changes
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.wp2.medsys.interactions;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Drug-interaction checking on prescription entry, bound from {@code medsys.interactions.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.interactions")
+public class InteractionProperties {
+
+    /** CSV dataset, any Spring resource location ({@code classpath:}, {@code file:}) */
+    private String dataset = "classpath:interactions.csv";
+
+    /** how often the dataset's modification time is checked for a reload */
+    private Duration reloadInterval = Duration.ofMinutes(1);
+
+    /** prescriptions issued this recently count as the patient's current medication */
+    private Duration activeWindow = Duration.ofDays(90);
+}
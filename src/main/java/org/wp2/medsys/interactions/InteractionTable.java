@@ -0,0 +1,159 @@
+package org.wp2.medsys.interactions;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+/**
+ * Immutable interaction dataset: medication names interned to dense ids and
+ * one {@link BitSet} row per medication marking the ids it interacts with.
+ * A check is a hash lookup per name and a bit test per pair; only a hit looks
+ * up the pair's severity and description (binary search in the row's sorted
+ * neighbour ids).
+ * <p>
+ * Parsed from CSV lines {@code medication_a,medication_b,severity,description};
+ * blank lines and lines starting with {@code #} are skipped. Names are
+ * compared case-insensitively with whitespace collapsed.
+ */
+final class InteractionTable {
+
+    static final InteractionTable EMPTY = new InteractionTable(Map.of(), new BitSet[0], new int[0][], new Detail[0][]);
+
+    private record Detail(Severity severity, String description) {}
+
+    private final Map<String, Integer> ids;
+    private final BitSet[]             rows;
+    private final int[][]              neighbours;
+    private final Detail[][]           details;
+    private final int                  pairCount;
+
+    private InteractionTable(Map<String, Integer> ids, BitSet[] rows, int[][] neighbours, Detail[][] details) {
+        this.ids        = ids;
+        this.rows       = rows;
+        this.neighbours = neighbours;
+        this.details    = details;
+        int links = 0;
+        for (int[] n : neighbours) {
+            links += n.length;
+        }
+        this.pairCount = links / 2;
+    }
+
+    int medicationCount() {
+        return ids.size();
+    }
+
+    int pairCount() {
+        return pairCount;
+    }
+
+    /**
+     * Interactions of {@code medication} with any of {@code current}, most
+     * severe first.
+     */
+    List<InteractionWarning> check(String medication, Collection<String> current) {
+        Integer a = ids.get(normalize(medication));
+        if (a == null) {
+            return List.of();
+        }
+        List<InteractionWarning> warnings = new ArrayList<>();
+        for (String other : current) {
+            Integer b = ids.get(normalize(other));
+            if (b != null && rows[a].get(b)) {
+                Detail d = details[a][Arrays.binarySearch(neighbours[a], b)];
+                warnings.add(new InteractionWarning(medication.trim(), other.trim(), d.severity(), d.description()));
+            }
+        }
+        warnings.sort(Comparator.comparing(InteractionWarning::severity).reversed());
+        return warnings;
+    }
+
+    /* ---------- loading ---------- */
+
+    static InteractionTable parse(Reader source) throws IOException {
+        Map<String, Integer> ids = new HashMap<>();
+        List<TreeMap<Integer, Detail>> adjacency = new ArrayList<>();
+
+        BufferedReader in = new BufferedReader(source);
+        String line;
+        int lineNo = 0;
+        while ((line = in.readLine()) != null) {
+            lineNo++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String[] f = line.split(",", 4);
+            if (f.length < 3) {
+                throw new IllegalArgumentException("Line " + lineNo + ": expected medication_a,medication_b,severity");
+            }
+            Severity severity;
+            try {
+                severity = Severity.valueOf(f[2].trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Line " + lineNo + ": unknown severity '" + f[2].trim() + "'");
+            }
+            int a = intern(ids, adjacency, f[0]);
+            int b = intern(ids, adjacency, f[1]);
+            // a pair listed twice keeps its most severe entry
+            Detail detail = new Detail(severity, f.length > 3 ? f[3].trim() : "");
+            adjacency.get(a).merge(b, detail, InteractionTable::moreSevere);
+            adjacency.get(b).merge(a, detail, InteractionTable::moreSevere);
+        }
+
+        int n = adjacency.size();
+        BitSet[]   rows       = new BitSet[n];
+        int[][]    neighbours = new int[n][];
+        Detail[][] details    = new Detail[n][];
+        for (int a = 0; a < n; a++) {
+            TreeMap<Integer, Detail> row = adjacency.get(a);
+            rows[a]       = new BitSet(n);
+            neighbours[a] = new int[row.size()];
+            details[a]    = new Detail[row.size()];
+            int i = 0;
+            for (Map.Entry<Integer, Detail> e : row.entrySet()) {
+                rows[a].set(e.getKey());
+                neighbours[a][i] = e.getKey();
+                details[a][i++]  = e.getValue();
+            }
+        }
+        return new InteractionTable(Map.copyOf(ids), rows, neighbours, details);
+    }
+
+    private static int intern(Map<String, Integer> ids, List<TreeMap<Integer, Detail>> adjacency, String name) {
+        String key = normalize(name);
+        if (key.isEmpty()) {
+            throw new IllegalArgumentException("Empty medication name");
+        }
+        return ids.computeIfAbsent(key, k -> {
+            adjacency.add(new TreeMap<>());
+            return adjacency.size() - 1;
+        });
+    }
+
+    private static Detail moreSevere(Detail x, Detail y) {
+        return x.severity().compareTo(y.severity()) >= 0 ? x : y;
+    }
+
+    /** trimmed, lower-case, runs of whitespace as one space – without a regex, this is on the check path */
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(name.length());
+        boolean space = false;
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = out.length() > 0;
+            } else {
+                if (space) {
+                    out.append(' ');
+                    space = false;
+                }
+                out.append(Character.toLowerCase(c));
+            }
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package org.wp2.medsys.interactions;
+
+import java.io.Serializable;
+
+/**
+ * {@code medication} (being prescribed) interacts with {@code interactsWith}
+ * (already taken). Serializable: warnings reach the next page as flash
+ * attributes, which may live in the shared session store.
+ */
+public record InteractionWarning(String medication, String interactsWith, Severity severity, String description)
+        implements Serializable {
+}
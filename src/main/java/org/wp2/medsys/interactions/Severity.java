@@ -0,0 +1,9 @@
+package org.wp2.medsys.interactions;
+
+/** Interaction severity, mildest first – warnings are listed most severe first. */
+public enum Severity {
+    MINOR,
+    MODERATE,
+    MAJOR,
+    CONTRAINDICATED
+}
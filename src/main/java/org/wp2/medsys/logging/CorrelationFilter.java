@@ -0,0 +1,57 @@
+package org.wp2.medsys.logging;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.MDC;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * Puts {@code requestId} and {@code user} into the MDC for the rest of the
+ * request, so every log line of a request can be found together. The id is
+ * taken from an incoming {@code X-Request-Id} (e.g. set by a proxy) when it
+ * looks sane, otherwise generated, and echoed in the response.
+ * <p>
+ * Sits in the security chain right after anonymous authentication: session
+ * logins and HTTP Basic callers are both known by then. Not a bean, for the
+ * same reason as the other filters in {@code SecurityConfig}.
+ */
+public class CorrelationFilter extends OncePerRequestFilter {
+
+    public static final String HEADER     = "X-Request-Id";
+    public static final String REQUEST_ID = "requestId";
+    public static final String USER       = "user";
+
+    private static final Pattern SANE_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String requestId = request.getHeader(HEADER);
+        if (requestId == null || !SANE_ID.matcher(requestId).matches()) {
+            // no UUID.randomUUID(): SecureRandom per request is a needless shared bottleneck
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong() | Long.MIN_VALUE);
+        }
+        response.setHeader(HEADER, requestId);
+        MDC.put(REQUEST_ID, requestId);
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+            MDC.put(USER, auth.getName());
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            MDC.remove(REQUEST_ID);
+            MDC.remove(USER);
+        }
+    }
+}
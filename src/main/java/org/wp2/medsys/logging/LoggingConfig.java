@@ -0,0 +1,24 @@
+package org.wp2.medsys.logging;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Hooks {@link SqlSampler} into Hibernate when {@code medsys.logging.sql-sample-rate}
+ * is above zero. Slow statements are logged by Hibernate itself
+ * ({@code hibernate.log_slow_query}).
+ */
+@Configuration
+public class LoggingConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer sqlSampling(LoggingProperties props) {
+        return hibernate -> {
+            if (props.getSqlSampleRate() > 0) {
+                hibernate.put(AvailableSettings.STATEMENT_INSPECTOR, new SqlSampler(props.getSqlSampleRate()));
+            }
+        };
+    }
+}
@@ -0,0 +1,26 @@
+package org.wp2.medsys.logging;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes the state of the asynchronous log pipeline. Volume per level
+ * comes from Boot's own {@code logback.events} counter.
+ */
+@Component
+public class LoggingMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("medsys.logging.dropped", MeteredAsyncAppender.class,
+                        c -> MeteredAsyncAppender.dropped())
+                .description("Log events dropped because the async queue was (nearly) full")
+                .register(registry);
+        Gauge.builder("medsys.logging.queue.remaining", MeteredAsyncAppender::remainingCapacity)
+                .description("Free slots in the async log queue")
+                .register(registry);
+    }
+}
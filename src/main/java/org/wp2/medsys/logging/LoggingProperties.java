@@ -0,0 +1,31 @@
+package org.wp2.medsys.logging;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Logging pipeline settings, bound from {@code medsys.logging.*}.
+ * <p>
+ * {@code format}, {@code queue-size} and {@code discarding-threshold} are read
+ * by {@code logback-spring.xml} while logging starts; they are listed here so
+ * they are documented and checked like every other property.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.logging")
+public class LoggingProperties {
+
+    /** structured console format: {@code ecs}, {@code logstash} or {@code gelf} */
+    private String format = "ecs";
+
+    /** events buffered between the calling thread and the console writer */
+    private int queueSize = 8192;
+
+    /**
+     * once fewer free slots than this are left, TRACE/DEBUG/INFO events are
+     * dropped to keep room for warnings; -1 means a fifth of the queue
+     */
+    private int discardingThreshold = -1;
+
+    /** share of Hibernate statements logged, 0 (off) to 1 (all) */
+    private double sqlSampleRate = 0;
+}
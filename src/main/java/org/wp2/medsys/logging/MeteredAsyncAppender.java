@@ -0,0 +1,52 @@
+package org.wp2.medsys.logging;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link AsyncAppender} that counts what it throws away – low-level events
+ * discarded near the queue limit, and anything refused by a full queue with
+ * {@code neverBlock} – so {@link LoggingMetrics} can publish it.
+ * <p>
+ * Declared in {@code logback-spring.xml}, which runs before the application
+ * context exists; hence the static state.
+ */
+public class MeteredAsyncAppender extends AsyncAppender {
+
+    private static final LongAdder DROPPED = new LongAdder();
+
+    private static volatile MeteredAsyncAppender current;
+
+    static long dropped() {
+        return DROPPED.sum();
+    }
+
+    /** free queue slots of the running appender, or -1 before logging is configured */
+    static int remainingCapacity() {
+        MeteredAsyncAppender appender = current;
+        return appender == null || !appender.isStarted() ? -1 : appender.getRemainingCapacity();
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        current = this;
+    }
+
+    @Override
+    protected void append(ILoggingEvent event) {
+        if (!isStarted()) {
+            return;
+        }
+        // the same decisions the base class makes, taken here so they can be counted
+        int remaining = getRemainingCapacity();
+        if ((remaining < getDiscardingThreshold() && isDiscardable(event))
+                || (isNeverBlock() && remaining == 0)) {
+            DROPPED.increment();
+            return;
+        }
+        super.append(event);
+    }
+}
@@ -0,0 +1,29 @@
+package org.wp2.medsys.logging;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Logs a random share of the statements Hibernate prepares, in place of
+ * {@code spring.jpa.show-sql}, which prints every one of them synchronously.
+ * Statements are logged as prepared, without bound values.
+ */
+@Slf4j
+class SqlSampler implements StatementInspector {
+
+    private final double rate;
+
+    SqlSampler(double rate) {
+        this.rate = rate;
+    }
+
+    @Override
+    public String inspect(String sql) {
+        if (ThreadLocalRandom.current().nextDouble() < rate) {
+            log.info("SQL sample: {}", sql);
+        }
+        return sql;
+    }
+}
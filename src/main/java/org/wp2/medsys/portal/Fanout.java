@@ -0,0 +1,87 @@
+package org.wp2.medsys.portal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+import org.wp2.medsys.clinics.ClinicContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * The parts of one page, each forked onto {@code executor} with the caller's
+ * shard and log context. Deadlines are counted from when the fan-out was
+ * opened; closing it cancels whatever has not finished.
+ */
+@Slf4j
+final class Fanout implements AutoCloseable {
+
+    private final ExecutorService  executor;
+    private final PortalProperties props;
+    private final MeterRegistry    meters;
+
+    private final long            started = System.nanoTime();
+    private final List<Future<?>> forked  = new ArrayList<>(4);
+
+    Fanout(ExecutorService executor, PortalProperties props, MeterRegistry meters) {
+        this.executor = executor;
+        this.props    = props;
+        this.meters   = meters;
+    }
+
+    <T> Future<T> fork(Supplier<T> query) {
+        Supplier<T> inShard = ClinicContext.wrap(query);
+        Map<String, String> mdc = MDC.getCopyOfContextMap();
+        Future<T> future = executor.submit(() -> {
+            if (mdc != null) {
+                MDC.setContextMap(mdc);
+            }
+            try {
+                return inShard.get();
+            } finally {
+                MDC.clear();
+            }
+        });
+        forked.add(future);
+        return future;
+    }
+
+    /** the part's value, or {@code null} once its deadline has passed or it failed */
+    <T> T join(String part, Future<T> future) {
+        long deadline = started + props.timeoutFor(part).toNanos();
+        try {
+            T value = future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            count(part, "ok");
+            return value;
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            count(part, "timeout");
+            log.debug("Portal part {} missed its {} deadline", part, props.timeoutFor(part));
+        } catch (ExecutionException e) {
+            count(part, "failed");
+            log.warn("Portal part {} failed: {}", part, e.getCause().toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+        }
+        return null;
+    }
+
+    @Override
+    public void close() {
+        for (Future<?> f : forked) {
+            f.cancel(true);
+        }
+    }
+
+    private void count(String part, String outcome) {
+        meters.counter("medsys.portal.parts", "part", part, "outcome", outcome).increment();
+    }
+}
@@ -0,0 +1,29 @@
+package org.wp2.medsys.portal;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Portal summary settings, bound from {@code medsys.portal.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.portal")
+public class PortalProperties {
+
+    /** rows per list (upcoming appointments, active prescriptions, recent records) */
+    private int items = 5;
+
+    /** how long the page waits for a part before showing it as unavailable */
+    private Duration timeout = Duration.ofMillis(500);
+
+    /** per-part overrides of {@link #timeout}: upcoming, pending, prescriptions, records */
+    private Map<String, Duration> timeouts = new HashMap<>();
+
+    public Duration timeoutFor(String part) {
+        return timeouts.getOrDefault(part, timeout);
+    }
+}
@@ -0,0 +1,16 @@
+package org.wp2.medsys.portal;
+
+import org.wp2.medsys.DTO.AppointmentView;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
+
+import java.util.List;
+
+/**
+ * What the portal shows above its buttons. A part is {@code null} when it
+ * did not load in time or failed; the page says so and shows the rest.
+ */
+public record PortalSummary(List<AppointmentView>   upcoming,
+                            Long                    pending,
+                            List<PrescriptionView>  activePrescriptions,
+                            List<MedicalRecordView> recentRecords) {}
@@ -0,0 +1,122 @@
+package org.wp2.medsys.portal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.interactions.InteractionChecker;
+import org.wp2.medsys.repositories.AppointmentRepository;
+import org.wp2.medsys.repositories.MedicalRecordRepository;
+import org.wp2.medsys.repositories.PrescriptionRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Builds the portal summaries from four independent queries run at the same
+ * time, each on its own virtual thread and connection, so the page waits for
+ * the slowest query rather than the sum of all four.
+ * <p>
+ * Every part has its own deadline, counted from the start of the page
+ * ({@code medsys.portal.timeout(s)}). A part that misses it or fails is left
+ * out of the summary; its task is cancelled when the page is done, so no
+ * part outlives the request (a statement already running on the database
+ * finishes there and returns its connection). Shard and log context are
+ * carried to the worker threads (see {@link Fanout}).
+ * <p>
+ * Prescriptions and records that made it into a summary are written to the
+ * access audit log, once per patient, like the pages that list them.
+ * <p>
+ * Outcomes are counted in {@code medsys.portal.parts} (part, outcome=ok|timeout|failed).
+ */
+@Service
+public class PortalSummaryService {
+
+    private final AppointmentRepository   appointments;
+    private final PrescriptionRepository  prescriptions;
+    private final MedicalRecordRepository records;
+    private final InteractionChecker      interactions;
+    private final AuditLog                auditLog;
+    private final PortalProperties        props;
+    private final MeterRegistry           meters;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PortalSummaryService(AppointmentRepository appointments,
+                                PrescriptionRepository prescriptions,
+                                MedicalRecordRepository records,
+                                InteractionChecker interactions,
+                                AuditLog auditLog,
+                                PortalProperties props,
+                                MeterRegistry meters) {
+        this.appointments  = appointments;
+        this.prescriptions = prescriptions;
+        this.records       = records;
+        this.interactions  = interactions;
+        this.auditLog      = auditLog;
+        this.props         = props;
+        this.meters        = meters;
+    }
+
+    public PortalSummary forPatient(long patientId) {
+        LocalDateTime now   = LocalDateTime.now();
+        LocalDate     since = interactions.currentSince();
+        Pageable      top   = PageRequest.ofSize(props.getItems());
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            var upcoming = fanout.fork(() -> appointments.findUpcomingByPatient(patientId, now, top));
+            var pending  = fanout.fork(() -> appointments.countPendingByPatient(patientId));
+            var active   = fanout.fork(() -> prescriptions.findActiveViewsByPatient(patientId, since, top));
+            var recent   = fanout.fork(() -> records.findRecentViewsByPatient(patientId, top));
+            PortalSummary summary = new PortalSummary(
+                    fanout.join("upcoming", upcoming),
+                    fanout.join("pending", pending),
+                    fanout.join("prescriptions", active),
+                    fanout.join("records", recent));
+            audit(AuditAction.PATIENT_PRESCRIPTIONS, patientId, summary.activePrescriptions(), PrescriptionView::patientId);
+            audit(AuditAction.PATIENT_RECORDS, patientId, summary.recentRecords(), MedicalRecordView::patientId);
+            return summary;
+        }
+    }
+
+    /** the same parts from the doctor's side: their schedule, requests awaiting a decision, what they issued */
+    public PortalSummary forDoctor(long doctorId) {
+        LocalDateTime now   = LocalDateTime.now();
+        LocalDate     since = interactions.currentSince();
+        Pageable      top   = PageRequest.ofSize(props.getItems());
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            var upcoming = fanout.fork(() -> appointments.findUpcomingByDoctor(doctorId, now, top));
+            var pending  = fanout.fork(() -> appointments.countPendingByDoctor(doctorId));
+            var active   = fanout.fork(() -> prescriptions.findActiveViewsByDoctor(doctorId, since, top));
+            var recent   = fanout.fork(() -> records.findRecentViewsByDoctor(doctorId, top));
+            PortalSummary summary = new PortalSummary(
+                    fanout.join("upcoming", upcoming),
+                    fanout.join("pending", pending),
+                    fanout.join("prescriptions", active),
+                    fanout.join("records", recent));
+            audit(AuditAction.DOCTOR_PRESCRIPTIONS, doctorId, summary.activePrescriptions(), PrescriptionView::patientId);
+            audit(AuditAction.DOCTOR_RECORDS, doctorId, summary.recentRecords(), MedicalRecordView::patientId);
+            return summary;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /** a part that did not load shows nothing, so it is not audited */
+    private <T> void audit(AuditAction action, long actorId, List<T> part, Function<T, Long> patientId) {
+        if (part != null) {
+            auditLog.recordPatients(action, actorId, part.stream().map(patientId).toList());
+        }
+    }
+}
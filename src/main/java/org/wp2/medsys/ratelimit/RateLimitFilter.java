@@ -0,0 +1,77 @@
+package org.wp2.medsys.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies {@link RateLimitProperties} policies to the write endpoints (and the
+ * few reads a policy names with its {@code method}) and answers
+ * {@code 429 Too Many Requests} with a {@code Retry-After} header.
+ * <p>
+ * Sits in the security chain after authorization, so the caller is known and
+ * unauthenticated requests never consume tokens. Not a bean on purpose – a
+ * {@code Filter} bean would also be registered with the servlet container.
+ */
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final RateLimiter         limiter;
+    private final RateLimitProperties props;
+
+    public RateLimitFilter(RateLimiter limiter, RateLimitProperties props) {
+        this.limiter = limiter;
+        this.props   = props;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !props.isEnabled() || props.getPolicies().values().stream()
+                .noneMatch(policy -> policy.getMethod().equalsIgnoreCase(request.getMethod()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        String path = request.getServletPath();
+        for (Map.Entry<String, RateLimitProperties.Policy> e : props.getPolicies().entrySet()) {
+            RateLimitProperties.Policy policy = e.getValue();
+            if (!path.equals(policy.getPath()) || !policy.getMethod().equalsIgnoreCase(request.getMethod())) {
+                continue;
+            }
+            long waitNanos = limiter.tryAcquire(e.getKey(), policy, callerKey(request, policy));
+            if (waitNanos > 0) {
+                long retryAfter = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999L));
+                log.debug("Rate limit '{}' hit on {}, retry after {}s", e.getKey(), path, retryAfter);
+                response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+                response.setHeader("Retry-After", Long.toString(retryAfter));
+                response.setContentType("text/plain;charset=UTF-8");
+                response.getWriter().write("Too many requests – please wait " + retryAfter + "s and try again.");
+                return;
+            }
+        }
+        chain.doFilter(request, response);
+    }
+
+    private static String callerKey(HttpServletRequest request, RateLimitProperties.Policy policy) {
+        if (policy.getKey() == RateLimitProperties.KeyType.USER) {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            if (auth != null && auth.isAuthenticated() && !(auth instanceof AnonymousAuthenticationToken)) {
+                return "u:" + auth.getName();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+}
@@ -0,0 +1,51 @@
+package org.wp2.medsys.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-endpoint rate-limit policies, bound from {@code medsys.ratelimit.*}.
+ * <pre>
+ * medsys.ratelimit.policies.schedule.path=/appointments/schedule
+ * medsys.ratelimit.policies.schedule.capacity=5
+ * medsys.ratelimit.policies.schedule.refill-period=1m
+ * </pre>
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.ratelimit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    /** buckets idle (i.e. full again) for this long are dropped */
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    /** soft cap on live buckets; crossing it triggers an early sweep */
+    private int maxBuckets = 100_000;
+
+    private Map<String, Policy> policies = new LinkedHashMap<>();
+
+    public enum KeyType { USER, IP }
+
+    @Data
+    public static class Policy {
+        /** servlet path the policy applies to */
+        private String path;
+
+        /** HTTP method the policy applies to */
+        private String method = "POST";
+
+        /** burst size – how many calls may arrive back to back */
+        private int capacity = 10;
+
+        /** time for the bucket to refill completely from empty */
+        private Duration refillPeriod = Duration.ofMinutes(1);
+
+        /** what identifies a caller; anonymous callers always fall back to IP */
+        private KeyType key = KeyType.USER;
+    }
+}
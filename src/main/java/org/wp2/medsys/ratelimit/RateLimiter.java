@@ -0,0 +1,66 @@
+package org.wp2.medsys.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory registry of {@link TokenBucket}s keyed by policy + caller.
+ * <p>
+ * Memory stays bounded by sweeping idle buckets on a schedule, and early
+ * whenever the map grows past {@code max-buckets}. Evicting a bucket that is
+ * concurrently in use can at worst hand that caller one extra token.
+ */
+@Slf4j
+@Component
+public class RateLimiter {
+
+    private final RateLimitProperties props;
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicBoolean sweeping = new AtomicBoolean();
+
+    public RateLimiter(RateLimitProperties props) {
+        this.props = props;
+    }
+
+    /**
+     * @return 0 if allowed, otherwise nanoseconds the caller should wait
+     */
+    public long tryAcquire(String policyName, RateLimitProperties.Policy policy, String callerKey) {
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(policyName + '|' + callerKey);
+        if (bucket == null) {
+            bucket = buckets.computeIfAbsent(policyName + '|' + callerKey,
+                    k -> new TokenBucket(policy.getCapacity(), policy.getRefillPeriod().toNanos(), now));
+            if (buckets.size() > props.getMaxBuckets()) {
+                sweep();
+            }
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    @Scheduled(fixedDelay = 60_000)
+    public void sweep() {
+        if (!sweeping.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long now   = System.nanoTime();
+            long grace = props.getIdleTimeout().toNanos();
+            int before = buckets.size();
+            buckets.values().removeIf(b -> b.isIdle(now, grace));
+            if (before != buckets.size()) {
+                log.debug("Rate limiter evicted {} idle buckets, {} left", before - buckets.size(), buckets.size());
+            }
+        } finally {
+            sweeping.set(false);
+        }
+    }
+
+    int size() {
+        return buckets.size();
+    }
+}
@@ -0,0 +1,56 @@
+package org.wp2.medsys.ratelimit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free token bucket, implemented as GCRA (generic cell rate algorithm).
+ * <p>
+ * The whole state is a single "theoretical arrival time" in a {@link AtomicLong},
+ * so a check is one read plus one CAS – no locks, no refill bookkeeping.
+ * A bucket whose TAT lies in the past is full and therefore indistinguishable
+ * from a fresh one, which is what makes idle buckets safe to evict.
+ */
+final class TokenBucket {
+
+    /** nanoseconds per token */
+    private final long emissionInterval;
+
+    /** how far the TAT may run ahead of now: (capacity) tokens worth */
+    private final long burstTolerance;
+
+    private final AtomicLong tat;
+
+    TokenBucket(int capacity, long refillPeriodNanos, long nowNanos) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.emissionInterval = Math.max(1, refillPeriodNanos / capacity);
+        this.burstTolerance   = emissionInterval * capacity;
+        this.tat              = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Takes one token.
+     *
+     * @return 0 if the call is allowed, otherwise nanoseconds until a token is available
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = tat.get();
+            long next    = Math.max(current, nowNanos) + emissionInterval;
+            long allowAt = next - burstTolerance;
+            if (allowAt > nowNanos) {
+                return allowAt - nowNanos;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+            // lost the race to another request for the same key – retry with fresh state
+        }
+    }
+
+    /** true once the bucket has been full for at least {@code graceNanos} */
+    boolean isIdle(long nowNanos, long graceNanos) {
+        return tat.get() + graceNanos < nowNanos;
+    }
+}
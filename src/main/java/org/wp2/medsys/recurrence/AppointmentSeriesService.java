@@ -0,0 +1,233 @@
+package org.wp2.medsys.recurrence;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.wp2.medsys.assignment.AssignmentProperties;
+import org.wp2.medsys.domain.*;
+import org.wp2.medsys.repositories.AppointmentRepository;
+import org.wp2.medsys.repositories.AppointmentSeriesRepository;
+import org.wp2.medsys.services.AppointmentService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TreeSet;
+
+/**
+ * Recurring appointments.
+ * <ul>
+ *   <li>A series is one row holding its rule; nothing is written per occurrence
+ *       up front, however long the series runs.</li>
+ *   <li>{@link #forDoctor}/{@link #forPatient} expand only the series that
+ *       overlap the requested window, and only over that window.</li>
+ *   <li>An occurrence becomes an {@link Appointment} (through
+ *       {@link AppointmentService}, so reminders and doctor load see it) when the
+ *       doctor accepts, denies or moves it; its original slot is then recorded
+ *       as an exception so it is not expanded again. A patient skipping an
+ *       occurrence records just the exception.</li>
+ * </ul>
+ * New series are checked against the doctor's pending and accepted
+ * appointments and the expansions of their other series with one sorted set
+ * (see {@link Conflicts}); series whose time of day cannot overlap are not
+ * expanded at all. Like single bookings, two requests racing for the same
+ * slot are not serialized.
+ */
+@Slf4j
+@Service
+public class AppointmentSeriesService {
+
+    private final AppointmentSeriesRepository series;
+    private final AppointmentRepository       appointments;
+    private final AppointmentService          appointmentService;
+    private final SeriesProperties            props;
+    private final AssignmentProperties        assignment;
+
+    public AppointmentSeriesService(AppointmentSeriesRepository series,
+                                    AppointmentRepository appointments,
+                                    AppointmentService appointmentService,
+                                    SeriesProperties props,
+                                    AssignmentProperties assignment) {
+        this.series             = series;
+        this.appointments       = appointments;
+        this.appointmentService = appointmentService;
+        this.props              = props;
+        this.assignment         = assignment;
+    }
+
+    /**
+     * @throws IllegalArgumentException for a series without end, longer than
+     *         {@code max-occurrences}, starting in the past, or clashing with
+     *         the doctor's calendar
+     */
+    @Transactional
+    public AppointmentSeries create(Patient patient, Doctor doctor, RecurrenceRule rule, String scheduleReason) {
+        if (rule.start().isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("A series cannot start in the past");
+        }
+        // counted, not expanded: a huge count or far-off end date must not allocate anything
+        long size = rule.isBounded() ? rule.size() : 0;
+        if (size > props.getMaxOccurrences()) {
+            throw new IllegalArgumentException("A series may have at most " + props.getMaxOccurrences()
+                    + " appointments, this one has " + size);
+        }
+        AppointmentSeries created = new AppointmentSeries(patient, doctor, rule, scheduleReason);
+        List<LocalDateTime> dates = rule.between(rule.start(), created.getLastDate().plusNanos(1));
+        requireFree(doctor, dates, rule.start().toLocalTime(), rule.start(), created.getLastDate());
+        AppointmentSeries saved = series.save(created);
+        log.debug("Series {} created: {} appointments from {} to {}",
+                saved.getId(), dates.size(), saved.getFirstDate(), saved.getLastDate());
+        return saved;
+    }
+
+    /* ---------- lazy expansion ---------- */
+
+    public List<Occurrence> forDoctor(long doctorId, LocalDateTime from, LocalDateTime to) {
+        return expand(series.findByDoctorInWindow(doctorId, from, to), from, to);
+    }
+
+    public List<Occurrence> forPatient(long patientId, LocalDateTime from, LocalDateTime to) {
+        return expand(series.findByPatientInWindow(patientId, from, to), from, to);
+    }
+
+    private static List<Occurrence> expand(List<AppointmentSeries> found, LocalDateTime from, LocalDateTime to) {
+        List<Occurrence> out = new ArrayList<>();
+        for (AppointmentSeries s : found) {
+            for (LocalDateTime date : virtual(s, from, to)) {
+                out.add(new Occurrence(s.getId(), date, s.getScheduleReason(),
+                        s.getPatient().getId(), s.getPatient().getUsername(),
+                        s.getDoctor().getId(), s.getDoctor().getUsername(), s.getDoctor().getSpec()));
+            }
+        }
+        out.sort(Comparator.comparing(Occurrence::date));
+        return out;
+    }
+
+    /** occurrences in the window that are neither skipped nor materialized */
+    private static List<LocalDateTime> virtual(AppointmentSeries s, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> dates = s.rule().between(from, to);
+        dates.removeIf(s.getExceptions()::contains);
+        return dates;
+    }
+
+    /* ---------- doctor: materialize ---------- */
+
+    @Transactional
+    public Appointment accept(long seriesId, LocalDateTime occurrence, Doctor doctor) {
+        return materialize(ownedBy(seriesId, doctor), occurrence, occurrence, Status.ACCEPTED);
+    }
+
+    @Transactional
+    public Appointment deny(long seriesId, LocalDateTime occurrence, Doctor doctor) {
+        return materialize(ownedBy(seriesId, doctor), occurrence, occurrence, Status.DENIED);
+    }
+
+    /**
+     * accepts the occurrence at {@code newDate} instead of its slot in the series
+     *
+     * @throws IllegalArgumentException if {@code newDate} is past or clashes with the doctor's calendar
+     */
+    @Transactional
+    public Appointment move(long seriesId, LocalDateTime occurrence, LocalDateTime newDate, Doctor doctor) {
+        if (newDate.isBefore(LocalDateTime.now())) {
+            throw new IllegalArgumentException("Cannot move an appointment into the past");
+        }
+        AppointmentSeries s = ownedBy(seriesId, doctor);
+        claim(s, occurrence);
+        // after the claim, so the occurrence's own slot no longer counts as busy
+        requireFree(doctor, List.of(newDate), newDate.toLocalTime(), newDate, newDate);
+        return save(s, occurrence, newDate, Status.ACCEPTED);
+    }
+
+    private Appointment materialize(AppointmentSeries s, LocalDateTime occurrence, LocalDateTime date, Status status) {
+        claim(s, occurrence);
+        return save(s, occurrence, date, status);
+    }
+
+    private Appointment save(AppointmentSeries s, LocalDateTime occurrence, LocalDateTime date, Status status) {
+        Appointment row = new Appointment(date, s.getPatient(), s.getDoctor(), s.getScheduleReason(), status);
+        row.setSeriesId(s.getId());
+        row.setOccurrenceDate(occurrence);
+        // the unique (series_id, occurrence_date) key catches a concurrent materialization
+        return appointmentService.create(row);
+    }
+
+    /* ---------- patient ---------- */
+
+    @Transactional
+    public void skip(long seriesId, LocalDateTime occurrence, Patient patient) {
+        claim(ownedBy(seriesId, patient), occurrence);
+    }
+
+    /** ends the series now: occurrences still to come disappear, appointments already made stay */
+    @Transactional
+    public void end(long seriesId, Patient patient) {
+        AppointmentSeries s = ownedBy(seriesId, patient);
+        LocalDateTime now = LocalDateTime.now();
+        if (s.getLastDate().isBefore(now)) {
+            return;
+        }
+        if (!s.getFirstDate().isAfter(now)) {
+            RecurrenceRule rule = s.rule();
+            s.setRule(new RecurrenceRule(rule.start(), rule.frequency(), rule.interval(), rule.count(), now));
+        } else if (s.getExceptions().isEmpty()) {
+            series.delete(s);
+        } else {
+            // some occurrences were materialized: keep the series they point to, with nothing left to expand
+            RecurrenceRule rule = s.rule();
+            s.setRule(new RecurrenceRule(rule.start(), rule.frequency(), rule.interval(), 1, null));
+            s.getExceptions().add(rule.start());
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    /**
+     * Checks {@code dates} (sorted, within {@code [first, last]}, all at
+     * {@code timeOfDay}) against the doctor's pending and accepted
+     * appointments and the occurrences of their series.
+     *
+     * @throws IllegalArgumentException on the first clash
+     */
+    private void requireFree(Doctor doctor, List<LocalDateTime> dates, LocalTime timeOfDay,
+                             LocalDateTime first, LocalDateTime last) {
+        Duration length = assignment.getAppointmentLength();
+        LocalDateTime from = first.minus(length);
+        LocalDateTime to   = last.plus(length);
+        TreeSet<LocalDateTime> busy = new TreeSet<>(appointments.findBusyDatesByDoctor(doctor.getId(), from, to));
+        for (AppointmentSeries other : series.findByDoctorInWindow(doctor.getId(), from, to)) {
+            if (Conflicts.timesOverlap(other.getFirstDate().toLocalTime(), timeOfDay, length)) {
+                busy.addAll(virtual(other, from, to));
+            }
+        }
+        LocalDateTime clash = Conflicts.first(dates, busy, length);
+        if (clash != null) {
+            throw new IllegalArgumentException("Dr. " + doctor.getUsername() + " is already booked at " + clash
+                    + " – pick another time");
+        }
+    }
+
+    /** marks {@code occurrence} as no longer virtual */
+    private static void claim(AppointmentSeries s, LocalDateTime occurrence) {
+        if (!s.rule().between(occurrence, occurrence.plusNanos(1)).contains(occurrence)) {
+            throw new IllegalArgumentException("Not an appointment of this series: " + occurrence);
+        }
+        if (!s.getExceptions().add(occurrence)) {
+            throw new IllegalStateException("This appointment was already handled");
+        }
+    }
+
+    private AppointmentSeries ownedBy(long seriesId, User user) {
+        AppointmentSeries s = series.findById(seriesId)
+                .orElseThrow(() -> new IllegalArgumentException("No such series: " + seriesId));
+        User owner = user instanceof Doctor ? s.getDoctor() : s.getPatient();
+        if (!Objects.equals(owner.getId(), user.getId())) {
+            throw new IllegalArgumentException("No such series: " + seriesId);
+        }
+        return s;
+    }
+}
@@ -0,0 +1,41 @@
+package org.wp2.medsys.recurrence;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.NavigableSet;
+
+/**
+ * Overlap checks between appointments of a fixed length, over sorted sets:
+ * each candidate costs one {@code lower()} lookup, so checking a whole series
+ * against a doctor's calendar is O((n + m) log m) instead of a query per
+ * occurrence.
+ */
+final class Conflicts {
+
+    private Conflicts() {
+    }
+
+    /** the first of {@code candidates} that overlaps an entry of {@code busy}, or {@code null} */
+    static LocalDateTime first(Collection<LocalDateTime> candidates, NavigableSet<LocalDateTime> busy, Duration length) {
+        for (LocalDateTime c : candidates) {
+            LocalDateTime before = busy.lower(c.plus(length));
+            if (before != null && before.plus(length).isAfter(c)) {
+                return c;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Whether two series whose occurrences start at {@code a} and {@code b}
+     * o'clock can overlap at all. Weekly and monthly occurrences keep their
+     * time of day, so series that fail this never need expanding.
+     */
+    static boolean timesOverlap(LocalTime a, LocalTime b, Duration length) {
+        long day  = Duration.ofDays(1).toMinutes();
+        long diff = Math.abs(Duration.between(a, b).toMinutes());
+        return Math.min(diff, day - diff) < length.toMinutes();
+    }
+}
@@ -0,0 +1,13 @@
+package org.wp2.medsys.recurrence;
+
+import java.time.LocalDateTime;
+
+/** One not-yet-materialized occurrence of a series, as the dashboards list it; always pending. */
+public record Occurrence(Long          seriesId,
+                         LocalDateTime date,
+                         String        scheduleReason,
+                         Long          patientId,
+                         String        patientUsername,
+                         Long          doctorId,
+                         String        doctorUsername,
+                         String        doctorSpec) {}
@@ -0,0 +1,115 @@
+package org.wp2.medsys.recurrence;
+
+import org.wp2.medsys.domain.Frequency;
+
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * "Every {@code interval} weeks/months from {@code start}", ending after
+ * {@code count} occurrences and/or at {@code until} (inclusive); with neither
+ * it never ends.
+ * <p>
+ * Occurrence {@code k} is computed from {@code start} directly, never from
+ * occurrence {@code k-1}, so a window anywhere in a series is expanded without
+ * walking the occurrences before it. Monthly series falling on the 29th–31st
+ * move to the last day of shorter months and return to their day afterwards.
+ */
+public record RecurrenceRule(LocalDateTime start, Frequency frequency, int interval,
+                             Integer count, LocalDateTime until) {
+
+    public RecurrenceRule {
+        if (start == null || frequency == null) {
+            throw new IllegalArgumentException("A recurrence needs a start and a frequency");
+        }
+        if (interval < 1) {
+            throw new IllegalArgumentException("Repeat interval must be at least 1");
+        }
+        if (count != null && count < 1) {
+            throw new IllegalArgumentException("Number of occurrences must be at least 1");
+        }
+        if (until != null && until.isBefore(start)) {
+            throw new IllegalArgumentException("A series cannot end before its first appointment");
+        }
+    }
+
+    public boolean isBounded() {
+        return count != null || until != null;
+    }
+
+    /**
+     * the {@code k}-th occurrence (0-based), whether or not the series still runs then
+     *
+     * @throws IllegalArgumentException if it would fall beyond the supported date range
+     */
+    public LocalDateTime occurrence(long k) {
+        try {
+            return switch (frequency) {
+                case WEEKLY  -> start.plusWeeks(Math.multiplyExact(k, (long) interval));
+                case MONTHLY -> start.plusMonths(Math.multiplyExact(k, (long) interval));
+            };
+        } catch (DateTimeException | ArithmeticException e) {
+            throw new IllegalArgumentException("This series runs too far into the future", e);
+        }
+    }
+
+    /**
+     * number of occurrences, computed without expanding them;
+     * {@link Long#MAX_VALUE} for a series without end
+     *
+     * @throws IllegalArgumentException if the series runs beyond the supported date range
+     */
+    public long size() {
+        long n = count != null ? count : Long.MAX_VALUE;
+        if (until != null) {
+            if (until.equals(LocalDateTime.MAX)) {
+                throw new IllegalArgumentException("This series runs too far into the future");
+            }
+            n = Math.min(n, indexAtOrAfter(until.plusNanos(1)));
+        }
+        return n;
+    }
+
+    /** the last occurrence, {@code null} for a series without end */
+    public LocalDateTime last() {
+        return isBounded() ? occurrence(size() - 1) : null;
+    }
+
+    /** occurrences in {@code [from, to)}, in order */
+    public List<LocalDateTime> between(LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> out = new ArrayList<>();
+        for (long k = indexAtOrAfter(from); ; k++) {
+            LocalDateTime t = occurrence(k);
+            if (!t.isBefore(to) || !runs(k, t)) {
+                return out;
+            }
+            out.add(t);
+        }
+    }
+
+    private boolean runs(long k, LocalDateTime t) {
+        return (count == null || k < count) && (until == null || !t.isAfter(until));
+    }
+
+    /** the smallest {@code k} whose occurrence is not before {@code t} */
+    long indexAtOrAfter(LocalDateTime t) {
+        if (!t.isAfter(start)) {
+            return 0;
+        }
+        long k = switch (frequency) {
+            case WEEKLY  -> ChronoUnit.WEEKS.between(start, t) / interval;
+            case MONTHLY -> ChronoUnit.MONTHS.between(start, t) / interval;
+        };
+        // the estimate is off by at most one either way (month-end clamping)
+        while (k > 0 && !occurrence(k - 1).isBefore(t)) {
+            k--;
+        }
+        while (occurrence(k).isBefore(t)) {
+            k++;
+        }
+        return k;
+    }
+}
@@ -0,0 +1,21 @@
+package org.wp2.medsys.recurrence;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Recurring appointment settings, bound from {@code medsys.series.*}.
+ * Appointment length for conflict checks is {@code medsys.assignment.appointment-length}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.series")
+public class SeriesProperties {
+
+    /** how far ahead the dashboards list upcoming occurrences */
+    private Duration window = Duration.ofDays(28);
+
+    /** most occurrences one series may have (260 = five years of weekly visits) */
+    private int maxOccurrences = 260;
+}
@@ -0,0 +1,18 @@
+package org.wp2.medsys.registration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Sizing of the username/email Bloom filters, bound from {@code medsys.registration.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.registration")
+public class AvailabilityProperties {
+
+    /** accounts the filters are sized for at least; they are rebuilt bigger once the user count passes it */
+    private long expectedUsers = 100_000;
+
+    /** share of free names that still cost a database check */
+    private double falsePositiveRate = 0.01;
+}
@@ -0,0 +1,91 @@
+package org.wp2.medsys.registration;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over strings.
+ * <p>
+ * Bits live in an {@link AtomicLongArray}, so {@link #put} can run
+ * concurrently with lookups without locking; a reader racing a put may miss
+ * the new element for an instant, which callers must tolerate (the database
+ * stays the source of truth). Index {@code i} of an element is
+ * {@code h1 + i * h2} over two differently seeded 64-bit hashes (Kirsch–Mitzenmacher).
+ */
+final class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long            bitCount;
+    private final int             hashes;
+
+    /**
+     * @param expected              elements the filter is sized for
+     * @param falsePositiveRate     target rate at {@code expected} elements
+     */
+    BloomFilter(long expected, double falsePositiveRate) {
+        long n = Math.max(expected, 1);
+        long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (m + 63) >>> 6));
+        this.bits     = new AtomicLongArray(words);
+        this.bitCount = (long) words << 6;
+        this.hashes   = Math.max(1, (int) Math.round((double) bitCount / n * Math.log(2)));
+    }
+
+    void put(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;      // odd: never a zero step
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = bits.get(word);
+            while ((current & mask) == 0) {
+                long witness = bits.compareAndExchange(word, current, current | mask);
+                if (witness == current) {
+                    break;
+                }
+                current = witness;
+            }
+        }
+    }
+
+    /** {@code false} means definitely absent; {@code true} means "ask the database" */
+    boolean mightContain(String value) {
+        long h1 = hash(value, 0x9E3779B97F4A7C15L);
+        long h2 = hash(value, 0xC2B2AE3D27D4EB4FL) | 1;
+        for (int i = 0; i < hashes; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    long bitCount() {
+        return bitCount;
+    }
+
+    int hashCount() {
+        return hashes;
+    }
+
+    private static long hash(String value, long seed) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long h = seed ^ (bytes.length * 0xFF51AFD7ED558CCDL);
+        for (byte b : bytes) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /** murmur3 fmix64 finaliser */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
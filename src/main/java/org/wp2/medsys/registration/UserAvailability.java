@@ -0,0 +1,152 @@
+package org.wp2.medsys.registration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.repositories.UserRepository;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Answers "is this username / email still free?" mostly from memory.
+ * <p>
+ * Two Bloom filters hold every existing username and email, lower-cased like
+ * the database's case-insensitive collation compares them. A miss means the
+ * value is free without touching the database; a hit (real or false
+ * positive) is confirmed with an indexed {@code exists} query.
+ * <ul>
+ *   <li>Filled from {@code users} once the application is ready; until then
+ *       every check goes to the database.</li>
+ *   <li>Kept current by {@link UserInsertListener} on every JPA insert of a user.</li>
+ *   <li>Rebuilt, larger, when the user count outgrows the sizing.</li>
+ * </ul>
+ * Inserts made on another node are unknown here until the next rebuild, so a
+ * "free" answer is advisory – the unique constraints still decide on save.
+ * With clinics enabled the filters cover every shard and hits are confirmed on each.
+ */
+@Slf4j
+@Component
+public class UserAvailability {
+
+    private record Filters(BloomFilter usernames, BloomFilter emails, long sizedFor) {}
+
+    private final JdbcTemplate           jdbc;
+    private final UserRepository         users;
+    private final AvailabilityProperties props;
+    private final ClinicShards           shards;
+    private final AtomicLong             inserted = new AtomicLong();
+
+    /** what lookups use; {@code null} until first loaded */
+    private volatile Filters filters;
+    /** filters being filled by a rebuild – inserts go here as well so none are missed */
+    private volatile Filters building;
+
+    public UserAvailability(JdbcTemplate jdbc, UserRepository users,
+                            AvailabilityProperties props, ClinicShards shards) {
+        this.jdbc   = jdbc;
+        this.users  = users;
+        this.props  = props;
+        this.shards = shards;
+    }
+
+    public boolean isUsernameAvailable(String username) {
+        String key = normalize(username);
+        if (key.isEmpty()) {
+            return false;
+        }
+        Filters f = filters;
+        if (f != null && !f.usernames().mightContain(key)) {
+            return true;
+        }
+        return !shards.anyMatch(() -> users.existsByUsername(username.trim()));
+    }
+
+    public boolean isEmailAvailable(String email) {
+        String key = normalize(email);
+        if (key.isEmpty()) {
+            return false;
+        }
+        Filters f = filters;
+        if (f != null && !f.emails().mightContain(key)) {
+            return true;
+        }
+        return !shards.anyMatch(() -> users.existsByEmail(email.trim()));
+    }
+
+    /** records a new account; called for every inserted user */
+    void added(String username, String email) {
+        put(filters, username, email);
+        put(building, username, email);
+        inserted.incrementAndGet();
+    }
+
+    private static void put(Filters f, String username, String email) {
+        if (f != null) {
+            f.usernames().put(normalize(username));
+            f.emails().put(normalize(email));
+        }
+    }
+
+    /* ---------- loading ---------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        rebuild();
+    }
+
+    /**
+     * rebuilds once the filters hold more users than they were sized for –
+     * twice the count at the last rebuild, or {@code expectedUsers} if larger
+     */
+    @Scheduled(fixedDelay = 3_600_000, initialDelay = 3_600_000)
+    public void resizeIfNeeded() {
+        Filters f = filters;
+        if (f != null && inserted.get() > f.sizedFor()) {
+            rebuild();
+        }
+    }
+
+    synchronized void rebuild() {
+        long started = System.nanoTime();
+        long[] count = {0};
+        shards.forEach(shard -> {
+            Long n = jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+            count[0] += n == null ? 0 : n;
+        });
+        long sizedFor = Math.max(props.getExpectedUsers(), 2 * count[0]);
+
+        BloomFilter usernames = new BloomFilter(sizedFor, props.getFalsePositiveRate());
+        BloomFilter emails    = new BloomFilter(sizedFor, props.getFalsePositiveRate());
+        // lookups keep using the old filters until the new ones are complete
+        Filters next = new Filters(usernames, emails, sizedFor);
+        building = next;
+        inserted.set(0);
+
+        long[] rows = {0};
+        shards.forEach(shard -> jdbc.query(con -> {
+            var ps = con.prepareStatement("SELECT username, email FROM users");
+            ps.setFetchSize(1_000);
+            return ps;
+        }, rs -> {
+            usernames.put(normalize(rs.getString(1)));
+            emails.put(normalize(rs.getString(2)));
+            rows[0]++;
+        }));
+        filters  = next;
+        building = null;
+        inserted.addAndGet(rows[0]);
+
+        log.info("Availability filters loaded: {} users, {} bits x {} hashes each, {} ms",
+                rows[0], usernames.bitCount(), usernames.hashCount(),
+                (System.nanoTime() - started) / 1_000_000);
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+}
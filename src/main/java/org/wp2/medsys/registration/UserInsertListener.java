@@ -0,0 +1,27 @@
+package org.wp2.medsys.registration;
+
+import jakarta.persistence.PostPersist;
+import org.springframework.stereotype.Component;
+import org.wp2.medsys.domain.User;
+
+/**
+ * JPA listener on {@link User}: adds every new account to the availability
+ * filters. A Spring bean, so Hibernate gets it with its dependency injected.
+ * <p>
+ * Fires before commit – if the transaction then rolls back the filters keep
+ * a stale entry, which only costs one confirming database lookup later.
+ */
+@Component
+public class UserInsertListener {
+
+    private final UserAvailability availability;
+
+    public UserInsertListener(UserAvailability availability) {
+        this.availability = availability;
+    }
+
+    @PostPersist
+    void onInsert(User user) {
+        availability.added(user.getUsername(), user.getEmail());
+    }
+}
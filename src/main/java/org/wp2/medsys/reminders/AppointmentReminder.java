@@ -0,0 +1,15 @@
+package org.wp2.medsys.reminders;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/** One reminder for both sides of an accepted appointment, as handed to a {@link ReminderSender}. */
+public record AppointmentReminder(
+        long          appointmentId,
+        LocalDateTime appointmentDate,
+        Duration      before,
+        String        patientUsername,
+        String        patientEmail,
+        String        doctorUsername,
+        String        doctorEmail) {
+}
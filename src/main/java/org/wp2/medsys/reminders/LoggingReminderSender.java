@@ -0,0 +1,19 @@
+package org.wp2.medsys.reminders;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/** Stand-in sender used when no real {@link ReminderSender} is configured: logs each reminder. */
+@Slf4j
+public class LoggingReminderSender implements ReminderSender {
+
+    @Override
+    public void send(List<AppointmentReminder> batch) {
+        for (AppointmentReminder r : batch) {
+            log.info("Reminder ({} before): appointment {} at {} – patient {} <{}>, doctor {} <{}>",
+                    r.before(), r.appointmentId(), r.appointmentDate(),
+                    r.patientUsername(), r.patientEmail(), r.doctorUsername(), r.doctorEmail());
+        }
+    }
+}
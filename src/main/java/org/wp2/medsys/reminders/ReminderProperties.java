@@ -0,0 +1,44 @@
+package org.wp2.medsys.reminders;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Appointment reminders, bound from {@code medsys.reminders.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.reminders")
+public class ReminderProperties {
+
+    private boolean enabled = false;
+
+    /** how long before an appointment each reminder goes out */
+    private List<Duration> before = List.of(Duration.ofHours(24), Duration.ofHours(1));
+
+    /**
+     * appointments up to this far ahead are held in memory; must exceed the
+     * largest {@code before} plus {@code load-interval}
+     */
+    private Duration horizon = Duration.ofHours(48);
+
+    /** how often the window is extended from the database */
+    private Duration loadInterval = Duration.ofMinutes(10);
+
+    /** timer resolution and how often due reminders are dispatched */
+    private Duration tick = Duration.ofSeconds(1);
+
+    /** reminders handed to the sender at once */
+    private int batchSize = 200;
+
+    /** after downtime, reminders overdue by more than this are skipped rather than sent late */
+    private Duration missedGrace = Duration.ofHours(6);
+
+    /** when a batch fails to send, try again after this */
+    private Duration retryDelay = Duration.ofMinutes(1);
+
+    /** rows of {@code appointment_reminders_sent} are kept this long after the appointment */
+    private Duration keepSent = Duration.ofDays(30);
+}
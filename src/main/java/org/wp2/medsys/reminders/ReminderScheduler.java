@@ -0,0 +1,257 @@
+package org.wp2.medsys.reminders;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+
+/**
+ * Sends reminders ahead of accepted appointments from an in-memory
+ * {@link TimingWheel} instead of polling the {@code appointments} table.
+ * <ul>
+ *   <li>Every {@code load-interval} the wheel is extended with the accepted
+ *       appointments that entered the {@code horizon}; only the new slice of
+ *       time is read.</li>
+ *   <li>{@link AppointmentChangedEvent}s add, move or cancel the timers of an
+ *       appointment inside the loaded window right away.</li>
+ *   <li>Every {@code tick} due reminders are re-checked against the database
+ *       (status and date, which also covers changes made on other nodes),
+ *       claimed in {@code appointment_reminders_sent} and handed to the
+ *       {@link ReminderSender} in batches.</li>
+ * </ul>
+ * The claim table makes sending idempotent across nodes and restarts. After a
+ * restart the first load starts at "now", so reminders that fell due during
+ * the downtime go out at once – unless overdue by more than {@code missed-grace}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "medsys.reminders", name = "enabled", havingValue = "true")
+public class ReminderScheduler {
+
+    private record Key(String shard, long appointmentId, Duration before) {}
+
+    private record Pending(String shard, long appointmentId, Duration before, LocalDateTime appointmentDate) {}
+
+    private static final ZoneId ZONE   = ZoneId.systemDefault();
+    private static final int    LEVELS = 4;
+
+    private static final String LOAD =
+            "SELECT id, appointment_date FROM appointments"
+            + " WHERE status = 'ACCEPTED' AND appointment_date >= ? AND appointment_date < ?"
+            + " AND (appointment_date > ? OR (appointment_date = ? AND id > ?))"
+            + " ORDER BY appointment_date, id LIMIT ?";
+    private static final String CURRENT =
+            "SELECT a.id, a.appointment_date, a.status, p.username, p.email, d.username, d.email"
+            + " FROM appointments a JOIN users p ON p.id = a.patient_id JOIN users d ON d.id = a.doctor_id"
+            + " WHERE a.id IN (%s)";
+    private static final String CLAIM =
+            "INSERT IGNORE INTO appointment_reminders_sent (appointment_id, appointment_date, minutes_before)"
+            + " VALUES (?, ?, ?)";
+    private static final String UNCLAIM =
+            "DELETE FROM appointment_reminders_sent"
+            + " WHERE appointment_id = ? AND appointment_date = ? AND minutes_before = ?";
+    private static final String PURGE =
+            "DELETE FROM appointment_reminders_sent WHERE appointment_date < ? LIMIT 10000";
+
+    private final JdbcTemplate       jdbc;
+    private final ReminderProperties props;
+    private final ClinicShards       shards;
+    private final ReminderSender     sender;
+    private final TimingWheel<Key, Pending> wheel;
+
+    /** appointments before this have been loaded (or arrive as events) */
+    private volatile LocalDateTime loadedUntil;
+
+    public ReminderScheduler(JdbcTemplate jdbc,
+                             ReminderProperties props,
+                             ClinicShards shards,
+                             ObjectProvider<ReminderSender> sender) {
+        Duration longest = props.getBefore().stream().max(Comparator.naturalOrder()).orElse(Duration.ZERO);
+        if (props.getHorizon().compareTo(longest.plus(props.getLoadInterval())) <= 0) {
+            throw new IllegalStateException("medsys.reminders.horizon must exceed the longest reminder"
+                    + " plus load-interval (" + longest.plus(props.getLoadInterval()) + ")");
+        }
+        this.jdbc   = jdbc;
+        this.props  = props;
+        this.shards = shards;
+        this.sender = sender.getIfAvailable(LoggingReminderSender::new);
+        this.wheel  = new TimingWheel<>(props.getTick().toMillis(), LEVELS, System.currentTimeMillis());
+    }
+
+    /* ---------- loading ---------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        load();
+    }
+
+    @Scheduled(initialDelayString = "${medsys.reminders.load-interval:10m}",
+               fixedDelayString   = "${medsys.reminders.load-interval:10m}")
+    public void load() {
+        LocalDateTime now   = LocalDateTime.now();
+        LocalDateTime from  = loadedUntil == null ? now : loadedUntil;
+        LocalDateTime until = now.plus(props.getHorizon());
+        // published first: changes made while the slice is read are scheduled by their events
+        loadedUntil = until;
+
+        long started = System.nanoTime();
+        int[] loaded = {0};
+        shards.forEach(shard -> {
+            loaded[0] += loadSlice(shard, from, until);
+            jdbc.update(PURGE, Timestamp.valueOf(now.minus(props.getKeepSent())));
+        });
+        int pending;
+        synchronized (wheel) {
+            pending = wheel.size();
+        }
+        log.debug("Reminders: loaded {} appointments up to {} in {} ms, {} timers pending",
+                loaded[0], until, (System.nanoTime() - started) / 1_000_000, pending);
+    }
+
+    private int loadSlice(String shard, LocalDateTime from, LocalDateTime until) {
+        Timestamp lastDate = Timestamp.valueOf(from);
+        long lastId = 0;
+        int loaded = 0;
+        while (true) {
+            List<Pending> page = jdbc.query(LOAD,
+                    (rs, n) -> new Pending(shard, rs.getLong(1), null, rs.getTimestamp(2).toLocalDateTime()),
+                    Timestamp.valueOf(from), Timestamp.valueOf(until), lastDate, lastDate, lastId,
+                    props.getBatchSize());
+            if (page.isEmpty()) {
+                return loaded;
+            }
+            synchronized (wheel) {
+                for (Pending p : page) {
+                    // an event may already hold a fresher view of this appointment
+                    scheduleAll(shard, p.appointmentId(), p.appointmentDate(), true);
+                }
+            }
+            Pending last = page.get(page.size() - 1);
+            lastDate = Timestamp.valueOf(last.appointmentDate());
+            lastId   = last.appointmentId();
+            loaded  += page.size();
+        }
+    }
+
+    /** caller holds the wheel lock */
+    private void scheduleAll(String shard, long appointmentId, LocalDateTime date, boolean ifAbsent) {
+        long now = System.currentTimeMillis();
+        for (Duration before : props.getBefore()) {
+            long due = date.minus(before).atZone(ZONE).toInstant().toEpochMilli();
+            if (due < now - props.getMissedGrace().toMillis()) {
+                continue;
+            }
+            Key key = new Key(shard, appointmentId, before);
+            Pending value = new Pending(shard, appointmentId, before, date);
+            if (ifAbsent) {
+                wheel.scheduleIfAbsent(key, due, value);
+            } else {
+                wheel.schedule(key, due, value);
+            }
+        }
+    }
+
+    /* ---------- changes ---------- */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        String shard = ClinicContext.current();
+        LocalDateTime until = loadedUntil;
+        synchronized (wheel) {
+            for (Duration before : props.getBefore()) {
+                wheel.cancel(new Key(shard, event.appointmentId(), before));
+            }
+            if (event.status() == Status.ACCEPTED && until != null
+                    && event.appointmentDate().isBefore(until)) {
+                scheduleAll(shard, event.appointmentId(), event.appointmentDate(), false);
+            }
+        }
+    }
+
+    /* ---------- dispatch ---------- */
+
+    @Scheduled(fixedDelayString = "${medsys.reminders.tick:1s}")
+    public void dispatch() {
+        List<Pending> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+        Map<String, List<Pending>> byShard = new HashMap<>();
+        for (Pending p : due) {
+            byShard.computeIfAbsent(p.shard(), s -> new ArrayList<>()).add(p);
+        }
+        byShard.forEach((shard, pending) -> {
+            for (int i = 0; i < pending.size(); i += props.getBatchSize()) {
+                List<Pending> batch = pending.subList(i, Math.min(pending.size(), i + props.getBatchSize()));
+                ClinicContext.runIn(shard, () -> send(batch));
+            }
+        });
+    }
+
+    private void send(List<Pending> batch) {
+        Map<Long, AppointmentReminder> current = new HashMap<>();
+        Map<Long, Status> status = new HashMap<>();
+        jdbc.query(CURRENT.formatted(String.join(",", Collections.nCopies(batch.size(), "?"))), rs -> {
+            long id = rs.getLong(1);
+            status.put(id, Status.valueOf(rs.getString(3)));
+            current.put(id, new AppointmentReminder(id, rs.getTimestamp(2).toLocalDateTime(), null,
+                    rs.getString(4), rs.getString(5), rs.getString(6), rs.getString(7)));
+        }, batch.stream().map(Pending::appointmentId).toArray());
+
+        List<Pending> claimed = new ArrayList<>();
+        List<AppointmentReminder> reminders = new ArrayList<>();
+        for (Pending p : batch) {
+            AppointmentReminder now = current.get(p.appointmentId());
+            if (now == null || status.get(p.appointmentId()) != Status.ACCEPTED
+                    || !now.appointmentDate().equals(p.appointmentDate())) {
+                continue;   // deleted, denied or moved since the timer was set
+            }
+            // one row per reminder: whoever inserts it sends it (other nodes, or before a restart)
+            if (jdbc.update(CLAIM, claimArgs(p)) == 1) {
+                claimed.add(p);
+                reminders.add(new AppointmentReminder(p.appointmentId(), p.appointmentDate(), p.before(),
+                        now.patientUsername(), now.patientEmail(), now.doctorUsername(), now.doctorEmail()));
+            }
+        }
+        if (reminders.isEmpty()) {
+            return;
+        }
+        try {
+            sender.send(reminders);
+        } catch (Exception e) {
+            log.warn("Sending {} reminders failed, retrying in {}: {}",
+                    reminders.size(), props.getRetryDelay(), e.getMessage());
+            long retryAt = System.currentTimeMillis() + props.getRetryDelay().toMillis();
+            for (Pending p : claimed) {
+                jdbc.update(UNCLAIM, claimArgs(p));
+            }
+            synchronized (wheel) {
+                for (Pending p : claimed) {
+                    wheel.scheduleIfAbsent(new Key(p.shard(), p.appointmentId(), p.before()), retryAt, p);
+                }
+            }
+        }
+    }
+
+    private static Object[] claimArgs(Pending p) {
+        return new Object[]{p.appointmentId(), Timestamp.valueOf(p.appointmentDate()), p.before().toMinutes()};
+    }
+}
@@ -0,0 +1,15 @@
+package org.wp2.medsys.reminders;
+
+import java.util.List;
+
+/**
+ * Delivers reminders (mail, SMS, ...). Define a bean of this type to replace
+ * the {@link LoggingReminderSender} stand-in.
+ * <p>
+ * A batch either goes out or the call throws; a failed batch is retried
+ * after {@code medsys.reminders.retry-delay}.
+ */
+public interface ReminderSender {
+
+    void send(List<AppointmentReminder> batch) throws Exception;
+}
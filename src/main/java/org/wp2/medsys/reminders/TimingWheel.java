@@ -0,0 +1,174 @@
+package org.wp2.medsys.reminders;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel: {@code levels} wheels of 64 slots, level
+ * {@code n} slots spanning {@code 64^n} ticks. Scheduling and cancelling are
+ * O(1); a timer is moved down a level at most {@code levels - 1} times before
+ * it fires. With a 1 s tick four levels reach about 194 days.
+ * <p>
+ * Timers are keyed – scheduling an existing key replaces its timer. Cancelled
+ * timers are only unlinked from the key map and dropped when their slot comes
+ * round. Not thread-safe; callers synchronize.
+ */
+final class TimingWheel<K, V> {
+
+    private static final int BITS  = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK  = SLOTS - 1;
+
+    private static final class Timer<K, V> {
+        final K    key;
+        final V    value;
+        final long expiry;      // in ticks
+        boolean    cancelled;
+
+        Timer(K key, V value, long expiry) {
+            this.key    = key;
+            this.value  = value;
+            this.expiry = expiry;
+        }
+    }
+
+    private final long tickMillis;
+    private final int  levels;
+    private final List<Timer<K, V>>[][] wheel;
+    private final Map<K, Timer<K, V>>   timers  = new HashMap<>();
+    private final List<Timer<K, V>>     overdue = new ArrayList<>();
+
+    /** every timer expiring at or before this tick has been handed out */
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    TimingWheel(long tickMillis, int levels, long nowMillis) {
+        if (tickMillis <= 0 || levels < 1 || levels > 10) {
+            throw new IllegalArgumentException("tick " + tickMillis + " ms, " + levels + " levels");
+        }
+        this.tickMillis = tickMillis;
+        this.levels     = levels;
+        this.wheel      = new List[levels][SLOTS];
+        for (List<Timer<K, V>>[] level : wheel) {
+            for (int s = 0; s < SLOTS; s++) {
+                level[s] = new ArrayList<>();
+            }
+        }
+        this.tick = Math.floorDiv(nowMillis, tickMillis);
+    }
+
+    /** furthest a timer may lie ahead of the current time */
+    long spanMillis() {
+        return ((1L << (BITS * levels)) - 1) * tickMillis;
+    }
+
+    int size() {
+        return timers.size();
+    }
+
+    /**
+     * Schedules {@code value} for {@code dueMillis}, replacing any timer under
+     * {@code key}. A due time in the past fires on the next {@link #advance}.
+     *
+     * @return {@code false} if the due time lies beyond {@link #spanMillis()}
+     */
+    boolean schedule(K key, long dueMillis, V value) {
+        cancel(key);
+        Timer<K, V> timer = new Timer<>(key, value, -Math.floorDiv(-dueMillis, tickMillis));
+        if (!place(timer)) {
+            return false;
+        }
+        timers.put(key, timer);
+        return true;
+    }
+
+    /** like {@link #schedule}, but keeps an existing timer under {@code key} */
+    boolean scheduleIfAbsent(K key, long dueMillis, V value) {
+        return timers.containsKey(key) || schedule(key, dueMillis, value);
+    }
+
+    boolean cancel(K key) {
+        Timer<K, V> timer = timers.remove(key);
+        if (timer == null) {
+            return false;
+        }
+        timer.cancelled = true;
+        return true;
+    }
+
+    void clear() {
+        timers.values().forEach(t -> t.cancelled = true);
+        timers.clear();
+        overdue.clear();
+    }
+
+    /** moves the wheel to {@code nowMillis} and returns everything that fell due, in due order */
+    List<V> advance(long nowMillis) {
+        long target = Math.floorDiv(nowMillis, tickMillis);
+        List<V> due = new ArrayList<>();
+        drain(overdue, due);
+        while (tick < target) {
+            if (timers.isEmpty()) {
+                tick = target;      // nothing pending – jump instead of stepping
+                break;
+            }
+            tick++;
+            cascade();
+            int slot = (int) (tick & MASK);
+            List<Timer<K, V>> expired = wheel[0][slot];
+            wheel[0][slot] = new ArrayList<>();
+            drain(expired, due);
+            drain(overdue, due);
+        }
+        return due;
+    }
+
+    /* ---------- internals ---------- */
+
+    private boolean place(Timer<K, V> timer) {
+        long delta = timer.expiry - tick;
+        if (delta <= 0) {
+            overdue.add(timer);
+            return true;
+        }
+        for (int level = 0; level < levels; level++) {
+            if (delta < 1L << (BITS * (level + 1))) {
+                wheel[level][(int) ((timer.expiry >>> (BITS * level)) & MASK)].add(timer);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** on a level boundary, redistributes the next slot of each wrapping level, highest first */
+    private void cascade() {
+        int top = 0;
+        while (top + 1 < levels && (tick & ((1L << (BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            int slot = (int) ((tick >>> (BITS * level)) & MASK);
+            List<Timer<K, V>> moving = wheel[level][slot];
+            wheel[level][slot] = new ArrayList<>();
+            for (Timer<K, V> timer : moving) {
+                if (!timer.cancelled) {
+                    place(timer);
+                }
+            }
+        }
+    }
+
+    private void drain(List<Timer<K, V>> from, List<V> into) {
+        for (Timer<K, V> timer : from) {
+            if (!timer.cancelled) {
+                timers.remove(timer.key);
+                into.add(timer.value);
+            }
+        }
+        if (from == overdue) {
+            overdue.clear();
+        }
+    }
+}
@@ -1,6 +1,73 @@
 package org.wp2.medsys.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.AppointmentChange;
+import org.wp2.medsys.DTO.AppointmentView;
 import org.wp2.medsys.domain.Appointment;
 
-public interface AppointmentRepository    extends JpaRepository<Appointment,Long> {}
\ No newline at end of file
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AppointmentRepository    extends JpaRepository<Appointment,Long> {
+
+    String VIEW = "select new org.wp2.medsys.DTO.AppointmentView(a.id, a.appointmentDate, a.status, a.scheduleReason,"
+            + " p.id, p.username, d.id, d.username, d.spec)"
+            + " from Appointment a join a.patient p join a.doctor d";
+
+    @Query(VIEW + " where p.id = :patientId and a.id > :afterId order by a.id")
+    List<AppointmentView> findViewsByPatient(@Param("patientId") Long patientId,
+                                             @Param("afterId") long afterId,
+                                             Pageable page);
+
+    @Query(VIEW + " where d.id = :doctorId and a.id > :afterId order by a.id")
+    List<AppointmentView> findViewsByDoctor(@Param("doctorId") Long doctorId,
+                                            @Param("afterId") long afterId,
+                                            Pageable page);
+
+    String UPCOMING = " and a.appointmentDate >= :from"
+            + " and a.status in (org.wp2.medsys.domain.Status.PENDING, org.wp2.medsys.domain.Status.ACCEPTED)"
+            + " order by a.appointmentDate";
+
+    /** pending or accepted appointments from {@code from} on, soonest first */
+    @Query(VIEW + " where p.id = :patientId" + UPCOMING)
+    List<AppointmentView> findUpcomingByPatient(@Param("patientId") Long patientId,
+                                                @Param("from") LocalDateTime from,
+                                                Pageable page);
+
+    @Query(VIEW + " where d.id = :doctorId" + UPCOMING)
+    List<AppointmentView> findUpcomingByDoctor(@Param("doctorId") Long doctorId,
+                                               @Param("from") LocalDateTime from,
+                                               Pageable page);
+
+    /** start times of a doctor's pending and accepted appointments in {@code [from, to)} */
+    @Query("select a.appointmentDate from Appointment a where a.doctor.id = :doctorId"
+            + " and a.appointmentDate >= :from and a.appointmentDate < :to"
+            + " and a.status in (org.wp2.medsys.domain.Status.PENDING, org.wp2.medsys.domain.Status.ACCEPTED)")
+    List<LocalDateTime> findBusyDatesByDoctor(@Param("doctorId") Long doctorId,
+                                              @Param("from") LocalDateTime from,
+                                              @Param("to") LocalDateTime to);
+
+    @Query("select count(a) from Appointment a where a.patient.id = :patientId"
+            + " and a.status = org.wp2.medsys.domain.Status.PENDING")
+    long countPendingByPatient(@Param("patientId") Long patientId);
+
+    @Query("select count(a) from Appointment a where a.doctor.id = :doctorId"
+            + " and a.status = org.wp2.medsys.domain.Status.PENDING")
+    long countPendingByDoctor(@Param("doctorId") Long doctorId);
+
+    /**
+     * change feed: rows changed in [{@code since}, {@code until}), in (changedAt, id) order,
+     * continuing after {@code afterId} among those changed exactly at {@code since}
+     */
+    @Query("select new org.wp2.medsys.DTO.AppointmentChange(a.id, a.changedAt, a.appointmentDate, a.status,"
+            + " a.scheduleReason, a.patient.id, a.doctor.id, a.seriesId) from Appointment a"
+            + " where a.changedAt >= :since and (a.changedAt > :since or a.id > :afterId)"
+            + " and a.changedAt < :until order by a.changedAt, a.id")
+    List<AppointmentChange> findChanges(@Param("since") LocalDateTime since,
+                                        @Param("afterId") long afterId,
+                                        @Param("until") LocalDateTime until,
+                                        Pageable page);
+}
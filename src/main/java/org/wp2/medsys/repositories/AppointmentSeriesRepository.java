@@ -0,0 +1,27 @@
+package org.wp2.medsys.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.domain.AppointmentSeries;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface AppointmentSeriesRepository extends JpaRepository<AppointmentSeries, Long> {
+
+    /** series still running at {@code from} that started before {@code to}, exceptions and names loaded */
+    @Query("select distinct s from AppointmentSeries s join fetch s.patient join fetch s.doctor"
+            + " left join fetch s.exceptions"
+            + " where s.doctor.id = :doctorId and s.lastDate >= :from and s.firstDate < :to")
+    List<AppointmentSeries> findByDoctorInWindow(@Param("doctorId") Long doctorId,
+                                                 @Param("from") LocalDateTime from,
+                                                 @Param("to") LocalDateTime to);
+
+    @Query("select distinct s from AppointmentSeries s join fetch s.patient join fetch s.doctor"
+            + " left join fetch s.exceptions"
+            + " where s.patient.id = :patientId and s.lastDate >= :from and s.firstDate < :to")
+    List<AppointmentSeries> findByPatientInWindow(@Param("patientId") Long patientId,
+                                                  @Param("from") LocalDateTime from,
+                                                  @Param("to") LocalDateTime to);
+}
@@ -1,6 +1,17 @@
 package org.wp2.medsys.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.DoctorView;
 import org.wp2.medsys.domain.Doctor;
 
-public interface DoctorRepository      extends JpaRepository<Doctor,Long> {}
\ No newline at end of file
+import java.util.List;
+
+public interface DoctorRepository      extends JpaRepository<Doctor,Long> {
+
+    @Query("select new org.wp2.medsys.DTO.DoctorView(d.id, d.username, d.spec)"
+            + " from Doctor d where d.id > :afterId order by d.id")
+    List<DoctorView> findDirectory(@Param("afterId") long afterId, Pageable page);
+}
@@ -1,6 +1,47 @@
 package org.wp2.medsys.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.MedicalRecordChange;
+import org.wp2.medsys.DTO.MedicalRecordView;
 import org.wp2.medsys.domain.MedicalRecord;
 
-public interface MedicalRecordRepository  extends JpaRepository<MedicalRecord,Long> {}
\ No newline at end of file
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface MedicalRecordRepository  extends JpaRepository<MedicalRecord,Long> {
+
+    String VIEW = "select new org.wp2.medsys.DTO.MedicalRecordView(r.id, r.createdAt, r.title, r.notes,"
+            + " p.id, p.username, d.id, d.username, d.spec)"
+            + " from MedicalRecord r join r.patient p join r.doctor d";
+
+    /** one keyset page of a doctor's records, ids ascending */
+    @Query(VIEW + " where d.id = :doctorId and r.id > :afterId order by r.id")
+    List<MedicalRecordView> findViewsByDoctor(@Param("doctorId") Long doctorId,
+                                              @Param("afterId") long afterId,
+                                              Pageable page);
+
+    @Query(VIEW + " where p.id = :patientId and r.id > :afterId order by r.id")
+    List<MedicalRecordView> findViewsByPatient(@Param("patientId") Long patientId,
+                                               @Param("afterId") long afterId,
+                                               Pageable page);
+
+    /** newest first */
+    @Query(VIEW + " where p.id = :patientId order by r.id desc")
+    List<MedicalRecordView> findRecentViewsByPatient(@Param("patientId") Long patientId, Pageable page);
+
+    @Query(VIEW + " where d.id = :doctorId order by r.id desc")
+    List<MedicalRecordView> findRecentViewsByDoctor(@Param("doctorId") Long doctorId, Pageable page);
+
+    /** change feed page, see {@link AppointmentRepository#findChanges} */
+    @Query("select new org.wp2.medsys.DTO.MedicalRecordChange(r.id, r.changedAt, r.createdAt, r.title, r.notes,"
+            + " r.patient.id, r.doctor.id) from MedicalRecord r"
+            + " where r.changedAt >= :since and (r.changedAt > :since or r.id > :afterId)"
+            + " and r.changedAt < :until order by r.changedAt, r.id")
+    List<MedicalRecordChange> findChanges(@Param("since") LocalDateTime since,
+                                          @Param("afterId") long afterId,
+                                          @Param("until") LocalDateTime until,
+                                          Pageable page);
+}
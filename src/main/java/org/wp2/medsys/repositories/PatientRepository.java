@@ -1,6 +1,17 @@
 package org.wp2.medsys.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.PatientOption;
 import org.wp2.medsys.domain.Patient;
 
-public interface PatientRepository     extends JpaRepository<Patient,Long> {}
\ No newline at end of file
+import java.util.List;
+
+public interface PatientRepository     extends JpaRepository<Patient,Long> {
+
+    @Query("select new org.wp2.medsys.DTO.PatientOption(p.id, p.username)"
+            + " from Patient p where p.id > :afterId order by p.id")
+    List<PatientOption> findOptions(@Param("afterId") long afterId, Pageable page);
+}
@@ -1,6 +1,56 @@
 package org.wp2.medsys.repositories;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.PrescriptionChange;
+import org.wp2.medsys.DTO.PrescriptionView;
 import org.wp2.medsys.domain.Prescription;
 
-public interface PrescriptionRepository   extends JpaRepository<Prescription,Long> {}
\ No newline at end of file
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface PrescriptionRepository   extends JpaRepository<Prescription,Long> {
+
+    String VIEW = "select new org.wp2.medsys.DTO.PrescriptionView(p.id, p.issueDate, p.medication, p.dosage, p.notes,"
+            + " pt.id, pt.username, d.id, d.username, d.spec)"
+            + " from Prescription p join p.patient pt join p.doctor d";
+
+    /** one keyset page of a doctor's prescriptions, ids ascending */
+    @Query(VIEW + " where d.id = :doctorId and p.id > :afterId order by p.id")
+    List<PrescriptionView> findViewsByDoctor(@Param("doctorId") Long doctorId,
+                                             @Param("afterId") long afterId,
+                                             Pageable page);
+
+    @Query(VIEW + " where pt.id = :patientId and p.id > :afterId order by p.id")
+    List<PrescriptionView> findViewsByPatient(@Param("patientId") Long patientId,
+                                              @Param("afterId") long afterId,
+                                              Pageable page);
+
+    /** prescriptions issued on or after {@code since}, newest first */
+    @Query(VIEW + " where pt.id = :patientId and p.issueDate >= :since order by p.issueDate desc, p.id desc")
+    List<PrescriptionView> findActiveViewsByPatient(@Param("patientId") Long patientId,
+                                                    @Param("since") LocalDate since,
+                                                    Pageable page);
+
+    @Query(VIEW + " where d.id = :doctorId and p.issueDate >= :since order by p.issueDate desc, p.id desc")
+    List<PrescriptionView> findActiveViewsByDoctor(@Param("doctorId") Long doctorId,
+                                                   @Param("since") LocalDate since,
+                                                   Pageable page);
+
+    /** medications issued to a patient on or after {@code since} */
+    @Query("select distinct p.medication from Prescription p where p.patient.id = :patientId and p.issueDate >= :since")
+    List<String> findMedicationsSince(@Param("patientId") Long patientId, @Param("since") LocalDate since);
+
+    /** change feed page, see {@link AppointmentRepository#findChanges} */
+    @Query("select new org.wp2.medsys.DTO.PrescriptionChange(p.id, p.changedAt, p.issueDate, p.medication,"
+            + " p.dosage, p.notes, p.patient.id, p.doctor.id) from Prescription p"
+            + " where p.changedAt >= :since and (p.changedAt > :since or p.id > :afterId)"
+            + " and p.changedAt < :until order by p.changedAt, p.id")
+    List<PrescriptionChange> findChanges(@Param("since") LocalDateTime since,
+                                         @Param("afterId") long afterId,
+                                         @Param("until") LocalDateTime until,
+                                         Pageable page);
+}
@@ -1,10 +1,27 @@
 package org.wp2.medsys.repositories;
 
-import org.wp2.medsys.domain.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.wp2.medsys.DTO.UserChange;
+import org.wp2.medsys.domain.User;
 
+import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByUsername(String username);
+    boolean existsByUsername(String username);
+    boolean existsByEmail(String email);
+
+    /** change feed page, see {@link AppointmentRepository#findChanges} */
+    @Query("select new org.wp2.medsys.DTO.UserChange(u.id, u.changedAt, u.role, u.username, u.createdAt) from User u"
+            + " where u.changedAt >= :since and (u.changedAt > :since or u.id > :afterId)"
+            + " and u.changedAt < :until order by u.changedAt, u.id")
+    List<UserChange> findChanges(@Param("since") LocalDateTime since,
+                                 @Param("afterId") long afterId,
+                                 @Param("until") LocalDateTime until,
+                                 Pageable page);
 }
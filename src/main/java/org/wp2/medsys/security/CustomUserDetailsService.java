@@ -4,19 +4,23 @@ package org.wp2.medsys.security;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.userdetails.*;
 import org.springframework.stereotype.Service;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.clinics.ClinicDirectory;
 import org.wp2.medsys.repositories.UserRepository;
 
 @Service
 @RequiredArgsConstructor
 public class CustomUserDetailsService implements UserDetailsService {
 
-    private final UserRepository users;
+    private final UserRepository  users;
+    private final ClinicDirectory clinics;
 
     @Override
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
 
-        return users.findByUsername(username)
+        // runs before the clinic filter, so pick the user's shard here
+        return ClinicContext.callIn(clinics.shardFor(username), () -> users.findByUsername(username))
                 .map(CustomUserDetails::new)
                 .orElseThrow(() ->
                         new UsernameNotFoundException("No user " + username));
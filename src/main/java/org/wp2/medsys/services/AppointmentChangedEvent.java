@@ -0,0 +1,17 @@
+package org.wp2.medsys.services;
+
+import org.wp2.medsys.domain.Status;
+
+import java.time.LocalDateTime;
+
+/**
+ * Published by {@link AppointmentService} after an appointment is created,
+ * updated or deleted. {@code status} (and {@code doctorId}) are {@code null}
+ * for a deletion.
+ */
+public record AppointmentChangedEvent(long appointmentId, Long doctorId, LocalDateTime appointmentDate, Status status) {
+
+    public static AppointmentChangedEvent deleted(long appointmentId) {
+        return new AppointmentChangedEvent(appointmentId, null, null, null);
+    }
+}
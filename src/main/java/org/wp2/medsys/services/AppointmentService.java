@@ -1,5 +1,6 @@
 package org.wp2.medsys.services;
 
+import org.wp2.medsys.DTO.AppointmentView;
 import org.wp2.medsys.domain.Appointment;
 
 import java.util.List;
@@ -12,4 +13,7 @@ public interface AppointmentService {
     void deleteById(Long id);
 
     void deleteAll();
+
+    List<AppointmentView> findPageByPatient(Long patientId, long afterId, int limit);
+    List<AppointmentView> findPageByDoctor(Long doctorId, long afterId, int limit);
 }
@@ -1,6 +1,9 @@
 package org.wp2.medsys.services;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.wp2.medsys.DTO.AppointmentView;
 import org.wp2.medsys.domain.Appointment;
 import org.wp2.medsys.repositories.AppointmentRepository;
 
@@ -9,10 +12,12 @@ import java.util.List;
 @Service
 public class AppointmentServiceImpl implements AppointmentService {
 
-    private final AppointmentRepository repo;
+    private final AppointmentRepository     repo;
+    private final ApplicationEventPublisher events;
 
-    public AppointmentServiceImpl(AppointmentRepository repo) {
-        this.repo = repo;
+    public AppointmentServiceImpl(AppointmentRepository repo, ApplicationEventPublisher events) {
+        this.repo   = repo;
+        this.events = events;
     }
 
     @Override
@@ -28,7 +33,7 @@ public class AppointmentServiceImpl implements AppointmentService {
 
     @Override
     public Appointment create(Appointment appointment) {
-        return repo.save(appointment);
+        return changed(repo.save(appointment));
     }
 
     @Override
@@ -36,16 +41,34 @@ public class AppointmentServiceImpl implements AppointmentService {
         if (!repo.existsById(appointment.getId())) {
             throw new IllegalArgumentException("Cannot update non‐existent appointment: " + appointment.getId());
         }
-        return repo.save(appointment);
+        return changed(repo.save(appointment));
     }
 
     @Override
     public void deleteById(Long id) {
         repo.deleteById(id);
+        events.publishEvent(AppointmentChangedEvent.deleted(id));
     }
 
     @Override
     public void deleteAll() {
         repo.deleteAll();
     }
+
+    @Override
+    public List<AppointmentView> findPageByPatient(Long patientId, long afterId, int limit) {
+        return repo.findViewsByPatient(patientId, afterId, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    public List<AppointmentView> findPageByDoctor(Long doctorId, long afterId, int limit) {
+        return repo.findViewsByDoctor(doctorId, afterId, PageRequest.ofSize(limit));
+    }
+
+    private Appointment changed(Appointment saved) {
+        Long doctorId = saved.getDoctor() == null ? null : saved.getDoctor().getId();
+        events.publishEvent(new AppointmentChangedEvent(
+                saved.getId(), doctorId, saved.getAppointmentDate(), saved.getStatus()));
+        return saved;
+    }
 }
@@ -0,0 +1,111 @@
+package org.wp2.medsys.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.wp2.medsys.DTO.BatchItemResult;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Shared plumbing for the {@code createAll} batch writes: item validation,
+ * the one-time patient check and a JDBC batch insert that hands back the
+ * generated ids.
+ */
+final class BatchInserts {
+
+    /** upper bound per request – a regimen, not a data import */
+    static final int MAX_ITEMS = 50;
+
+    private BatchInserts() {}
+
+    @FunctionalInterface
+    interface Validator<T> {
+        /** @return an error message, or {@code null} if the item is fine */
+        String check(T item);
+    }
+
+    @FunctionalInterface
+    interface Binder<T> {
+        void bind(PreparedStatement ps, T item) throws SQLException;
+    }
+
+    /**
+     * Validates every item before anything is written.
+     *
+     * @return the per-item failures (all-null ids), or an empty list if the batch may proceed
+     */
+    static <T> List<BatchItemResult> validate(List<T> items, Validator<T> validator) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("Nothing to save");
+        }
+        if (items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("At most " + MAX_ITEMS + " items per request");
+        }
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        boolean failed = false;
+        for (int i = 0; i < items.size(); i++) {
+            String error = validator.check(items.get(i));
+            failed |= error != null;
+            results.add(new BatchItemResult(i, null, error));
+        }
+        return failed ? results : List.of();
+    }
+
+    static void requirePatient(JdbcTemplate jdbc, Long patientId) {
+        Integer n = jdbc.queryForObject(
+                "SELECT COUNT(*) FROM users WHERE id = ? AND role = 'PATIENT'", Integer.class, patientId);
+        if (n == null || n == 0) {
+            throw new EntityNotFoundException("Patient not found: " + patientId);
+        }
+    }
+
+    /** one JDBC batch; must run inside the caller's transaction */
+    static <T> List<BatchItemResult> insert(JdbcTemplate jdbc, String sql, List<T> items, Binder<T> binder) {
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbc.batchUpdate(
+                con -> con.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS),
+                new BatchPreparedStatementSetter() {
+                    @Override public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        binder.bind(ps, items.get(i));
+                    }
+                    @Override public int getBatchSize() {
+                        return items.size();
+                    }
+                },
+                keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        if (generated.size() != items.size()) {
+            throw new IllegalStateException(
+                    "Expected " + items.size() + " generated ids, got " + generated.size());
+        }
+        List<BatchItemResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            Number id = (Number) generated.get(i).values().iterator().next();
+            results.add(new BatchItemResult(i, id.longValue(), null));
+        }
+        return results;
+    }
+
+    static String required(String value, String field, int maxLength) {
+        if (value == null || value.isBlank()) {
+            return field + " is required";
+        }
+        if (value.length() > maxLength) {
+            return field + " is longer than " + maxLength + " characters";
+        }
+        return null;
+    }
+
+    static String blankToNull(String s) {
+        return s == null || s.isBlank() ? null : s;
+    }
+}
@@ -1,6 +1,7 @@
 
 package org.wp2.medsys.services;
 
+import org.wp2.medsys.DTO.DoctorView;
 import org.wp2.medsys.domain.Doctor;
 
 import java.util.List;
@@ -12,4 +13,5 @@ public interface DoctorService {
     Doctor update(Doctor doctor);
     void deleteById(Long id);
     void deleteAll();
+    List<DoctorView> findDirectoryPage(long afterId, int limit);
 }
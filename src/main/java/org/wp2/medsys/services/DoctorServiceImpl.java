@@ -1,7 +1,9 @@
 
 package org.wp2.medsys.services;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.wp2.medsys.DTO.DoctorView;
 import org.wp2.medsys.domain.Doctor;
 import org.wp2.medsys.repositories.DoctorRepository;
 
@@ -51,4 +53,9 @@ public class DoctorServiceImpl implements DoctorService {
     public void deleteAll() {
         repo.deleteAll();
     }
+
+    @Override
+    public List<DoctorView> findDirectoryPage(long afterId, int limit) {
+        return repo.findDirectory(afterId, PageRequest.ofSize(limit));
+    }
 }
@@ -1,11 +1,24 @@
 
 package org.wp2.medsys.services;
 
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.MedicalRecordItemDTO;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.domain.Doctor;
 import org.wp2.medsys.domain.MedicalRecord;
 import java.util.List;
 
 public interface MedicalRecordService {
     MedicalRecord create(MedicalRecord r);
+
+    /**
+     * Adds all {@code items} to one patient's file in a single transaction.
+     * Nothing is written unless every item is valid; see {@link BatchItemResult}.
+     */
+    List<BatchItemResult> createAll(Doctor doctor, Long patientId, List<MedicalRecordItemDTO> items);
+
     List<MedicalRecord> findAll();
     void deleteAll();
+    List<MedicalRecordView> findPageByDoctor(Long doctorId, long afterId, int limit);
+    List<MedicalRecordView> findPageByPatient(Long patientId, long afterId, int limit);
 }
@@ -1,17 +1,74 @@
-
 package org.wp2.medsys.services;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.MedicalRecordItemDTO;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.domain.Doctor;
 import org.wp2.medsys.domain.MedicalRecord;
 import org.wp2.medsys.repositories.MedicalRecordRepository;
 import org.wp2.medsys.services.MedicalRecordService;
+import org.wp2.medsys.storage.NotesCodec;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Service
 public class MedicalRecordServiceImpl implements MedicalRecordService {
+    private static final String INSERT =
+            "INSERT INTO medical_records (created_at, title, notes, patient_id, doctor_id)"
+            + " VALUES (?, ?, ?, ?, ?)";
+
     private final MedicalRecordRepository repo;
-    public MedicalRecordServiceImpl(MedicalRecordRepository repo) { this.repo = repo; }
-    @Override public MedicalRecord create(MedicalRecord r)   { return repo.save(r); }
+    private final JdbcTemplate jdbc;
+    private final NotesCodec notesCodec;
+    private final ApplicationEventPublisher events;
+    public MedicalRecordServiceImpl(MedicalRecordRepository repo, JdbcTemplate jdbc, NotesCodec notesCodec,
+                                    ApplicationEventPublisher events) {
+        this.repo = repo;
+        this.jdbc = jdbc;
+        this.notesCodec = notesCodec;
+        this.events = events;
+    }
+    @Override public MedicalRecord create(MedicalRecord r) {
+        MedicalRecord saved = repo.save(r);
+        events.publishEvent(new PatientHistoryChangedEvent(saved.getPatient().getId()));
+        return saved;
+    }
     @Override public List<MedicalRecord> findAll()           { return repo.findAll(); }
     @Override public void deleteAll()                        { repo.deleteAll(); }
+    @Override public List<MedicalRecordView> findPageByDoctor(Long doctorId, long afterId, int limit) {
+        return repo.findViewsByDoctor(doctorId, afterId, PageRequest.ofSize(limit));
+    }
+    @Override public List<MedicalRecordView> findPageByPatient(Long patientId, long afterId, int limit) {
+        return repo.findViewsByPatient(patientId, afterId, PageRequest.ofSize(limit));
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createAll(Doctor doctor, Long patientId, List<MedicalRecordItemDTO> items) {
+        List<BatchItemResult> invalid = BatchInserts.validate(items, item -> {
+            String error = BatchInserts.required(item.title(), "Title", 255);
+            return error != null ? error : BatchInserts.required(item.notes(), "Notes", 65_535);
+        });
+        if (!invalid.isEmpty()) {
+            return invalid;
+        }
+        BatchInserts.requirePatient(jdbc, patientId);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        events.publishEvent(new PatientHistoryChangedEvent(patientId));
+        return BatchInserts.insert(jdbc, INSERT, items, (ps, item) -> {
+            ps.setTimestamp(1, now);
+            ps.setString(2, item.title().trim());
+            ps.setBytes(3, notesCodec.encode(item.notes()));
+            ps.setLong(4, patientId);
+            ps.setLong(5, doctor.getId());
+        });
+    }
 }
@@ -0,0 +1,7 @@
+package org.wp2.medsys.services;
+
+/**
+ * Published by {@link MedicalRecordService} and {@link PrescriptionService}
+ * after rows were added to a patient's file.
+ */
+public record PatientHistoryChangedEvent(long patientId) {}
@@ -1,5 +1,6 @@
 package org.wp2.medsys.services;
 
+import org.wp2.medsys.DTO.PatientOption;
 import org.wp2.medsys.domain.Patient;
 
 import java.util.List;
@@ -10,4 +11,5 @@ public interface PatientService {
     Patient create(Patient patient);
     Patient update(Patient patient);
     void deleteById(Long id);
-    void deleteAll(); }
+    void deleteAll();
+    List<PatientOption> findOptionsPage(long afterId, int limit); }
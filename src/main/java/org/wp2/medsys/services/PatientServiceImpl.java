@@ -1,7 +1,9 @@
 package org.wp2.medsys.services;
 
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.wp2.medsys.DTO.PatientOption;
 import org.wp2.medsys.domain.Patient;
 import org.wp2.medsys.repositories.PatientRepository;
 
@@ -54,4 +56,9 @@ public class PatientServiceImpl implements PatientService {
     public void deleteAll() {
         repo.deleteAll();
     }
+
+    @Override
+    public List<PatientOption> findOptionsPage(long afterId, int limit) {
+        return repo.findOptions(afterId, PageRequest.ofSize(limit));
+    }
 }
@@ -1,11 +1,29 @@
 
 package org.wp2.medsys.services;
 
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.PrescriptionItemDTO;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.domain.Doctor;
 import org.wp2.medsys.domain.Prescription;
+
+import java.time.LocalDate;
 import java.util.List;
 
 public interface PrescriptionService {
     Prescription create(Prescription p);
+
+    /**
+     * Issues all {@code items} to one patient in a single transaction. Nothing is
+     * written unless every item is valid; see {@link BatchItemResult}.
+     */
+    List<BatchItemResult> createAll(Doctor doctor, Long patientId, List<PrescriptionItemDTO> items);
+
     List<Prescription> findAll();
     void deleteAll();
+    List<PrescriptionView> findPageByDoctor(Long doctorId, long afterId, int limit);
+    List<PrescriptionView> findPageByPatient(Long patientId, long afterId, int limit);
+
+    /** distinct medications prescribed to the patient since {@code since}, the basis of interaction checks */
+    List<String> findCurrentMedications(Long patientId, LocalDate since);
 }
@@ -1,17 +1,78 @@
-
 package org.wp2.medsys.services;
 
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.PrescriptionItemDTO;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.domain.Doctor;
 import org.wp2.medsys.domain.Prescription;
 import org.wp2.medsys.repositories.PrescriptionRepository;
 import org.wp2.medsys.services.PrescriptionService;
+import org.wp2.medsys.storage.NotesCodec;
+
+import java.sql.Date;
+import java.time.LocalDate;
 import java.util.List;
 
 @Service
 public class PrescriptionServiceImpl implements PrescriptionService {
+    private static final String INSERT =
+            "INSERT INTO prescriptions (issue_date, medication, dosage, notes, patient_id, doctor_id)"
+            + " VALUES (?, ?, ?, ?, ?, ?)";
+
     private final PrescriptionRepository repo;
-    public PrescriptionServiceImpl(PrescriptionRepository repo) { this.repo = repo; }
-    @Override public Prescription create(Prescription p)      { return repo.save(p); }
+    private final JdbcTemplate jdbc;
+    private final NotesCodec notesCodec;
+    private final ApplicationEventPublisher events;
+    public PrescriptionServiceImpl(PrescriptionRepository repo, JdbcTemplate jdbc, NotesCodec notesCodec,
+                                   ApplicationEventPublisher events) {
+        this.repo = repo;
+        this.jdbc = jdbc;
+        this.notesCodec = notesCodec;
+        this.events = events;
+    }
+    @Override public Prescription create(Prescription p) {
+        Prescription saved = repo.save(p);
+        events.publishEvent(new PatientHistoryChangedEvent(saved.getPatient().getId()));
+        return saved;
+    }
     @Override public List<Prescription> findAll()             { return repo.findAll(); }
     @Override public void deleteAll()                         { repo.deleteAll(); }
+    @Override public List<PrescriptionView> findPageByDoctor(Long doctorId, long afterId, int limit) {
+        return repo.findViewsByDoctor(doctorId, afterId, PageRequest.ofSize(limit));
+    }
+    @Override public List<PrescriptionView> findPageByPatient(Long patientId, long afterId, int limit) {
+        return repo.findViewsByPatient(patientId, afterId, PageRequest.ofSize(limit));
+    }
+    @Override public List<String> findCurrentMedications(Long patientId, LocalDate since) {
+        return repo.findMedicationsSince(patientId, since);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> createAll(Doctor doctor, Long patientId, List<PrescriptionItemDTO> items) {
+        List<BatchItemResult> invalid = BatchInserts.validate(items, item -> {
+            String error = BatchInserts.required(item.medication(), "Medication", 255);
+            return error != null ? error : BatchInserts.required(item.dosage(), "Dosage", 100);
+        });
+        if (!invalid.isEmpty()) {
+            return invalid;
+        }
+        BatchInserts.requirePatient(jdbc, patientId);
+
+        Date today = Date.valueOf(LocalDate.now());
+        events.publishEvent(new PatientHistoryChangedEvent(patientId));
+        return BatchInserts.insert(jdbc, INSERT, items, (ps, item) -> {
+            ps.setDate(1, today);
+            ps.setString(2, item.medication().trim());
+            ps.setString(3, item.dosage().trim());
+            ps.setBytes(4, notesCodec.encode(BatchInserts.blankToNull(item.notes())));
+            ps.setLong(5, patientId);
+            ps.setLong(6, doctor.getId());
+        });
+    }
 }
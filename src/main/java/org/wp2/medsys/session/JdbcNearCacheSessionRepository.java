@@ -0,0 +1,230 @@
+package org.wp2.medsys.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.session.MapSession;
+import org.springframework.session.SessionRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session repository backed by the {@code app_sessions} table, with a small
+ * per-node near-cache in front of it.
+ * <p>
+ * <ul>
+ *   <li>Reads are served from the near-cache while the entry is younger than
+ *       {@code near-cache-ttl}; only then does a node go back to the database.</li>
+ *   <li>Saves compare the encoded attributes with the cached copy. If only the
+ *       last-access time moved (the usual case for a page view) the update is
+ *       buffered and flushed in one JDBC batch every {@code flush-interval}.</li>
+ *   <li>Attribute changes (login, CSRF token, logout) are written through.</li>
+ * </ul>
+ * Every node sees a logout on another node within {@code near-cache-ttl} at worst.
+ */
+@Slf4j
+public class JdbcNearCacheSessionRepository implements SessionRepository<MapSession> {
+
+    private static final String SELECT =
+            "SELECT created_at, last_access, max_inactive, attributes FROM app_sessions WHERE id = ?";
+    private static final String UPSERT =
+            "INSERT INTO app_sessions (id, principal_name, created_at, last_access, max_inactive, expiry_time, attributes)"
+            + " VALUES (?, ?, ?, ?, ?, ?, ?)"
+            + " ON DUPLICATE KEY UPDATE principal_name = VALUES(principal_name),"
+            + " last_access = VALUES(last_access), max_inactive = VALUES(max_inactive),"
+            + " expiry_time = VALUES(expiry_time), attributes = VALUES(attributes)";
+    private static final String TOUCH =
+            "UPDATE app_sessions SET last_access = ?, expiry_time = ? + max_inactive * 1000 WHERE id = ?";
+    private static final String DELETE  = "DELETE FROM app_sessions WHERE id = ?";
+    private static final String PURGE   = "DELETE FROM app_sessions WHERE expiry_time < ?";
+
+    private static final String SECURITY_CONTEXT = "SPRING_SECURITY_CONTEXT";
+
+    /** immutable snapshot of what this node last wrote or read */
+    private record Cached(MapSession session, byte[] attributes, long cachedAt) {}
+
+    private final JdbcTemplate           jdbc;
+    private final SessionStoreProperties props;
+
+    private final ConcurrentHashMap<String, Cached> nearCache      = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long>   pendingTouches = new ConcurrentHashMap<>();
+
+    public JdbcNearCacheSessionRepository(JdbcTemplate           jdbc,
+                                          SessionStoreProperties props,
+                                          TaskScheduler          scheduler) {
+        this.jdbc  = jdbc;
+        this.props = props;
+        scheduler.scheduleWithFixedDelay(this::flushTouches, props.getFlushInterval());
+        scheduler.scheduleWithFixedDelay(this::purgeExpired, props.getCleanupInterval());
+    }
+
+    /* ====================================================================== */
+    /*  SessionRepository                                                     */
+    /* ====================================================================== */
+
+    @Override
+    public MapSession createSession() {
+        MapSession session = new MapSession();
+        session.setMaxInactiveInterval(props.getMaxInactiveInterval());
+        return session;
+    }
+
+    @Override
+    public void save(MapSession session) {
+        String id = session.getId();
+        if (!id.equals(session.getOriginalId())) {
+            // id rotated on login (session fixation protection) – drop the old row
+            deleteById(session.getOriginalId());
+        }
+
+        byte[] attributes = SessionAttributeCodec.encode(attributesOf(session));
+        Cached cached = nearCache.get(id);
+
+        if (cached != null
+                && Arrays.equals(cached.attributes(), attributes)
+                && cached.session().getMaxInactiveInterval().equals(session.getMaxInactiveInterval())) {
+            pendingTouches.put(id, session.getLastAccessedTime().toEpochMilli());
+        } else {
+            long lastAccess = session.getLastAccessedTime().toEpochMilli();
+            jdbc.update(UPSERT,
+                    id,
+                    principalName(session),
+                    session.getCreationTime().toEpochMilli(),
+                    lastAccess,
+                    (int) session.getMaxInactiveInterval().toSeconds(),
+                    lastAccess + session.getMaxInactiveInterval().toMillis(),
+                    attributes);
+            pendingTouches.remove(id);
+        }
+        cache(session, attributes);
+    }
+
+    @Override
+    public MapSession findById(String id) {
+        long now = System.currentTimeMillis();
+        Cached cached = nearCache.get(id);
+        if (cached != null && now - cached.cachedAt() < props.getNearCacheTtl().toMillis()) {
+            return alive(new MapSession(cached.session()));
+        }
+
+        List<MapSession> rows = jdbc.query(SELECT, (rs, n) -> {
+            MapSession s = new MapSession(id);
+            s.setCreationTime(Instant.ofEpochMilli(rs.getLong("created_at")));
+            s.setLastAccessedTime(Instant.ofEpochMilli(rs.getLong("last_access")));
+            s.setMaxInactiveInterval(Duration.ofSeconds(rs.getInt("max_inactive")));
+            SessionAttributeCodec.decode(rs.getBytes("attributes")).forEach(s::setAttribute);
+            return s;
+        }, id);
+        if (rows.isEmpty()) {
+            nearCache.remove(id);
+            return null;
+        }
+
+        MapSession session = rows.get(0);
+        Long buffered = pendingTouches.get(id);
+        if (buffered != null && buffered > session.getLastAccessedTime().toEpochMilli()) {
+            session.setLastAccessedTime(Instant.ofEpochMilli(buffered));
+        }
+        cache(session, SessionAttributeCodec.encode(attributesOf(session)));
+        return alive(new MapSession(session));
+    }
+
+    @Override
+    public void deleteById(String id) {
+        nearCache.remove(id);
+        pendingTouches.remove(id);
+        jdbc.update(DELETE, id);
+    }
+
+    /* ====================================================================== */
+    /*  write-behind + housekeeping                                           */
+    /* ====================================================================== */
+
+    /** writes the buffered last-access times in one batch */
+    void flushTouches() {
+        if (pendingTouches.isEmpty()) {
+            return;
+        }
+        List<Object[]> batch = new ArrayList<>(pendingTouches.size());
+        for (String id : new ArrayList<>(pendingTouches.keySet())) {
+            Long lastAccess = pendingTouches.remove(id);
+            if (lastAccess != null) {
+                batch.add(new Object[]{lastAccess, lastAccess, id});
+            }
+        }
+        try {
+            jdbc.batchUpdate(TOUCH, batch);
+        } catch (RuntimeException e) {
+            // losing a last-access bump only shortens a session, never lengthens it
+            log.warn("Could not flush {} session touches: {}", batch.size(), e.getMessage());
+        }
+    }
+
+    void purgeExpired() {
+        long now = System.currentTimeMillis();
+        nearCache.entrySet().removeIf(e -> e.getValue().session().isExpired());
+        try {
+            int purged = jdbc.update(PURGE, now);
+            if (purged > 0) {
+                log.debug("Purged {} expired sessions", purged);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Could not purge expired sessions: {}", e.getMessage());
+        }
+    }
+
+    /** last chance for buffered touches on a clean shutdown */
+    public void destroy() {
+        flushTouches();
+    }
+
+    /* ====================================================================== */
+    /*  helpers                                                               */
+    /* ====================================================================== */
+
+    private MapSession alive(MapSession session) {
+        if (session.isExpired()) {
+            deleteById(session.getId());
+            return null;
+        }
+        return session;
+    }
+
+    private void cache(MapSession session, byte[] attributes) {
+        if (nearCache.size() >= props.getNearCacheSize()) {
+            evictOldest();
+        }
+        nearCache.put(session.getId(), new Cached(new MapSession(session), attributes, System.currentTimeMillis()));
+    }
+
+    /** drops the oldest tenth of the cache – cheap enough at this size and rare */
+    private void evictOldest() {
+        int toDrop = Math.max(1, nearCache.size() / 10);
+        nearCache.entrySet().stream()
+                .sorted(Comparator.comparingLong(e -> e.getValue().cachedAt()))
+                .limit(toDrop)
+                .map(Map.Entry::getKey)
+                .toList()
+                .forEach(nearCache::remove);
+    }
+
+    private static Map<String, Object> attributesOf(MapSession session) {
+        Map<String, Object> attributes = new TreeMap<>();
+        for (String name : session.getAttributeNames()) {
+            attributes.put(name, session.getAttribute(name));
+        }
+        return attributes;
+    }
+
+    private static String principalName(MapSession session) {
+        Object ctx = session.getAttribute(SECURITY_CONTEXT);
+        if (ctx instanceof org.springframework.security.core.context.SecurityContext sc
+                && sc.getAuthentication() != null) {
+            return sc.getAuthentication().getName();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,163 @@
+package org.wp2.medsys.session;
+
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for session attributes.
+ * <p>
+ * The two attributes every logged-in session carries – the security context
+ * and the CSRF token – get hand-written encodings (a few dozen bytes instead
+ * of several KB of Java serialization). Simple scalars are tagged; anything
+ * else falls back to filtered Java serialization.
+ * <p>
+ * The security context is stored as username + authorities and rebuilt with a
+ * plain Spring Security {@code User} principal, so the JPA {@code User} entity
+ * never ends up in the session table.
+ */
+final class SessionAttributeCodec {
+
+    private static final byte VERSION = 1;
+
+    private static final byte T_NULL             = 0;
+    private static final byte T_STRING           = 1;
+    private static final byte T_LONG             = 2;
+    private static final byte T_INT              = 3;
+    private static final byte T_BOOLEAN          = 4;
+    private static final byte T_SECURITY_CONTEXT = 5;
+    private static final byte T_CSRF_TOKEN       = 6;
+    private static final byte T_SERIALIZED       = 9;
+
+    /** only our own and framework classes may come back out of the fallback path */
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "java.base/*;org.springframework.**;org.wp2.medsys.**;!*");
+
+    private SessionAttributeCodec() {}
+
+    static byte[] encode(Map<String, Object> attributes) {
+        try (ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+             DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeShort(attributes.size());
+            for (Map.Entry<String, Object> e : attributes.entrySet()) {
+                out.writeUTF(e.getKey());
+                writeValue(out, e.getValue());
+            }
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot encode session attributes", e);
+        }
+    }
+
+    static Map<String, Object> decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            byte version = in.readByte();
+            if (version != VERSION) {
+                throw new IllegalStateException("Unknown session format version " + version);
+            }
+            int count = in.readUnsignedShort();
+            Map<String, Object> attributes = new LinkedHashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                attributes.put(name, readValue(in));
+            }
+            return attributes;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot decode session attributes", e);
+        }
+    }
+
+    /* ---------- writers ---------- */
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(T_NULL);
+        } else if (value instanceof String s) {
+            out.writeByte(T_STRING);
+            out.writeUTF(s);
+        } else if (value instanceof Long l) {
+            out.writeByte(T_LONG);
+            out.writeLong(l);
+        } else if (value instanceof Integer i) {
+            out.writeByte(T_INT);
+            out.writeInt(i);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(T_BOOLEAN);
+            out.writeBoolean(b);
+        } else if (value instanceof SecurityContext ctx
+                && ctx.getAuthentication() instanceof UsernamePasswordAuthenticationToken auth) {
+            out.writeByte(T_SECURITY_CONTEXT);
+            out.writeUTF(auth.getName());
+            out.writeShort(auth.getAuthorities().size());
+            for (GrantedAuthority a : auth.getAuthorities()) {
+                out.writeUTF(a.getAuthority());
+            }
+        } else if (value instanceof CsrfToken token) {
+            out.writeByte(T_CSRF_TOKEN);
+            out.writeUTF(token.getHeaderName());
+            out.writeUTF(token.getParameterName());
+            out.writeUTF(token.getToken());
+        } else if (value instanceof Serializable) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+                oos.writeObject(value);
+            }
+            out.writeByte(T_SERIALIZED);
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        } else {
+            throw new IllegalArgumentException(
+                    "Session attribute of type " + value.getClass().getName() + " is not serializable");
+        }
+    }
+
+    /* ---------- readers ---------- */
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        return switch (tag) {
+            case T_NULL    -> null;
+            case T_STRING  -> in.readUTF();
+            case T_LONG    -> in.readLong();
+            case T_INT     -> in.readInt();
+            case T_BOOLEAN -> in.readBoolean();
+            case T_SECURITY_CONTEXT -> {
+                String username = in.readUTF();
+                int n = in.readUnsignedShort();
+                List<GrantedAuthority> authorities = new ArrayList<>(n);
+                for (int i = 0; i < n; i++) {
+                    authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+                }
+                var principal = new org.springframework.security.core.userdetails.User(
+                        username, "", authorities);
+                Authentication auth = UsernamePasswordAuthenticationToken.authenticated(
+                        principal, null, authorities);
+                yield new SecurityContextImpl(auth);
+            }
+            case T_CSRF_TOKEN -> new DefaultCsrfToken(in.readUTF(), in.readUTF(), in.readUTF());
+            case T_SERIALIZED -> {
+                byte[] payload = in.readNBytes(in.readInt());
+                try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(payload))) {
+                    ois.setObjectInputFilter(FILTER);
+                    yield ois.readObject();
+                } catch (ClassNotFoundException e) {
+                    throw new InvalidClassException(e.getMessage());
+                }
+            }
+            default -> throw new IllegalStateException("Unknown session attribute tag " + tag);
+        };
+    }
+}
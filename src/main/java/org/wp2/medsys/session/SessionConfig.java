@@ -0,0 +1,35 @@
+package org.wp2.medsys.session;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.session.config.annotation.web.http.EnableSpringHttpSession;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the container's {@code HttpSession} with {@link JdbcNearCacheSessionRepository}
+ * when {@code medsys.session.store=jdbc}, so any node can serve any request
+ * and a restart no longer logs everybody out. With clinics enabled sessions
+ * live next to the clinic directory rather than on a clinic's shard.
+ */
+@Configuration
+@EnableSpringHttpSession
+@ConditionalOnProperty(prefix = "medsys.session", name = "store", havingValue = "jdbc")
+public class SessionConfig {
+
+    @Bean(destroyMethod = "destroy")
+    public JdbcNearCacheSessionRepository sessionRepository(
+            JdbcTemplate           jdbc,
+            @Qualifier("directoryDataSource") ObjectProvider<DataSource> directoryDataSource,
+            SessionStoreProperties props,
+            TaskScheduler          taskScheduler) {
+        DataSource directory = directoryDataSource.getIfAvailable();
+        return new JdbcNearCacheSessionRepository(
+                directory == null ? jdbc : new JdbcTemplate(directory), props, taskScheduler);
+    }
+}
@@ -0,0 +1,38 @@
+package org.wp2.medsys.session;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the shared session store, bound from {@code medsys.session.*}.
+ * <p>
+ * {@code medsys.session.store=jdbc} switches it on; anything else keeps the
+ * servlet container's in-memory {@code HttpSession}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.session")
+public class SessionStoreProperties {
+
+    /** {@code jdbc} or {@code container} */
+    private String store = "container";
+
+    /** idle time after which a session is gone */
+    private Duration maxInactiveInterval = Duration.ofMinutes(30);
+
+    /** entries kept per node before the near-cache starts evicting */
+    private int nearCacheSize = 10_000;
+
+    /**
+     * how long a node trusts its cached copy; also the worst-case delay
+     * before a logout on one node is seen by the others
+     */
+    private Duration nearCacheTtl = Duration.ofSeconds(5);
+
+    /** how often buffered last-access times are written back */
+    private Duration flushInterval = Duration.ofSeconds(5);
+
+    /** how often expired rows are purged */
+    private Duration cleanupInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,30 @@
+package org.wp2.medsys.storage;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+import org.springframework.stereotype.Component;
+
+/**
+ * Maps the {@code notes} attributes onto their binary column through {@link NotesCodec}.
+ * A Spring bean, so Hibernate gets it with the configured policy injected.
+ */
+@Component
+@Converter
+public class CompressedNotesConverter implements AttributeConverter<String, byte[]> {
+
+    private final NotesCodec codec;
+
+    public CompressedNotesConverter(NotesCodec codec) {
+        this.codec = codec;
+    }
+
+    @Override
+    public byte[] convertToDatabaseColumn(String notes) {
+        return codec.encode(notes);
+    }
+
+    @Override
+    public String convertToEntityAttribute(byte[] stored) {
+        return codec.decode(stored);
+    }
+}
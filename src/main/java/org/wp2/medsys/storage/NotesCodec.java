@@ -0,0 +1,122 @@
+package org.wp2.medsys.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Byte format of the {@code notes} columns.
+ * <p>
+ * Two layouts share the column:
+ * <pre>
+ * plain      : UTF-8 text as written before compression existed
+ * compressed : 0x00 | version (1) | codec (1 = raw deflate) | original length (int, BE) | payload
+ * </pre>
+ * Clinical text never starts with a NUL character, so the first byte tells
+ * the two apart and old rows stay readable without a migration. Notes that
+ * are short or do not shrink are stored plain.
+ * <p>
+ * Deflate at {@code BEST_SPEED} rather than a stronger level: notes are read
+ * far more often than written, inflating is cheap at any level, and free
+ * text already gets most of its gain at level 1.
+ */
+@Component
+public class NotesCodec {
+
+    static final byte MAGIC   = 0x00;
+    static final byte VERSION = 1;
+    static final byte DEFLATE = 1;
+    static final int  HEADER  = 7;
+
+    /** Deflater/Inflater hold native buffers – one per thread instead of one per call */
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+    private static final ThreadLocal<Inflater> INFLATER =
+            ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final NotesCompressionProperties props;
+
+    public NotesCodec(NotesCompressionProperties props) {
+        this.props = props;
+    }
+
+    /** encodes with the configured policy */
+    public byte[] encode(String text) {
+        return encode(text, props.isCompression(), props.getMinSize());
+    }
+
+    public String decode(byte[] stored) {
+        if (stored == null) {
+            return null;
+        }
+        if (!isCompressed(stored)) {
+            return new String(stored, StandardCharsets.UTF_8);
+        }
+        if (stored[1] != VERSION || stored[2] != DEFLATE) {
+            throw new IllegalStateException("Unsupported notes format " + stored[1] + "/" + stored[2]);
+        }
+        int length = ByteBuffer.wrap(stored, 3, 4).getInt();
+        byte[] out = new byte[length];
+        Inflater inflater = INFLATER.get();
+        try {
+            inflater.setInput(stored, HEADER, stored.length - HEADER);
+            int n = 0;
+            while (n < length && !inflater.finished()) {
+                int read = inflater.inflate(out, n, length - n);
+                if (read == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += read;
+            }
+            if (n != length) {
+                throw new IllegalStateException("Truncated notes: expected " + length + " bytes, got " + n);
+            }
+            return new String(out, StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed notes", e);
+        } finally {
+            inflater.reset();
+        }
+    }
+
+    static boolean isCompressed(byte[] stored) {
+        return stored.length >= HEADER && stored[0] == MAGIC;
+    }
+
+    static byte[] encode(String text, boolean compress, int minSize) {
+        if (text == null) {
+            return null;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        if (!compress || utf8.length < minSize) {
+            return utf8;
+        }
+
+        Deflater deflater = DEFLATER.get();
+        try {
+            deflater.setInput(utf8);
+            deflater.finish();
+            // only worth it if we save more than the header; bail out as soon as we don't
+            byte[] out = new byte[utf8.length];
+            int n = HEADER;
+            while (!deflater.finished() && n < out.length) {
+                n += deflater.deflate(out, n, out.length - n);
+            }
+            if (!deflater.finished() || n >= utf8.length) {
+                return utf8;
+            }
+            out[0] = MAGIC;
+            out[1] = VERSION;
+            out[2] = DEFLATE;
+            ByteBuffer.wrap(out, 3, 4).putInt(utf8.length);
+            return Arrays.copyOf(out, n);
+        } finally {
+            deflater.reset();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package org.wp2.medsys.storage;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Storage format of the clinical notes columns, bound from {@code medsys.notes.*}.
+ * <p>
+ * Reading always understands both formats; {@code compression} only decides
+ * what new writes (and the recompression job) produce.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.notes")
+public class NotesCompressionProperties {
+
+    /** compress notes on write */
+    private boolean compression = false;
+
+    /** UTF-8 size below which notes are stored as-is – the header would eat the gain */
+    private int minSize = 256;
+
+    private Recompress recompress = new Recompress();
+
+    @Data
+    public static class Recompress {
+        /** run the background job that compresses rows written before compression was on */
+        private boolean enabled = false;
+
+        /** rows read and rewritten per transaction */
+        private int batchSize = 500;
+
+        /** pause between batches, to keep the job out of the way of user traffic */
+        private Duration pause = Duration.ofMillis(200);
+
+        /** how long to wait after startup and between complete passes */
+        private Duration interval = Duration.ofHours(6);
+    }
+}
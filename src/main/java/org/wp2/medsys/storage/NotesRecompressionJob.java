@@ -0,0 +1,123 @@
+package org.wp2.medsys.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses notes that were written in the plain format.
+ * <p>
+ * Walks each table by primary key in batches of {@code batch-size}, one short
+ * transaction per batch with a pause in between, and rewrites only rows that
+ * are plain and large enough. Both are checked in the query, so compressed and
+ * short notes never leave the database; what is read is only what compression
+ * has not been tried on, or did not pay for. The update is conditional on the row still
+ * holding the bytes that were read, so a concurrent write always wins.
+ * A pass logs how many bytes it saved, per shard when clinics are enabled.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "medsys.notes.recompress", name = "enabled", havingValue = "true")
+public class NotesRecompressionJob {
+
+    private static final String[] TABLES = {"medical_records", "prescriptions"};
+
+    private record Row(long id, byte[] notes) {}
+
+    private final JdbcTemplate               jdbc;
+    private final TransactionTemplate        tx;
+    private final NotesCompressionProperties props;
+    private final ClinicShards               shards;
+
+    public NotesRecompressionJob(JdbcTemplate jdbc,
+                                 PlatformTransactionManager transactionManager,
+                                 NotesCompressionProperties props,
+                                 ClinicShards shards) {
+        this.jdbc   = jdbc;
+        this.tx     = new TransactionTemplate(transactionManager);
+        this.props  = props;
+        this.shards = shards;
+    }
+
+    @Scheduled(initialDelayString = "${medsys.notes.recompress.interval:6h}",
+               fixedDelayString   = "${medsys.notes.recompress.interval:6h}")
+    public void run() {
+        if (!props.isCompression()) {
+            log.warn("Notes recompression is enabled but medsys.notes.compression is off – nothing to do");
+            return;
+        }
+        shards.forEach(shard -> {
+            for (String table : TABLES) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                try {
+                    recompress(table);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    // next pass starts over; rows done so far stay compressed
+                    log.warn("Notes recompression of {} stopped: {}", table, e.getMessage());
+                }
+            }
+        });
+    }
+
+    /** @return rows rewritten */
+    long recompress(String table) throws InterruptedException {
+        // ASCII() is the first byte: NotesCodec.MAGIC marks the compressed format, plain UTF-8 text never starts with it
+        String select = "SELECT id, notes FROM " + table
+                + " WHERE id > ? AND notes IS NOT NULL AND LENGTH(notes) >= ? AND ASCII(notes) <> " + NotesCodec.MAGIC
+                + " ORDER BY id LIMIT ?";
+        // changed_at kept as it was: the content is the same, the change feed must not resend it
+        String update = "UPDATE " + table + " SET notes = ?, changed_at = changed_at WHERE id = ? AND notes = ?";
+
+        long afterId = 0, rows = 0, rewritten = 0, before = 0, after = 0;
+        long started = System.nanoTime();
+        while (true) {
+            List<Row> batch = jdbc.query(select,
+                    (rs, n) -> new Row(rs.getLong(1), rs.getBytes(2)),
+                    afterId, props.getMinSize(), props.getRecompress().getBatchSize());
+            if (batch.isEmpty()) {
+                break;
+            }
+            afterId = batch.get(batch.size() - 1).id();
+            rows += batch.size();
+
+            List<Object[]> updates = new ArrayList<>();
+            for (Row row : batch) {
+                if (NotesCodec.isCompressed(row.notes())) {
+                    continue;
+                }
+                byte[] packed = NotesCodec.encode(
+                        new String(row.notes(), StandardCharsets.UTF_8), true, props.getMinSize());
+                if (packed.length < row.notes().length) {
+                    updates.add(new Object[]{packed, row.id(), row.notes()});
+                    before += row.notes().length;
+                    after  += packed.length;
+                }
+            }
+            if (!updates.isEmpty()) {
+                tx.executeWithoutResult(s -> jdbc.batchUpdate(update, updates));
+                rewritten += updates.size();
+            }
+            TimeUnit.MILLISECONDS.sleep(props.getRecompress().getPause().toMillis());
+        }
+
+        log.info("Recompressed {}: {} of {} plain rows rewritten, {} -> {} bytes ({}% saved) in {} s",
+                table, rewritten, rows, before, after,
+                before == 0 ? 0 : Math.round(100.0 * (before - after) / before),
+                TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - started));
+        return rewritten;
+    }
+}
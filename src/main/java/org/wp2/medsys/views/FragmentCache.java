@@ -0,0 +1,105 @@
+package org.wp2.medsys.views;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.WebContext;
+import org.thymeleaf.spring6.ISpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.web.servlet.JakartaServletWebApplication;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the rendered HTML of template fragments that depend only on the
+ * viewer's role, e.g. the navigation bar.
+ * <p>
+ * Used from templates as {@code th:utext="${@fragmentCache.render('layout/nav', 'nav')}"}.
+ * The fragment is rendered once per role with a single {@code role} variable
+ * ({@code DOCTOR}, {@code PATIENT}, {@code ADMIN} or {@code ANONYMOUS}) and
+ * replayed from memory afterwards.
+ * <p>
+ * Anything user- or request-specific (names, CSRF tokens, forms) must stay
+ * outside cached fragments. Entries live until {@link #invalidate} /
+ * {@link #invalidateAll}; with {@code spring.thymeleaf.cache=false} nothing is cached.
+ */
+@Slf4j
+@Component("fragmentCache")
+public class FragmentCache {
+
+    private final ISpringTemplateEngine templateEngine;
+    private final boolean               enabled;
+    private final ConcurrentHashMap<String, String> rendered = new ConcurrentHashMap<>();
+
+    public FragmentCache(ISpringTemplateEngine templateEngine,
+                         @Value("${spring.thymeleaf.cache:true}") boolean enabled) {
+        this.templateEngine = templateEngine;
+        this.enabled        = enabled;
+    }
+
+    public String render(String template, String fragment) {
+        String role = currentRole();
+        if (!enabled) {
+            return doRender(template, fragment, role);
+        }
+        String key = template + "::" + fragment + '|' + role;
+        String html = rendered.get(key);
+        if (html == null) {
+            // no computeIfAbsent: a fragment may itself use the cache
+            html = doRender(template, fragment, role);
+            rendered.putIfAbsent(key, html);
+        }
+        return html;
+    }
+
+    /** drops every cached variant of the fragments of {@code template} */
+    public void invalidate(String template) {
+        rendered.keySet().removeIf(k -> k.startsWith(template + "::"));
+        log.debug("Fragment cache invalidated for {}", template);
+    }
+
+    public void invalidateAll() {
+        rendered.clear();
+        log.debug("Fragment cache cleared");
+    }
+
+    private String doRender(String template, String fragment, String role) {
+        ServletRequestAttributes attrs = (ServletRequestAttributes) RequestContextHolder.currentRequestAttributes();
+        HttpServletRequest  request  = attrs.getRequest();
+        HttpServletResponse response = attrs.getResponse();
+
+        // a web context so @{...} links resolve (and get fingerprinted) exactly as in the page
+        var exchange = JakartaServletWebApplication.buildApplication(request.getServletContext())
+                .buildExchange(request, response);
+        WebContext context = new WebContext(exchange, request.getLocale(), Map.of("role", role));
+
+        return templateEngine.process(
+                new TemplateSpec(template, Set.of(fragment), TemplateMode.HTML, null), context);
+    }
+
+    private static String currentRole() {
+        Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+        if (auth == null || !auth.isAuthenticated()) {
+            return "ANONYMOUS";
+        }
+        for (GrantedAuthority a : auth.getAuthorities()) {
+            switch (a.getAuthority()) {
+                case "ROLE_DOCTOR":  return "DOCTOR";
+                case "ROLE_PATIENT": return "PATIENT";
+                case "ROLE_ADMIN":   return "ADMIN";
+                default: // keep looking
+            }
+        }
+        return "ANONYMOUS";
+    }
+}
@@ -0,0 +1,83 @@
+package org.wp2.medsys.views;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+/**
+ * Lazy, single-pass {@link Iterable} over a keyset-paginated query.
+ * <p>
+ * Handing one of these to a template instead of a {@code List} lets Thymeleaf
+ * render a list of any length while only one page of rows is ever in memory:
+ * the next page ({@code id > last id}) is fetched when the current one runs out.
+ * Combined with partial output this streams the page to the client as it renders.
+ *
+ * @param <T> row type, expected to be a projection rather than a managed entity
+ */
+public final class KeysetCursor<T> implements Iterable<T> {
+
+    /** fetches up to {@code pageSize} rows with a key greater than the argument */
+    private final Function<Long, List<T>> pageFetcher;
+    private final ToLongFunction<T>       keyOf;
+    private final int                     pageSize;
+
+    private List<T> firstPage;
+    private boolean consumed;
+
+    public KeysetCursor(int pageSize, Function<Long, List<T>> pageFetcher, ToLongFunction<T> keyOf) {
+        this.pageSize    = pageSize;
+        this.pageFetcher = pageFetcher;
+        this.keyOf       = keyOf;
+    }
+
+    /** peeks at the first page (kept for the iteration) so templates can render an empty state */
+    public boolean isEmpty() {
+        return firstPage().isEmpty();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        if (consumed) {
+            throw new IllegalStateException("KeysetCursor can only be iterated once");
+        }
+        consumed = true;
+        List<T> start = firstPage();
+        firstPage = null;                      // let the first page go once we move past it
+
+        return new Iterator<>() {
+            private List<T> page = start;
+            private int     index;
+
+            @Override
+            public boolean hasNext() {
+                if (index < page.size()) {
+                    return true;
+                }
+                if (page.size() < pageSize) {
+                    return false;              // short page: nothing after it
+                }
+                long lastKey = keyOf.applyAsLong(page.get(page.size() - 1));
+                page  = pageFetcher.apply(lastKey);
+                index = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(index++);
+            }
+        };
+    }
+
+    private List<T> firstPage() {
+        if (firstPage == null) {
+            firstPage = pageFetcher.apply(0L);
+        }
+        return firstPage;
+    }
+}
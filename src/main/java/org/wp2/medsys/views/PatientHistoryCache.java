@@ -0,0 +1,276 @@
+package org.wp2.medsys.views;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.DTO.PrescriptionView;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.services.MedicalRecordService;
+import org.wp2.medsys.services.PatientHistoryChangedEvent;
+import org.wp2.medsys.services.PrescriptionService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Per-patient cache of the rows behind {@code /patient/records} and
+ * {@code /patient/prescriptions}, as flat view records ready to render.
+ * <p>
+ * <ul>
+ *   <li>Every snapshot carries a version, {@code <rows>.<highest id>}, which
+ *       changes whenever rows are added or archived – both tables are
+ *       append-only otherwise. Pages use it as their ETag.</li>
+ *   <li>Writes through the services bump a per-patient write counter after
+ *       commit ({@link PatientHistoryChangedEvent}); that drops the entry,
+ *       and a load that started before the write is not cached.</li>
+ *   <li>After {@code validate-after} an entry is checked against the database
+ *       with one index-only count, which catches writes on other nodes.</li>
+ *   <li>Bounded by entry count and an estimate of heap used; the least
+ *       recently used tenth goes when either is exceeded.</li>
+ * </ul>
+ * Metrics: {@code medsys.patient-cache.requests} (result=hit|miss),
+ * {@code .evictions}, {@code .entries} and {@code .bytes}.
+ */
+@Slf4j
+@Component
+public class PatientHistoryCache {
+
+    public enum Kind { RECORDS, PRESCRIPTIONS }
+
+    /** the rows of one page and the version they were read at */
+    public record Snapshot<T>(List<T> rows, String version) {}
+
+    private record Key(String shard, long patientId, Kind kind) {}
+
+    private static final class Entry {
+        final Snapshot<?> snapshot;
+        final long        bytes;
+        volatile long     lastAccess;
+        volatile long     validatedAt;
+
+        Entry(Snapshot<?> snapshot, long bytes, long now) {
+            this.snapshot    = snapshot;
+            this.bytes       = bytes;
+            this.lastAccess  = now;
+            this.validatedAt = now;
+        }
+    }
+
+    private static final String VERSION_RECORDS =
+            "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM medical_records WHERE patient_id = ?";
+    private static final String VERSION_PRESCRIPTIONS =
+            "SELECT COUNT(*), COALESCE(MAX(id), 0) FROM prescriptions WHERE patient_id = ?";
+
+    /** shard key for {@code null}, which ConcurrentHashMap cannot hold */
+    private static final String SINGLE = "";
+
+    private final PatientHistoryCacheProperties props;
+    private final JdbcTemplate                  jdbc;
+    private final MedicalRecordService          records;
+    private final PrescriptionService           prescriptions;
+    private final int                           pageSize;
+
+    private final ConcurrentHashMap<Key, Entry> entries   = new ConcurrentHashMap<>();
+    /** write counter value of each key's last write, so loads racing a write can tell */
+    private final ConcurrentHashMap<Key, Long>  lastWrite = new ConcurrentHashMap<>();
+    private final AtomicLong                    writes    = new AtomicLong();
+    private final AtomicLong                    bytes     = new AtomicLong();
+    private final AtomicBoolean                 evicting  = new AtomicBoolean();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter evictions;
+
+    public PatientHistoryCache(PatientHistoryCacheProperties props,
+                               JdbcTemplate jdbc,
+                               MedicalRecordService records,
+                               PrescriptionService prescriptions,
+                               MeterRegistry registry,
+                               @Value("${medsys.views.page-size:200}") int pageSize) {
+        this.props         = props;
+        this.jdbc          = jdbc;
+        this.records       = records;
+        this.prescriptions = prescriptions;
+        this.pageSize      = pageSize;
+
+        this.hits      = Counter.builder("medsys.patient-cache.requests").tag("result", "hit").register(registry);
+        this.misses    = Counter.builder("medsys.patient-cache.requests").tag("result", "miss").register(registry);
+        this.evictions = Counter.builder("medsys.patient-cache.evictions").register(registry);
+        Gauge.builder("medsys.patient-cache.entries", entries, Map::size).register(registry);
+        Gauge.builder("medsys.patient-cache.bytes", bytes, AtomicLong::get).register(registry);
+    }
+
+    public boolean isEtagEnabled() {
+        return props.isEtag();
+    }
+
+    @SuppressWarnings("unchecked")
+    public Snapshot<MedicalRecordView> records(long patientId) {
+        return (Snapshot<MedicalRecordView>) get(patientId, Kind.RECORDS);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Snapshot<PrescriptionView> prescriptions(long patientId) {
+        return (Snapshot<PrescriptionView>) get(patientId, Kind.PRESCRIPTIONS);
+    }
+
+    /* ---------- lookup ---------- */
+
+    private Snapshot<?> get(long patientId, Kind kind) {
+        if (!props.isEnabled()) {
+            return load(patientId, kind);
+        }
+        Key key = new Key(shardKey(), patientId, kind);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (now - entry.validatedAt >= props.getValidateAfter().toMillis()) {
+                if (currentVersion(patientId, kind).equals(entry.snapshot.version())) {
+                    entry.validatedAt = now;
+                } else {
+                    remove(key, entry);
+                    entry = null;
+                }
+            }
+            if (entry != null) {
+                entry.lastAccess = now;
+                hits.increment();
+                return entry.snapshot;
+            }
+        }
+
+        misses.increment();
+        long started = writes.get();
+        Snapshot<?> snapshot = load(patientId, kind);
+        long size = estimate(snapshot, kind);
+        if (lastWrite.getOrDefault(key, 0L) <= started && size <= props.getMaxBytes().toBytes() / 16) {
+            Entry fresh = new Entry(snapshot, size, now);
+            Entry previous = entries.put(key, fresh);
+            bytes.addAndGet(previous == null ? size : size - previous.bytes);
+            // a write committed between the check and the put found nothing to drop; the
+            // listener bumps lastWrite before it looks, so one of the two sides sees the other
+            if (lastWrite.getOrDefault(key, 0L) > started) {
+                remove(key, fresh);
+            } else if (entries.size() > props.getMaxEntries() || bytes.get() > props.getMaxBytes().toBytes()) {
+                evictLeastRecentlyUsed();
+            }
+        }
+        return snapshot;
+    }
+
+    private Snapshot<?> load(long patientId, Kind kind) {
+        List<Object> rows = new ArrayList<>();
+        long afterId = 0;
+        while (true) {
+            List<?> page = kind == Kind.RECORDS
+                    ? records.findPageByPatient(patientId, afterId, pageSize)
+                    : prescriptions.findPageByPatient(patientId, afterId, pageSize);
+            rows.addAll(page);
+            if (page.size() < pageSize) {
+                break;
+            }
+            afterId = idOf(page.get(page.size() - 1));
+        }
+        long maxId = rows.isEmpty() ? 0 : idOf(rows.get(rows.size() - 1));
+        return new Snapshot<>(List.copyOf(rows), rows.size() + "." + maxId);
+    }
+
+    private String currentVersion(long patientId, Kind kind) {
+        return jdbc.queryForObject(kind == Kind.RECORDS ? VERSION_RECORDS : VERSION_PRESCRIPTIONS,
+                (rs, n) -> rs.getLong(1) + "." + rs.getLong(2), patientId);
+    }
+
+    private static long idOf(Object row) {
+        return row instanceof MedicalRecordView r ? r.id() : ((PrescriptionView) row).id();
+    }
+
+    /* ---------- invalidation ---------- */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onHistoryChanged(PatientHistoryChangedEvent event) {
+        String shard = shardKey();
+        for (Kind kind : Kind.values()) {
+            Key key = new Key(shard, event.patientId(), kind);
+            lastWrite.put(key, writes.incrementAndGet());
+            Entry entry = entries.get(key);
+            if (entry != null) {
+                remove(key, entry);
+            }
+        }
+        if (lastWrite.size() > props.getMaxEntries()) {
+            // only loads running right now can still need these
+            long recent = writes.get() - props.getMaxEntries() / 2;
+            lastWrite.values().removeIf(w -> w < recent);
+        }
+    }
+
+    /* ---------- bounds ---------- */
+
+    private void remove(Key key, Entry entry) {
+        if (entries.remove(key, entry)) {
+            bytes.addAndGet(-entry.bytes);
+        }
+    }
+
+    private void evictLeastRecentlyUsed() {
+        if (!evicting.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int toDrop = Math.max(1, entries.size() / 10);
+            entries.entrySet().stream()
+                    .sorted(Comparator.comparingLong(e -> e.getValue().lastAccess))
+                    .limit(toDrop)
+                    .toList()
+                    .forEach(e -> {
+                        remove(e.getKey(), e.getValue());
+                        evictions.increment();
+                    });
+            log.debug("Patient history cache evicted {} entries, {} left ({} bytes)",
+                    toDrop, entries.size(), bytes.get());
+        } finally {
+            evicting.set(false);
+        }
+    }
+
+    /** rough heap size: object headers and fields plus one byte per (Latin-1) character */
+    private static long estimate(Snapshot<?> snapshot, Kind kind) {
+        ToLongFunction<Object> row = kind == Kind.RECORDS
+                ? r -> {
+                    MedicalRecordView v = (MedicalRecordView) r;
+                    return 200 + len(v.title()) + len(v.notes()) + len(v.patientUsername())
+                            + len(v.doctorUsername()) + len(v.doctorSpec());
+                }
+                : r -> {
+                    PrescriptionView v = (PrescriptionView) r;
+                    return 220 + len(v.medication()) + len(v.dosage()) + len(v.notes())
+                            + len(v.patientUsername()) + len(v.doctorUsername()) + len(v.doctorSpec());
+                };
+        long total = 100;
+        for (Object r : snapshot.rows()) {
+            total += row.applyAsLong(r);
+        }
+        return total;
+    }
+
+    private static int len(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    private static String shardKey() {
+        return Objects.requireNonNullElse(ClinicContext.current(), SINGLE);
+    }
+}
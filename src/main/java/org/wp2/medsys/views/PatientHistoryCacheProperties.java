@@ -0,0 +1,32 @@
+package org.wp2.medsys.views;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+/**
+ * Patient history cache settings, bound from {@code medsys.patient-cache.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.patient-cache")
+public class PatientHistoryCacheProperties {
+
+    private boolean enabled = true;
+
+    /** cached lists (one per patient and page) before the least recently used go */
+    private int maxEntries = 20_000;
+
+    /** rough heap budget for the cached rows; one patient may use at most 1/16 of it */
+    private DataSize maxBytes = DataSize.ofMegabytes(64);
+
+    /**
+     * how long a cached list is served without asking the database – the
+     * most a write on another node (or the archival job) can go unseen
+     */
+    private Duration validateAfter = Duration.ofSeconds(30);
+
+    /** answer the patient pages with an ETag and 304 when nothing changed */
+    private boolean etag = true;
+}
@@ -0,0 +1,4 @@
+package org.wp2.medsys.waitlist;
+
+/** How soon a waitlisted patient needs to be seen; higher goes first. */
+public enum Urgency { ROUTINE, SOON, URGENT }
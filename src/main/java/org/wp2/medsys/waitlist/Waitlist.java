@@ -0,0 +1,316 @@
+package org.wp2.medsys.waitlist;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Appointment;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+import org.wp2.medsys.services.AppointmentService;
+import org.wp2.medsys.services.DoctorService;
+import org.wp2.medsys.services.PatientService;
+
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-doctor waitlists, and backfill of slots that free up.
+ * <p>
+ * When an appointment is denied or cancelled ({@link AppointmentChangedEvent}),
+ * its slot is offered right away, on a virtual thread, to the most urgent,
+ * longest-waiting patient on that doctor's list whose date range fits: they
+ * get a pending appointment in the slot, like any booking request.
+ * <ul>
+ *   <li>In memory, a claim takes the entry out of its {@link WaitlistQueue}
+ *       first, so concurrent slots never pick the same patient.</li>
+ *   <li>In the database, the entry goes {@code WAITING → BOOKED} with a
+ *       conditional update and records the freed appointment under a unique
+ *       key, so across nodes too a patient is booked once and a slot is
+ *       given away once.</li>
+ *   <li>Entries live in {@code waitlist_entries}; the lists are rebuilt from
+ *       it at startup and every {@code rebuild-interval}, which also expires
+ *       entries whose date range has passed.</li>
+ * </ul>
+ * Metrics: {@code medsys.waitlist.backfills} (result=booked|none),
+ * {@code medsys.waitlist.backfill.latency} and {@code medsys.waitlist.waiting}.
+ */
+@Slf4j
+@Component
+public class Waitlist {
+
+    private record Key(String shard, long doctorId) {}
+
+    private static final String INSERT =
+            "INSERT INTO waitlist_entries (patient_id, doctor_id, urgency, requested_at, earliest, latest,"
+            + " schedule_reason, status) VALUES (?, ?, ?, ?, ?, ?, ?, 'WAITING')";
+    private static final String WAITING =
+            "SELECT id, patient_id, doctor_id, urgency, requested_at, earliest, latest, schedule_reason"
+            + " FROM waitlist_entries WHERE status = 'WAITING' AND id > ? ORDER BY id LIMIT 5000";
+    private static final String CLAIM =
+            "UPDATE waitlist_entries SET status = 'BOOKED', freed_appointment_id = ?"
+            + " WHERE id = ? AND status = 'WAITING'";
+    private static final String BOOKED =
+            "UPDATE waitlist_entries SET appointment_id = ? WHERE id = ?";
+    private static final String LEAVE =
+            "UPDATE waitlist_entries SET status = 'LEFT' WHERE id = ? AND patient_id = ? AND status = 'WAITING'";
+    private static final String EXPIRE =
+            "UPDATE waitlist_entries SET status = 'EXPIRED' WHERE status = 'WAITING' AND latest < ?";
+    private static final String OF_PATIENT =
+            "SELECT w.id, d.username, d.spec, w.urgency, w.requested_at, w.earliest, w.latest"
+            + " FROM waitlist_entries w JOIN users d ON d.id = w.doctor_id"
+            + " WHERE w.patient_id = ? AND w.status = 'WAITING' ORDER BY w.id";
+
+    /** shard key for {@code null}, which ConcurrentHashMap cannot hold */
+    private static final String SINGLE = "";
+
+    private final JdbcTemplate        jdbc;
+    private final TransactionTemplate tx;
+    private final AppointmentService  appointments;
+    private final PatientService      patients;
+    private final DoctorService       doctors;
+    private final WaitlistProperties  props;
+    private final ClinicShards        shards;
+
+    private final ConcurrentHashMap<Key, WaitlistQueue>                      queues   = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ConcurrentHashMap<Long, WaitlistQueue>> building = new ConcurrentHashMap<>();
+    private final ExecutorService backfills = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final Counter booked;
+    private final Counter unfilled;
+    private final Timer   latency;
+
+    public Waitlist(JdbcTemplate jdbc,
+                    PlatformTransactionManager transactionManager,
+                    AppointmentService appointments,
+                    PatientService patients,
+                    DoctorService doctors,
+                    WaitlistProperties props,
+                    ClinicShards shards,
+                    MeterRegistry registry) {
+        this.jdbc         = jdbc;
+        this.tx           = new TransactionTemplate(transactionManager);
+        // runs after the commit that freed the slot, so it needs a transaction of its own
+        this.tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.appointments = appointments;
+        this.patients     = patients;
+        this.doctors      = doctors;
+        this.props        = props;
+        this.shards       = shards;
+        this.booked   = Counter.builder("medsys.waitlist.backfills").tag("result", "booked").register(registry);
+        this.unfilled = Counter.builder("medsys.waitlist.backfills").tag("result", "none").register(registry);
+        this.latency  = Timer.builder("medsys.waitlist.backfill.latency").register(registry);
+        Gauge.builder("medsys.waitlist.waiting", queues,
+                q -> q.values().stream().mapToInt(WaitlistQueue::size).sum()).register(registry);
+    }
+
+    /* ---------- patients ---------- */
+
+    /**
+     * @throws IllegalArgumentException if the date range is empty or already over
+     */
+    public long join(Patient patient, Doctor doctor, Urgency urgency,
+                     LocalDateTime earliest, LocalDateTime latest, String scheduleReason) {
+        if (latest != null && (latest.isBefore(LocalDateTime.now()) || (earliest != null && latest.isBefore(earliest)))) {
+            throw new IllegalArgumentException("Choose a date range that has not passed yet");
+        }
+        LocalDateTime now = LocalDateTime.now();
+        GeneratedKeyHolder key = new GeneratedKeyHolder();
+        jdbc.update(con -> {
+            PreparedStatement ps = con.prepareStatement(INSERT, Statement.RETURN_GENERATED_KEYS);
+            ps.setLong(1, patient.getId());
+            ps.setLong(2, doctor.getId());
+            ps.setString(3, urgency.name());
+            ps.setTimestamp(4, Timestamp.valueOf(now));
+            ps.setTimestamp(5, earliest == null ? null : Timestamp.valueOf(earliest));
+            ps.setTimestamp(6, latest == null ? null : Timestamp.valueOf(latest));
+            ps.setString(7, scheduleReason);
+            return ps;
+        }, key);
+        long id = Objects.requireNonNull(key.getKey()).longValue();
+        WaitlistQueue.Entry entry =
+                new WaitlistQueue.Entry(id, patient.getId(), urgency, now, earliest, latest, scheduleReason);
+        String shard = shardKey();
+        queue(shard, doctor.getId()).add(entry);
+        ConcurrentHashMap<Long, WaitlistQueue> next = building.get(shard);
+        if (next != null) {
+            next.computeIfAbsent(doctor.getId(), d -> new WaitlistQueue()).add(entry);
+        }
+        return id;
+    }
+
+    /** @throws IllegalArgumentException if the entry is not this patient's or no longer waiting */
+    public void leave(long entryId, Patient patient) {
+        if (jdbc.update(LEAVE, entryId, patient.getId()) == 0) {
+            throw new IllegalArgumentException("You are no longer on that waitlist");
+        }
+        String shard = shardKey();
+        queues.forEach((key, queue) -> {
+            if (key.shard().equals(shard)) {
+                queue.remove(entryId);
+            }
+        });
+        ConcurrentHashMap<Long, WaitlistQueue> next = building.get(shard);
+        if (next != null) {
+            next.values().forEach(queue -> queue.remove(entryId));
+        }
+    }
+
+    public List<WaitlistEntryView> forPatient(long patientId) {
+        return jdbc.query(OF_PATIENT, (rs, n) -> new WaitlistEntryView(
+                rs.getLong(1), rs.getString(2), rs.getString(3), Urgency.valueOf(rs.getString(4)),
+                rs.getTimestamp(5).toLocalDateTime(), date(rs.getTimestamp(6)), date(rs.getTimestamp(7))),
+                patientId);
+    }
+
+    /* ---------- backfill ---------- */
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAppointmentChanged(AppointmentChangedEvent event) {
+        if (!props.isEnabled() || event.doctorId() == null
+                || (event.status() != Status.DENIED && event.status() != Status.CANCELLED)
+                || event.appointmentDate().isBefore(LocalDateTime.now().plus(props.getMinNotice()))) {
+            return;
+        }
+        long freedAt = System.nanoTime();
+        backfills.execute(ClinicContext.wrap(() -> {
+            try {
+                backfill(event.appointmentId(), event.doctorId(), event.appointmentDate());
+            } catch (RuntimeException e) {
+                log.warn("Backfilling appointment {} failed: {}", event.appointmentId(), e.getMessage());
+            } finally {
+                latency.record(System.nanoTime() - freedAt, TimeUnit.NANOSECONDS);
+            }
+        }));
+    }
+
+    private void backfill(long freedId, long doctorId, LocalDateTime slot) {
+        WaitlistQueue queue = queues.get(new Key(shardKey(), doctorId));
+        WaitlistQueue.Entry served;
+        try {
+            served = queue == null ? null : queue.claim(slot, entry -> book(entry, freedId, doctorId, slot));
+        } catch (DuplicateKeyException e) {
+            log.debug("Slot of appointment {} was already backfilled", freedId);
+            return;
+        }
+        if (served == null) {
+            unfilled.increment();
+            return;
+        }
+        booked.increment();
+        log.debug("Slot of appointment {} ({}) given to waitlisted patient {}", freedId, slot, served.patientId());
+    }
+
+    /** false when the entry was served or withdrawn on another node in the meantime */
+    private boolean book(WaitlistQueue.Entry entry, long freedId, long doctorId, LocalDateTime slot) {
+        return Boolean.TRUE.equals(tx.execute(status -> {
+            if (jdbc.update(CLAIM, freedId, entry.id()) == 0) {
+                return false;
+            }
+            Appointment created = appointments.create(new Appointment(slot,
+                    patients.findById(entry.patientId()), doctors.findById(doctorId),
+                    entry.scheduleReason(), Status.PENDING));
+            jdbc.update(BOOKED, created.getId(), entry.id());
+            return true;
+        }));
+    }
+
+    /* ---------- rebuild ---------- */
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        rebuild();
+    }
+
+    @Scheduled(initialDelayString = "${medsys.waitlist.rebuild-interval:1m}",
+               fixedDelayString   = "${medsys.waitlist.rebuild-interval:1m}")
+    public synchronized void rebuild() {
+        shards.forEach(shard -> {
+            try {
+                rebuild(Objects.requireNonNullElse(shard, SINGLE));
+            } catch (RuntimeException e) {
+                // keep the lists we have; the database stays the judge of who was served
+                log.warn("Waitlist for shard {} not rebuilt: {}", shard, e.getMessage());
+            }
+        });
+    }
+
+    private void rebuild(String shard) {
+        ConcurrentHashMap<Long, WaitlistQueue> next = new ConcurrentHashMap<>();
+        building.put(shard, next);
+        try {
+            int expired = jdbc.update(EXPIRE, Timestamp.valueOf(LocalDateTime.now()));
+            long afterId = 0;
+            int rows = 0;
+            while (true) {
+                Map<Long, Long> doctorOf = new HashMap<>();
+                List<WaitlistQueue.Entry> page = jdbc.query(WAITING, (rs, n) -> {
+                    WaitlistQueue.Entry e = new WaitlistQueue.Entry(rs.getLong(1), rs.getLong(2),
+                            Urgency.valueOf(rs.getString(4)), rs.getTimestamp(5).toLocalDateTime(),
+                            date(rs.getTimestamp(6)), date(rs.getTimestamp(7)), rs.getString(8));
+                    doctorOf.put(e.id(), rs.getLong(3));
+                    return e;
+                }, afterId);
+                if (page.isEmpty()) {
+                    break;
+                }
+                for (WaitlistQueue.Entry e : page) {
+                    next.computeIfAbsent(doctorOf.get(e.id()), d -> new WaitlistQueue()).add(e);
+                }
+                afterId = page.get(page.size() - 1).id();
+                rows += page.size();
+            }
+            queues.keySet().removeIf(key -> key.shard().equals(shard) && !next.containsKey(key.doctorId()));
+            next.forEach((doctorId, queue) -> queues.put(new Key(shard, doctorId), queue));
+            log.debug("Waitlist rebuilt: {} waiting, {} expired", rows, expired);
+        } finally {
+            building.remove(shard);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        backfills.shutdownNow();
+    }
+
+    /* ---------- helpers ---------- */
+
+    private WaitlistQueue queue(String shard, long doctorId) {
+        return queues.computeIfAbsent(new Key(shard, doctorId), k -> new WaitlistQueue());
+    }
+
+    private static LocalDateTime date(Timestamp t) {
+        return t == null ? null : t.toLocalDateTime();
+    }
+
+    private static String shardKey() {
+        return Objects.requireNonNullElse(ClinicContext.current(), SINGLE);
+    }
+}
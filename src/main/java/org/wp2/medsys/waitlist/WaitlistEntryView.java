@@ -0,0 +1,12 @@
+package org.wp2.medsys.waitlist;
+
+import java.time.LocalDateTime;
+
+/** A patient's own waitlist entry, as the dashboard lists it. */
+public record WaitlistEntryView(Long          id,
+                                String        doctorUsername,
+                                String        doctorSpec,
+                                Urgency       urgency,
+                                LocalDateTime requestedAt,
+                                LocalDateTime earliest,
+                                LocalDateTime latest) {}
@@ -0,0 +1,25 @@
+package org.wp2.medsys.waitlist;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Waitlist settings, bound from {@code medsys.waitlist.*}.
+ */
+@Data
+@ConfigurationProperties(prefix = "medsys.waitlist")
+public class WaitlistProperties {
+
+    private boolean enabled = true;
+
+    /** freed slots closer than this are not offered – nobody could make it */
+    private Duration minNotice = Duration.ofHours(2);
+
+    /**
+     * how often the in-memory lists are reloaded from {@code waitlist_entries};
+     * the most an entry added or served on another node can go unseen here
+     */
+    private Duration rebuildInterval = Duration.ofMinutes(1);
+}
@@ -0,0 +1,80 @@
+package org.wp2.medsys.waitlist;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Predicate;
+
+/**
+ * One doctor's waitlist: most urgent first, then first come first served.
+ * <p>
+ * Lock-free: entries sit in a {@link ConcurrentSkipListSet} and a claim
+ * removes its entry from the set before doing anything else, so however
+ * many slots are freed at once, an entry is handed to one claimer only.
+ */
+final class WaitlistQueue {
+
+    /** a waiting patient and the dates they can make; {@code null} bounds are open */
+    record Entry(long id, long patientId, Urgency urgency, LocalDateTime requestedAt,
+                 LocalDateTime earliest, LocalDateTime latest, String scheduleReason) {
+
+        boolean fits(LocalDateTime slot) {
+            return (earliest == null || !slot.isBefore(earliest)) && (latest == null || !slot.isAfter(latest));
+        }
+    }
+
+    static final Comparator<Entry> ORDER = Comparator
+            .comparing(Entry::urgency, Comparator.reverseOrder())
+            .thenComparing(Entry::requestedAt)
+            .thenComparingLong(Entry::id);
+
+    private final ConcurrentSkipListSet<Entry>  entries = new ConcurrentSkipListSet<>(ORDER);
+    private final ConcurrentHashMap<Long, Entry> byId   = new ConcurrentHashMap<>();
+
+    void add(Entry entry) {
+        if (byId.putIfAbsent(entry.id(), entry) == null) {
+            entries.add(entry);
+        }
+    }
+
+    void remove(long id) {
+        Entry entry = byId.remove(id);
+        if (entry != null) {
+            entries.remove(entry);
+        }
+    }
+
+    int size() {
+        return byId.size();
+    }
+
+    /**
+     * Takes the best entry that fits {@code slot} and for which {@code confirm}
+     * holds (typically a conditional update in the database). Entries that
+     * fail {@code confirm} are dropped – someone else already served them.
+     * If {@code confirm} throws, the entry is put back and the exception
+     * propagates.
+     *
+     * @return the claimed entry, or {@code null} if none fits
+     */
+    Entry claim(LocalDateTime slot, Predicate<Entry> confirm) {
+        for (Entry entry : entries) {
+            if (!entry.fits(slot) || !entries.remove(entry)) {
+                continue;   // does not fit, or another claimer got it first
+            }
+            byId.remove(entry.id(), entry);
+            boolean confirmed;
+            try {
+                confirmed = confirm.test(entry);
+            } catch (RuntimeException e) {
+                add(entry);
+                throw e;
+            }
+            if (confirmed) {
+                return entry;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,24 @@
+-- Change feed (see ChangeFeedController, GET /api/v1/changes/*). changed_at is kept by
+-- the database on every insert and on every update that changes the row, so
+-- JPA, batch JDBC and the data generator all maintain it alike. Rows that exist
+-- already get the time of this migration. (changed_at, id) is the feed's keyset.
+
+ALTER TABLE users
+    ADD COLUMN IF NOT EXISTS changed_at DATETIME(6) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS ix_users_changed ON users (changed_at, id);
+
+ALTER TABLE appointments
+    ADD COLUMN IF NOT EXISTS changed_at DATETIME(6) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS ix_appointments_changed ON appointments (changed_at, id);
+
+ALTER TABLE medical_records
+    ADD COLUMN IF NOT EXISTS changed_at DATETIME(6) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS ix_medical_records_changed ON medical_records (changed_at, id);
+
+ALTER TABLE prescriptions
+    ADD COLUMN IF NOT EXISTS changed_at DATETIME(6) NOT NULL
+        DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+CREATE INDEX IF NOT EXISTS ix_prescriptions_changed ON prescriptions (changed_at, id);
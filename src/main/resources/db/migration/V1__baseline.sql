@@ -0,0 +1,66 @@
+-- Baseline schema, as the entities in org.wp2.medsys.domain map it.
+-- Databases created before migrations existed are baselined at this version
+-- (spring.flyway.baseline-on-migrate) and pick up from V2.
+
+-- Patients, doctors and admins share one table (SINGLE_TABLE inheritance on role)
+CREATE TABLE IF NOT EXISTS users (
+    id             BIGINT       NOT NULL AUTO_INCREMENT,
+    role           VARCHAR(20)  NOT NULL,
+    username       VARCHAR(50)  NOT NULL,
+    email          VARCHAR(100) NOT NULL,
+    pass_hash      VARCHAR(100) NOT NULL,
+    created_at     DATETIME(6)  NOT NULL,
+    date_of_birth  DATE         NOT NULL,
+    gender         VARCHAR(10)  NULL,
+    phone_number   VARCHAR(20)  NULL,
+    address        VARCHAR(255) NULL,
+    spec           VARCHAR(100) NULL,
+    license_number VARCHAR(50)  NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY uk_users_username (username),
+    UNIQUE KEY uk_users_email (email),
+    UNIQUE KEY uk_users_license_number (license_number)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS appointments (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    appointment_date DATETIME(6)  NOT NULL,
+    schedule_reason  VARCHAR(255) NULL,
+    status           VARCHAR(20)  NOT NULL,
+    patient_id       BIGINT       NOT NULL,
+    doctor_id        BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    KEY ix_appointments_patient (patient_id),
+    KEY ix_appointments_doctor (doctor_id),
+    CONSTRAINT fk_appointments_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_appointments_doctor  FOREIGN KEY (doctor_id)  REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS medical_records (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    created_at DATETIME(6)  NOT NULL,
+    title      VARCHAR(255) NOT NULL,
+    notes      MEDIUMBLOB   NULL,
+    patient_id BIGINT       NOT NULL,
+    doctor_id  BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    KEY ix_medical_records_patient (patient_id),
+    KEY ix_medical_records_doctor (doctor_id),
+    CONSTRAINT fk_medical_records_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_medical_records_doctor  FOREIGN KEY (doctor_id)  REFERENCES users (id)
+) ENGINE = InnoDB;
+
+CREATE TABLE IF NOT EXISTS prescriptions (
+    id         BIGINT       NOT NULL AUTO_INCREMENT,
+    issue_date DATE         NOT NULL,
+    medication VARCHAR(255) NOT NULL,
+    dosage     VARCHAR(100) NOT NULL,
+    notes      MEDIUMBLOB   NULL,
+    patient_id BIGINT       NOT NULL,
+    doctor_id  BIGINT       NOT NULL,
+    PRIMARY KEY (id),
+    KEY ix_prescriptions_patient (patient_id),
+    KEY ix_prescriptions_doctor (doctor_id),
+    CONSTRAINT fk_prescriptions_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_prescriptions_doctor  FOREIGN KEY (doctor_id)  REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,4 @@
+-- Binary notes columns for the compressed storage format (see NotesCodec).
+-- Existing TEXT values keep their UTF-8 bytes and are read as the plain format.
+ALTER TABLE medical_records MODIFY notes MEDIUMBLOB NULL;
+ALTER TABLE prescriptions   MODIFY notes MEDIUMBLOB NULL;
@@ -0,0 +1,22 @@
+-- Indexes behind the hot paths. IF NOT EXISTS: databases created by V1
+-- already have the foreign-key indexes, baselined ones may not.
+-- IndexAdvisorTests fails the build when a repository query scans a whole hot table.
+
+-- keyset pages of a patient's / doctor's rows: (owner, id) comes with InnoDB's implicit primary key
+CREATE INDEX IF NOT EXISTS ix_appointments_patient    ON appointments (patient_id);
+CREATE INDEX IF NOT EXISTS ix_appointments_doctor     ON appointments (doctor_id);
+CREATE INDEX IF NOT EXISTS ix_medical_records_patient ON medical_records (patient_id);
+CREATE INDEX IF NOT EXISTS ix_medical_records_doctor  ON medical_records (doctor_id);
+CREATE INDEX IF NOT EXISTS ix_prescriptions_patient   ON prescriptions (patient_id);
+CREATE INDEX IF NOT EXISTS ix_prescriptions_doctor    ON prescriptions (doctor_id);
+
+-- reminders and doctor load read accepted / pending appointments by date window
+CREATE INDEX IF NOT EXISTS ix_appointments_status_date ON appointments (status, appointment_date);
+
+-- archival picks its batches by age
+CREATE INDEX IF NOT EXISTS ix_appointments_date       ON appointments (appointment_date);
+CREATE INDEX IF NOT EXISTS ix_medical_records_created ON medical_records (created_at);
+CREATE INDEX IF NOT EXISTS ix_prescriptions_issued    ON prescriptions (issue_date);
+
+-- interaction checks: a patient's recent prescriptions
+CREATE INDEX IF NOT EXISTS ix_prescriptions_patient_issued ON prescriptions (patient_id, issue_date);
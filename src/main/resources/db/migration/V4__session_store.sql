@@ -0,0 +1,12 @@
+-- Shared HTTP session store, used when medsys.session.store=jdbc
+CREATE TABLE IF NOT EXISTS app_sessions (
+    id             VARCHAR(64)  NOT NULL,
+    principal_name VARCHAR(50)  NULL,
+    created_at     BIGINT       NOT NULL,
+    last_access    BIGINT       NOT NULL,
+    max_inactive   INT          NOT NULL,
+    expiry_time    BIGINT       NOT NULL,
+    attributes     BLOB         NOT NULL,
+    PRIMARY KEY (id),
+    INDEX ix_app_sessions_expiry (expiry_time)
+) ENGINE = InnoDB;
@@ -0,0 +1,11 @@
+-- Archive tier, used when medsys.archive.enabled=true (see ArchivalJob).
+-- Same columns and indexes as the hot tables, no foreign keys, plus archived_at.
+-- The age indexes the job needs on the hot tables are in V3.
+CREATE TABLE IF NOT EXISTS appointments_archive    LIKE appointments;
+CREATE TABLE IF NOT EXISTS medical_records_archive LIKE medical_records;
+CREATE TABLE IF NOT EXISTS prescriptions_archive   LIKE prescriptions;
+
+ALTER TABLE appointments_archive    ADD COLUMN IF NOT EXISTS archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE medical_records_archive ADD COLUMN IF NOT EXISTS archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+ALTER TABLE prescriptions_archive   ADD COLUMN IF NOT EXISTS archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP;
+
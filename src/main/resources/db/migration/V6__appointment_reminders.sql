@@ -0,0 +1,13 @@
+-- Appointment reminders, used when medsys.reminders.enabled=true (see ReminderScheduler).
+-- One row per reminder sent; the primary key is the claim that stops
+-- two nodes (or a restarted node) from sending the same reminder twice.
+-- appointment_date is part of the key so a moved appointment is reminded again.
+CREATE TABLE IF NOT EXISTS appointment_reminders_sent (
+    appointment_id   BIGINT    NOT NULL,
+    appointment_date DATETIME  NOT NULL,
+    minutes_before   INT       NOT NULL,
+    sent_at          TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (appointment_id, appointment_date, minutes_before),
+    KEY ix_reminders_sent_date (appointment_date)
+);
+
@@ -0,0 +1,11 @@
+-- Idempotency keys of form POSTs (see IdempotencyKeys). The primary key is the
+-- claim: whichever node inserts the row runs the request, every other copy of
+-- the submission waits for result (the redirect target) and replays it.
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    username   VARCHAR(50)   NOT NULL,
+    token      VARCHAR(43)   NOT NULL,
+    result     VARCHAR(2048) NULL,
+    created_at TIMESTAMP     NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (username, token),
+    KEY ix_idempotency_keys_created (created_at)
+);
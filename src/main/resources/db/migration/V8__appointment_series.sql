@@ -0,0 +1,43 @@
+-- Recurring appointments (see AppointmentSeriesService). A series is stored as
+-- its rule; occurrences are expanded per query window and only become rows in
+-- appointments once a doctor accepts, denies or moves one.
+CREATE TABLE IF NOT EXISTS appointment_series (
+    id               BIGINT       NOT NULL AUTO_INCREMENT,
+    patient_id       BIGINT       NOT NULL,
+    doctor_id        BIGINT       NOT NULL,
+    first_date       DATETIME(6)  NOT NULL,
+    frequency        VARCHAR(10)  NOT NULL,
+    repeat_interval  INT          NOT NULL,
+    occurrence_count INT          NULL,
+    until_date       DATETIME(6)  NULL,
+    -- the last occurrence, derived from the rule, so window queries can use an index
+    last_date        DATETIME(6)  NOT NULL,
+    schedule_reason  VARCHAR(255) NULL,
+    PRIMARY KEY (id),
+    KEY ix_series_doctor_last (doctor_id, last_date),
+    KEY ix_series_patient_last (patient_id, last_date),
+    CONSTRAINT fk_series_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_series_doctor  FOREIGN KEY (doctor_id)  REFERENCES users (id)
+) ENGINE = InnoDB;
+
+-- Occurrences that are no longer virtual: skipped by the patient, or
+-- materialized into appointments (accepted, denied or moved).
+CREATE TABLE IF NOT EXISTS appointment_series_exceptions (
+    series_id       BIGINT      NOT NULL,
+    occurrence_date DATETIME(6) NOT NULL,
+    PRIMARY KEY (series_id, occurrence_date),
+    CONSTRAINT fk_series_exceptions_series FOREIGN KEY (series_id) REFERENCES appointment_series (id)
+        ON DELETE CASCADE
+) ENGINE = InnoDB;
+
+-- A materialized occurrence remembers its series and original slot; the unique
+-- key stops the same occurrence from being materialized twice.
+ALTER TABLE appointments
+    ADD COLUMN IF NOT EXISTS series_id       BIGINT      NULL,
+    ADD COLUMN IF NOT EXISTS occurrence_date DATETIME(6) NULL,
+    ADD UNIQUE KEY IF NOT EXISTS ux_appointments_series_occurrence (series_id, occurrence_date),
+    ADD CONSTRAINT fk_appointments_series FOREIGN KEY IF NOT EXISTS (series_id) REFERENCES appointment_series (id);
+
+ALTER TABLE appointments_archive
+    ADD COLUMN IF NOT EXISTS series_id       BIGINT      NULL,
+    ADD COLUMN IF NOT EXISTS occurrence_date DATETIME(6) NULL;
@@ -0,0 +1,23 @@
+-- Waitlist (see Waitlist). WAITING rows are loaded into memory at startup and
+-- on every rebuild; a backfill flips one to BOOKED with a conditional update.
+-- freed_appointment_id is unique: a freed slot is given to one patient only,
+-- whichever node handles it.
+CREATE TABLE IF NOT EXISTS waitlist_entries (
+    id                   BIGINT       NOT NULL AUTO_INCREMENT,
+    patient_id           BIGINT       NOT NULL,
+    doctor_id            BIGINT       NOT NULL,
+    urgency              VARCHAR(10)  NOT NULL,
+    requested_at         DATETIME(6)  NOT NULL,
+    earliest             DATETIME(6)  NULL,
+    latest               DATETIME(6)  NULL,
+    schedule_reason      VARCHAR(255) NULL,
+    status               VARCHAR(10)  NOT NULL,   -- WAITING, BOOKED, LEFT, EXPIRED
+    freed_appointment_id BIGINT       NULL,
+    appointment_id       BIGINT       NULL,
+    PRIMARY KEY (id),
+    UNIQUE KEY ux_waitlist_freed (freed_appointment_id),
+    KEY ix_waitlist_status_id (status, id),
+    KEY ix_waitlist_patient_status (patient_id, status),
+    CONSTRAINT fk_waitlist_patient FOREIGN KEY (patient_id) REFERENCES users (id),
+    CONSTRAINT fk_waitlist_doctor  FOREIGN KEY (doctor_id)  REFERENCES users (id)
+) ENGINE = InnoDB;
@@ -0,0 +1,35 @@
+// Multi-item forms: the first .batch-item is the template for new rows.
+// Fields keep their names, so the server receives them as parallel lists.
+(function () {
+    'use strict'
+    document.querySelectorAll('[data-batch]').forEach(function (form) {
+        var list = form.querySelector('.batch-items')
+        var template = list.querySelector('.batch-item').cloneNode(true)
+        template.querySelectorAll('[id]').forEach(function (el) { el.removeAttribute('id') })
+        template.querySelectorAll('label[for]').forEach(function (el) { el.removeAttribute('for') })
+
+        function refresh() {
+            var rows = list.querySelectorAll('.batch-item')
+            rows.forEach(function (row, i) {
+                row.querySelector('.batch-item-number').textContent = '#' + (i + 1)
+                row.querySelector('.batch-remove').hidden = rows.length === 1
+            })
+            form.querySelector('.batch-add').disabled = rows.length >= Number(form.dataset.batch)
+        }
+
+        form.querySelector('.batch-add').addEventListener('click', function () {
+            var row = template.cloneNode(true)
+            list.appendChild(row)
+            refresh()
+            row.querySelector('input, textarea').focus()
+        })
+        list.addEventListener('click', function (event) {
+            var button = event.target.closest('.batch-remove')
+            if (button) {
+                button.closest('.batch-item').remove()
+                refresh()
+            }
+        })
+        refresh()
+    })
+})()
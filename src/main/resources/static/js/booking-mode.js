@@ -0,0 +1,27 @@
+// Switches the appointment form between "a specific doctor" and
+// "any available doctor with a specialty". Only the visible select is
+// enabled, so only it is validated and submitted.
+(function () {
+    'use strict'
+    var form = document.querySelector('form[data-booking-mode]')
+    if (!form) {
+        return
+    }
+
+    function show(mode) {
+        form.querySelectorAll('[data-mode]').forEach(function (section) {
+            var active = section.dataset.mode === mode
+            section.hidden = !active
+            section.querySelectorAll('select').forEach(function (select) {
+                select.disabled = !active
+            })
+        })
+    }
+
+    form.querySelectorAll('input[name="bookingMode"]').forEach(function (radio) {
+        radio.addEventListener('change', function () {
+            show(radio.value)
+        })
+    })
+    show(form.querySelector('input[name="bookingMode"]:checked').value)
+})()
@@ -0,0 +1,47 @@
+// Live "already taken" feedback on the sign-up form.
+// Asks /register/availability at most once per pause in typing and
+// marks the field invalid (Bootstrap style) when the value is in use.
+(function () {
+    'use strict'
+    var form = document.querySelector('form[data-availability]')
+    if (!form) {
+        return
+    }
+    var url = form.dataset.availability
+
+    function watch(name) {
+        var input = form.querySelector('[name="' + name + '"]')
+        var feedback = input.parentElement.querySelector('.availability-feedback')
+        var defaultMessage = feedback.textContent
+        var timer = null
+        var latest = null
+
+        input.addEventListener('input', function () {
+            clearTimeout(timer)
+            input.setCustomValidity('')
+            input.classList.remove('is-invalid')
+            feedback.textContent = defaultMessage
+            var value = input.value.trim()
+            if (!value) {
+                return
+            }
+            timer = setTimeout(function () {
+                latest = value
+                fetch(url + '?' + name + '=' + encodeURIComponent(value), { headers: { 'Accept': 'application/json' } })
+                    .then(function (r) { return r.ok ? r.json() : null })
+                    .then(function (result) {
+                        if (!result || latest !== value || result[name] !== false) {
+                            return
+                        }
+                        input.setCustomValidity('taken')
+                        input.classList.add('is-invalid')
+                        feedback.textContent = 'This ' + name + ' is already taken'
+                    })
+                    .catch(function () { /* the server still checks on submit */ })
+            }, 300)
+        })
+    }
+
+    watch('username')
+    watch('email')
+})()
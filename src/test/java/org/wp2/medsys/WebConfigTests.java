@@ -0,0 +1,36 @@
+package org.wp2.medsys;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WebConfigTests {
+
+    private final WebConfig.AssetCacheControl cacheControl = new WebConfig.AssetCacheControl();
+
+    @Test
+    void onlyFingerprintedUrlsAreImmutable() {
+        assertEquals("max-age=31536000, public, immutable",
+                cacheControlFor("/css/base-0f343b0931126a20f133d67c2b018a3b.css"));
+        assertEquals("max-age=31536000, public, immutable",
+                cacheControlFor("/logo-9e107d9d372bb6826bd81d3542a419d6.png"));
+    }
+
+    @Test
+    void plainUrlsAreRevalidated() {
+        assertEquals("no-cache, public", cacheControlFor("/css/base.css"));
+        assertEquals("no-cache, public", cacheControlFor("/css/doctor-prescriptions.css"));
+        assertEquals("no-cache, public", cacheControlFor("/js/form-validation.js"));
+        assertEquals("no-cache, public", cacheControlFor("/logo.png"));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private String cacheControlFor(String uri) {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertTrue(cacheControl.preHandle(new MockHttpServletRequest("GET", uri), response, null));
+        return response.getHeader("Cache-Control");
+    }
+}
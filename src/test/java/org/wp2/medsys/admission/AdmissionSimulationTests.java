@@ -0,0 +1,162 @@
+package org.wp2.medsys.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Load test in simulated time: a server with a fixed number of workers (the
+ * DB pool) is flooded by patients browsing, while a few doctors keep adding
+ * records. Compares doctor p99 with and without admission control.
+ */
+class AdmissionSimulationTests {
+
+    private static final long MS = 1_000_000;
+
+    @Test
+    void limitGrowsWhileLatencyIsFlatAndShrinksWhenItClimbs() {
+        AdaptiveLimit limit = new AdaptiveLimit(50, 5, 200, 1.5, 0.2, 100);
+        for (int i = 0; i < 500; i++) {
+            fill(limit, 50);
+            limit.release(10 * MS);
+            drain(limit);
+        }
+        int healthy = limit.limit();
+        assertTrue(healthy > 50, "limit should grow while latency is flat: " + healthy);
+
+        for (int i = 0; i < 200; i++) {
+            fill(limit, limit.limit());
+            limit.release(100 * MS);
+            drain(limit);
+        }
+        assertTrue(limit.limit() < healthy / 2, "limit should shrink under 10x latency: " + limit.limit());
+    }
+
+    @Test
+    void lowerClassesAreShedFirst() {
+        AdaptiveLimit limit = new AdaptiveLimit(10, 10, 10, 2.0, 0.2, 100);
+        int low = 0;
+        while (limit.tryAcquire(0.5)) {
+            low++;
+        }
+        assertEquals(5, low);
+        assertFalse(limit.tryAcquire(0.5));
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limit.tryAcquire(1.0), "reserved slot " + i);
+        }
+        assertFalse(limit.tryAcquire(1.0));
+    }
+
+    @Test
+    void doctorWritesStayFastUnderPatientFlood() {
+        Result without = simulate(false);
+        Result with    = simulate(true);
+
+        assertTrue(without.doctorP99 > 300 * MS, "the flood should hurt without admission: " + without);
+        assertTrue(with.doctorP99 < 80 * MS, "doctor p99 should stay low: " + with);
+        assertEquals(0, with.doctorRejected, "doctor writes must not be shed: " + with);
+        assertTrue(with.patientServed > without.patientServed / 2,
+                "patients should still be served, not just shed: " + with + " vs " + without);
+    }
+
+    /* ---------- simulation ---------- */
+
+    private static final int  WORKERS  = 8;
+    private static final long SERVICE  = 20 * MS;
+    private static final int  PATIENTS = 200;
+    private static final int  DOCTORS  = 4;
+    private static final long DURATION = 60_000 * MS;
+
+    private record Result(long doctorP99, int doctorRejected, int patientServed, int patientRejected) {
+        @Override
+        public String toString() {
+            return "doctor p99 " + doctorP99 / MS + " ms, doctor rejected " + doctorRejected
+                    + ", patients served " + patientServed + ", rejected " + patientRejected;
+        }
+    }
+
+    private record Event(long time, int kind, int client, long startedAt) {
+        static final int ARRIVE = 0, DONE = 1;
+    }
+
+    private static Result simulate(boolean admission) {
+        Random rnd = new Random(7);
+        AdaptiveLimit limit = new AdaptiveLimit(50, 5, 200, 1.5, 0.2, 600);
+        PriorityQueue<Event> events = new PriorityQueue<>((a, b) -> Long.compare(a.time(), b.time()));
+        ArrayDeque<Event> queue = new ArrayDeque<>();
+        int busy = 0;
+
+        List<Long> doctorLatencies = new ArrayList<>();
+        int doctorRejected = 0, patientServed = 0, patientRejected = 0;
+
+        for (int c = 0; c < PATIENTS + DOCTORS; c++) {
+            events.add(new Event((long) (rnd.nextDouble() * 1_000 * MS), Event.ARRIVE, c, 0));
+        }
+        while (!events.isEmpty()) {
+            Event e = events.poll();
+            if (e.time() > DURATION) {
+                break;
+            }
+            boolean doctor = e.client() >= PATIENTS;
+            if (e.kind() == Event.ARRIVE) {
+                double share = doctor ? 1.0 : 0.5;
+                if (admission && !limit.tryAcquire(share)) {
+                    if (doctor) doctorRejected++; else patientRejected++;
+                    events.add(new Event(e.time() + 1_000 * MS, Event.ARRIVE, e.client(), 0));   // Retry-After
+                    continue;
+                }
+                Event started = new Event(e.time(), Event.ARRIVE, e.client(), e.time());
+                if (busy < WORKERS) {
+                    busy++;
+                    events.add(new Event(e.time() + service(rnd), Event.DONE, e.client(), e.time()));
+                } else {
+                    queue.add(started);
+                }
+            } else {
+                long rtt = e.time() - e.startedAt();
+                if (admission) {
+                    limit.release(rtt);
+                }
+                if (doctor) {
+                    doctorLatencies.add(rtt);
+                } else {
+                    patientServed++;
+                }
+                Event next = queue.poll();
+                if (next != null) {
+                    events.add(new Event(e.time() + service(rnd), Event.DONE, next.client(), next.startedAt()));
+                } else {
+                    busy--;
+                }
+                long think = doctor ? 500 * MS : (long) (-Math.log(1 - rnd.nextDouble()) * 200 * MS);
+                events.add(new Event(e.time() + think, Event.ARRIVE, e.client(), 0));
+            }
+        }
+        Collections.sort(doctorLatencies);
+        long p99 = doctorLatencies.get((int) (doctorLatencies.size() * 0.99));
+        return new Result(p99, doctorRejected, patientServed, patientRejected);
+    }
+
+    private static long service(Random rnd) {
+        return (long) (SERVICE * (0.5 + rnd.nextDouble()));
+    }
+
+    private static void fill(AdaptiveLimit limit, int n) {
+        for (int i = 0; i < n; i++) {
+            limit.tryAcquire(1.0);
+        }
+    }
+
+    private static void drain(AdaptiveLimit limit) {
+        while (limit.inFlight() > 0) {
+            limit.release();
+        }
+    }
+}
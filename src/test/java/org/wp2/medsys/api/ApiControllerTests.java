@@ -0,0 +1,168 @@
+package org.wp2.medsys.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.archive.ArchiveQueries;
+import org.wp2.medsys.audit.AuditAction;
+import org.wp2.medsys.audit.AuditEntry;
+import org.wp2.medsys.audit.AuditLog;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.Role;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.repositories.UserRepository;
+import org.wp2.medsys.services.AppointmentService;
+import org.wp2.medsys.services.DoctorService;
+import org.wp2.medsys.services.MedicalRecordService;
+import org.wp2.medsys.services.PrescriptionService;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The records endpoint over a patient ({@code ana}, id 2) with five records
+ * and a doctor ({@code dr.who}, id 1) who wrote them. The service mock pages
+ * like the real keyset query: ids after the cursor, at most {@code limit}.
+ */
+class ApiControllerTests {
+
+    private static final int DEFAULT_LIMIT = 3;
+    private static final int MAX_LIMIT     = 4;
+
+    private final ObjectMapper         json     = new ObjectMapper();
+    private final UserRepository       users    = mock(UserRepository.class);
+    private final MedicalRecordService records  = mock(MedicalRecordService.class);
+    private final AuditLog             auditLog = mock(AuditLog.class);
+
+    private final ApiController controller = new ApiController(users, mock(AppointmentService.class), records,
+            mock(PrescriptionService.class), mock(DoctorService.class), mock(ArchiveQueries.class), auditLog,
+            new JsonPageWriter(json), DEFAULT_LIMIT, MAX_LIMIT);
+
+    private final List<MedicalRecordView> anasRecords = new ArrayList<>();
+
+    @BeforeEach
+    void anaAndHerDoctor() {
+        Doctor doctor = new Doctor("dr.who", "who@medsys.local", "hash", LocalDate.of(1970, 1, 1), "GP", "L-1");
+        doctor.setId(1L);
+        Patient ana = new Patient("ana", "ana@medsys.local", "hash", LocalDate.of(1990, 1, 1), null, null, null);
+        ana.setId(2L);
+        User admin = new User();
+        admin.setId(3L);
+        admin.setUsername("root");
+        admin.setRole(Role.ADMIN);
+        for (User u : List.of(doctor, ana, admin)) {
+            when(users.findByUsername(u.getUsername())).thenReturn(Optional.of(u));
+        }
+
+        LongStream.rangeClosed(1, 5).forEach(i -> anasRecords.add(new MedicalRecordView(10 * i,
+                LocalDateTime.of(2026, 1, (int) i, 9, 0), "visit " + i, "notes " + i, 2L, "ana", 1L, "dr.who", "GP")));
+        when(records.findPageByPatient(eq(2L), anyLong(), anyInt())).thenAnswer(q -> page(q.getArgument(1), q.getArgument(2)));
+        when(records.findPageByDoctor(eq(1L), anyLong(), anyInt())).thenAnswer(q -> page(q.getArgument(1), q.getArgument(2)));
+    }
+
+    @Test
+    void theCursorOfOnePageStartsTheNext() throws Exception {
+        JsonNode first = records("ana", null, 2, null);
+        assertEquals(List.of(10L, 20L), ids(first));
+        assertTrue(first.get("nextCursor").isTextual());
+
+        JsonNode second = records("ana", first.get("nextCursor").asText(), 2, null);
+        assertEquals(List.of(30L, 40L), ids(second));
+
+        JsonNode last = records("ana", second.get("nextCursor").asText(), 2, null);
+        assertEquals(List.of(50L), ids(last));
+        assertTrue(last.get("nextCursor").isNull(), "no extra row, no next page");
+
+        verify(records).findPageByPatient(2L, 20L, 3);
+        assertThrows(IllegalArgumentException.class, () -> records("ana", "not-a-cursor", 2, null));
+    }
+
+    @Test
+    void theLimitDefaultsAndIsCapped() throws Exception {
+        assertEquals(DEFAULT_LIMIT, ids(records("ana", null, null, null)).size());
+        verify(records).findPageByPatient(2L, 0L, DEFAULT_LIMIT + 1);
+
+        assertEquals(MAX_LIMIT, ids(records("ana", null, 1000, null)).size());
+        verify(records).findPageByPatient(2L, 0L, MAX_LIMIT + 1);
+
+        assertThrows(IllegalArgumentException.class, () -> records("ana", null, 0, null));
+    }
+
+    @Test
+    void onlyTheRequestedFieldsAreWritten() throws Exception {
+        JsonNode item = records("ana", null, 1, " title, id ,title").get("items").get(0);
+
+        List<String> names = new ArrayList<>();
+        item.fieldNames().forEachRemaining(names::add);
+        assertEquals(List.of("title", "id"), names);
+        assertEquals("visit 1", item.get("title").asText());
+
+        assertThrows(IllegalArgumentException.class, () -> records("ana", null, 1, "id,password"));
+    }
+
+    @Test
+    void patientsReadTheirOwnRowsAndDoctorsTheirs() throws Exception {
+        records("ana", null, 2, null);
+        verify(records).findPageByPatient(2L, 0L, 3);
+
+        records("dr.who", null, 2, null);
+        verify(records).findPageByDoctor(1L, 0L, 3);
+
+        // audited per patient on the page, never for the extra row
+        verify(auditLog).recordPatients(AuditAction.PATIENT_RECORDS, 2L, List.of(2L, 2L), AuditEntry.Channel.API);
+        verify(auditLog).recordPatients(AuditAction.DOCTOR_RECORDS, 1L, List.of(2L, 2L), AuditEntry.Channel.API);
+    }
+
+    @Test
+    void anyoneElseIsRefusedWithoutDetails() {
+        AccessDeniedException admin   = assertThrows(AccessDeniedException.class, () -> records("root", null, 2, null));
+        AccessDeniedException unknown = assertThrows(AccessDeniedException.class, () -> records("ghost", null, 2, null));
+        verify(records, never()).findPageByPatient(anyLong(), anyLong(), anyInt());
+        verifyNoInteractions(auditLog);
+
+        for (AccessDeniedException e : List.of(admin, unknown)) {
+            ResponseEntity<Map<String, String>> answer = controller.forbidden(e);
+            assertEquals(HttpStatus.FORBIDDEN, answer.getStatusCode());
+            assertEquals(Map.of("error", "Access denied"), answer.getBody());
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private List<MedicalRecordView> page(long afterId, int limit) {
+        return anasRecords.stream().filter(r -> r.id() > afterId).limit(limit).toList();
+    }
+
+    private JsonNode records(String username, String cursor, Integer limit, String fields) throws Exception {
+        Authentication auth = UsernamePasswordAuthenticationToken.authenticated(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_USER"));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        controller.records(cursor, limit, fields, false, auth, response);
+        return json.readTree(response.getContentAsByteArray());
+    }
+
+    private static List<Long> ids(JsonNode page) {
+        List<Long> ids = new ArrayList<>();
+        page.get("items").forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,123 @@
+package org.wp2.medsys.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Cursor encoding and paging of the change feed over in-memory "shards"
+ * whose query follows the repositories' {@code findChanges} predicate.
+ */
+class ChangeFeedTests {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 3, 1, 8, 0);
+
+    private record Row(long id, LocalDateTime changedAt) {}
+
+    @Test
+    void cursorsRoundTrip() {
+        Map<String, ChangeCursor.Position> positions = new LinkedHashMap<>();
+        positions.put("", new ChangeCursor.Position(T0, 42));
+        positions.put("east;=/", new ChangeCursor.Position(T0.plusNanos(123_456_000), 7));
+        positions.put("default", new ChangeCursor.Position(T0.withSecond(0), 0));
+        ChangeCursor cursor = new ChangeCursor(positions, ChangeCursor.START);
+
+        ChangeCursor decoded = ChangeCursor.decode(cursor.encode());
+        assertEquals(cursor.positions(), decoded.positions());
+        assertEquals(ChangeCursor.START, decoded.at("west"), "unknown shards start at the beginning");
+        assertEquals(Map.of(), ChangeCursor.decode(ChangeCursor.since(T0).encode()).positions());
+    }
+
+    @Test
+    void foreignCursorsAreRejected() {
+        for (String bad : List.of("djE6NDI", "%%%", "YzI6eD0", "YzI6eD1ub3QtYS1kYXRlLzE")) {
+            assertThrows(IllegalArgumentException.class, () -> ChangeCursor.decode(bad), bad);
+        }
+    }
+
+    @Test
+    void pagingVisitsEveryRowOnceAcrossTiesAndShards() {
+        Random rnd = new Random(11);
+        Map<String, List<Row>> shards = new LinkedHashMap<>();
+        long id = 1;
+        for (String shard : List.of("default", "east", "west")) {
+            List<Row> rows = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                // few distinct timestamps: many rows share one, and ids do not follow time
+                rows.add(new Row(id++, T0.plusSeconds(rnd.nextInt(20))));
+            }
+            shards.put(shard, rows);
+        }
+
+        Set<Long> seen = new HashSet<>();
+        ChangeCursor cursor = ChangeCursor.since(null);
+        for (int calls = 0; ; calls++) {
+            assertTrue(calls < 1_000, "feed does not end");
+            ChangeFeed.Page<Row> page = read(shards, cursor, 1 + rnd.nextInt(40));
+            for (Row r : page.items()) {
+                assertTrue(seen.add(r.id()), "row " + r.id() + " sent twice");
+            }
+            cursor = ChangeCursor.decode(page.next().encode());
+            if (!page.more()) {
+                break;
+            }
+        }
+        assertEquals(1_500, seen.size());
+
+        // polling again from the last cursor: nothing, until a row changes
+        assertTrue(read(shards, cursor, 50).items().isEmpty());
+        shards.get("east").set(3, new Row(shards.get("east").get(3).id(), T0.plusMinutes(5)));
+        ChangeFeed.Page<Row> delta = read(shards, cursor, 50);
+        assertEquals(List.of(shards.get("east").get(3)), delta.items());
+        assertFalse(delta.more());
+    }
+
+    @Test
+    void sinceAppliesToEveryShardEvenWhenTheFirstPageIsFull() {
+        Map<String, List<Row>> shards = new LinkedHashMap<>();
+        shards.put("default", List.of(new Row(1, T0), new Row(2, T0.plusHours(2))));
+        shards.put("east",    List.of(new Row(3, T0), new Row(4, T0.plusHours(3))));
+
+        ChangeFeed.Page<Row> first = read(shards, ChangeCursor.since(T0.plusHours(1)), 1);
+        assertEquals(List.of(new Row(2, T0.plusHours(2))), first.items());
+        assertTrue(first.more());
+
+        ChangeFeed.Page<Row> second = read(shards, ChangeCursor.decode(first.next().encode()), 10);
+        assertEquals(List.of(new Row(4, T0.plusHours(3))), second.items(), "east must not restart from the beginning");
+        assertFalse(second.more());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static ChangeFeed.Page<Row> read(Map<String, List<Row>> shards, ChangeCursor from, int limit) {
+        String[] current = new String[1];
+        Consumer<Consumer<String>> forEach = work -> shards.keySet().forEach(shard -> {
+            current[0] = shard;
+            work.accept(shard);
+        });
+        return ChangeFeed.read(forEach, from, limit,
+                (at, n) -> find(shards.get(current[0]), at, n), Row::changedAt, Row::id);
+    }
+
+    /** {@code changedAt >= since and (changedAt > since or id > afterId) order by changedAt, id} */
+    private static List<Row> find(List<Row> rows, ChangeCursor.Position at, int limit) {
+        return rows.stream()
+                .filter(r -> !r.changedAt().isBefore(at.changedAt())
+                        && (r.changedAt().isAfter(at.changedAt()) || r.id() > at.id()))
+                .sorted(Comparator.comparing(Row::changedAt).thenComparingLong(Row::id))
+                .limit(limit)
+                .toList();
+    }
+}
@@ -0,0 +1,146 @@
+package org.wp2.medsys.archive;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.storage.NotesCodec;
+import org.wp2.medsys.storage.NotesCompressionProperties;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Moving aged rows to the archive tables and reading them back, on the schema
+ * from the Flyway migrations. Doctor 1 and patient 2 own every row. Needs
+ * Docker and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ArchivalJobTests {
+
+    private static final Timestamp CUTOFF = Timestamp.valueOf(LocalDateTime.of(2020, 1, 1, 0, 0));
+
+    @Container
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4").withUsername("root");
+
+    static HikariDataSource pool;
+    static JdbcTemplate     jdbc;
+
+    private final NotesCodec        codec = new NotesCodec(new NotesCompressionProperties());
+    private final ArchiveProperties props = new ArchiveProperties();
+
+    private ArchivalJob job;
+
+    @BeforeAll
+    static void schema() {
+        pool = pool(mariadb.getDatabaseName());
+        Flyway.configure().dataSource(pool).locations("classpath:db/migration").load().migrate();
+        jdbc = new JdbcTemplate(pool);
+    }
+
+    @AfterAll
+    static void close() {
+        pool.close();
+    }
+
+    @BeforeEach
+    void doctorAndPatient() {
+        for (String table : List.of("medical_records_archive", "medical_records", "users")) {
+            jdbc.update("DELETE FROM " + table);
+        }
+        user(1, "DOCTOR", "dr.who");
+        user(2, "PATIENT", "ana");
+        props.setPause(Duration.ZERO);
+        props.setBatchSize(2);
+        job = new ArchivalJob(jdbc, new DataSourceTransactionManager(pool), props, new ClinicShards(new ClinicProperties()));
+    }
+
+    @Test
+    void rowsPastTheCutoffMoveAndCanBeReadBack() throws Exception {
+        record(10, "2015-03-01", "old", "knee");
+        record(11, "2016-03-01", "older", "hip");
+        record(12, "2017-03-01", "oldest", null);
+        record(13, "2024-03-01", "recent", "fine");
+
+        assertEquals(3, job.archive(ArchivedTable.MEDICAL_RECORDS, CUTOFF));
+
+        assertEquals(List.of(13L), ids("medical_records"));
+        List<MedicalRecordView> archived = new ArchiveQueries(jdbc, codec)
+                .records(ArchiveQueries.Owner.PATIENT, 2L, 0, 10);
+        assertEquals(List.of(10L, 11L, 12L), archived.stream().map(MedicalRecordView::id).toList());
+        assertEquals("knee", archived.get(0).notes());
+        assertNull(archived.get(2).notes());
+        assertEquals("dr.who", archived.get(1).doctorUsername());
+        assertEquals(List.of(12L), new ArchiveQueries(jdbc, codec)
+                .records(ArchiveQueries.Owner.DOCTOR, 1L, 11, 10).stream().map(MedicalRecordView::id).toList());
+    }
+
+    @Test
+    void aRowWhoseIdIsTakenInTheArchiveStaysInPlace() throws Exception {
+        record(10, "2015-03-01", "old", "knee");
+        record(11, "2016-03-01", "kept", "hip");
+        record(12, "2017-03-01", "restored", "back");
+        record(14, "2018-03-01", "after", "neck");
+        jdbc.update("INSERT INTO medical_records_archive (id, created_at, title, notes, patient_id, doctor_id)"
+                + " VALUES (11, '2012-01-01', 'someone else', NULL, 2, 1)");
+        // restored by hand earlier and aged again: the archived copy is identical
+        jdbc.update("INSERT INTO medical_records_archive (id, created_at, title, notes, patient_id, doctor_id)"
+                + " SELECT id, created_at, title, notes, patient_id, doctor_id FROM medical_records WHERE id = 12");
+
+        assertEquals(3, job.archive(ArchivedTable.MEDICAL_RECORDS, CUTOFF));
+
+        assertEquals(List.of(11L), ids("medical_records"), "not deleted, its copy would be lost");
+        assertEquals("someone else", jdbc.queryForObject(
+                "SELECT title FROM medical_records_archive WHERE id = 11", String.class), "and not overwritten");
+        assertEquals(List.of(10L, 11L, 12L, 14L), ids("medical_records_archive"), "and the run went on past it");
+    }
+
+    @Test
+    void theArchiveIsAvailableOnlyWhereItsTablesExist() {
+        assertTrue(new ArchiveQueries(jdbc, codec).isAvailable());
+
+        jdbc.execute("CREATE DATABASE IF NOT EXISTS before_v5");
+        try (HikariDataSource old = pool("before_v5")) {
+            Flyway.configure().dataSource(old).locations("classpath:db/migration").target("4").load().migrate();
+            assertFalse(new ArchiveQueries(new JdbcTemplate(old), codec).isAvailable());
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static HikariDataSource pool(String database) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(mariadb.getJdbcUrl().replace("/" + mariadb.getDatabaseName(), "/" + database));
+        ds.setUsername(mariadb.getUsername());
+        ds.setPassword(mariadb.getPassword());
+        return ds;
+    }
+
+    private static void user(long id, String role, String username) {
+        jdbc.update("INSERT INTO users (id, role, username, email, pass_hash, created_at, date_of_birth)"
+                + " VALUES (?, ?, ?, ?, 'hash', NOW(6), '1980-01-01')", id, role, username, username + "@medsys.local");
+    }
+
+    private void record(long id, String createdAt, String title, String notes) {
+        jdbc.update("INSERT INTO medical_records (id, created_at, title, notes, patient_id, doctor_id)"
+                + " VALUES (?, ?, ?, ?, 2, 1)", id, createdAt, title, codec.encode(notes));
+    }
+
+    private static List<Long> ids(String table) {
+        return jdbc.queryForList("SELECT id FROM " + table + " ORDER BY id", Long.class);
+    }
+}
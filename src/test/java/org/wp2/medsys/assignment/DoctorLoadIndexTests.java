@@ -0,0 +1,115 @@
+package org.wp2.medsys.assignment;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongConsumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Rebuilds over a fake database with two cardiologists that hands out the
+ * appointments one row per page, so events can land between pages.
+ */
+class DoctorLoadIndexTests {
+
+    private final LocalDateTime tomorrow = LocalDateTime.now().plusDays(1);
+
+    private final PagedJdbc       jdbc  = new PagedJdbc();
+    private final DoctorLoadIndex index = new DoctorLoadIndex(
+            jdbc, new AssignmentProperties(), new ClinicShards(new ClinicProperties()));
+
+    @Test
+    void aRowReadBeforeAnEventDoesNotUndoIt() {
+        jdbc.rows.add(new Object[] {10L, 1L, "PENDING", tomorrow});
+        jdbc.rows.add(new Object[] {11L, 2L, "ACCEPTED", tomorrow});
+        // appointment 10 is cancelled while the scan holds the page it is on
+        jdbc.afterPage = id -> {
+            if (id == 10) {
+                index.onAppointmentChanged(new AppointmentChangedEvent(10, 1L, tomorrow, Status.CANCELLED));
+            }
+        };
+
+        index.rebuild();
+
+        // stale, doctor 1 would carry a pending request (1 h) against doctor 2's booking (0.5 h)
+        try (DoctorLoadIndex.Reservation r = index.reserve("Cardiology")) {
+            assertEquals(1L, r.doctorId());
+        }
+    }
+
+    @Test
+    void eventsAfterTheRebuildStillCount() {
+        jdbc.rows.add(new Object[] {11L, 2L, "ACCEPTED", tomorrow});
+        index.rebuild();
+
+        index.onAppointmentChanged(new AppointmentChangedEvent(10, 1L, tomorrow, Status.PENDING));
+
+        try (DoctorLoadIndex.Reservation r = index.reserve("Cardiology")) {
+            assertEquals(2L, r.doctorId());
+        }
+    }
+
+    @Test
+    void reservingBeforeTheFirstRebuildIsRefused() {
+        assertThrows(IllegalStateException.class, () -> index.reserve("Cardiology"));
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** doctors 1 and 2 in cardiology; appointments from {@link #rows}, one per page */
+    private static final class PagedJdbc extends JdbcTemplate {
+
+        /** id, doctor_id, status, appointment_date */
+        final List<Object[]> rows = new ArrayList<>();
+        /** runs with the id of each page once it has been read */
+        LongConsumer afterPage = id -> {};
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            try {
+                rch.processRow(resultSet(1L, "Cardiology"));
+                rch.processRow(resultSet(2L, "Cardiology"));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            long afterId = (Long) args[0];
+            List<T> page = new ArrayList<>();
+            for (Object[] row : rows) {
+                if ((Long) row[0] > afterId) {
+                    try {
+                        page.add(rowMapper.mapRow(resultSet(row[0], row[1], row[2],
+                                Timestamp.valueOf((LocalDateTime) row[3])), 0));
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                    afterPage.accept((Long) row[0]);
+                    break;
+                }
+            }
+            return page;
+        }
+
+        /** a single row whose getters return the column at the index asked for */
+        private static ResultSet resultSet(Object... columns) {
+            return mock(ResultSet.class, q -> columns[q.<Integer>getArgument(0) - 1]);
+        }
+    }
+}
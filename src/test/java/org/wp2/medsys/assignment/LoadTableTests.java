@@ -0,0 +1,106 @@
+package org.wp2.medsys.assignment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadTableTests {
+
+    @Test
+    void changesReplaceTheAppointmentsPreviousContribution() {
+        LoadTable table = new LoadTable(Map.of(1L, "Cardiology", 2L, "Cardiology"), 1.0, 0.5);
+        LoadTable.DoctorLoad d1 = table.doctor(1L);
+
+        table.apply(100, 1L, LoadTable.Kind.PENDING);
+        table.apply(100, 1L, LoadTable.Kind.PENDING);      // same state twice counts once
+        assertEquals(1, d1.pending.get());
+
+        table.apply(100, 1L, LoadTable.Kind.BOOKED);
+        assertEquals(0, d1.pending.get());
+        assertEquals(1, d1.booked.get());
+        assertEquals(0.5, table.score(d1));
+
+        table.apply(100, null, LoadTable.Kind.NONE);       // deleted
+        assertEquals(0, d1.booked.get());
+    }
+
+    @Test
+    void duringAScanAnEventBeatsTheRowsReadBeforeIt() {
+        LoadTable table = new LoadTable(Map.of(1L, "Cardiology"), 1.0, 0.5);
+        LoadTable.DoctorLoad d1 = table.doctor(1L);
+        table.beginScan();
+
+        table.apply(100, 1L, LoadTable.Kind.BOOKED);            // accepted after the page was read
+        table.applyScanned(100, 1L, LoadTable.Kind.PENDING);    // the row as the page saw it
+        table.apply(101, null, LoadTable.Kind.NONE);            // deleted
+        table.applyScanned(101, 1L, LoadTable.Kind.PENDING);
+        table.applyScanned(102, 1L, LoadTable.Kind.PENDING);    // no event, the row counts
+        assertEquals(1, d1.booked.get());
+        assertEquals(1, d1.pending.get());
+
+        table.endScan();
+        table.apply(100, 1L, LoadTable.Kind.NONE);
+        assertEquals(0, d1.booked.get());
+    }
+
+    @Test
+    void picksTheLeastLoadedDoctorOfTheSpecialty() {
+        LoadTable table = new LoadTable(Map.of(1L, "cardiology", 2L, " Cardiology ", 3L, "Dermatology"), 1.0, 0.5);
+        table.apply(10, 1L, LoadTable.Kind.PENDING);
+        table.apply(11, 2L, LoadTable.Kind.BOOKED);         // half an hour beats one pending request
+
+        LoadTable.DoctorLoad picked = table.reserve("CARDIOLOGY");
+        assertEquals(2L, picked.doctorId);
+        assertEquals(1, picked.reserved.get());
+        table.release(picked);
+        assertNull(table.reserve("Neurology"));
+    }
+
+    @Test
+    void concurrentBurstSpreadsEvenlyAndLosesNoCounts() throws InterruptedException {
+        Map<Long, String> specs = new HashMap<>();
+        for (long id = 1; id <= 20; id++) {
+            specs.put(id, "general");
+        }
+        LoadTable table = new LoadTable(specs, 1.0, 0.5);
+        AtomicLong appointmentIds = new AtomicLong();
+        int threads = 8, perThread = 500;
+
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done  = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        LoadTable.DoctorLoad d = table.reserve("general");
+                        table.apply(appointmentIds.incrementAndGet(), d.doctorId, LoadTable.Kind.PENDING);
+                        table.release(d);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+
+        int total = 0, min = Integer.MAX_VALUE, max = 0;
+        for (long id = 1; id <= 20; id++) {
+            LoadTable.DoctorLoad d = table.doctor(id);
+            assertEquals(0, d.reserved.get());
+            total += d.pending.get();
+            min = Math.min(min, d.pending.get());
+            max = Math.max(max, d.pending.get());
+        }
+        assertEquals(threads * perThread, total);
+        assertTrue(max - min <= threads, "spread " + min + ".." + max);
+    }
+}
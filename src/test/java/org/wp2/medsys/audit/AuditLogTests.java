@@ -0,0 +1,136 @@
+package org.wp2.medsys.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentProducersLoseNothingAndKeepSequenceOrder() throws Exception {
+        AuditLog log = new AuditLog(props(65_536, 40 * 100));   // small segments: forces rotation
+        int threads = 8, perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            long actor = t + 1;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    log.record(AuditAction.PATIENT_RECORDS, actor, i);
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        log.close();
+
+        assertEquals(0, log.droppedCount());
+        List<AuditEntry> entries = readAll();
+        assertEquals(threads * perThread, entries.size());
+        Set<String> seen = new HashSet<>();
+        for (int i = 0; i < entries.size(); i++) {
+            AuditEntry e = entries.get(i);
+            assertEquals(i + 1, e.sequence());
+            assertTrue(seen.add(e.actorId() + "/" + e.subjectId()), "duplicate " + e);
+        }
+    }
+
+    @Test
+    void resumesAfterTornTailWrite() throws Exception {
+        AuditLog log = new AuditLog(props(64, 1024 * 40));
+        for (int i = 0; i < 10; i++) {
+            log.record(AuditAction.PATIENT_RECORDS, 7, 100 + i);
+        }
+        log.close();
+
+        // simulate a crash in the middle of writing entry 11
+        Path segment = AuditSegments.list(dir).get(0);
+        try (FileChannel ch = FileChannel.open(segment, WRITE)) {
+            ch.write(ByteBuffer.allocate(8).putLong(0, 11L), 10L * AuditSegments.ENTRY_SIZE);
+        }
+
+        log = new AuditLog(props(64, 1024 * 40));
+        log.record(AuditAction.DOCTOR_PRESCRIPTIONS, 8, 8, AuditEntry.Channel.API);
+        log.close();
+
+        List<AuditEntry> entries = readAll();
+        assertEquals(11, entries.size());
+        AuditEntry last = entries.get(10);
+        assertEquals(11, last.sequence());
+        assertEquals(AuditAction.DOCTOR_PRESCRIPTIONS, last.action());
+        assertEquals(AuditEntry.Channel.API, last.channel());
+    }
+
+    @Test
+    void sinkFailureResumesAtTheFailedEntryWithoutRepeatingEarlierOnes() {
+        AuditRing ring = new AuditRing(16);
+        for (long i = 1; i <= 5; i++) {
+            assertTrue(ring.offer(0, 1, i, 1));
+        }
+        List<Long> written = new ArrayList<>();
+        boolean[] failed = {false};
+        AuditRing.Sink sink = (time, actor, subject, code) -> {
+            if (subject == 3 && !failed[0]) {
+                failed[0] = true;
+                throw new IllegalStateException("disk full");
+            }
+            written.add(subject);
+        };
+
+        assertThrows(IllegalStateException.class, () -> ring.drain(sink, 10));
+        assertEquals(List.of(1L, 2L), written);
+        assertEquals(3, ring.drain(sink, 10));
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), written);
+    }
+
+    @Test
+    void listsAreAuditedOncePerPatientWithTheReaderAsActor() throws Exception {
+        AuditLog log = new AuditLog(props(64, 1024 * 40));
+        log.recordPatients(AuditAction.DOCTOR_RECORDS, 9, Arrays.asList(5L, 6L, 5L, null, 6L), AuditEntry.Channel.API);
+        log.close();
+
+        List<AuditEntry> entries = readAll();
+        assertEquals(List.of(5L, 6L), entries.stream().map(AuditEntry::subjectId).toList());
+        for (AuditEntry e : entries) {
+            assertEquals(9, e.actorId());
+            assertEquals(AuditAction.DOCTOR_RECORDS, e.action());
+            assertEquals(AuditEntry.Channel.API, e.channel());
+        }
+    }
+
+    private List<AuditEntry> readAll() throws IOException {
+        List<AuditEntry> entries = new ArrayList<>();
+        AuditLogReader.scan(dir, e -> true, entries::add);
+        return entries;
+    }
+
+    private AuditProperties props(int ringSize, long segmentSize) {
+        AuditProperties props = new AuditProperties();
+        props.setDirectory(dir.toString());
+        props.setRingSize(ringSize);
+        props.setSegmentSize(segmentSize);
+        props.setSyncInterval(Duration.ofMillis(10));
+        return props;
+    }
+}
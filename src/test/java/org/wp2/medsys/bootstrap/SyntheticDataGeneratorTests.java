@@ -0,0 +1,100 @@
+package org.wp2.medsys.bootstrap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The skip/regenerate decision on a small generated data set: a rerun with the
+ * same seed and sizes leaves the rows alone, another seed replaces them and
+ * empties every table that hangs off the old users. Needs Docker and is
+ * skipped without it.
+ */
+@SpringBootTest(properties = {
+        "medsys.datagen.doctors=3",
+        "medsys.datagen.patients=20",
+})
+@ActiveProfiles("datagen")
+@Testcontainers(disabledWithoutDocker = true)
+class SyntheticDataGeneratorTests {
+
+    private static final String MARKER = "1 Marker St, Springfield";
+
+    @Container
+    @ServiceConnection
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+    @Autowired
+    SyntheticDataGenerator generator;
+
+    @Autowired
+    DataGeneratorProperties props;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    private final long defaultSeed = 42;
+
+    @AfterEach
+    void backToTheDefaultSeed() throws Exception {
+        props.setSeed(defaultSeed);
+        generator.run();
+    }
+
+    @Test
+    void aRerunWithTheSameSeedAndSizesKeepsTheRows() throws Exception {
+        jdbc.update("UPDATE users SET address = ? WHERE id = ?", MARKER, lastPatientId());
+
+        generator.run();
+
+        assertEquals(MARKER, address(lastPatientId()), "skipped, so the edit is still there");
+    }
+
+    @Test
+    void anotherSeedRegeneratesAndEmptiesTheDependentTables() throws Exception {
+        long patient = lastPatientId();
+        Map<String, Object> before = details(patient);
+        jdbc.update("UPDATE users SET address = ? WHERE id = ?", MARKER, patient);
+        jdbc.update("INSERT INTO waitlist_entries (patient_id, doctor_id, urgency, requested_at, status)"
+                + " VALUES (?, 1, 'ROUTINE', NOW(6), 'WAITING')", patient);
+        jdbc.update("INSERT INTO appointments_archive (id, appointment_date, status, patient_id, doctor_id)"
+                + " VALUES (999999, NOW(6), 'COMPLETED', ?, 1)", patient);
+        jdbc.update("INSERT INTO idempotency_keys (username, token) VALUES ('dr.who', 'token')");
+
+        props.setSeed(defaultSeed + 1);
+        generator.run();
+
+        assertEquals(patient, lastPatientId(), "same sizes, same ids");
+        assertNotEquals(before, details(patient), "birth date, phone and address come from the seed");
+        assertNotEquals(MARKER, address(patient));
+        for (String table : List.of("waitlist_entries", "appointments_archive", "idempotency_keys")) {
+            assertEquals(0, jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Long.class), table);
+        }
+    }
+
+    /* ---------- helpers ---------- */
+
+    private long lastPatientId() {
+        return jdbc.queryForObject("SELECT MAX(id) FROM users", Long.class);
+    }
+
+    private String address(long id) {
+        return jdbc.queryForObject("SELECT address FROM users WHERE id = ?", String.class, id);
+    }
+
+    private Map<String, Object> details(long id) {
+        return jdbc.queryForMap("SELECT date_of_birth, phone_number, address FROM users WHERE id = ?", id);
+    }
+}
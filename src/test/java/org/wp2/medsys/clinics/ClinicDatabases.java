@@ -0,0 +1,78 @@
+package org.wp2.medsys.clinics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MariaDBContainer;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.stream.Collectors;
+
+/**
+ * Shards for the clinic tests: databases in one MariaDB container, each with
+ * the application's schema from its Flyway migrations (foreign keys included),
+ * plus the directory schema ({@code db/clinics.sql}) on the default shard.
+ */
+final class ClinicDatabases {
+
+    private ClinicDatabases() {
+    }
+
+    static MariaDBContainer<?> container() {
+        return new MariaDBContainer<>("mariadb:11.4").withUsername("root");
+    }
+
+    /** a pool on {@code database}, created and migrated if needed */
+    static HikariDataSource shard(MariaDBContainer<?> mariadb, String database) {
+        if (!database.equals(mariadb.getDatabaseName())) {
+            try (HikariDataSource admin = pool(mariadb, mariadb.getDatabaseName())) {
+                new JdbcTemplate(admin).execute("CREATE DATABASE IF NOT EXISTS " + database);
+            }
+        }
+        HikariDataSource shard = pool(mariadb, database);
+        Flyway.configure().dataSource(shard).locations("classpath:db/migration").load().migrate();
+        return shard;
+    }
+
+    /** the default shard: application schema and the directory */
+    static HikariDataSource defaultShard(MariaDBContainer<?> mariadb) throws IOException {
+        HikariDataSource shard = shard(mariadb, mariadb.getDatabaseName());
+        JdbcTemplate jdbc = new JdbcTemplate(shard);
+        String script = Files.readAllLines(Path.of("db/clinics.sql")).stream()
+                .filter(line -> !line.startsWith("--"))
+                .collect(Collectors.joining("\n"));
+        for (String statement : script.split(";")) {
+            if (!statement.isBlank()) {
+                jdbc.execute(statement);
+            }
+        }
+        return shard;
+    }
+
+    static ClinicDirectory directory(DataSource defaultShard, Duration cacheTtl) {
+        ClinicProperties props = new ClinicProperties();
+        props.setEnabled(true);
+        props.setDirectoryCacheTtl(cacheTtl);
+        return new ClinicDirectory(props, defaultShard, noDirectoryPool());
+    }
+
+    /** no separate directory pool: the directory uses the default shard, as in the application */
+    static ObjectProvider<DataSource> noDirectoryPool() {
+        return new StaticListableBeanFactory().getBeanProvider(DataSource.class);
+    }
+
+    private static HikariDataSource pool(MariaDBContainer<?> mariadb, String database) {
+        HikariDataSource ds = new HikariDataSource();
+        ds.setJdbcUrl(mariadb.getJdbcUrl().replace("/" + mariadb.getDatabaseName(), "/" + database));
+        ds.setUsername(mariadb.getUsername());
+        ds.setPassword(mariadb.getPassword());
+        ds.setMaximumPoolSize(4);
+        return ds;
+    }
+}
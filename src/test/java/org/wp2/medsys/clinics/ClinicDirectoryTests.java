@@ -0,0 +1,105 @@
+package org.wp2.medsys.clinics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The directory against the real {@code db/clinics.sql} schema. Needs Docker
+ * and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ClinicDirectoryTests {
+
+    @Container
+    static MariaDBContainer<?> mariadb = ClinicDatabases.container();
+
+    static HikariDataSource shard;
+    static JdbcTemplate     jdbc;
+
+    @BeforeAll
+    static void schema() throws Exception {
+        shard = ClinicDatabases.defaultShard(mariadb);
+        jdbc  = new JdbcTemplate(shard);
+    }
+
+    @AfterAll
+    static void close() {
+        shard.close();
+    }
+
+    @BeforeEach
+    void onlyTheMainClinic() {
+        jdbc.update("DELETE FROM user_clinics");
+        jdbc.update("DELETE FROM clinics WHERE id <> 'main'");
+        jdbc.update("INSERT INTO clinics (id, shard) VALUES ('north', 'default')");
+    }
+
+    @Test
+    void aDisabledDirectoryNeverTouchesTheDatabase() {
+        DataSource none = mock(DataSource.class);
+        ClinicDirectory directory = new ClinicDirectory(new ClinicProperties(), none, ClinicDatabases.noDirectoryPool());
+
+        assertEquals(new ClinicDirectory.Route("main", null, false), directory.routeFor("anyone"));
+        assertEquals(new ClinicDirectory.Route("main", null, false), directory.defaultRoute());
+        directory.assignToDefaultClinic("anyone");
+        directory.unassign("anyone");
+        verifyNoInteractions(none);
+    }
+
+    @Test
+    void usersMissingFromTheDirectoryUseTheDefaultClinic() {
+        ClinicDirectory directory = ClinicDatabases.directory(shard, Duration.ofHours(1));
+
+        assertEquals(new ClinicDirectory.Route("main", "default", false), directory.routeFor("nobody"));
+    }
+
+    @Test
+    void aUsernameIsTakenOnceUntilItIsUnassigned() {
+        ClinicDirectory directory = ClinicDatabases.directory(shard, Duration.ofHours(1));
+
+        directory.assignToDefaultClinic("bob");
+        assertThrows(DuplicateKeyException.class, () -> directory.assignToDefaultClinic("bob"));
+        directory.unassign("bob");
+        directory.assignToDefaultClinic("bob");
+        assertEquals("main", jdbc.queryForObject(
+                "SELECT clinic_id FROM user_clinics WHERE username = 'bob'", String.class));
+    }
+
+    @Test
+    void aMoveIsSeenAtOnceHereAndAfterTheCacheTtlOnOtherNodes() {
+        jdbc.update("INSERT INTO user_clinics (username, clinic_id) VALUES ('carol', 'north')");
+        ClinicDirectory here  = ClinicDatabases.directory(shard, Duration.ofHours(1));
+        ClinicDirectory other = ClinicDatabases.directory(shard, Duration.ofHours(1));
+        ClinicDirectory fresh = ClinicDatabases.directory(shard, Duration.ZERO);
+        assertEquals(new ClinicDirectory.Route("north", "default", false), here.routeFor("carol"));
+        assertEquals(new ClinicDirectory.Route("north", "default", false), other.routeFor("carol"));
+
+        here.setState("north", "east", "FROZEN");
+
+        assertEquals(new ClinicDirectory.Route("north", "east", true), here.routeFor("carol"));
+        assertEquals(new ClinicDirectory.Route("north", "default", false), other.routeFor("carol"), "cached for its TTL");
+        assertEquals(new ClinicDirectory.Route("north", "east", true), fresh.routeFor("carol"));
+    }
+
+    @Test
+    void unknownClinicsAreAnError() {
+        ClinicDirectory directory = ClinicDatabases.directory(shard, Duration.ofHours(1));
+
+        assertThrows(IllegalStateException.class, () -> directory.routeOfClinic("atlantis"));
+        assertThrows(IllegalStateException.class, () -> directory.setState("atlantis", "east", "FROZEN"));
+    }
+}
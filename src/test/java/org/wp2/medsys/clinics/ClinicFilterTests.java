@@ -0,0 +1,89 @@
+package org.wp2.medsys.clinics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ClinicFilterTests {
+
+    private final ClinicDirectory directory = mock(ClinicDirectory.class);
+    private final ClinicFilter    filter    = new ClinicFilter(directory);
+
+    /** the shard the rest of the chain ran in; "not called" if the filter stopped the request */
+    private final AtomicReference<String> shardSeen = new AtomicReference<>("not called");
+    private final FilterChain             chain     = (request, response) -> shardSeen.set(ClinicContext.current());
+
+    @AfterEach
+    void clear() {
+        SecurityContextHolder.clearContext();
+        ClinicContext.clear();
+    }
+
+    @Test
+    void signedInUsersRunInTheirClinicsShard() throws Exception {
+        signIn("alice");
+        when(directory.routeFor("alice")).thenReturn(new ClinicDirectory.Route("north", "east", false));
+
+        filter.doFilter(request("POST", "/patient/appointments/cancel"), new MockHttpServletResponse(), chain);
+
+        assertEquals("east", shardSeen.get());
+        assertNull(ClinicContext.current(), "shard leaked past the request");
+    }
+
+    @Test
+    void anonymousRequestsRunInTheDefaultClinic() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(new AnonymousAuthenticationToken(
+                "key", "anonymousUser", AuthorityUtils.createAuthorityList("ROLE_ANONYMOUS")));
+        when(directory.defaultRoute()).thenReturn(new ClinicDirectory.Route("main", "default", false));
+
+        filter.doFilter(request("POST", "/register"), new MockHttpServletResponse(), chain);
+
+        assertEquals("default", shardSeen.get());
+        verify(directory, never()).routeFor(anyString());
+    }
+
+    @Test
+    void aFrozenClinicRefusesWritesButServesReads() throws Exception {
+        signIn("alice");
+        when(directory.routeFor("alice")).thenReturn(new ClinicDirectory.Route("north", "default", true));
+
+        MockHttpServletResponse refused = new MockHttpServletResponse();
+        filter.doFilter(request("POST", "/doctor/records/add"), refused, chain);
+        assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, refused.getStatus());
+        assertEquals("30", refused.getHeader("Retry-After"));
+        assertEquals("not called", shardSeen.get());
+
+        filter.doFilter(request("GET", "/doctor/records"), new MockHttpServletResponse(), chain);
+        assertEquals("default", shardSeen.get());
+
+        shardSeen.set("not called");
+        filter.doFilter(request("POST", "/logout"), new MockHttpServletResponse(), chain);
+        assertEquals("default", shardSeen.get(), "signing out only touches the directory");
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static void signIn(String username) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_PATIENT")));
+    }
+
+    private static HttpServletRequest request(String method, String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        return request;
+    }
+}
@@ -0,0 +1,206 @@
+package org.wp2.medsys.clinics;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+/**
+ * Moves clinic {@code north} (a doctor, two patients and their rows) from the
+ * default shard to {@code east}, one row per batch so every copy pages. Both
+ * shards carry the real schema, foreign keys included. Needs Docker and is
+ * skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ClinicMigrationRunnerTests {
+
+    /** children before the rows they reference */
+    private static final List<String> TABLES = List.of("waitlist_entries", "prescriptions", "medical_records",
+            "appointments", "appointment_series_exceptions", "appointment_series", "users");
+
+    @Container
+    static MariaDBContainer<?> mariadb = ClinicDatabases.container();
+
+    static HikariDataSource        defaultPool;
+    static HikariDataSource        eastPool;
+    static ClinicRoutingDataSource shards;
+    static JdbcTemplate            source;
+    static JdbcTemplate            target;
+
+    private final ClinicProperties          clinics = new ClinicProperties();
+    private final ClinicMigrationProperties props   = new ClinicMigrationProperties();
+
+    @BeforeAll
+    static void databases() throws Exception {
+        defaultPool = ClinicDatabases.defaultShard(mariadb);
+        eastPool    = ClinicDatabases.shard(mariadb, "east");
+        shards      = new ClinicRoutingDataSource(defaultPool, Map.of("east", eastPool));
+        source      = new JdbcTemplate(defaultPool);
+        target      = new JdbcTemplate(eastPool);
+    }
+
+    @AfterAll
+    static void close() {
+        shards.close();
+        defaultPool.close();
+    }
+
+    @BeforeEach
+    void northOnTheDefaultShard() {
+        for (JdbcTemplate jdbc : List.of(source, target)) {
+            for (String table : TABLES) {
+                jdbc.update("DELETE FROM " + table);
+            }
+        }
+        source.update("DELETE FROM user_clinics");
+        source.update("DELETE FROM clinics WHERE id <> 'main'");
+        source.update("INSERT INTO clinics (id, shard) VALUES ('north', 'default')");
+
+        user(2, "DOCTOR", "dr.main", "main");
+        user(1, "PATIENT", "stays", "main");
+        user(10, "DOCTOR", "dr.north", "north");
+        user(11, "PATIENT", "ana", "north");
+        user(12, "PATIENT", "ben", "north");
+        for (long[] visit : new long[][] {{1, 2}, {11, 10}, {12, 10}}) {
+            long patient = visit[0], doctor = visit[1];
+            for (int i = 0; i < 3; i++) {
+                long id = patient * 100 + i;
+                source.update("INSERT INTO appointments (id, appointment_date, status, patient_id, doctor_id)"
+                        + " VALUES (?, NOW(6), 'PENDING', ?, ?)", id, patient, doctor);
+                record(id, patient, doctor);
+                source.update("INSERT INTO prescriptions (id, issue_date, medication, dosage, patient_id, doctor_id)"
+                        + " VALUES (?, CURDATE(), 'ibuprofen', '400 mg', ?, ?)", id, patient, doctor);
+            }
+        }
+
+        clinics.setDirectoryCacheTtl(Duration.ZERO);
+        props.setClinic("north");
+        props.setTarget("east");
+        props.setBatchSize(1);
+        props.setPause(Duration.ZERO);
+    }
+
+    @Test
+    void aClinicMovesWithEveryRowIncludingThoseWrittenDuringTheBulkCopy() throws Exception {
+        ClinicDirectory directory = spy(ClinicDatabases.directory(defaultPool, Duration.ZERO));
+        doAnswer(freeze -> {
+            // written after the bulk copy, while the clinic was still live
+            record(1300, 11, 10);
+            source.update("UPDATE appointments SET status = 'ACCEPTED' WHERE id = 1100");
+            return freeze.callRealMethod();
+        }).when(directory).setState(eq("north"), anyString(), eq("FROZEN"));
+
+        new ClinicMigrationRunner(directory, shards, clinics, props).run();
+
+        assertEquals(Map.of("SHARD", "east", "STATE", "ACTIVE"), clinicRow());
+        assertEquals(List.of(10L, 11L, 12L), target.queryForList("SELECT id FROM users ORDER BY id", Long.class));
+        assertEquals(7, count(target, "medical_records"));
+        assertEquals(6, count(target, "appointments"));
+        assertEquals(6, count(target, "prescriptions"));
+        assertEquals("ACCEPTED", target.queryForObject("SELECT status FROM appointments WHERE id = 1100", String.class));
+
+        // cleanup left only the other clinic behind
+        assertEquals(List.of(1L, 2L), source.queryForList("SELECT id FROM users ORDER BY id", Long.class));
+        assertEquals(3, count(source, "medical_records"));
+    }
+
+    @Test
+    void keepSourceCopiesWithoutDeleting() throws Exception {
+        props.setKeepSource(true);
+
+        new ClinicMigrationRunner(ClinicDatabases.directory(defaultPool, Duration.ZERO), shards, clinics, props).run();
+
+        assertEquals("east", clinicRow().get("SHARD"));
+        assertEquals(5, count(source, "users"));
+        assertEquals(6, count(target, "prescriptions"));
+    }
+
+    @Test
+    void aFailedCatchUpUnfreezesTheClinicWhereItWas() {
+        ClinicDirectory directory = spy(ClinicDatabases.directory(defaultPool, Duration.ZERO));
+        doAnswer(freeze -> {
+            // refers to a doctor of another clinic, who is not on the target
+            record(1301, 11, 2);
+            return freeze.callRealMethod();
+        }).when(directory).setState(eq("north"), anyString(), eq("FROZEN"));
+
+        ClinicMigrationRunner runner = new ClinicMigrationRunner(directory, shards, clinics, props);
+        assertThrows(Exception.class, runner::run);
+
+        assertEquals(Map.of("SHARD", "default", "STATE", "ACTIVE"), clinicRow());
+        assertEquals(5, count(source, "users"));
+        assertEquals(9, count(source, "prescriptions"));
+    }
+
+    @Test
+    void aClinicAlreadyOnTheTargetIsLeftAlone() throws Exception {
+        source.update("UPDATE clinics SET shard = 'east' WHERE id = 'north'");
+
+        new ClinicMigrationRunner(ClinicDatabases.directory(defaultPool, Duration.ZERO), shards, clinics, props).run();
+
+        assertEquals(0, count(target, "users"));
+        assertEquals(5, count(source, "users"));
+    }
+
+    @Test
+    void seriesAndWaitlistEntriesMoveWithTheirPatients() throws Exception {
+        source.update("INSERT INTO appointment_series (id, patient_id, doctor_id, first_date, frequency,"
+                + " repeat_interval, last_date) VALUES (11, 11, 10, '2030-01-07 09:00', 'WEEKLY', 1, '2030-03-25 09:00')");
+        source.update("INSERT INTO appointment_series_exceptions VALUES (11, '2030-01-14 09:00')");
+        source.update("INSERT INTO appointment_series_exceptions VALUES (11, '2030-01-21 09:00')");
+        source.update("INSERT INTO appointments (id, appointment_date, status, patient_id, doctor_id, series_id,"
+                + " occurrence_date) VALUES (1150, '2030-01-21 10:00', 'ACCEPTED', 11, 10, 11, '2030-01-21 09:00')");
+        source.update("INSERT INTO waitlist_entries (id, patient_id, doctor_id, urgency, requested_at, status)"
+                + " VALUES (12, 12, 10, 'URGENT', NOW(6), 'WAITING')");
+
+        new ClinicMigrationRunner(ClinicDatabases.directory(defaultPool, Duration.ZERO), shards, clinics, props).run();
+
+        assertEquals("east", clinicRow().get("SHARD"));
+        assertEquals(1, count(target, "appointment_series"));
+        assertEquals(2, count(target, "appointment_series_exceptions"));
+        assertEquals(11L, target.queryForObject("SELECT series_id FROM appointments WHERE id = 1150", Long.class));
+        assertEquals("WAITING", target.queryForObject("SELECT status FROM waitlist_entries WHERE id = 12", String.class));
+
+        // cleanup got past the series and waitlist foreign keys
+        assertEquals(List.of(1L, 2L), source.queryForList("SELECT id FROM users ORDER BY id", Long.class));
+        assertEquals(0, count(source, "appointment_series"));
+        assertEquals(0, count(source, "appointment_series_exceptions"));
+        assertEquals(0, count(source, "waitlist_entries"));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private void user(long id, String role, String username, String clinic) {
+        source.update("INSERT INTO users (id, role, username, email, pass_hash, created_at, date_of_birth)"
+                + " VALUES (?, ?, ?, ?, 'hash', NOW(6), '1980-01-01')", id, role, username, username + "@medsys.local");
+        source.update("INSERT INTO user_clinics (username, clinic_id) VALUES (?, ?)", username, clinic);
+    }
+
+    private static void record(long id, long patient, long doctor) {
+        source.update("INSERT INTO medical_records (id, created_at, title, patient_id, doctor_id)"
+                + " VALUES (?, NOW(6), 'check-up', ?, ?)", id, patient, doctor);
+    }
+
+    private Map<String, Object> clinicRow() {
+        return source.queryForMap("SELECT shard AS SHARD, state AS STATE FROM clinics WHERE id = 'north'");
+    }
+
+    private static int count(JdbcTemplate jdbc, String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
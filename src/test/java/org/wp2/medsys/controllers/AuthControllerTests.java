@@ -0,0 +1,107 @@
+package org.wp2.medsys.controllers;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.wp2.medsys.DTO.RegisterDTO;
+import org.wp2.medsys.clinics.ClinicDirectory;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Role;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.portal.PortalSummaryService;
+import org.wp2.medsys.registration.AvailabilityProperties;
+import org.wp2.medsys.registration.UserAvailability;
+import org.wp2.medsys.repositories.UserRepository;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Registration behind the availability filters, loaded with one existing
+ * user ({@code ana}): a name the filters might hold is confirmed with the
+ * database before the password is hashed, anything else goes straight on.
+ */
+class AuthControllerTests {
+
+    private final UserRepository  repo     = mock(UserRepository.class);
+    private final PasswordEncoder encoder  = mock(PasswordEncoder.class);
+    private final ClinicDirectory clinics  = mock(ClinicDirectory.class);
+    private final JdbcTemplate    jdbc     = mock(JdbcTemplate.class);
+
+    private AuthController controller;
+
+    @BeforeEach
+    void filtersHoldAna() throws Exception {
+        when(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).thenReturn(1L);
+        doAnswer(scan -> {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getString(1)).thenReturn("ana");
+            when(rs.getString(2)).thenReturn("ana@medsys.local");
+            scan.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        UserAvailability availability = new UserAvailability(
+                jdbc, repo, new AvailabilityProperties(), new ClinicShards(new ClinicProperties()));
+        availability.load();
+        controller = new AuthController(repo, encoder, availability, clinics, mock(PortalSummaryService.class));
+    }
+
+    @Test
+    void aNameTheFiltersMightHoldIsCheckedAndRefusedBeforeHashing() {
+        when(repo.existsByUsername("ana")).thenReturn(true);
+
+        assertEquals("redirect:/register?taken=username", controller.register(patient("ana", "other@medsys.local")));
+
+        verify(repo).existsByUsername("ana");
+        verifyNoInteractions(encoder, clinics);
+        verify(repo, never()).save(any());
+    }
+
+    @Test
+    void aTakenEmailIsRefusedTheSameWay() {
+        when(repo.existsByEmail("ana@medsys.local")).thenReturn(true);
+
+        assertEquals("redirect:/register?taken=email", controller.register(patient("zoe", "ana@medsys.local")));
+
+        verify(repo, never()).existsByUsername(anyString());
+        verifyNoInteractions(encoder, clinics);
+    }
+
+    @Test
+    void aHitTheDatabaseDoesNotConfirmRegisters() {
+        // in the filters, but the account is gone (or it was a false positive)
+        when(repo.existsByUsername("ana")).thenReturn(false);
+
+        assertEquals("redirect:/login?registered", controller.register(patient("ana", "ana.new@medsys.local")));
+
+        verify(repo).existsByUsername("ana");
+        verify(clinics).assignToDefaultClinic("ana");
+        verify(repo).save(any(User.class));
+    }
+
+    @Test
+    void aNameTheFiltersDoNotHoldRegistersWithoutALookup() {
+        assertEquals("redirect:/login?registered", controller.register(patient("zoe", "zoe@medsys.local")));
+
+        verify(repo, never()).existsByUsername(anyString());
+        verify(repo, never()).existsByEmail(anyString());
+        verify(encoder).encode("secret");
+        verify(repo).save(any(User.class));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static RegisterDTO patient(String username, String email) {
+        return new RegisterDTO(username, email, "secret", LocalDate.of(1990, 1, 1), Role.PATIENT);
+    }
+}
@@ -0,0 +1,130 @@
+package org.wp2.medsys.idempotency;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyFilterTests {
+
+    private static final String PATH = "/doctor/records/add";
+
+    private final KeyTable              table  = new KeyTable();
+    private final IdempotencyProperties props  = new IdempotencyProperties();
+    private final IdempotencyKeys       keys   = new IdempotencyKeys(table, props, new ClinicShards(new ClinicProperties()));
+    private final IdempotencyFilter     filter = new IdempotencyFilter(keys, props);
+
+    /** times the request reached the controller, i.e. wrote a record */
+    private final AtomicInteger writes = new AtomicInteger();
+
+    @Test
+    void theFirstSubmissionWritesAndARepeatGetsTheSameRedirect() throws Exception {
+        String token = keys.issue();
+        FilterChain controller = (request, response) -> {
+            writes.incrementAndGet();
+            ((HttpServletResponse) response).sendRedirect("/doctor/records?success=true");
+        };
+
+        MockHttpServletResponse first  = submit(token, controller);
+        MockHttpServletResponse repeat = submit(token, controller);
+
+        assertEquals(1, writes.get());
+        assertEquals("/doctor/records?success=true", first.getRedirectedUrl());
+        assertEquals("/doctor/records?success=true", repeat.getRedirectedUrl());
+    }
+
+    @Test
+    void aDoubleClickWaitsForTheFirstSubmissionAndGetsItsRedirect() throws Exception {
+        String token = keys.issue();
+        CountDownLatch inController = new CountDownLatch(1);
+        CountDownLatch release      = new CountDownLatch(1);
+        FilterChain slowController = (request, response) -> {
+            writes.incrementAndGet();
+            inController.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            ((HttpServletResponse) response).sendRedirect("/doctor/records?success=true");
+        };
+
+        CompletableFuture<MockHttpServletResponse> first = CompletableFuture.supplyAsync(() -> submitUnchecked(token, slowController));
+        assertTrue(inController.await(5, TimeUnit.SECONDS));
+        CompletableFuture<MockHttpServletResponse> second = CompletableFuture.supplyAsync(() -> submitUnchecked(token, slowController));
+        Thread.sleep(100);
+        assertFalse(second.isDone(), "the copy must wait for the first submission");
+
+        release.countDown();
+        assertEquals("/doctor/records?success=true", first.get(5, TimeUnit.SECONDS).getRedirectedUrl());
+        assertEquals("/doctor/records?success=true", second.get(5, TimeUnit.SECONDS).getRedirectedUrl());
+        assertEquals(1, writes.get());
+    }
+
+    @Test
+    void aSubmissionThatDoesNotRedirectGivesItsKeyBack() throws Exception {
+        String token = keys.issue();
+        FilterChain failing = (request, response) -> {
+            writes.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        };
+
+        submit(token, failing);
+        submit(token, failing);
+
+        assertEquals(2, writes.get());
+        assertFalse(table.holds("doctor", token));
+    }
+
+    @Test
+    void submissionsWithoutAKeyPassThrough() throws Exception {
+        FilterChain controller = (request, response) -> writes.incrementAndGet();
+
+        submit(null, controller);
+        submit(null, controller);
+        submit("short", controller);
+
+        assertEquals(3, writes.get());
+        assertEquals(0, table.claims);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private MockHttpServletResponse submit(String token, FilterChain controller) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.setServletPath(PATH);
+        if (token != null) {
+            request.setParameter(IdempotencyFilter.PARAMETER, token);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                "doctor", null, AuthorityUtils.createAuthorityList("ROLE_DOCTOR")));
+        try {
+            filter.doFilter(request, response, controller);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+        return response;
+    }
+
+    private MockHttpServletResponse submitUnchecked(String token, FilterChain controller) {
+        try {
+            return submit(token, controller);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
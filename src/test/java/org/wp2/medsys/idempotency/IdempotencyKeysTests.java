@@ -0,0 +1,115 @@
+package org.wp2.medsys.idempotency;
+
+import org.junit.jupiter.api.Test;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdempotencyKeysTests {
+
+    private final KeyTable              table = new KeyTable();
+    private final IdempotencyProperties props = new IdempotencyProperties();
+
+    @Test
+    void theFirstSubmissionRunsAndLaterCopiesReplayItsRedirect() {
+        IdempotencyKeys keys = node();
+        String token = keys.issue();
+
+        IdempotencyKeys.Claim first = keys.claim("ana", token);
+        assertEquals(IdempotencyKeys.Claim.Kind.RUN, first.kind());
+        assertTrue(table.holds("ana", token), "claimed in the table");
+        keys.complete(first, "/patient/dashboard");
+        assertEquals("/patient/dashboard", table.result("ana", token));
+
+        IdempotencyKeys.Claim copy = keys.claim("ana", token);
+        assertEquals(IdempotencyKeys.Claim.Kind.REPLAY, copy.kind());
+        assertEquals("/patient/dashboard", copy.location());
+        assertEquals(1, table.claims, "a replay from memory does not touch the table");
+
+        assertEquals(IdempotencyKeys.Claim.Kind.RUN, keys.claim("ben", token).kind(), "keys are per user");
+    }
+
+    @Test
+    void aConcurrentCopyWaitsForTheOriginalAndGetsTheSameRedirect() throws Exception {
+        IdempotencyKeys keys = node();
+        String token = keys.issue();
+        IdempotencyKeys.Claim first = keys.claim("ana", token);
+
+        CompletableFuture<IdempotencyKeys.Claim> copy = CompletableFuture.supplyAsync(() -> keys.claim("ana", token));
+        Thread.sleep(100);
+        assertFalse(copy.isDone(), "the copy must wait while the original runs");
+
+        keys.complete(first, "/doctor/records?success=true");
+        IdempotencyKeys.Claim replayed = copy.get(5, TimeUnit.SECONDS);
+        assertEquals(IdempotencyKeys.Claim.Kind.REPLAY, replayed.kind());
+        assertEquals("/doctor/records?success=true", replayed.location());
+    }
+
+    @Test
+    void aCopyOfASubmissionOnAnotherNodeIsReplayedFromTheTable() throws Exception {
+        IdempotencyKeys a = node();
+        IdempotencyKeys b = node();
+        String token = a.issue();
+        IdempotencyKeys.Claim first = a.claim("ana", token);
+
+        CompletableFuture<IdempotencyKeys.Claim> copy = CompletableFuture.supplyAsync(() -> b.claim("ana", token));
+        Thread.sleep(150);
+        a.complete(first, "/patient/dashboard");
+
+        IdempotencyKeys.Claim replayed = copy.get(5, TimeUnit.SECONDS);
+        assertEquals(IdempotencyKeys.Claim.Kind.REPLAY, replayed.kind());
+        assertEquals("/patient/dashboard", replayed.location());
+    }
+
+    @Test
+    void aCopyStillWaitingAtTheDeadlineIsToldTheFormIsBusy() {
+        props.setReplayWait(Duration.ofMillis(50));
+        IdempotencyKeys keys = node();
+        String token = keys.issue();
+        keys.claim("ana", token);
+
+        assertEquals(IdempotencyKeys.Claim.Kind.BUSY, keys.claim("ana", token).kind());
+        assertEquals(IdempotencyKeys.Claim.Kind.BUSY, node().claim("ana", token).kind(), "same on another node");
+    }
+
+    @Test
+    void aKeyGivenBackLetsAWaitingCopyRun() throws Exception {
+        IdempotencyKeys keys = node();
+        String token = keys.issue();
+        IdempotencyKeys.Claim first = keys.claim("ana", token);
+
+        CompletableFuture<IdempotencyKeys.Claim> copy = CompletableFuture.supplyAsync(() -> keys.claim("ana", token));
+        Thread.sleep(100);
+        keys.abandon(first);
+
+        assertEquals(IdempotencyKeys.Claim.Kind.RUN, copy.get(5, TimeUnit.SECONDS).kind());
+    }
+
+    @Test
+    void anExpiredKeyIsAcceptedAgain() throws Exception {
+        props.setTtl(Duration.ofMillis(20));
+        IdempotencyKeys keys = node();
+        String token = keys.issue();
+        keys.complete(keys.claim("ana", token), "/patient/dashboard");
+        assertEquals(IdempotencyKeys.Claim.Kind.REPLAY, keys.claim("ana", token).kind());
+
+        Thread.sleep(50);
+        keys.sweep();
+        keys.purge();
+
+        assertFalse(table.holds("ana", token));
+        assertEquals(IdempotencyKeys.Claim.Kind.RUN, keys.claim("ana", token).kind());
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** one application node; nodes made by one test share the table */
+    private IdempotencyKeys node() {
+        return new IdempotencyKeys(table, props, new ClinicShards(new ClinicProperties()));
+    }
+}
@@ -0,0 +1,68 @@
+package org.wp2.medsys.idempotency;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code idempotency_keys} in memory: does to a map what the statements of
+ * {@link IdempotencyKeys} do to the table. Several {@code IdempotencyKeys}
+ * sharing one stand for several nodes.
+ */
+class KeyTable extends JdbcTemplate {
+
+    private record Row(String result, long createdAt) {}
+
+    private final Map<String, Row> rows = new HashMap<>();
+
+    int claims;
+
+    @Override
+    public synchronized int update(String sql, Object... args) {
+        if (sql.startsWith("INSERT IGNORE INTO idempotency_keys")) {
+            claims++;
+            return rows.putIfAbsent(key(args[0], args[1]), new Row(null, System.currentTimeMillis())) == null ? 1 : 0;
+        }
+        if (sql.startsWith("UPDATE idempotency_keys SET result")) {
+            Row row = rows.get(key(args[1], args[2]));
+            if (row == null) {
+                return 0;
+            }
+            rows.put(key(args[1], args[2]), new Row((String) args[0], row.createdAt()));
+            return 1;
+        }
+        if (sql.startsWith("DELETE FROM idempotency_keys WHERE username")) {
+            return rows.remove(key(args[0], args[1])) == null ? 0 : 1;
+        }
+        if (sql.startsWith("DELETE FROM idempotency_keys WHERE created_at")) {
+            long cutoff = ((Timestamp) args[0]).getTime();
+            int before = rows.size();
+            rows.values().removeIf(row -> row.createdAt() < cutoff);
+            return before - rows.size();
+        }
+        throw new IllegalArgumentException("Unexpected statement: " + sql);
+    }
+
+    @Override
+    public synchronized <T> List<T> queryForList(String sql, Class<T> elementType, Object... args) {
+        Row row = rows.get(key(args[0], args[1]));
+        return row == null ? List.of() : Collections.singletonList(elementType.cast(row.result()));
+    }
+
+    synchronized String result(String user, String token) {
+        Row row = rows.get(key(user, token));
+        return row == null ? null : row.result();
+    }
+
+    synchronized boolean holds(String user, String token) {
+        return rows.containsKey(key(user, token));
+    }
+
+    private static String key(Object user, Object token) {
+        return user + "\n" + token;
+    }
+}
@@ -0,0 +1,49 @@
+package org.wp2.medsys.interactions;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InteractionTableTests {
+
+    private static final String CSV = """
+            # comment
+            warfarin,aspirin,MAJOR,Bleeding
+            warfarin,Ibuprofen,major,Bleeding
+            ibuprofen,aspirin,MINOR,Less antiplatelet effect
+            sildenafil,nitroglycerin,CONTRAINDICATED,Hypotension
+
+            """;
+
+    @Test
+    void findsInteractionsInBothDirectionsMostSevereFirst() throws IOException {
+        InteractionTable table = InteractionTable.parse(new StringReader(CSV));
+        assertEquals(5, table.medicationCount());
+        assertEquals(4, table.pairCount());
+
+        List<InteractionWarning> warnings = table.check("Aspirin", List.of("paracetamol", "ibuprofen", " WARFARIN "));
+        assertEquals(2, warnings.size());
+        assertEquals(Severity.MAJOR, warnings.get(0).severity());
+        assertEquals("WARFARIN", warnings.get(0).interactsWith());
+        assertEquals(Severity.MINOR, warnings.get(1).severity());
+    }
+
+    @Test
+    void unknownMedicationsHaveNoWarnings() throws IOException {
+        InteractionTable table = InteractionTable.parse(new StringReader(CSV));
+        assertTrue(table.check("amoxicillin", List.of("warfarin")).isEmpty());
+        assertTrue(table.check("warfarin", List.of()).isEmpty());
+    }
+
+    @Test
+    void rejectsMalformedLines() {
+        assertThrows(IllegalArgumentException.class,
+                () -> InteractionTable.parse(new StringReader("warfarin,aspirin,SEVERE,x")));
+        assertThrows(IllegalArgumentException.class,
+                () -> InteractionTable.parse(new StringReader("warfarin;aspirin")));
+    }
+}
@@ -0,0 +1,133 @@
+package org.wp2.medsys.portal;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanoutTests {
+
+    private final ExecutorService  executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final MeterRegistry    meters   = new SimpleMeterRegistry();
+    private final PortalProperties props    = new PortalProperties();
+
+    /** parts interrupted, i.e. cancelled while they ran */
+    private final AtomicInteger interrupted = new AtomicInteger();
+
+    @AfterEach
+    void stop() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void aSlowPartIsLeftOutAtItsDeadlineAndCancelled() {
+        props.setTimeout(Duration.ofMillis(100));
+        long start = System.nanoTime();
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            Future<Long> pending  = fanout.fork(() -> 3L);
+            Future<Long> upcoming = fanout.fork(slow(7L));
+
+            assertEquals(3L, fanout.join("pending", pending));
+            assertNull(fanout.join("upcoming", upcoming));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5), "waited past the deadline");
+        awaitInterrupted(1);
+        assertEquals(1, count("pending", "ok"));
+        assertEquals(1, count("upcoming", "timeout"));
+    }
+
+    @Test
+    void deadlinesCountFromTheStartOfThePage() {
+        props.setTimeout(Duration.ofMillis(300));
+        long start = System.nanoTime();
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            Future<Long> first  = fanout.fork(slow(1L));
+            Future<Long> second = fanout.fork(slow(2L));
+
+            assertNull(fanout.join("upcoming", first));
+            assertNull(fanout.join("records", second));   // its 300 ms were already used up
+        }
+        long elapsed = System.nanoTime() - start;
+        assertTrue(elapsed < TimeUnit.MILLISECONDS.toNanos(550), "parts waited one after another: " + elapsed);
+    }
+
+    @Test
+    void aFailingPartIsLeftOutAndTheOthersStillLoad() {
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            Future<Long> failing = fanout.fork(() -> {
+                throw new IllegalStateException("connection refused");
+            });
+            Future<Long> pending = fanout.fork(() -> 4L);
+
+            assertNull(fanout.join("records", failing));
+            assertEquals(4L, fanout.join("pending", pending));
+        }
+        assertEquals(1, count("records", "failed"));
+        assertEquals(1, count("pending", "ok"));
+    }
+
+    @Test
+    void aPartCanHaveItsOwnDeadline() {
+        props.setTimeout(Duration.ofMillis(20));
+        props.getTimeouts().put("records", Duration.ofSeconds(5));
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            Future<Long> records = fanout.fork(() -> {
+                sleep(200);
+                return 5L;
+            });
+            assertEquals(5L, fanout.join("records", records));
+        }
+    }
+
+    @Test
+    void closingCancelsPartsNobodyJoined() {
+        try (Fanout fanout = new Fanout(executor, props, meters)) {
+            fanout.fork(slow(1L));
+            fanout.fork(slow(2L));
+        }
+        awaitInterrupted(2);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private Supplier<Long> slow(long value) {
+        return () -> {
+            try {
+                Thread.sleep(60_000);
+            } catch (InterruptedException e) {
+                interrupted.incrementAndGet();
+            }
+            return value;
+        };
+    }
+
+    private void awaitInterrupted(int parts) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (interrupted.get() < parts) {
+            assertTrue(System.nanoTime() < deadline, "parts outlived the page");
+            sleep(10);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private double count(String part, String outcome) {
+        return meters.counter("medsys.portal.parts", "part", part, "outcome", outcome).count();
+    }
+}
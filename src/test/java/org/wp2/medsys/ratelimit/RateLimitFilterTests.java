@@ -0,0 +1,88 @@
+package org.wp2.medsys.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Policies for the sign-up endpoints as configured: the form POST and the
+ * anonymous availability lookup (a GET), both keyed by IP.
+ */
+class RateLimitFilterTests {
+
+    private final RateLimitProperties props  = new RateLimitProperties();
+    private final RateLimitFilter     filter = new RateLimitFilter(new RateLimiter(props), props);
+
+    /** requests that got through to the controller */
+    private final AtomicInteger passed = new AtomicInteger();
+    private final FilterChain   controller = (request, response) -> passed.incrementAndGet();
+
+    @BeforeEach
+    void signUpPolicies() {
+        props.getPolicies().put("register", policy("/register", "POST", 3));
+        props.getPolicies().put("availability", policy("/register/availability", "GET", 2));
+    }
+
+    @Test
+    void availabilityLookupsAreLimitedPerAddress() throws Exception {
+        assertEquals(200, send("GET", "/register/availability", "10.0.0.1").getStatus());
+        assertEquals(200, send("GET", "/register/availability", "10.0.0.1").getStatus());
+
+        MockHttpServletResponse refused = send("GET", "/register/availability", "10.0.0.1");
+        assertEquals(429, refused.getStatus());
+        assertNotNull(refused.getHeader("Retry-After"));
+
+        assertEquals(200, send("GET", "/register/availability", "10.0.0.2").getStatus(), "another address has its own bucket");
+        assertEquals(3, passed.get());
+    }
+
+    @Test
+    void aPolicyOnlyCountsItsOwnMethod() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("GET", "/register", "10.0.0.1").getStatus(), "the sign-up page itself");
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, send("POST", "/register", "10.0.0.1").getStatus());
+        }
+        assertEquals(429, send("POST", "/register", "10.0.0.1").getStatus());
+        assertEquals(200, send("POST", "/register/availability", "10.0.0.1").getStatus(), "no POST policy there");
+    }
+
+    @Test
+    void nothingIsLimitedWhenDisabled() throws Exception {
+        props.setEnabled(false);
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, send("GET", "/register/availability", "10.0.0.1").getStatus());
+        }
+        assertEquals(5, passed.get());
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static RateLimitProperties.Policy policy(String path, String method, int capacity) {
+        RateLimitProperties.Policy policy = new RateLimitProperties.Policy();
+        policy.setPath(path);
+        policy.setMethod(method);
+        policy.setCapacity(capacity);
+        policy.setRefillPeriod(Duration.ofHours(1));
+        policy.setKey(RateLimitProperties.KeyType.IP);
+        return policy;
+    }
+
+    private MockHttpServletResponse send(String method, String path, String address) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        request.setRemoteAddr(address);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+}
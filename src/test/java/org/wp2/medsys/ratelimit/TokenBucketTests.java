@@ -0,0 +1,55 @@
+package org.wp2.medsys.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    void allowsBurstThenAsksToWaitOneInterval() {
+        TokenBucket bucket = new TokenBucket(5, 10 * SECOND, 0);   // 1 token / 2s
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.tryAcquire(0), "call " + i + " should be inside the burst");
+        }
+        assertEquals(2 * SECOND, bucket.tryAcquire(0));
+        assertEquals(0, bucket.tryAcquire(2 * SECOND));
+    }
+
+    @Test
+    void refillsCompletelyAndBecomesIdle() {
+        TokenBucket bucket = new TokenBucket(3, 3 * SECOND, 0);
+        for (int i = 0; i < 3; i++) bucket.tryAcquire(0);
+
+        assertFalse(bucket.isIdle(3 * SECOND, SECOND));
+        assertTrue(bucket.isIdle(5 * SECOND, SECOND));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, bucket.tryAcquire(5 * SECOND));
+        }
+    }
+
+    @Test
+    void neverHandsOutMoreThanCapacityUnderContention() throws Exception {
+        TokenBucket bucket = new TokenBucket(1_000, 1_000 * SECOND, 0);
+        AtomicInteger granted = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        for (int t = 0; t < 8; t++) {
+            pool.submit(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (bucket.tryAcquire(0) == 0) granted.incrementAndGet();
+                }
+            });
+        }
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(30, TimeUnit.SECONDS));
+        assertEquals(1_000, granted.get());
+    }
+}
@@ -0,0 +1,115 @@
+package org.wp2.medsys.recurrence;
+
+import org.junit.jupiter.api.Test;
+import org.wp2.medsys.domain.Frequency;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecurrenceRuleTests {
+
+    private static final LocalDateTime JAN_31 = LocalDateTime.of(2025, 1, 31, 9, 30);
+
+    @Test
+    void windowsMatchAWalkFromTheStart() {
+        Random rnd = new Random(3);
+        for (int i = 0; i < 2_000; i++) {
+            Frequency f = rnd.nextBoolean() ? Frequency.WEEKLY : Frequency.MONTHLY;
+            Integer count = rnd.nextBoolean() ? 1 + rnd.nextInt(60) : null;
+            LocalDateTime until = count == null || rnd.nextBoolean() ? JAN_31.plusDays(rnd.nextInt(2_000)) : null;
+            RecurrenceRule rule = new RecurrenceRule(JAN_31, f, 1 + rnd.nextInt(3), count, until);
+
+            LocalDateTime from = JAN_31.plusHours(rnd.nextInt(24 * 1_500) - 24 * 30);
+            LocalDateTime to   = from.plusHours(rnd.nextInt(24 * 400));
+            assertEquals(walk(rule, from, to), rule.between(from, to), rule + " in [" + from + ", " + to + ")");
+
+            List<LocalDateTime> all = walk(rule, JAN_31, JAN_31.plusYears(100));
+            assertEquals(all.isEmpty() ? null : all.get(all.size() - 1), rule.last(), rule.toString());
+        }
+    }
+
+    @Test
+    void monthlyOnTheThirtyFirstClampsAndComesBack() {
+        RecurrenceRule rule = new RecurrenceRule(JAN_31, Frequency.MONTHLY, 1, 4, null);
+        assertEquals(List.of(JAN_31, LocalDateTime.of(2025, 2, 28, 9, 30),
+                        LocalDateTime.of(2025, 3, 31, 9, 30), LocalDateTime.of(2025, 4, 30, 9, 30)),
+                rule.between(JAN_31, JAN_31.plusYears(1)));
+    }
+
+    @Test
+    void openEndedSeriesExpandOnlyTheWindow() {
+        RecurrenceRule rule = new RecurrenceRule(JAN_31, Frequency.WEEKLY, 1, null, null);
+        assertNull(rule.last());
+        LocalDateTime from = JAN_31.plusYears(50);
+        assertEquals(2, rule.between(from, from.plusWeeks(2)).size());
+    }
+
+    @Test
+    void rejectsNonsense() {
+        assertThrows(IllegalArgumentException.class, () -> new RecurrenceRule(JAN_31, Frequency.WEEKLY, 0, 3, null));
+        assertThrows(IllegalArgumentException.class, () -> new RecurrenceRule(JAN_31, Frequency.WEEKLY, 1, 0, null));
+        assertThrows(IllegalArgumentException.class,
+                () -> new RecurrenceRule(JAN_31, Frequency.WEEKLY, 1, null, JAN_31.minusDays(1)));
+    }
+
+    @Test
+    void hugeSeriesAreCountedWithoutExpanding() {
+        RecurrenceRule rule = new RecurrenceRule(JAN_31, Frequency.MONTHLY, 1, 2_000_000_000, null);
+        assertEquals(2_000_000_000L, rule.size());
+        assertEquals(JAN_31.plusMonths(1_999_999_999L), rule.last());
+
+        RecurrenceRule untilFarAway = new RecurrenceRule(JAN_31, Frequency.WEEKLY, 1, null, JAN_31.plusYears(1_000_000));
+        assertTrue(untilFarAway.size() > 50_000_000L, "size " + untilFarAway.size());
+        assertEquals(10, new RecurrenceRule(JAN_31, Frequency.WEEKLY, 2, null, JAN_31.plusWeeks(18)).size());
+    }
+
+    @Test
+    void seriesBeyondTheCalendarAreRejectedNotCrashed() {
+        RecurrenceRule wide = new RecurrenceRule(JAN_31, Frequency.WEEKLY, Integer.MAX_VALUE, 1_000, null);
+        assertThrows(IllegalArgumentException.class, wide::last);
+        assertThrows(IllegalArgumentException.class, () -> wide.between(JAN_31, LocalDateTime.MAX));
+
+        RecurrenceRule overflow = new RecurrenceRule(JAN_31, Frequency.MONTHLY, Integer.MAX_VALUE, Integer.MAX_VALUE, null);
+        assertThrows(IllegalArgumentException.class, overflow::last);
+
+        RecurrenceRule forever = new RecurrenceRule(JAN_31, Frequency.MONTHLY, 1, null, LocalDateTime.MAX);
+        assertThrows(IllegalArgumentException.class, forever::size);
+    }
+
+    @Test
+    void conflictsAreFoundWithOneLookupPerCandidate() {
+        Duration half = Duration.ofMinutes(30);
+        TreeSet<LocalDateTime> busy = new TreeSet<>(List.of(JAN_31.plusWeeks(3).plusMinutes(20)));
+        RecurrenceRule rule = new RecurrenceRule(JAN_31, Frequency.WEEKLY, 1, 10, null);
+        assertEquals(JAN_31.plusWeeks(3), Conflicts.first(rule.between(JAN_31, JAN_31.plusYears(1)), busy, half));
+
+        busy = new TreeSet<>(List.of(JAN_31.plusWeeks(3).plusMinutes(30), JAN_31.plusWeeks(4).minusMinutes(30)));
+        assertNull(Conflicts.first(rule.between(JAN_31, JAN_31.plusYears(1)), busy, half), "back to back is fine");
+
+        assertTrue(Conflicts.timesOverlap(LocalTime.of(9, 30), LocalTime.of(9, 45), half));
+        assertFalse(Conflicts.timesOverlap(LocalTime.of(9, 30), LocalTime.of(10, 0), half));
+        assertTrue(Conflicts.timesOverlap(LocalTime.of(23, 50), LocalTime.of(0, 10), half));
+    }
+
+    private static List<LocalDateTime> walk(RecurrenceRule rule, LocalDateTime from, LocalDateTime to) {
+        List<LocalDateTime> out = new ArrayList<>();
+        for (long k = 0; k < 100_000; k++) {
+            LocalDateTime t = rule.occurrence(k);
+            boolean runs = (rule.count() == null || k < rule.count()) && (rule.until() == null || !t.isAfter(rule.until()));
+            if (!runs || !t.isBefore(to)) {
+                break;
+            }
+            if (!t.isBefore(from)) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+}
@@ -0,0 +1,182 @@
+package org.wp2.medsys.registration;
+
+import jakarta.persistence.EntityListeners;
+import jakarta.persistence.PostPersist;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.wp2.medsys.clinics.ClinicContext;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.User;
+import org.wp2.medsys.repositories.UserRepository;
+
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * The filters in front of the availability checks, over a {@code users} table
+ * kept per shard in memory. Which lookups reach the database is read from the
+ * shards the repository was asked on.
+ */
+class UserAvailabilityTests {
+
+    /** username and email rows of {@code users}, per shard */
+    private final Map<String, List<String[]>> shardRows = new LinkedHashMap<>();
+    /** shards asked by {@code existsBy…}, in order */
+    private final List<String> asked = new ArrayList<>();
+
+    private final JdbcTemplate           jdbc    = mock(JdbcTemplate.class);
+    private final UserRepository         users   = mock(UserRepository.class);
+    private final AvailabilityProperties props   = new AvailabilityProperties();
+    private final ClinicProperties       clinics = new ClinicProperties();
+
+    private int countQueries;
+    /** runs during the scan of the default shard, like an insert arriving mid-rebuild */
+    private Runnable duringScan = () -> {};
+
+    @BeforeEach
+    void fakeUsersTable() throws Exception {
+        shardRows.put(ClinicContext.DEFAULT_SHARD, new ArrayList<>());
+
+        when(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class)).thenAnswer(count -> {
+            countQueries++;
+            return (long) rowsHere().size();
+        });
+        doAnswer(scan -> {
+            RowCallbackHandler handler = scan.getArgument(1);
+            for (String[] row : rowsHere()) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getString(1)).thenReturn(row[0]);
+                when(rs.getString(2)).thenReturn(row[1]);
+                handler.processRow(rs);
+            }
+            if (shard().equals(ClinicContext.DEFAULT_SHARD)) {
+                duringScan.run();
+            }
+            return null;
+        }).when(jdbc).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        when(users.existsByUsername(anyString())).thenAnswer(q -> exists(0, q.getArgument(0)));
+        when(users.existsByEmail(anyString())).thenAnswer(q -> exists(1, q.getArgument(0)));
+    }
+
+    @Test
+    void everyCheckGoesToTheDatabaseUntilTheFiltersAreLoaded() {
+        row(ClinicContext.DEFAULT_SHARD, "ana", "ana@medsys.local");
+        UserAvailability availability = availability();
+
+        assertFalse(availability.isUsernameAvailable("ana"));
+        assertTrue(availability.isUsernameAvailable("zoe"));
+        assertEquals(2, asked.size());
+    }
+
+    @Test
+    void aRebuildReadsEveryShardAndHitsAreConfirmedOnEach() {
+        clinics.setEnabled(true);
+        clinics.getShards().put("east", new ClinicProperties.Shard());
+        shardRows.put("east", new ArrayList<>());
+        row(ClinicContext.DEFAULT_SHARD, "ana", "ana@medsys.local");
+        row("east", "ben", "ben@medsys.local");
+        UserAvailability availability = availability();
+        availability.rebuild();
+
+        assertTrue(availability.isUsernameAvailable("zoe"));
+        assertTrue(availability.isEmailAvailable("zoe@medsys.local"));
+        assertEquals(List.of(), asked, "a miss is answered from memory");
+
+        assertFalse(availability.isUsernameAvailable(" BEN "), "compared like the case-insensitive column");
+        assertEquals(List.of(ClinicContext.DEFAULT_SHARD, "east"), asked);
+
+        asked.clear();
+        assertFalse(availability.isEmailAvailable("ana@medsys.local"));
+        assertEquals(List.of(ClinicContext.DEFAULT_SHARD), asked, "stops at the first shard that has it");
+    }
+
+    @Test
+    void theInsertListenerFeedsNewUsersIntoTheFilters() throws Exception {
+        UserAvailability availability = availability();
+        availability.rebuild();
+        assertTrue(availability.isUsernameAvailable("dora"));
+        assertEquals(List.of(), asked);
+
+        new UserInsertListener(availability).onInsert(
+                new Patient("dora", "dora@medsys.local", "hash", LocalDate.of(1990, 1, 1), null, null, null));
+
+        // not committed yet, so the database still says free – but it was asked
+        assertTrue(availability.isUsernameAvailable("dora"));
+        assertTrue(availability.isEmailAvailable("dora@medsys.local"));
+        assertEquals(2, asked.size());
+
+        // and Hibernate calls the listener on every user insert
+        assertArrayEquals(new Class<?>[] {UserInsertListener.class},
+                User.class.getAnnotation(EntityListeners.class).value());
+        assertTrue(UserInsertListener.class.getDeclaredMethod("onInsert", User.class).isAnnotationPresent(PostPersist.class));
+    }
+
+    @Test
+    void anInsertDuringARebuildIsInTheNewFilters() {
+        UserAvailability availability = availability();
+        duringScan = () -> availability.added("eve", "eve@medsys.local");
+
+        availability.rebuild();
+
+        assertTrue(availability.isUsernameAvailable("eve"));
+        assertEquals(1, asked.size(), "a hit, confirmed with the database");
+    }
+
+    @Test
+    void theFiltersAreRebuiltOnceTheyHoldMoreUsersThanTheyWereSizedFor() {
+        props.setExpectedUsers(4);
+        row(ClinicContext.DEFAULT_SHARD, "ana", "ana@medsys.local");
+        UserAvailability availability = availability();
+        availability.rebuild();
+        assertEquals(1, countQueries);
+
+        for (String name : List.of("ben", "carl", "dora")) {
+            availability.added(name, name + "@medsys.local");
+        }
+        availability.resizeIfNeeded();
+        assertEquals(1, countQueries, "holding exactly what they were sized for");
+
+        availability.added("eve", "eve@medsys.local");
+        availability.resizeIfNeeded();
+        assertEquals(2, countQueries);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private UserAvailability availability() {
+        return new UserAvailability(jdbc, users, props, new ClinicShards(clinics));
+    }
+
+    private void row(String shard, String username, String email) {
+        shardRows.get(shard).add(new String[] {username, email});
+    }
+
+    private static String shard() {
+        String shard = ClinicContext.current();
+        return shard == null ? ClinicContext.DEFAULT_SHARD : shard;
+    }
+
+    private List<String[]> rowsHere() {
+        return shardRows.get(shard());
+    }
+
+    private boolean exists(int column, String value) {
+        asked.add(shard());
+        return rowsHere().stream().anyMatch(row -> row[column].equalsIgnoreCase(value));
+    }
+}
@@ -0,0 +1,227 @@
+package org.wp2.medsys.reminders;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The scheduler on the schema from the Flyway migrations, with a tick of
+ * 10 ms and reminders 1 h and 3 h ahead. Every appointment belongs to doctor 1
+ * and patient 2; dates are whole seconds, as the claim table stores them.
+ * Needs Docker and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ReminderSchedulerTests {
+
+    private static final Duration HOUR  = Duration.ofHours(1);
+    private static final Duration HOURS = Duration.ofHours(3);
+
+    @Container
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+    static HikariDataSource pool;
+
+    private final ReminderProperties props = new ReminderProperties();
+    private final SlicedJdbc         jdbc  = new SlicedJdbc(pool);
+    /** every reminder handed to a sender, on any node */
+    private final List<AppointmentReminder> sent = new CopyOnWriteArrayList<>();
+    private int failures;
+
+    private LocalDateTime now;
+
+    @BeforeAll
+    static void schema() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(mariadb.getJdbcUrl());
+        pool.setUsername(mariadb.getUsername());
+        pool.setPassword(mariadb.getPassword());
+        Flyway.configure().dataSource(pool).locations("classpath:db/migration").load().migrate();
+        new JdbcTemplate(pool).update("INSERT INTO users (id, role, username, email, pass_hash, created_at, date_of_birth)"
+                + " VALUES (1, 'DOCTOR', 'dr.who', 'who@medsys.local', 'hash', NOW(6), '1970-01-01'),"
+                + "        (2, 'PATIENT', 'ana', 'ana@medsys.local', 'hash', NOW(6), '1990-01-01')");
+    }
+
+    @AfterAll
+    static void close() {
+        pool.close();
+    }
+
+    @BeforeEach
+    void emptyTables() {
+        jdbc.update("DELETE FROM appointment_reminders_sent");
+        jdbc.update("DELETE FROM appointments");
+        props.setBefore(List.of(HOUR, HOURS));
+        props.setHorizon(Duration.ofHours(4));
+        props.setTick(Duration.ofMillis(10));
+        props.setMissedGrace(Duration.ofHours(2));
+        props.setRetryDelay(Duration.ofMillis(100));
+        now = LocalDateTime.now().withNano(0);
+    }
+
+    @Test
+    void afterDowntimeWhatFellDueWithinTheGraceGoesOutAtOnce() {
+        appointment(1, now.plusMinutes(30), Status.ACCEPTED);    // 1 h: 30 min late, 3 h: 2.5 h late
+        appointment(2, now.plusMinutes(150), Status.ACCEPTED);   // 1 h: not yet,     3 h: 30 min late
+        appointment(3, now.minusMinutes(10), Status.ACCEPTED);   // over
+        appointment(4, now.plusMinutes(30), Status.PENDING);
+        appointment(5, now.plusHours(5), Status.ACCEPTED);       // beyond the horizon
+
+        ReminderScheduler scheduler = scheduler();
+        scheduler.start();
+        scheduler.dispatch();
+        scheduler.dispatch();
+
+        assertEquals(Set.of("1:60", "2:180"), sentKeys());
+        assertEquals(Set.of("1:60", "2:180"), claims());
+        assertEquals("ana@medsys.local", sent.get(0).patientEmail());
+        assertEquals("who@medsys.local", sent.get(0).doctorEmail());
+    }
+
+    @Test
+    void eachLoadReadsOnlyTheSliceAfterThePreviousOne() {
+        ReminderScheduler scheduler = scheduler();
+        scheduler.start();
+        // no event: inside the window already read, so only the re-check at dispatch could see it
+        appointment(1, now.plusMinutes(30), Status.ACCEPTED);
+        scheduler.load();
+        scheduler.dispatch();
+
+        assertEquals(2, jdbc.slices.size());
+        Timestamp[] first = jdbc.slices.get(0), second = jdbc.slices.get(1);
+        assertEquals(first[1], second[0], "the second load starts where the first ended");
+        assertFalse(second[1].before(first[1]));
+        assertEquals(Set.of(), sentKeys(), "changes inside a loaded window arrive as events");
+    }
+
+    @Test
+    void eventsMoveCancelAndAddTimersAndTheDispatchReChecks() {
+        appointment(1, now.plusMinutes(30), Status.ACCEPTED);
+        appointment(2, now.plusMinutes(40), Status.ACCEPTED);
+        appointment(4, now.plusMinutes(50), Status.ACCEPTED);
+        ReminderScheduler scheduler = scheduler();
+        scheduler.start();
+
+        LocalDateTime moved = now.plusMinutes(45);
+        jdbc.update("UPDATE appointments SET appointment_date = ? WHERE id = 1", moved);
+        scheduler.onAppointmentChanged(new AppointmentChangedEvent(1, 1L, moved, Status.ACCEPTED));
+        jdbc.update("UPDATE appointments SET status = 'CANCELLED' WHERE id = 2");
+        scheduler.onAppointmentChanged(new AppointmentChangedEvent(2, 1L, now.plusMinutes(40), Status.CANCELLED));
+        appointment(3, now.plusMinutes(20), Status.ACCEPTED);
+        scheduler.onAppointmentChanged(new AppointmentChangedEvent(3, 1L, now.plusMinutes(20), Status.ACCEPTED));
+        // denied on another node: no event here, the dispatch finds out
+        jdbc.update("UPDATE appointments SET status = 'DENIED' WHERE id = 4");
+
+        scheduler.dispatch();
+
+        assertEquals(Set.of("1:60", "3:60"), sentKeys());
+        assertEquals(moved, sent.stream().filter(r -> r.appointmentId() == 1).findFirst().orElseThrow().appointmentDate());
+    }
+
+    @Test
+    void aFailedSendGivesItsClaimsBackAndIsRetried() throws Exception {
+        appointment(1, now.plusMinutes(30), Status.ACCEPTED);
+        failures = 1;
+        ReminderScheduler scheduler = scheduler();
+        scheduler.start();
+
+        scheduler.dispatch();
+        assertEquals(Set.of(), sentKeys());
+        assertEquals(Set.of(), claims(), "unclaimed, so this or another node can send it");
+
+        scheduler.dispatch();
+        assertEquals(Set.of(), sentKeys(), "not before retry-delay");
+
+        Thread.sleep(200);
+        scheduler.dispatch();
+        assertEquals(Set.of("1:60"), sentKeys());
+        assertEquals(Set.of("1:60"), claims());
+    }
+
+    @Test
+    void twoNodesSendEachReminderOnce() {
+        appointment(1, now.plusMinutes(30), Status.ACCEPTED);
+        ReminderScheduler a = scheduler();
+        ReminderScheduler b = scheduler();
+        a.start();
+        b.start();
+
+        a.dispatch();
+        b.dispatch();
+
+        assertEquals(1, sent.size());
+        assertEquals(Set.of("1:60"), claims());
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** records the window of every slice the scheduler loads */
+    private static final class SlicedJdbc extends JdbcTemplate {
+
+        final List<Timestamp[]> slices = new ArrayList<>();
+
+        SlicedJdbc(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            // the first page of a slice: keyset still at its start (lastId = 0)
+            if (sql.startsWith("SELECT id, appointment_date FROM appointments") && args[4].equals(0L)) {
+                slices.add(new Timestamp[] {(Timestamp) args[0], (Timestamp) args[1]});
+            }
+            return super.query(sql, rowMapper, args);
+        }
+    }
+
+    private ReminderScheduler scheduler() {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        beans.addBean("sender", (ReminderSender) batch -> {
+            if (failures > 0) {
+                failures--;
+                throw new IllegalStateException("mail server down");
+            }
+            sent.addAll(batch);
+        });
+        return new ReminderScheduler(jdbc, props, new ClinicShards(new ClinicProperties()),
+                beans.getBeanProvider(ReminderSender.class));
+    }
+
+    private void appointment(long id, LocalDateTime date, Status status) {
+        jdbc.update("INSERT INTO appointments (id, appointment_date, status, patient_id, doctor_id)"
+                + " VALUES (?, ?, ?, 2, 1)", id, date, status.name());
+    }
+
+    private Set<String> sentKeys() {
+        return sent.stream().map(r -> r.appointmentId() + ":" + r.before().toMinutes()).collect(Collectors.toSet());
+    }
+
+    private Set<String> claims() {
+        return Set.copyOf(jdbc.queryForList(
+                "SELECT CONCAT(appointment_id, ':', minutes_before) FROM appointment_reminders_sent", String.class));
+    }
+}
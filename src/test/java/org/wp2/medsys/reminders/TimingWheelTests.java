@@ -0,0 +1,69 @@
+package org.wp2.medsys.reminders;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTests {
+
+    @Test
+    void firesEveryTimerAtItsTickAcrossAllLevels() {
+        TimingWheel<Integer, Long> wheel = new TimingWheel<>(1_000, 4, 0);
+        Random random = new Random(7);
+        Map<Integer, Long> due = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long at = 1_000L * random.nextInt(64 * 64 * 64 * 2);     // up to level 3
+            due.put(i, at);
+            assertTrue(wheel.schedule(i, at, at));
+        }
+
+        long fired = 0;
+        for (long now = 0; now <= 1_000L * 64 * 64 * 64 * 2; now += 1_000) {
+            for (long at : wheel.advance(now)) {
+                assertEquals(now, at);
+                fired++;
+            }
+        }
+        assertEquals(due.size(), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduleAndCancelReplaceTheOldTimer() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1_000, 4, 0);
+        wheel.schedule("a", 10_000, "a@10");
+        wheel.schedule("a", 20_000, "a@20");
+        wheel.schedule("b", 15_000, "b@15");
+        wheel.cancel("b");
+        assertTrue(wheel.scheduleIfAbsent("a", 5_000, "a@5"));
+        assertEquals(1, wheel.size());
+
+        assertEquals(List.of(), wheel.advance(19_999));
+        assertEquals(List.of("a@20"), wheel.advance(20_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDueTimersFireOnNextAdvanceAndFarOnesAreRefused() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(1_000, 2, 100_000);
+        assertTrue(wheel.schedule("late", 40_000, "late"));
+        assertFalse(wheel.schedule("far", 100_000 + wheel.spanMillis() + 1_000, "far"));
+        assertEquals(List.of("late"), wheel.advance(100_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void jumpingAheadStillFiresInOrder() {
+        TimingWheel<Integer, Integer> wheel = new TimingWheel<>(1_000, 3, 0);
+        for (int i = 1; i <= 300; i++) {
+            wheel.schedule(i, i * 13_000L, i);
+        }
+        List<Integer> fired = wheel.advance(300 * 13_000L);
+        assertEquals(300, fired.size());
+        for (int i = 0; i < fired.size(); i++) {
+            assertEquals(i + 1, fired.get(i));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.wp2.medsys.schema;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.ApplicationContext;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.repository.Repository;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Index advisor: runs every query method declared on the repositories against
+ * a migrated, seeded MariaDB, captures the SQL Hibernate sends from the
+ * general log and EXPLAINs it. A full scan ({@code type=ALL}) of a hot table
+ * fails the build – add the index in a new migration.
+ * <p>
+ * Inherited {@code JpaRepository} methods are left out; {@code findAll} scans
+ * by definition. Needs Docker and is skipped without it.
+ */
+@SpringBootTest(properties = {
+        "medsys.datagen.doctors=50",
+        "medsys.datagen.patients=2000",
+})
+@ActiveProfiles("datagen")
+@Testcontainers(disabledWithoutDocker = true)
+class IndexAdvisorTests {
+
+    private static final Set<String> HOT_TABLES = Set.of("users", "appointments", "medical_records", "prescriptions");
+
+    private static final Pattern TABLE_ALIAS =
+            Pattern.compile("(?i)\\b(?:from|join)\\s+`?(\\w+)`?\\s+(?:as\\s+)?`?(\\w+)`?");
+
+    /** root, so the test can read the general log */
+    @Container
+    @ServiceConnection
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4")
+            .withUsername("root")
+            .withCommand("--general-log=1", "--log-output=TABLE");
+
+    @Autowired
+    ApplicationContext context;
+
+    @Autowired
+    JdbcTemplate jdbc;
+
+    @Test
+    void repositoryQueriesDoNotScanHotTables() throws Exception {
+        List<String> problems = new ArrayList<>();
+        int explained = 0;
+
+        for (Object repository : context.getBeansOfType(Repository.class).values()) {
+            for (Class<?> type : AopProxyUtils.proxiedUserInterfaces(repository)) {
+                if (!type.getPackageName().equals("org.wp2.medsys.repositories")) {
+                    continue;
+                }
+                for (Method method : type.getDeclaredMethods()) {
+                    if (method.isDefault() || method.isSynthetic() || Modifier.isStatic(method.getModifiers())) {
+                        continue;
+                    }
+                    for (String sql : capture(repository, method)) {
+                        explained++;
+                        problems.addAll(explain(type.getSimpleName() + "." + method.getName(), sql));
+                    }
+                }
+            }
+        }
+
+        assertTrue(explained > 0, "no repository query was captured");
+        if (!problems.isEmpty()) {
+            fail("Full scans of hot tables:\n  " + String.join("\n  ", problems));
+        }
+    }
+
+    /** invokes {@code method} with synthetic arguments and returns the SELECTs it sent */
+    private List<String> capture(Object repository, Method method) throws Exception {
+        jdbc.execute("TRUNCATE mysql.general_log");
+        method.invoke(repository, arguments(method));
+        return jdbc.queryForList(
+                "SELECT CONVERT(argument USING utf8mb4) FROM mysql.general_log"
+                + " WHERE command_type IN ('Query', 'Execute') AND LOWER(CONVERT(argument USING utf8mb4)) LIKE 'select%'"
+                + " ORDER BY event_time",
+                String.class);
+    }
+
+    private List<String> explain(String query, String sql) {
+        Map<String, String> tables = new HashMap<>();
+        Matcher m = TABLE_ALIAS.matcher(sql);
+        while (m.find()) {
+            tables.put(m.group(2).toLowerCase(), m.group(1).toLowerCase());
+        }
+        List<String> problems = new ArrayList<>();
+        jdbc.query("EXPLAIN " + sql, rs -> {
+            String alias = rs.getString("table");
+            String table = alias == null ? null : tables.getOrDefault(alias.toLowerCase(), alias.toLowerCase());
+            if ("ALL".equalsIgnoreCase(rs.getString("type")) && HOT_TABLES.contains(table)) {
+                problems.add(query + ": " + table + " (" + rs.getString("rows") + " rows) in " + sql);
+            }
+        });
+        return problems;
+    }
+
+    private static Object[] arguments(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        Object[] args = new Object[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> t = types[i];
+            if (t == Long.class || t == long.class) {
+                // ids and keyset cursors alike; 1 exists once the data is seeded
+                args[i] = t == long.class ? 0L : 1L;
+            } else if (t == String.class) {
+                args[i] = "house";
+            } else if (t == LocalDate.class) {
+                args[i] = LocalDate.now().minusDays(90);
+            } else if (t == LocalDateTime.class) {
+                args[i] = LocalDateTime.now().minusDays(90);
+            } else if (t == Pageable.class) {
+                args[i] = PageRequest.ofSize(50);
+            } else {
+                throw new IllegalArgumentException("No synthetic argument for " + t.getName()
+                        + " in " + method + " – teach IndexAdvisorTests one");
+            }
+        }
+        return args;
+    }
+}
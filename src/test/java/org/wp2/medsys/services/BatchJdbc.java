@@ -0,0 +1,50 @@
+package org.wp2.medsys.services;
+
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.*;
+
+/**
+ * A mocked {@link JdbcTemplate} for the {@code createAll} tests: knows one
+ * patient, runs batch inserts against one mock statement per row and hands
+ * out ids from {@link #FIRST_ID} on.
+ */
+final class BatchJdbc {
+
+    static final long FIRST_ID = 500;
+
+    final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    /** the statement each inserted row was bound to, in batch order */
+    final List<PreparedStatement> rows = new ArrayList<>();
+
+    BatchJdbc(long patientId) {
+        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM users"), eq(Integer.class), any()))
+                .thenReturn(0);
+        when(jdbc.queryForObject(startsWith("SELECT COUNT(*) FROM users"), eq(Integer.class), eq(patientId)))
+                .thenReturn(1);
+        when(jdbc.batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class)))
+                .thenAnswer(batch -> {
+                    BatchPreparedStatementSetter setter = batch.getArgument(1);
+                    KeyHolder keys = batch.getArgument(2);
+                    for (int i = 0; i < setter.getBatchSize(); i++) {
+                        PreparedStatement ps = mock(PreparedStatement.class);
+                        setter.setValues(ps, i);
+                        rows.add(ps);
+                        keys.getKeyList().add(Map.of("GENERATED_KEY", FIRST_ID + i));
+                    }
+                    return new int[setter.getBatchSize()];
+                });
+    }
+}
@@ -0,0 +1,86 @@
+package org.wp2.medsys.services;
+
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.MedicalRecordItemDTO;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.repositories.MedicalRecordRepository;
+import org.wp2.medsys.storage.NotesCodec;
+import org.wp2.medsys.storage.NotesCompressionProperties;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class MedicalRecordServiceImplTests {
+
+    private static final long PATIENT = 7;
+
+    private final BatchJdbc                 db     = new BatchJdbc(PATIENT);
+    private final NotesCodec                codec  = new NotesCodec(new NotesCompressionProperties());
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private final MedicalRecordServiceImpl  service =
+            new MedicalRecordServiceImpl(mock(MedicalRecordRepository.class), db.jdbc, codec, events);
+
+    @Test
+    void aValidBatchIsInsertedInOneGoAndEveryItemGetsItsId() throws Exception {
+        List<BatchItemResult> results = service.createAll(doctor(), PATIENT, List.of(
+                new MedicalRecordItemDTO("  Blood test ", "Ferritin low"),
+                new MedicalRecordItemDTO("X-ray", "No fracture")));
+
+        assertEquals(List.of(
+                new BatchItemResult(0, BatchJdbc.FIRST_ID, null),
+                new BatchItemResult(1, BatchJdbc.FIRST_ID + 1, null)), results);
+        verify(db.jdbc, times(1)).batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+
+        PreparedStatement first = db.rows.get(0);
+        verify(first).setString(2, "Blood test");
+        verify(first).setBytes(eq(3), aryEq(codec.encode("Ferritin low")));
+        verify(first).setLong(4, PATIENT);
+        verify(first).setLong(5, 3L);
+        verify(events).publishEvent(new PatientHistoryChangedEvent(PATIENT));
+    }
+
+    @Test
+    void aBatchWithAnInvalidItemReportsEachItemAndSavesNothing() {
+        List<BatchItemResult> results = service.createAll(doctor(), PATIENT, List.of(
+                new MedicalRecordItemDTO("Blood test", "Ferritin low"),
+                new MedicalRecordItemDTO(" ", "No title"),
+                new MedicalRecordItemDTO("Follow-up", "")));
+
+        assertEquals(List.of(
+                new BatchItemResult(0, null, null),
+                new BatchItemResult(1, null, "Title is required"),
+                new BatchItemResult(2, null, "Notes is required")), results);
+        assertTrue(results.stream().noneMatch(BatchItemResult::ok));
+        verifyNoInteractions(db.jdbc, events);
+    }
+
+    @Test
+    void aBatchForSomeoneWhoIsNotAPatientSavesNothing() {
+        List<MedicalRecordItemDTO> items = List.of(new MedicalRecordItemDTO("Blood test", "Ferritin low"));
+
+        assertThrows(EntityNotFoundException.class, () -> service.createAll(doctor(), 99L, items));
+        verify(db.jdbc, never()).batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+        verifyNoInteractions(events);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static Doctor doctor() {
+        Doctor doctor = new Doctor("dr.who", "who@medsys.local", "hash", LocalDate.of(1970, 1, 1), null, null);
+        doctor.setId(3L);
+        return doctor;
+    }
+}
@@ -0,0 +1,89 @@
+package org.wp2.medsys.services;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.support.KeyHolder;
+import org.wp2.medsys.DTO.BatchItemResult;
+import org.wp2.medsys.DTO.PrescriptionItemDTO;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.repositories.PrescriptionRepository;
+import org.wp2.medsys.storage.NotesCodec;
+import org.wp2.medsys.storage.NotesCompressionProperties;
+
+import java.sql.PreparedStatement;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.AdditionalMatchers.aryEq;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
+
+class PrescriptionServiceImplTests {
+
+    private static final long PATIENT = 7;
+
+    private final BatchJdbc                 db      = new BatchJdbc(PATIENT);
+    private final NotesCodec                codec   = new NotesCodec(new NotesCompressionProperties());
+    private final ApplicationEventPublisher events  = mock(ApplicationEventPublisher.class);
+    private final PrescriptionServiceImpl   service =
+            new PrescriptionServiceImpl(mock(PrescriptionRepository.class), db.jdbc, codec, events);
+
+    @Test
+    void aValidBatchIsInsertedInOneGoAndEveryItemGetsItsId() throws Exception {
+        List<BatchItemResult> results = service.createAll(doctor(), PATIENT, List.of(
+                new PrescriptionItemDTO(" Amoxicillin ", " 500 mg 3x daily ", "with food"),
+                new PrescriptionItemDTO("Ibuprofen", "400 mg as needed", "  ")));
+
+        assertEquals(List.of(
+                new BatchItemResult(0, BatchJdbc.FIRST_ID, null),
+                new BatchItemResult(1, BatchJdbc.FIRST_ID + 1, null)), results);
+        verify(db.jdbc, times(1)).batchUpdate(any(PreparedStatementCreator.class), any(BatchPreparedStatementSetter.class), any(KeyHolder.class));
+
+        PreparedStatement first = db.rows.get(0);
+        verify(first).setString(2, "Amoxicillin");
+        verify(first).setString(3, "500 mg 3x daily");
+        verify(first).setBytes(eq(4), aryEq(codec.encode("with food")));
+        verify(first).setLong(5, PATIENT);
+        verify(first).setLong(6, 3L);
+        verify(db.rows.get(1)).setBytes(eq(4), isNull());
+        verify(events).publishEvent(new PatientHistoryChangedEvent(PATIENT));
+    }
+
+    @Test
+    void aBatchWithAnInvalidItemReportsEachItemAndSavesNothing() {
+        List<BatchItemResult> results = service.createAll(doctor(), PATIENT, List.of(
+                new PrescriptionItemDTO("Amoxicillin", "500 mg 3x daily", null),
+                new PrescriptionItemDTO("Ibuprofen", null, null),
+                new PrescriptionItemDTO("x".repeat(256), "once", null)));
+
+        assertEquals(List.of(
+                new BatchItemResult(0, null, null),
+                new BatchItemResult(1, null, "Dosage is required"),
+                new BatchItemResult(2, null, "Medication is longer than 255 characters")), results);
+        assertTrue(results.stream().noneMatch(BatchItemResult::ok));
+        verifyNoInteractions(db.jdbc, events);
+    }
+
+    @Test
+    void emptyAndOversizedBatchesAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> service.createAll(doctor(), PATIENT, List.of()));
+        List<PrescriptionItemDTO> tooMany = Collections.nCopies(
+                BatchInserts.MAX_ITEMS + 1, new PrescriptionItemDTO("Ibuprofen", "400 mg", null));
+        assertThrows(IllegalArgumentException.class, () -> service.createAll(doctor(), PATIENT, tooMany));
+        verifyNoInteractions(db.jdbc, events);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static Doctor doctor() {
+        Doctor doctor = new Doctor("dr.who", "who@medsys.local", "hash", LocalDate.of(1970, 1, 1), null, null);
+        doctor.setId(3L);
+        return doctor;
+    }
+}
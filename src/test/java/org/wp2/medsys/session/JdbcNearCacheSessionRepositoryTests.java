@@ -0,0 +1,154 @@
+package org.wp2.medsys.session;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.session.MapSession;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Two nodes sharing one {@code app_sessions} table (the real V4 schema). The
+ * scheduler is a mock, so touches are flushed only when a test says so. Needs
+ * Docker and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class JdbcNearCacheSessionRepositoryTests {
+
+    @Container
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+    static HikariDataSource pool;
+    static JdbcTemplate     jdbc;
+
+    private final SessionStoreProperties props = new SessionStoreProperties();
+
+    @BeforeAll
+    static void schema() throws Exception {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(mariadb.getJdbcUrl());
+        pool.setUsername(mariadb.getUsername());
+        pool.setPassword(mariadb.getPassword());
+        jdbc = new JdbcTemplate(pool);
+        jdbc.execute(Files.readString(Path.of("src/main/resources/db/migration/V4__session_store.sql")));
+    }
+
+    @AfterAll
+    static void close() {
+        pool.close();
+    }
+
+    @BeforeEach
+    void noSessions() {
+        jdbc.update("DELETE FROM app_sessions");
+        props.setNearCacheTtl(Duration.ofMillis(500));
+    }
+
+    @Test
+    void aLoginOnOneNodeIsSeenOnAnother() {
+        JdbcNearCacheSessionRepository a = node();
+        JdbcNearCacheSessionRepository b = node();
+        MapSession session = loggedIn(a, "dr.who");
+
+        MapSession read = b.findById(session.getId());
+
+        assertEquals("dr.who", ((SecurityContext) read.getAttribute("SPRING_SECURITY_CONTEXT")).getAuthentication().getName());
+        assertEquals("dr.who", jdbc.queryForObject("SELECT principal_name FROM app_sessions", String.class));
+    }
+
+    @Test
+    void aLogoutElsewhereIsSeenOnceTheCachedCopyIsOlderThanTheTtl() throws Exception {
+        JdbcNearCacheSessionRepository a = node();
+        JdbcNearCacheSessionRepository b = node();
+        MapSession session = loggedIn(a, "dr.who");
+        assertNotNull(b.findById(session.getId()));
+
+        a.deleteById(session.getId());
+
+        assertNull(a.findById(session.getId()), "gone at once where it happened");
+        assertNotNull(b.findById(session.getId()), "still cached on the other node");
+        Thread.sleep(600);
+        assertNull(b.findById(session.getId()));
+    }
+
+    @Test
+    void aPageViewIsBufferedUntilTheNextFlush() {
+        JdbcNearCacheSessionRepository a = node();
+        MapSession session = loggedIn(a, "dr.who");
+        long saved = lastAccess(session.getId());
+
+        MapSession viewed = a.findById(session.getId());
+        viewed.setLastAccessedTime(Instant.ofEpochMilli(saved + 60_000));
+        a.save(viewed);
+
+        assertEquals(saved, lastAccess(session.getId()), "nothing written for the page view");
+
+        a.flushTouches();
+        assertEquals(saved + 60_000, lastAccess(session.getId()));
+        assertEquals(saved + 60_000 + props.getMaxInactiveInterval().toMillis(),
+                jdbc.queryForObject("SELECT expiry_time FROM app_sessions", Long.class), "expiry moves with it");
+    }
+
+    @Test
+    void anAttributeChangeIsWrittenThrough() {
+        JdbcNearCacheSessionRepository a = node();
+        MapSession session = loggedIn(a, "dr.who");
+
+        MapSession changed = a.findById(session.getId());
+        changed.setAttribute("clinic", "north");
+        a.save(changed);
+
+        byte[] stored = jdbc.queryForObject("SELECT attributes FROM app_sessions", byte[].class);
+        assertEquals("north", SessionAttributeCodec.decode(stored).get("clinic"));
+    }
+
+    @Test
+    void aRotatedIdReplacesTheOldRow() {
+        JdbcNearCacheSessionRepository a = node();
+        MapSession session = loggedIn(a, "dr.who");
+        String oldId = session.getId();
+
+        MapSession rotated = a.findById(oldId);
+        rotated.changeSessionId();
+        a.save(rotated);
+
+        assertNull(node().findById(oldId));
+        assertNotNull(node().findById(rotated.getId()));
+        assertEquals(1, jdbc.queryForObject("SELECT COUNT(*) FROM app_sessions", Integer.class));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private JdbcNearCacheSessionRepository node() {
+        return new JdbcNearCacheSessionRepository(jdbc, props, mock(TaskScheduler.class));
+    }
+
+    private static MapSession loggedIn(JdbcNearCacheSessionRepository node, String username) {
+        MapSession session = node.createSession();
+        session.setAttribute("SPRING_SECURITY_CONTEXT", new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                username, null, AuthorityUtils.createAuthorityList("ROLE_DOCTOR"))));
+        node.save(session);
+        return session;
+    }
+
+    private static long lastAccess(String id) {
+        return jdbc.queryForObject("SELECT last_access FROM app_sessions WHERE id = ?", Long.class, id);
+    }
+}
@@ -0,0 +1,92 @@
+package org.wp2.medsys.session;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.web.csrf.CsrfToken;
+import org.springframework.security.web.csrf.DefaultCsrfToken;
+
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionAttributeCodecTests {
+
+    @Test
+    void scalarsRoundTrip() {
+        Map<String, Object> attributes = new LinkedHashMap<>();
+        attributes.put("name", "Zoë – ünïcode");
+        attributes.put("long", Long.MAX_VALUE);
+        attributes.put("int", -7);
+        attributes.put("flag", true);
+        attributes.put("nothing", null);
+
+        assertEquals(attributes, roundTrip(attributes));
+    }
+
+    @Test
+    void aLoggedInSessionComesBackWithTheSameNameAndAuthorities() {
+        SecurityContext stored = new SecurityContextImpl(UsernamePasswordAuthenticationToken.authenticated(
+                "dr.who", "secret", AuthorityUtils.createAuthorityList("ROLE_DOCTOR", "ROLE_STAFF")));
+        CsrfToken csrf = new DefaultCsrfToken("X-CSRF-TOKEN", "_csrf", "t0k3n");
+
+        byte[] encoded = SessionAttributeCodec.encode(Map.of("SPRING_SECURITY_CONTEXT", stored, "CSRF", csrf));
+        Map<String, Object> decoded = SessionAttributeCodec.decode(encoded);
+
+        assertTrue(encoded.length < 128, "a login session takes " + encoded.length + " bytes");
+        Authentication auth = ((SecurityContext) decoded.get("SPRING_SECURITY_CONTEXT")).getAuthentication();
+        assertEquals("dr.who", auth.getName());
+        assertTrue(auth.isAuthenticated());
+        assertNull(auth.getCredentials(), "credentials are never stored");
+        assertInstanceOf(User.class, auth.getPrincipal());
+        assertEquals(List.of("ROLE_DOCTOR", "ROLE_STAFF"),
+                auth.getAuthorities().stream().map(Object::toString).toList());
+
+        CsrfToken token = (CsrfToken) decoded.get("CSRF");
+        assertEquals("X-CSRF-TOKEN", token.getHeaderName());
+        assertEquals("_csrf", token.getParameterName());
+        assertEquals("t0k3n", token.getToken());
+    }
+
+    @Test
+    void otherSerializableValuesFallBackToJavaSerialization() {
+        Map<String, Object> attributes = Map.of(
+                "list", new ArrayList<>(List.of("a", "b")),
+                "date", LocalDate.of(2024, 2, 29));
+
+        assertEquals(attributes, roundTrip(attributes));
+    }
+
+    @Test
+    void classesOutsideTheAllowListAreNotDeserialized() {
+        byte[] encoded = SessionAttributeCodec.encode(Map.of("when", new Timestamp(0)));
+
+        assertThrows(UncheckedIOException.class, () -> SessionAttributeCodec.decode(encoded));
+    }
+
+    @Test
+    void unserializableValuesAndUnknownFormatsAreRefused() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SessionAttributeCodec.encode(Map.of("thread", new Thread())));
+
+        byte[] encoded = SessionAttributeCodec.encode(Map.of("a", "b"));
+        encoded[0] = 99;
+        assertThrows(IllegalStateException.class, () -> SessionAttributeCodec.decode(encoded));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static Map<String, Object> roundTrip(Map<String, Object> attributes) {
+        return SessionAttributeCodec.decode(SessionAttributeCodec.encode(attributes));
+    }
+}
@@ -0,0 +1,67 @@
+package org.wp2.medsys.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NotesCodecTests {
+
+    private static final String NARRATIVE =
+            "Patient reports intermittent chest pain on exertion, no radiation. "
+            + "BP 135/85, HR 78, afebrile. ECG shows sinus rhythm, no acute changes. ".repeat(20)
+            + "Plan: stress test, review in two weeks – ñ, ü, 漢字 kept intact.";
+
+    private final NotesCodec codec = codec(true, 256);
+
+    @Test
+    void compressedNotesRoundTrip() {
+        byte[] stored = codec.encode(NARRATIVE);
+
+        assertTrue(NotesCodec.isCompressed(stored));
+        assertTrue(stored.length < NARRATIVE.getBytes(StandardCharsets.UTF_8).length / 2);
+        assertEquals(NARRATIVE, codec.decode(stored));
+    }
+
+    @Test
+    void plainRowsWrittenBeforeCompressionStayReadable() {
+        byte[] legacy = NARRATIVE.getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(NotesCodec.isCompressed(legacy));
+        assertEquals(NARRATIVE, codec.decode(legacy));
+    }
+
+    @Test
+    void shortOrDisabledNotesAreStoredPlain() {
+        assertArrayEquals("Take with food".getBytes(StandardCharsets.UTF_8), codec.encode("Take with food"));
+        assertArrayEquals(NARRATIVE.getBytes(StandardCharsets.UTF_8), codec(false, 256).encode(NARRATIVE));
+        assertNull(codec.encode(null));
+        assertNull(codec.decode(null));
+    }
+
+    @Test
+    void storedNotesNeverGrow() {
+        StringBuilder noise = new StringBuilder();
+        SplittableRandom rnd = new SplittableRandom(1);
+        for (int len = 256; len < 1024; len += 7) {
+            noise.setLength(0);
+            for (int i = 0; i < len; i++) {
+                noise.append((char) (0x4E00 + rnd.nextInt(20_000)));   // random CJK: little to gain
+            }
+            String text = noise.toString();
+            byte[] stored = codec.encode(text);
+
+            assertTrue(stored.length <= text.getBytes(StandardCharsets.UTF_8).length);
+            assertEquals(text, codec.decode(stored));
+        }
+    }
+
+    private static NotesCodec codec(boolean compress, int minSize) {
+        NotesCompressionProperties props = new NotesCompressionProperties();
+        props.setCompression(compress);
+        props.setMinSize(minSize);
+        return new NotesCodec(props);
+    }
+}
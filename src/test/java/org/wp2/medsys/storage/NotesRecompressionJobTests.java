@@ -0,0 +1,104 @@
+package org.wp2.medsys.storage;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wp2.medsys.clinics.ClinicProperties;
+import org.wp2.medsys.clinics.ClinicShards;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A recompression pass over {@code medical_records} on the schema from the
+ * Flyway migrations, with notes in every state the table can hold. Needs
+ * Docker and is skipped without it.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class NotesRecompressionJobTests {
+
+    private static final LocalDateTime CHANGED = LocalDateTime.of(2025, 6, 1, 12, 0);
+
+    @Container
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+    static HikariDataSource pool;
+    static JdbcTemplate     jdbc;
+
+    @BeforeAll
+    static void schema() {
+        pool = new HikariDataSource();
+        pool.setJdbcUrl(mariadb.getJdbcUrl());
+        pool.setUsername(mariadb.getUsername());
+        pool.setPassword(mariadb.getPassword());
+        Flyway.configure().dataSource(pool).locations("classpath:db/migration").load().migrate();
+        jdbc = new JdbcTemplate(pool);
+        jdbc.update("INSERT INTO users (id, role, username, email, pass_hash, created_at, date_of_birth)"
+                + " VALUES (1, 'DOCTOR', 'dr.who', 'who@medsys.local', 'hash', NOW(6), '1970-01-01'),"
+                + "        (2, 'PATIENT', 'ana', 'ana@medsys.local', 'hash', NOW(6), '1990-01-01')");
+    }
+
+    @AfterAll
+    static void close() {
+        pool.close();
+    }
+
+    @Test
+    void onlyPlainRowsAreRewrittenAndTheirChangeTimeStays() throws Exception {
+        NotesCompressionProperties props = new NotesCompressionProperties();
+        props.setCompression(true);
+        props.setMinSize(256);
+        props.getRecompress().setBatchSize(2);
+        props.getRecompress().setPause(Duration.ZERO);
+
+        String repetitive = "Blood pressure normal, continue as before. ".repeat(20);
+        byte[] compressed = NotesCodec.encode(repetitive, true, 256);
+
+        record(1, repetitive.getBytes(StandardCharsets.UTF_8));   // plain, compresses well
+        record(2, "short note".getBytes(StandardCharsets.UTF_8)); // under min-size
+        record(3, compressed);                                    // written compressed
+        record(4, null);
+        record(5, repetitive.getBytes(StandardCharsets.UTF_8));   // same batch: the query skips 2 to 4
+        jdbc.update("UPDATE medical_records SET changed_at = ?", CHANGED);
+
+        NotesRecompressionJob job = new NotesRecompressionJob(
+                jdbc, new DataSourceTransactionManager(pool), props, new ClinicShards(new ClinicProperties()));
+        assertEquals(2, job.recompress("medical_records"));
+
+        NotesCodec codec = new NotesCodec(props);
+        for (long id : new long[] {1, 5}) {
+            byte[] stored = notes(id);
+            assertTrue(NotesCodec.isCompressed(stored), "row " + id);
+            assertEquals(repetitive, codec.decode(stored));
+        }
+        assertArrayEquals("short note".getBytes(StandardCharsets.UTF_8), notes(2));
+        assertArrayEquals(compressed, notes(3));
+        assertNull(notes(4));
+        assertEquals(0, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM medical_records WHERE changed_at <> ?", Integer.class, CHANGED),
+                "the change feed must not resend rewritten rows");
+
+        assertEquals(0, job.recompress("medical_records"), "a second pass finds nothing to do");
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static void record(long id, byte[] notes) {
+        jdbc.update("INSERT INTO medical_records (id, created_at, title, notes, patient_id, doctor_id)"
+                + " VALUES (?, NOW(6), 'visit', ?, 2, 1)", id, notes);
+    }
+
+    private static byte[] notes(long id) {
+        return jdbc.queryForObject("SELECT notes FROM medical_records WHERE id = ?", byte[].class, id);
+    }
+}
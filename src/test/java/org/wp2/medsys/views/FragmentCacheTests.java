@@ -0,0 +1,109 @@
+package org.wp2.medsys.views;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.AuthorityUtils;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.thymeleaf.TemplateSpec;
+import org.thymeleaf.context.IContext;
+import org.thymeleaf.spring6.ISpringTemplateEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * The cache over a template engine that answers with the template and the
+ * {@code role} it was given, and records every render.
+ */
+class FragmentCacheTests {
+
+    private final ISpringTemplateEngine engine = mock(ISpringTemplateEngine.class);
+    /** "template|role" of every render that reached the engine */
+    private final List<String> renders = new ArrayList<>();
+
+    @BeforeEach
+    void engineAndRequest() {
+        when(engine.process(any(TemplateSpec.class), any(IContext.class))).thenAnswer(q -> {
+            String render = q.<TemplateSpec>getArgument(0).getTemplate() + '|' + q.<IContext>getArgument(1).getVariable("role");
+            renders.add(render);
+            return "<nav>" + render + "</nav>";
+        });
+        RequestContextHolder.setRequestAttributes(
+                new ServletRequestAttributes(new MockHttpServletRequest(), new MockHttpServletResponse()));
+    }
+
+    @AfterEach
+    void clear() {
+        RequestContextHolder.resetRequestAttributes();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void eachRoleIsRenderedOnceAndReplayed() {
+        FragmentCache cache = new FragmentCache(engine, true);
+
+        String anonymous = cache.render("layout/nav", "nav");
+        as("ROLE_DOCTOR");
+        String doctor = cache.render("layout/nav", "nav");
+        assertEquals(doctor, cache.render("layout/nav", "nav"));
+        as("ROLE_PATIENT");
+        String patient = cache.render("layout/nav", "nav");
+        assertEquals(patient, cache.render("layout/nav", "nav"));
+
+        assertEquals("<nav>layout/nav|ANONYMOUS</nav>", anonymous);
+        assertEquals("<nav>layout/nav|DOCTOR</nav>", doctor);
+        assertEquals(List.of("layout/nav|ANONYMOUS", "layout/nav|DOCTOR", "layout/nav|PATIENT"), renders);
+    }
+
+    @Test
+    void invalidateDropsOnlyThatTemplatesVariants() {
+        FragmentCache cache = new FragmentCache(engine, true);
+        for (String role : List.of("ROLE_DOCTOR", "ROLE_ADMIN")) {
+            as(role);
+            cache.render("layout/nav", "nav");
+            cache.render("layout/footer", "footer");
+        }
+        renders.clear();
+
+        cache.invalidate("layout/nav");
+        cache.render("layout/nav", "nav");
+        cache.render("layout/footer", "footer");
+        as("ROLE_DOCTOR");
+        cache.render("layout/nav", "nav");
+        cache.render("layout/footer", "footer");
+        assertEquals(List.of("layout/nav|ADMIN", "layout/nav|DOCTOR"), renders);
+
+        renders.clear();
+        cache.invalidateAll();
+        cache.render("layout/footer", "footer");
+        assertEquals(List.of("layout/footer|DOCTOR"), renders);
+    }
+
+    @Test
+    void withTheTemplateCacheOffEveryCallRenders() {
+        FragmentCache cache = new FragmentCache(engine, false);
+        as("ROLE_DOCTOR");
+
+        cache.render("layout/nav", "nav");
+        cache.render("layout/nav", "nav");
+
+        assertEquals(List.of("layout/nav|DOCTOR", "layout/nav|DOCTOR"), renders);
+    }
+
+    /* ---------- helpers ---------- */
+
+    private static void as(String authority) {
+        SecurityContextHolder.getContext().setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                "someone", null, AuthorityUtils.createAuthorityList(authority)));
+    }
+}
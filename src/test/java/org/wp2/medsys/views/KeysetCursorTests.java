@@ -0,0 +1,82 @@
+package org.wp2.medsys.views;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class KeysetCursorTests {
+
+    /** the keys each page was fetched after, in order */
+    private final List<Long> fetchedAfter = new ArrayList<>();
+
+    @Test
+    void pagesFollowTheLastKeyAndAShortPageEndsIt() {
+        KeysetCursor<Long> cursor = cursor(7, 3);
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), drain(cursor));
+        assertEquals(List.of(0L, 3L, 6L), fetchedAfter);
+    }
+
+    @Test
+    void aFullLastPageCostsOneEmptyFetch() {
+        KeysetCursor<Long> cursor = cursor(6, 3);
+
+        assertEquals(6, drain(cursor).size());
+        assertEquals(List.of(0L, 3L, 6L), fetchedAfter);
+    }
+
+    @Test
+    void isEmptyPeeksAtTheFirstPageAndTheIterationReusesIt() {
+        KeysetCursor<Long> some = cursor(2, 3);
+        assertFalse(some.isEmpty());
+        assertEquals(List.of(1L, 2L), drain(some));
+        assertEquals(List.of(0L), fetchedAfter, "fetched once for both");
+
+        KeysetCursor<Long> none = cursor(0, 3);
+        assertTrue(none.isEmpty());
+        assertFalse(none.iterator().hasNext());
+    }
+
+    @Test
+    void hasNextDoesNotFetchTwiceAndNextPastTheEndThrows() {
+        Iterator<Long> it = cursor(3, 3).iterator();
+        for (int i = 0; i < 3; i++) {
+            it.next();
+        }
+
+        assertFalse(it.hasNext());
+        assertFalse(it.hasNext());
+        assertEquals(List.of(0L, 3L), fetchedAfter);
+        assertThrows(NoSuchElementException.class, it::next);
+    }
+
+    @Test
+    void aCursorCanOnlyBeIteratedOnce() {
+        KeysetCursor<Long> cursor = cursor(5, 2);
+        drain(cursor);
+
+        assertThrows(IllegalStateException.class, cursor::iterator);
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** ids 1..{@code rows}, paged like {@code WHERE id > ? ORDER BY id LIMIT pageSize} */
+    private KeysetCursor<Long> cursor(int rows, int pageSize) {
+        return new KeysetCursor<>(pageSize, after -> {
+            fetchedAfter.add(after);
+            return LongStream.rangeClosed(after + 1, Math.min(rows, after + pageSize)).boxed().toList();
+        }, Long::longValue);
+    }
+
+    private static List<Long> drain(Iterable<Long> rows) {
+        List<Long> all = new ArrayList<>();
+        rows.forEach(all::add);
+        return all;
+    }
+}
@@ -0,0 +1,219 @@
+package org.wp2.medsys.views;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.util.unit.DataSize;
+import org.wp2.medsys.DTO.MedicalRecordView;
+import org.wp2.medsys.services.MedicalRecordService;
+import org.wp2.medsys.services.PatientHistoryChangedEvent;
+import org.wp2.medsys.services.PrescriptionService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * The records side of the cache over an in-memory {@code medical_records}
+ * table. Writes go to the table first and then raise the after-commit event,
+ * as the services do; the version query is answered from the same table.
+ */
+class PatientHistoryCacheTests {
+
+    private static final int PAGE_SIZE = 50;
+
+    /** medical_records, per patient */
+    private final Map<Long, List<MedicalRecordView>> table = new ConcurrentHashMap<>();
+    private final AtomicLong    nextId = new AtomicLong();
+    private final AtomicInteger loads  = new AtomicInteger();
+    /** runs once a load has read its rows, like a write committing right after */
+    private volatile Runnable afterRead = () -> {};
+
+    private final PatientHistoryCacheProperties props    = new PatientHistoryCacheProperties();
+    private final MedicalRecordService          records  = mock(MedicalRecordService.class);
+    private final JdbcTemplate                  jdbc     = mock(JdbcTemplate.class);
+    private final MeterRegistry                 registry = new SimpleMeterRegistry();
+
+    private PatientHistoryCache cache;
+
+    @BeforeEach
+    void fakeTable() {
+        props.setValidateAfter(Duration.ofHours(1));
+        when(records.findPageByPatient(anyLong(), anyLong(), anyInt())).thenAnswer(q -> {
+            loads.incrementAndGet();
+            long after = q.getArgument(1);
+            List<MedicalRecordView> page = rows(q.getArgument(0)).stream()
+                    .filter(r -> r.id() > after).limit(q.<Integer>getArgument(2)).toList();
+            afterRead.run();
+            return page;
+        });
+        when(jdbc.queryForObject(anyString(), any(RowMapper.class), anyLong())).thenAnswer(q -> {
+            List<MedicalRecordView> rows = rows(q.getArgument(2));
+            return rows.size() + "." + (rows.isEmpty() ? 0 : rows.get(rows.size() - 1).id());
+        });
+        cache = new PatientHistoryCache(props, jdbc, records, mock(PrescriptionService.class), registry, PAGE_SIZE);
+    }
+
+    @Test
+    void aCachedListIsServedUntilAWriteDropsIt() {
+        write(1, "flu");
+        assertEquals(1, cache.records(1).rows().size());
+        assertEquals(1, cache.records(1).rows().size());
+        assertEquals(1, loads.get());
+
+        write(1, "cough");
+        PatientHistoryCache.Snapshot<MedicalRecordView> snapshot = cache.records(1);
+        assertEquals(2, snapshot.rows().size());
+        assertEquals("2." + nextId.get(), snapshot.version(), "row count and highest id");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void aLoadThatAWriteOvertookIsNotCached() {
+        write(1, "flu");
+        afterRead = () -> {
+            afterRead = () -> {};
+            write(1, "cough");
+        };
+
+        assertEquals(1, cache.records(1).rows().size(), "read before the write");
+        assertEquals(2, cache.records(1).rows().size(), "so the next request reads again");
+    }
+
+    @Test
+    void writesRacingLoadsNeverLeaveAStaleListBehind() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            for (long patient = 1; patient <= 200; patient++) {
+                long p = patient;
+                AtomicBoolean writing = new AtomicBoolean(true);
+                Future<?> writer = pool.submit(() -> {
+                    for (int i = 0; i < 5; i++) {
+                        write(p, "visit " + i);
+                    }
+                    writing.set(false);
+                });
+                List<Future<?>> readers = List.of(
+                        pool.submit(() -> { while (writing.get()) cache.records(p); }),
+                        pool.submit(() -> { while (writing.get()) cache.records(p); }));
+                writer.get(5, TimeUnit.SECONDS);
+                for (Future<?> reader : readers) {
+                    reader.get(5, TimeUnit.SECONDS);
+                }
+                assertEquals(5, cache.records(p).rows().size(), "patient " + p);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aWriteOnAnotherNodeIsSeenAtTheNextValidation() throws Exception {
+        props.setValidateAfter(Duration.ofMillis(50));
+        write(1, "flu");
+        cache.records(1);
+
+        // straight into the table, no event: another node wrote it
+        rows(1).add(view(1, nextId.incrementAndGet(), "cough"));
+        assertEquals(1, cache.records(1).rows().size(), "inside validate-after");
+
+        Thread.sleep(60);
+        assertEquals(2, cache.records(1).rows().size());
+        assertEquals(2, loads.get());
+
+        Thread.sleep(60);
+        assertEquals(2, cache.records(1).rows().size(), "unchanged version, no reload");
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void theLeastRecentlyUsedListGoesFirst() throws Exception {
+        props.setMaxEntries(3);
+        for (long patient = 1; patient <= 3; patient++) {
+            write(patient, "flu");
+            cache.records(patient);
+            Thread.sleep(2);
+        }
+        cache.records(1);                       // 2 is now the least recently used
+        Thread.sleep(2);
+        write(4, "flu");
+        cache.records(4);
+        assertEquals(3, gauge("medsys.patient-cache.entries"));
+        assertEquals(1, registry.get("medsys.patient-cache.evictions").counter().count());
+
+        loads.set(0);
+        cache.records(1);
+        cache.records(3);
+        cache.records(4);
+        assertEquals(0, loads.get());
+        cache.records(2);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void theByteBudgetBoundsTheCacheAndOneLargePatient() {
+        props.setMaxBytes(DataSize.ofBytes(16_000));
+        write(1, "x".repeat(2_000));
+        cache.records(1);
+        cache.records(1);
+        assertEquals(2, loads.get(), "over 1/16 of the budget, never cached");
+        assertEquals(0, gauge("medsys.patient-cache.bytes"));
+
+        for (long patient = 2; patient <= 60; patient++) {
+            write(patient, "flu");
+            cache.records(patient);
+        }
+        assertTrue(gauge("medsys.patient-cache.bytes") <= 16_000);
+        assertTrue(gauge("medsys.patient-cache.entries") < 59);
+    }
+
+    @Test
+    void disabledLoadsEveryTime() {
+        props.setEnabled(false);
+        write(1, "flu");
+
+        cache.records(1);
+        cache.records(1);
+
+        assertEquals(2, loads.get());
+        assertEquals(0, gauge("medsys.patient-cache.entries"));
+    }
+
+    /* ---------- helpers ---------- */
+
+    private List<MedicalRecordView> rows(long patientId) {
+        return table.computeIfAbsent(patientId, p -> new CopyOnWriteArrayList<>());
+    }
+
+    /** insert, commit, then the event */
+    private void write(long patientId, String title) {
+        rows(patientId).add(view(patientId, nextId.incrementAndGet(), title));
+        cache.onHistoryChanged(new PatientHistoryChangedEvent(patientId));
+    }
+
+    private static MedicalRecordView view(long patientId, long id, String title) {
+        return new MedicalRecordView(id, LocalDateTime.of(2026, 1, 1, 9, 0), title, null,
+                patientId, "patient" + patientId, 1L, "dr.who", "GP");
+    }
+
+    private double gauge(String name) {
+        return registry.get(name).gauge().value();
+    }
+}
@@ -0,0 +1,147 @@
+package org.wp2.medsys.waitlist;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.testcontainers.containers.MariaDBContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.wp2.medsys.domain.Doctor;
+import org.wp2.medsys.domain.Patient;
+import org.wp2.medsys.domain.Status;
+import org.wp2.medsys.services.AppointmentChangedEvent;
+import org.wp2.medsys.services.DoctorService;
+import org.wp2.medsys.services.PatientService;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The database side of a backfill: the conditional {@code WAITING → BOOKED}
+ * claim, the unique {@code freed_appointment_id}, and the in-memory entry
+ * going back on its list when the claim loses. Needs Docker and is skipped
+ * without it.
+ */
+@SpringBootTest(properties = {
+        "medsys.datagen.doctors=3",
+        "medsys.datagen.patients=20",
+        "medsys.waitlist.rebuild-interval=1h",
+})
+@ActiveProfiles("datagen")
+@Testcontainers(disabledWithoutDocker = true)
+class WaitlistDatabaseTests {
+
+    @Container
+    @ServiceConnection
+    static MariaDBContainer<?> mariadb = new MariaDBContainer<>("mariadb:11.4");
+
+    @Autowired Waitlist       waitlist;
+    @Autowired JdbcTemplate   jdbc;
+    @Autowired DoctorService  doctors;
+    @Autowired PatientService patients;
+    @Autowired MeterRegistry  registry;
+
+    private Doctor        doctor;
+    private Patient       first;
+    private Patient       second;
+    private LocalDateTime slot;
+
+    @BeforeEach
+    void emptyLists() {
+        jdbc.update("UPDATE waitlist_entries SET status = 'LEFT' WHERE status = 'WAITING'");
+        waitlist.rebuild();
+
+        doctor = doctors.findById(jdbc.queryForObject("SELECT MIN(id) FROM users WHERE role = 'DOCTOR'", Long.class));
+        List<Long> ids = jdbc.queryForList("SELECT id FROM users WHERE role = 'PATIENT' ORDER BY id LIMIT 2", Long.class);
+        first  = patients.findById(ids.get(0));
+        second = patients.findById(ids.get(1));
+        slot   = LocalDateTime.now().plusDays(3).truncatedTo(ChronoUnit.HOURS);
+    }
+
+    @Test
+    void aFreedSlotBooksTheFirstWaitingPatient() {
+        long a = waitlist.join(first, doctor, Urgency.URGENT, null, null, "check-up");
+        long b = waitlist.join(second, doctor, Urgency.ROUTINE, null, null, "check-up");
+
+        free(900_001);
+
+        Map<String, Object> booked = entry(a);
+        assertEquals("BOOKED", booked.get("status"));
+        assertEquals(900_001L, ((Number) booked.get("freed_appointment_id")).longValue());
+        long appointmentId = ((Number) booked.get("appointment_id")).longValue();
+        assertEquals(first.getId(), jdbc.queryForObject(
+                "SELECT patient_id FROM appointments WHERE id = ? AND status = 'PENDING'", Long.class, appointmentId));
+        assertEquals("WAITING", entry(b).get("status"));
+    }
+
+    @Test
+    void aSlotFreedTwiceIsGivenAwayOnceAndTheLoserStaysOnTheList() {
+        long a = waitlist.join(first, doctor, Urgency.URGENT, null, null, "check-up");
+        long b = waitlist.join(second, doctor, Urgency.ROUTINE, null, null, "check-up");
+
+        free(900_002);
+        free(900_002);    // as another node would: the unique key refuses the second claim
+
+        assertEquals("BOOKED", entry(a).get("status"));
+        assertEquals("WAITING", entry(b).get("status"));
+        assertNull(entry(b).get("freed_appointment_id"));
+        assertEquals(1, jdbc.queryForObject(
+                "SELECT COUNT(*) FROM waitlist_entries WHERE freed_appointment_id = 900002", Integer.class));
+
+        // the losing entry went back on the in-memory list
+        free(900_003);
+        assertEquals("BOOKED", entry(b).get("status"));
+    }
+
+    @Test
+    void anEntryServedElsewhereIsSkipped() {
+        long a = waitlist.join(first, doctor, Urgency.URGENT, null, null, "check-up");
+        long b = waitlist.join(second, doctor, Urgency.ROUTINE, null, null, "check-up");
+        // another node booked the first patient; this node's list has not caught up
+        jdbc.update("UPDATE waitlist_entries SET status = 'BOOKED' WHERE id = ?", a);
+
+        free(900_004);
+
+        assertNull(entry(a).get("freed_appointment_id"));
+        assertEquals("BOOKED", entry(b).get("status"));
+        assertEquals(900_004L, ((Number) entry(b).get("freed_appointment_id")).longValue());
+    }
+
+    /* ---------- helpers ---------- */
+
+    /** frees a slot of {@code doctor} and waits for its backfill to finish */
+    private void free(long appointmentId) {
+        long before = backfills();
+        waitlist.onAppointmentChanged(new AppointmentChangedEvent(appointmentId, doctor.getId(), slot, Status.CANCELLED));
+        await(() -> backfills() > before);
+    }
+
+    private long backfills() {
+        return registry.get("medsys.waitlist.backfill.latency").timer().count();
+    }
+
+    private Map<String, Object> entry(long id) {
+        return jdbc.queryForMap("SELECT status, freed_appointment_id, appointment_id FROM waitlist_entries WHERE id = ?", id);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("backfill did not finish");
+            }
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+}
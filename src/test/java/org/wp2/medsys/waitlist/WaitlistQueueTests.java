@@ -0,0 +1,100 @@
+package org.wp2.medsys.waitlist;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WaitlistQueueTests {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 6, 2, 9, 0);
+
+    @Test
+    void mostUrgentThenLongestWaitingGoesFirst() {
+        WaitlistQueue queue = new WaitlistQueue();
+        queue.add(entry(1, Urgency.ROUTINE, 0, null, null));
+        queue.add(entry(2, Urgency.URGENT, 30, null, null));
+        queue.add(entry(3, Urgency.URGENT, 10, null, null));
+        queue.add(entry(4, Urgency.SOON, 0, null, null));
+
+        List<Long> order = new ArrayList<>();
+        WaitlistQueue.Entry e;
+        while ((e = queue.claim(NOW, x -> true)) != null) {
+            order.add(e.id());
+        }
+        assertEquals(List.of(3L, 2L, 4L, 1L), order);
+    }
+
+    @Test
+    void onlyEntriesWhoseWindowFitsAreOffered() {
+        WaitlistQueue queue = new WaitlistQueue();
+        queue.add(entry(1, Urgency.URGENT, 0, NOW.plusDays(3), null));
+        queue.add(entry(2, Urgency.ROUTINE, 0, null, NOW.plusDays(1)));
+        assertEquals(2, queue.claim(NOW, x -> true).id());
+        assertNull(queue.claim(NOW, x -> true));
+        assertEquals(1, queue.size());
+    }
+
+    @Test
+    void refusedEntriesAreDroppedAndFailedOnesPutBack() {
+        WaitlistQueue queue = new WaitlistQueue();
+        queue.add(entry(1, Urgency.URGENT, 0, null, null));
+        queue.add(entry(2, Urgency.ROUTINE, 0, null, null));
+        assertEquals(2, queue.claim(NOW, x -> x.id() != 1).id(), "1 was served elsewhere");
+        assertEquals(0, queue.size());
+
+        queue.add(entry(3, Urgency.ROUTINE, 0, null, null));
+        assertThrows(IllegalStateException.class, () -> queue.claim(NOW, x -> {
+            throw new IllegalStateException("database down");
+        }));
+        assertEquals(3, queue.claim(NOW, x -> true).id());
+    }
+
+    @Test
+    void concurrentSlotsNeverShareAnEntry() throws Exception {
+        WaitlistQueue queue = new WaitlistQueue();
+        int entries = 5_000;
+        for (int i = 0; i < entries; i++) {
+            queue.add(entry(i, Urgency.values()[i % 3], i, null, null));
+        }
+        Set<Long> claimed = ConcurrentHashMap.newKeySet();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Integer>> results = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            results.add(pool.submit(() -> {
+                start.await();
+                int n = 0;
+                WaitlistQueue.Entry e;
+                while ((e = queue.claim(NOW, x -> true)) != null) {
+                    assertTrue(claimed.add(e.id()), "entry " + e.id() + " offered twice");
+                    n++;
+                }
+                return n;
+            }));
+        }
+        start.countDown();
+        int total = 0;
+        for (Future<Integer> f : results) {
+            total += f.get();
+        }
+        pool.shutdown();
+        assertEquals(entries, total);
+        assertEquals(entries, claimed.size());
+    }
+
+    private static WaitlistQueue.Entry entry(long id, Urgency urgency, int minutesAgo,
+                                             LocalDateTime earliest, LocalDateTime latest) {
+        return new WaitlistQueue.Entry(id, 100 + id, urgency, NOW.minusDays(1).plusMinutes(minutesAgo),
+                earliest, latest, "check-up");
+    }
+}